@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for running the benchmark suite.
+ *
+ * <p>
+ * Accepts the usual JMH command line options (e.g. a benchmark regex, or {@code -p size=8,64} to restrict the board
+ * sizes). The GC profiler is always enabled so allocation regressions show up next to the timings, and every fork
+ * runs JavaFX on the headless Monocle platform.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(
+                        "-Dglass.platform=Monocle",
+                        "-Dmonocle.platform=Headless",
+                        "-Dprism.order=sw",
+                        "-Djava.awt.headless=true")
+                .build();
+
+        new Runner(options).run();
+    }
+}
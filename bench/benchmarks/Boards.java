@@ -0,0 +1,96 @@
+package benchmarks;
+
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import util.Coordinate;
+import util.Direction;
+
+/**
+ * Factory methods for the boards used by the benchmarks.
+ *
+ * <p>
+ * All boards are square, surrounded by walls, and contain exactly one source and one sink, so they can be passed
+ * straight into {@link models.map.Map}.
+ * </p>
+ */
+final class Boards {
+
+    private Boards() {
+    }
+
+    /**
+     * Creates an empty board with the source in the middle and the sink on the bottom edge.
+     *
+     * <p>
+     * Reachability searches on this board have to explore most of the interior before finding the sink.
+     * </p>
+     *
+     * @param size Number of rows and columns, including the side walls.
+     * @return Cells of the board.
+     */
+    @NotNull
+    static Cell[][] open(int size) {
+        final var cells = walled(size);
+        final int mid = size / 2;
+
+        cells[mid][mid] = new TerminationCell(new Coordinate(mid, mid), Direction.UP, TerminationCell.Type.SOURCE);
+        cells[size - 1][size - 2] = new TerminationCell(new Coordinate(size - 1, size - 2), Direction.DOWN, TerminationCell.Type.SINK);
+        return cells;
+    }
+
+    /**
+     * Creates a board with a complete horizontal pipe line from a source on the left to a sink on the right edge.
+     *
+     * @param size Number of rows and columns, including the side walls.
+     * @return Cells of the board.
+     */
+    @NotNull
+    static Cell[][] piped(int size) {
+        final var cells = walled(size);
+
+        cells[1][1] = new TerminationCell(new Coordinate(1, 1), Direction.RIGHT, TerminationCell.Type.SOURCE);
+        for (int c = 2; c < size - 1; ++c) {
+            cells[1][c] = new FillableCell(new Coordinate(1, c), new Pipe(Pipe.Shape.HORIZONTAL));
+        }
+        cells[1][size - 1] = new TerminationCell(new Coordinate(1, size - 1), Direction.RIGHT, TerminationCell.Type.SINK);
+        return cells;
+    }
+
+    /**
+     * Serializes a board into the format accepted by {@link io.Deserializer#parseString(int, int, String)}.
+     *
+     * @param cells Cells of the board.
+     * @return String representation of the board, with rows delimited by {@code '\n'}.
+     */
+    @NotNull
+    static String toMapString(@NotNull Cell[][] cells) {
+        final var sb = new StringBuilder();
+        for (Cell[] row : cells) {
+            for (Cell cell : row) {
+                sb.append(cell.toSerializedRep());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @NotNull
+    private static Cell[][] walled(int size) {
+        final var cells = new Cell[size][size];
+        for (int r = 0; r < size; ++r) {
+            for (int c = 0; c < size; ++c) {
+                final var coord = new Coordinate(r, c);
+                if (r == 0 || c == 0 || r == size - 1 || c == size - 1) {
+                    cells[r][c] = new Wall(coord);
+                } else {
+                    cells[r][c] = new FillableCell(coord);
+                }
+            }
+        }
+        return cells;
+    }
+}
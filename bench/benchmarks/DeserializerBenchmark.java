@@ -0,0 +1,73 @@
+package benchmarks;
+
+import io.Deserializer;
+import io.GameProperties;
+import models.map.cells.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing maps in {@link Deserializer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeserializerBenchmark {
+
+    /**
+     * Number of rows and columns of the board, including the side walls.
+     */
+    @Param({"8", "64", "256", "1000"})
+    public int size;
+
+    private String mapString;
+    private Path mapFile;
+    private Deserializer deserializer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Toolkit.ensureStarted();
+
+        mapString = Boards.toMapString(Boards.piped(size));
+
+        mapFile = Files.createTempFile("pipes-bench", ".map");
+        Files.writeString(mapFile, size + "\n" + size + "\n10\n" + mapString + "TR, TL, BL, BR, CR, VT, HZ\n",
+                StandardCharsets.UTF_8);
+        deserializer = new Deserializer(mapFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(mapFile);
+    }
+
+    @Benchmark
+    public Cell[][] parseString() {
+        return Deserializer.parseString(size, size, mapString);
+    }
+
+    @Benchmark
+    public GameProperties parseGameFile() {
+        return deserializer.parseGameFile();
+    }
+}
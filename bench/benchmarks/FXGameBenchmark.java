@@ -0,0 +1,56 @@
+package benchmarks;
+
+import models.FXGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for constructing randomly generated {@link FXGame} instances.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FXGameBenchmark {
+
+    /**
+     * Number of rows and columns of the generated board, excluding the side walls.
+     *
+     * <p>
+     * Capped well below the other benchmarks, since every attempt at a board runs the quadratic
+     * {@link models.map.Map#checkReachable()}.
+     * </p>
+     */
+    @Param({"8", "16", "32", "64"})
+    public int size;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Toolkit.ensureStarted();
+
+        FXGame.setDefaultRows(size);
+        FXGame.setDefaultCols(size);
+    }
+
+    @Benchmark
+    public FXGame randomConstruction() {
+        final var game = new FXGame();
+        // Release the loop and the tracker registration owned by the game, otherwise every invocation leaks them
+        game.dispose();
+        return game;
+    }
+}
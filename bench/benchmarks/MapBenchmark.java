@@ -0,0 +1,99 @@
+package benchmarks;
+
+import models.map.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the flow and path searches in {@link Map}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapBenchmark {
+
+    /**
+     * Number of rows and columns of the board, including the side walls.
+     */
+    @Param({"8", "64", "256", "1000"})
+    public int size;
+
+    /**
+     * Board with a complete pipe line, shared across invocations by the read-only searches.
+     */
+    private Map pathMap;
+    /**
+     * Empty board with the source in the middle.
+     */
+    private Map openMap;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        Toolkit.ensureStarted();
+
+        pathMap = new Map(size, size, Boards.piped(size));
+        openMap = new Map(size, size, Boards.open(size));
+    }
+
+    /**
+     * Board with a complete pipe line, rebuilt before every iteration since filling mutates the pipes.
+     *
+     * <p>
+     * The fill benchmarks run once per iteration ({@link Mode#SingleShotTime}), so the board is rebuilt outside the
+     * measured region instead of before every invocation, where the rebuild would dominate at large sizes.
+     * </p>
+     */
+    @State(Scope.Thread)
+    public static class PipedMap {
+
+        private Map map;
+
+        @Setup(Level.Iteration)
+        public void setup(MapBenchmark benchmark) {
+            map = new Map(benchmark.size, benchmark.size, Boards.piped(benchmark.size));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Map fillTiles(PipedMap piped) {
+        piped.map.fillTiles(size);
+        return piped.map;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Map fillAll(PipedMap piped) {
+        piped.map.fillAll();
+        return piped.map;
+    }
+
+    @Benchmark
+    public boolean checkPath() {
+        return pathMap.checkPath();
+    }
+
+    @Benchmark
+    public boolean checkReachable() {
+        return openMap.checkReachable();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import models.PipeQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link PipeQueue}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipeQueueBenchmark {
+
+    private PipeQueue pipeQueue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Toolkit.ensureStarted();
+
+        pipeQueue = new PipeQueue();
+    }
+
+    @Benchmark
+    public PipeQueue consume() {
+        pipeQueue.consume();
+        return pipeQueue;
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import controllers.Renderer;
+import javafx.scene.canvas.Canvas;
+import models.map.cells.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static models.Config.TILE_SIZE;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Renderer#renderMap(Canvas, Cell[][])} on a canvas which is not attached to any scene.
+ *
+ * <p>
+ * A detached canvas only records draw commands, so this measures the cost of issuing commands rather than
+ * rasterization.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendererBenchmark {
+
+    /**
+     * Number of rows and columns of the board, including the side walls.
+     */
+    @Param({"8", "64", "256", "1000"})
+    public int size;
+
+    private Cell[][] cells;
+    private Canvas canvas;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Toolkit.ensureStarted();
+
+        cells = Boards.piped(size);
+        canvas = new Canvas(TILE_SIZE * size, TILE_SIZE * size);
+    }
+
+    @Benchmark
+    public Canvas renderMap() {
+        // Clearing the whole canvas discards the recorded command buffer, so it does not grow across invocations
+        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        Renderer.renderMap(canvas, cells);
+        return canvas;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import io.SyncEncoder;
+import models.map.Map;
+import models.pipes.Pipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.Coordinate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link SyncEncoder}, measuring what {@link server.SyncServer} does on the game loop after each move:
+ * taking a snapshot of the map and encoding the delta from the previous one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyncEncoderBenchmark {
+
+    /**
+     * Number of rows and columns of the board, including the side walls.
+     */
+    @Param({"8", "64", "256", "1000"})
+    public int size;
+
+    private final Coordinate coord = new Coordinate(1, 1);
+    private final List<Pipe> queue = List.of(new Pipe(Pipe.Shape.HORIZONTAL));
+
+    private Map map;
+    private SyncEncoder encoder;
+    private boolean placed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Toolkit.ensureStarted();
+
+        map = new Map(size, size, Boards.open(size));
+        encoder = new SyncEncoder(map.snapshot(), queue);
+        placed = false;
+    }
+
+    /**
+     * Places a pipe, or undoes it, then encodes the delta.
+     */
+    @Benchmark
+    public byte[] encodeMove() {
+        if (placed) {
+            map.undo(coord);
+        } else {
+            map.tryPlacePipe(coord, new Pipe(Pipe.Shape.HORIZONTAL));
+        }
+        placed = !placed;
+        return encoder.encodeDelta(map.snapshot(), queue);
+    }
+
+    /**
+     * Encodes a snapshot message, as sent to a client joining or resyncing, for comparison.
+     */
+    @Benchmark
+    public byte[] encodeSnapshot() {
+        return encoder.encodeSnapshot();
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import javafx.application.Platform;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark fork.
+ *
+ * <p>
+ * Images are loaded through {@link controllers.ResourceLoader} when rendering, which needs a running toolkit. Forks
+ * are launched with the headless Monocle platform (see {@link BenchmarkRunner}).
+ * </p>
+ */
+final class Toolkit {
+
+    private static boolean started = false;
+
+    private Toolkit() {
+    }
+
+    static synchronized void ensureStarted() {
+        if (started) {
+            return;
+        }
+
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            // Toolkit already initialized by someone else
+        }
+        started = true;
+    }
+}
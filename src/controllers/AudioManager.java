@@ -1,18 +1,47 @@
 package controllers;
 
-import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javafx.application.Platform;
 import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
 import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import models.exceptions.ResourceNotFoundException;
 
 /**
  * Handles audio related events.
+ *
+ * <p>
+ * Each sound is decoded once into a {@link Media}, and the {@link MediaPlayer}s playing it are recycled through a
+ * small per-sound idle pool. All pool state is confined to the JavaFX Application Thread.
+ * </p>
  */
 public class AudioManager {
 
     private static final AudioManager INSTANCE = new AudioManager();
+
+    /**
+     * Maximum number of sounds playing at the same time. Further requests are dropped until a sound finishes.
+     */
+    private static final int MAX_PLAYING_SOUNDS = 8;
+    /**
+     * Maximum number of idle players kept for reuse per sound.
+     */
+    private static final int MAX_IDLE_PLAYERS_PER_SOUND = 2;
+    /**
+     * Requests to play a sound within this many milliseconds of the previous play of the same sound are dropped.
+     */
+    private static final long DUPLICATE_WINDOW_MS = 50;
+
     /**
      * Set of all currently playing sounds.
      *
@@ -21,6 +50,31 @@ public class AudioManager {
      * </p>
      */
     private final Set<MediaPlayer> soundPool = new HashSet<>();
+    /**
+     * Decoded media of each sound.
+     */
+    private final Map<SoundRes, Media> mediaCache = new EnumMap<>(SoundRes.class);
+    /**
+     * Players which have finished playing and can be reused, per sound.
+     */
+    private final Map<SoundRes, Deque<MediaPlayer>> idlePlayers = new EnumMap<>(SoundRes.class);
+    /**
+     * Time at which each sound was last played, in milliseconds.
+     */
+    private final Map<SoundRes, Long> lastPlayed = new EnumMap<>(SoundRes.class);
+    /**
+     * Sounds whose media cannot be played on this platform, which are skipped instead of being decoded again.
+     */
+    private final Set<SoundRes> unavailable = EnumSet.noneOf(SoundRes.class);
+    /**
+     * Daemon thread for disposing players, since disposing blocks until the native player is torn down.
+     */
+    private final ExecutorService disposer = Executors.newSingleThreadExecutor(r -> {
+        final var t = new Thread(r, "audio-disposer");
+        t.setDaemon(true);
+        return t;
+    });
+
     private boolean enabled = true;
     private boolean counting = false;
 
@@ -37,6 +91,9 @@ public class AudioManager {
     }
 
     private AudioManager() {
+        for (var sound : SoundRes.values()) {
+            idlePlayers.put(sound, new ArrayDeque<>());
+        }
     }
 
     public static AudioManager getInstance() {
@@ -49,47 +106,159 @@ public class AudioManager {
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        if (!enabled) {
+            runOnFxThread(this::releaseAll);
+        }
     }
-    
+
     public boolean isCountingDown() {
     	return counting;
     }
-    
+
     public void setCountingDown(boolean counting) {
     	this.counting = counting;
     }
-    
-    
+
+    /**
+     * Decodes every sound and prepares one player for each, so the first play of a sound does not stall.
+     */
+    public void preload() {
+        runOnFxThread(() -> {
+            for (var sound : SoundRes.values()) {
+                final var idle = idlePlayers.get(sound);
+                if (idle.isEmpty()) {
+                    final var player = createPlayer(sound);
+                    if (player != null) {
+                        idle.push(player);
+                    }
+                }
+            }
+        });
+    }
 
     /**
      * Plays the sound. If disabled, simply return.
      *
      * <p>
-     * Hint:
-     * <ul>
-     * <li>Use {@link MediaPlayer#play()} and {@link MediaPlayer#dispose()}.</li>
-     * <li>When creating a new MediaPlayer object, add it into {@link AudioManager#soundPool} before playing it.</li>
-     * <li>Set a callback for when the sound has completed playing. This is to remove it from the soundpool, and
-     * dispose the player using a daemon thread.</li>
-     * </ul>
+     * The sound is dropped if the same sound was started less than {@link AudioManager#DUPLICATE_WINDOW_MS} ago, or if
+     * {@link AudioManager#MAX_PLAYING_SOUNDS} sounds are already playing.
+     * </p>
      *
-     * @param name the name of the sound file to be played, excluding .mp3
+     * @param sound The sound to be played.
      */
-    private void playFile(final String name) {
+    private void playFile(final SoundRes sound) {
         // TODO
-    	if (enabled) {
-//        	Media media = new Media(getClass().getResource("resources/assets/audio/" + name + ".mp3").toExternalForm());
-//        	MediaPlayer player = new MediaPlayer(media);
-//        	player.play();
+    	if (!enabled || unavailable.contains(sound)) {
+    		return;
     	}
+
+    	final long now = System.currentTimeMillis();
+    	final var last = lastPlayed.get(sound);
+    	if (last != null && now - last < DUPLICATE_WINDOW_MS) {
+    		return;
+    	}
+    	if (soundPool.size() >= MAX_PLAYING_SOUNDS) {
+    		return;
+    	}
+
+    	var player = idlePlayers.get(sound).poll();
+    	if (player == null) {
+    		player = createPlayer(sound);
+    		if (player == null) {
+    			return;
+    		}
+    	}
+
+    	lastPlayed.put(sound, now);
+    	soundPool.add(player);
+    	player.play();
+    }
+
+    /**
+     * Creates a new player for a sound, decoding its media if it has not been decoded before.
+     *
+     * <p>
+     * If the media cannot be played on this platform, the sound is marked as unavailable and no longer played. Other
+     * sounds, and the player's sound setting, are left alone.
+     * </p>
+     *
+     * @param sound Sound to create a player for.
+     * @return The new player, or {@code null} if the sound cannot be played.
+     */
+    private MediaPlayer createPlayer(final SoundRes sound) {
+        if (unavailable.contains(sound)) {
+            return null;
+        }
+        try {
+            final var media = mediaCache.computeIfAbsent(sound,
+                    it -> new Media(ResourceLoader.getResource("assets/audio/" + it + ".mp3")));
+            final var player = new MediaPlayer(media);
+            player.setOnEndOfMedia(() -> release(sound, player));
+            player.setOnError(() -> {
+                soundPool.remove(player);
+                dispose(player);
+            });
+            return player;
+        } catch (MediaException | ResourceNotFoundException e) {
+            System.err.println("Unable to play sound " + sound + ": " + e.getMessage());
+            unavailable.add(sound);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a player which has finished playing to the idle pool, or disposes it if the pool is full.
+     *
+     * @param sound  Sound played by the player.
+     * @param player Player to release.
+     */
+    private void release(final SoundRes sound, final MediaPlayer player) {
+        soundPool.remove(player);
+
+        final var idle = idlePlayers.get(sound);
+        if (enabled && idle.size() < MAX_IDLE_PLAYERS_PER_SOUND) {
+            player.stop();
+            player.seek(Duration.ZERO);
+            idle.push(player);
+        } else {
+            dispose(player);
+        }
+    }
+
+    /**
+     * Stops and disposes every player.
+     */
+    private void releaseAll() {
+        soundPool.forEach(this::dispose);
+        soundPool.clear();
+        idlePlayers.values().forEach(idle -> {
+            idle.forEach(this::dispose);
+            idle.clear();
+        });
+    }
+
+    private void dispose(final MediaPlayer player) {
+        disposer.execute(player::dispose);
+    }
+
+    private static void runOnFxThread(final Runnable r) {
+        if (Platform.isFxApplicationThread()) {
+            r.run();
+        } else {
+            Platform.runLater(r);
+        }
     }
 
     /**
      * Plays a sound.
      *
+     * <p>
+     * May be called from any thread; the sound is started on the JavaFX Application Thread.
+     * </p>
+     *
      * @param name Enumeration of the sound, given by {@link SoundRes}.
      */
     public void playSound(final SoundRes name) {
-        playFile(name.toString());
+        runOnFxThread(() -> playFile(name));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package controllers;
+
+import javafx.animation.AnimationTimer;
+import models.map.MapSnapshot;
+import org.jetbrains.annotations.NotNull;
+import views.MapViewport;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Renders a map every frame, animating the water as it flows through the tiles of the latest fill step.
+ *
+ * <p>
+ * Each frame, the latest snapshot of the map is rendered into a {@link MapViewport}, which only redraws visible cells
+ * that changed since the previous frame. While the tiles of the latest fill step are being animated, only those tiles
+ * are redrawn, with the filled part growing from the edge the water entered from until the next fill step is due. Once
+ * the animation has finished, nothing is drawn until the map changes again.
+ * </p>
+ */
+public class FlowAnimator extends AnimationTimer {
+
+    @NotNull
+    private final MapViewport viewport;
+    @NotNull
+    private final Supplier<MapSnapshot> source;
+    @NotNull
+    private final BooleanSupplier paused;
+    /**
+     * Time taken for the water to flow through a tile, in nanoseconds.
+     */
+    private final long durationNanos;
+
+    /**
+     * Snapshot whose frontier is being animated.
+     */
+    private MapSnapshot animating;
+    /**
+     * Unpaused time spent animating the current frontier, in nanoseconds.
+     */
+    private long elapsedNanos;
+    /**
+     * Timestamp of the previous frame, or -1 if no frame has been rendered since the animator was started.
+     */
+    private long lastFrameNanos = -1;
+    private boolean finished = true;
+
+    /**
+     * @param viewport        Viewport to render to.
+     * @param source          Supplier of the latest snapshot of the map.
+     * @param paused          Whether the flow of water is currently paused.
+     * @param durationSeconds Time taken for the water to flow through a tile, in seconds.
+     */
+    public FlowAnimator(@NotNull MapViewport viewport, @NotNull Supplier<MapSnapshot> source, @NotNull BooleanSupplier paused,
+                        double durationSeconds) {
+        this.viewport = viewport;
+        this.source = source;
+        this.paused = paused;
+        this.durationNanos = (long) (durationSeconds * 1_000_000_000L);
+    }
+
+    @Override
+    public void start() {
+        lastFrameNanos = -1;
+        super.start();
+    }
+
+    @Override
+    public void handle(long now) {
+        final var snapshot = source.get();
+        viewport.render(snapshot);
+
+        if (animating == null || !snapshot.isSameMapAs(animating)) {
+            animating = snapshot;
+            elapsedNanos = 0;
+            finished = snapshot.getFrontierSize() == 0;
+        } else if (snapshot.fillDistance != animating.fillDistance) {
+            // Tiles of the previous step which are unchanged are not redrawn by the viewport, so complete them here
+            if (!finished) {
+                drawFrontier(animating, snapshot, 1);
+            }
+            animating = snapshot;
+            elapsedNanos = 0;
+            finished = snapshot.getFrontierSize() == 0;
+        }
+
+        if (lastFrameNanos >= 0 && !paused.getAsBoolean()) {
+            elapsedNanos += now - lastFrameNanos;
+        }
+        lastFrameNanos = now;
+
+        if (finished) {
+            return;
+        }
+
+        final double progress = durationNanos > 0 ? Math.min(1, (double) elapsedNanos / durationNanos) : 1;
+        drawFrontier(animating, snapshot, progress);
+        finished = progress >= 1;
+    }
+
+    /**
+     * Draws the frontier tiles of a snapshot.
+     *
+     * @param frontier Snapshot whose frontier to draw.
+     * @param latest   Latest snapshot of the map, providing the current state of each tile.
+     * @param progress Fraction of each tile which has been filled.
+     */
+    private void drawFrontier(@NotNull MapSnapshot frontier, @NotNull MapSnapshot latest, double progress) {
+        for (int i = 0; i < frontier.getFrontierSize(); ++i) {
+            final int row = frontier.getFrontierRow(i);
+            final int col = frontier.getFrontierCol(i);
+            viewport.renderPartialFill(latest.get(row, col), row, col, frontier.getFrontierDirection(i), progress);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package controllers;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.IntegerProperty;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces UI updates into at most one pass per frame.
+ *
+ * <p>
+ * Updates may be requested from any thread. Each update is identified by a key; if an update with the same key is
+ * still pending, it is replaced by the newer one, so bursts of requests (e.g. one per tick or per move) cost a single
+ * repaint or property write per frame. Pending updates are run in no particular order from an {@link AnimationTimer}
+ * on the JavaFX Application Thread.
+ * </p>
+ * <p>
+ * Updates which must not run during a pulse, such as {@link javafx.scene.control.Dialog#showAndWait()}, should still be
+ * posted with {@link javafx.application.Platform#runLater(Runnable)}.
+ * </p>
+ */
+public class FrameScheduler {
+
+    /**
+     * Updates waiting for the next frame, keyed by what they update.
+     */
+    @NotNull
+    private final Map<Object, Runnable> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    private volatile boolean running = false;
+
+    @NotNull
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flush();
+        }
+    };
+
+    /**
+     * Starts running pending updates once per frame.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread.
+     * </p>
+     */
+    public void start() {
+        running = true;
+        timer.start();
+    }
+
+    /**
+     * Stops running updates, and drops all pending updates.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread.
+     * </p>
+     */
+    public void stop() {
+        running = false;
+        timer.stop();
+        dropped.addAndGet(pending.size());
+        pending.clear();
+    }
+
+    /**
+     * Requests an update to be run in the next frame.
+     *
+     * <p>
+     * If the scheduler is not running, the update is dropped.
+     * </p>
+     *
+     * @param key    Key identifying what the update changes. A pending update with the same key is replaced.
+     * @param update Update to run on the JavaFX Application Thread.
+     */
+    public void request(@NotNull Object key, @NotNull Runnable update) {
+        requested.incrementAndGet();
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (pending.put(key, update) != null) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Requests a property to be set to a value in the next frame.
+     *
+     * @param property Property to set.
+     * @param value    Value to set the property to.
+     */
+    public void set(@NotNull IntegerProperty property, int value) {
+        request(property, () -> property.set(value));
+    }
+
+    /**
+     * Runs all updates which are pending at the start of the frame.
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        frames.incrementAndGet();
+
+        for (var key : pending.keySet()) {
+            final var update = pending.remove(key);
+            if (update != null) {
+                update.run();
+            }
+        }
+    }
+
+    /**
+     * @return Total number of updates requested.
+     */
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    /**
+     * @return Number of updates which were replaced by a newer update with the same key before they ran.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return Number of updates which were discarded because the scheduler was not running.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Number of frames in which at least one update was run.
+     */
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FrameScheduler[requested=%d, coalesced=%d, dropped=%d, frames=%d]",
+                getRequestedCount(), getCoalescedCount(), getDroppedCount(), getFrameCount());
+    }
+}
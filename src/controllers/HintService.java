@@ -0,0 +1,106 @@
+package controllers;
+
+import javafx.application.Platform;
+import models.map.HintSearch;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Computes hints for a game in the background.
+ *
+ * <p>
+ * Each request runs a {@link HintSearch} on a background thread for at most a fixed budget of time, so that hints never
+ * hold up the game loop or the JavaFX Application Thread. A request supersedes all earlier ones: a search which is
+ * still running stops at its next check, searches which have not started yet are skipped, and results of superseded
+ * searches are never delivered. Requests should therefore be made on every move, and {@link HintService#cancel()}
+ * called whenever the displayed hint becomes stale.
+ * </p>
+ */
+public class HintService {
+
+    /**
+     * Thread shared by all hint services. Only one game is played at a time, so searches never need to run in
+     * parallel.
+     */
+    @NotNull
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final var t = new Thread(r, "hint-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Maximum time spent on each search.
+     */
+    private final long budgetNanos;
+    /**
+     * Callback receiving each hint on the JavaFX Application Thread.
+     */
+    @NotNull
+    private final Consumer<HintSearch.Hint> onHint;
+
+    /**
+     * Number of the latest request. Searches of earlier requests are stale.
+     */
+    @NotNull
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param budgetMillis Maximum time spent on each search, in milliseconds.
+     * @param onHint       Callback receiving the hint of each request on the JavaFX Application Thread, unless the
+     *                     request has been superseded by then. The hint is {@code null} if no path to the sink was
+     *                     found.
+     */
+    public HintService(long budgetMillis, @NotNull Consumer<HintSearch.Hint> onHint) {
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.onHint = onHint;
+    }
+
+    /**
+     * Requests a hint, superseding all earlier requests. May be called from any thread.
+     *
+     * @param snapshot Snapshot of the map.
+     * @param queue    Snapshot of the pipe queue, starting with the current pipe.
+     */
+    public void request(@NotNull MapSnapshot snapshot, @NotNull List<Pipe> queue) {
+        final long id = generation.incrementAndGet();
+        final var shapes = queue.stream().map(Pipe::getShape).collect(Collectors.toList());
+
+        EXECUTOR.execute(() -> {
+            if (generation.get() != id) {
+                return;
+            }
+            final long deadline = System.nanoTime() + budgetNanos;
+            final var hint = HintSearch.search(snapshot, shapes, deadline, () -> generation.get() != id);
+            deliver(id, hint);
+        });
+    }
+
+    /**
+     * Cancels all requests. The running search, if any, stops at its next check. May be called from any thread.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private void deliver(long id, @Nullable HintSearch.Hint hint) {
+        if (generation.get() != id) {
+            return;
+        }
+        Platform.runLater(() -> {
+            // The request may have been superseded while the result was queued
+            if (generation.get() == id) {
+                onHint.accept(hint);
+            }
+        });
+    }
+}
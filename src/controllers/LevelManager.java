@@ -1,11 +1,20 @@
 package controllers;
 
+import io.Deserializer;
+import io.GameProperties;
+import io.LevelTemplate;
+import io.Serializer;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Alert;
+import models.map.MapSnapshot;
 import models.map.cells.Cell;
 import models.map.cells.TerminationCell;
 import util.Coordinate;
@@ -13,24 +22,67 @@ import util.Coordinate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static models.Config.TILE_SIZE;
+
 /**
  * Singleton class responsible for loading and managing levels from the filesystem.
  */
 public class LevelManager {
 
+    /**
+     * Largest width or height of a level thumbnail, in pixels.
+     */
+    public static final int THUMBNAIL_SIZE = 64;
+
+    /**
+     * Version of the thumbnail format. Part of the cache key, so that bumping it invalidates existing thumbnails.
+     */
+    private static final String THUMBNAIL_VERSION = "1";
+
+    private static final AtomicInteger BACKGROUND_THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Pool loading levels and generating thumbnails. Its threads are daemons so that pending work never keeps the JVM
+     * alive.
+     */
+    @NotNull
+    private static final ExecutorService BACKGROUND_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            r -> {
+                final var t = new Thread(r, "level-manager-" + BACKGROUND_THREAD_COUNT.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
     /**
      * Singleton instance.
      */
@@ -50,12 +102,55 @@ public class LevelManager {
     @NotNull
     private final StringProperty curLevelNameProperty = new SimpleStringProperty();
 
+    /**
+     * Thumbnails of the levels in {@link LevelManager#levelNames}, keyed by level name. Only modified on the JavaFX
+     * Application Thread.
+     */
+    @NotNull
+    private final ObservableMap<String, Image> thumbnails = FXCollections.observableHashMap();
+
+    /**
+     * Incremented whenever the level list is reloaded, so that thumbnails of stale lists are discarded.
+     */
+    @NotNull
+    private final AtomicInteger thumbnailGeneration = new AtomicInteger();
+
+    /**
+     * Levels which have been loaded or are being loaded, keyed by level name.
+     */
+    @NotNull
+    private final Map<String, CachedTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Directory caching thumbnails as PNG files, named by the hash of the contents of the level.
+     */
+    @NotNull
+    private Path thumbnailDirectory = Paths.get(System.getProperty("user.home"), ".pipes", "thumbnails");
+
     /**
      * Path to the map directory. Defaults to the current working directory.
      */
     @NotNull
     private Path mapDirectory = Paths.get("");
 
+    /**
+     * A level which has been loaded or is being loaded.
+     */
+    private static class CachedTemplate {
+        /**
+         * Modification time of the level file when it was loaded.
+         */
+        @NotNull
+        final FileTime modified;
+        @NotNull
+        final CompletableFuture<LevelTemplate> template;
+
+        CachedTemplate(@NotNull FileTime modified, @NotNull CompletableFuture<LevelTemplate> template) {
+            this.modified = modified;
+            this.template = template;
+        }
+    }
+
     private LevelManager() {
         setMapDirectory(mapDirectory);
     }
@@ -95,6 +190,7 @@ public class LevelManager {
     private void loadLevelNamesFromDisk() {
         // TODO
     	levelNames.clear();
+    	templates.clear();
     	
     	File[] fileList = mapDirectory.toFile().listFiles();
     	
@@ -109,6 +205,260 @@ public class LevelManager {
     			levelNames.add(fileName.substring(0, fileName.lastIndexOf(".")));
     		}
     	}
+
+    	refreshThumbnails();
+    }
+
+    /**
+     * Loads or generates the thumbnails of all levels in the background.
+     *
+     * <p>
+     * Thumbnails are cached in {@link LevelManager#thumbnailDirectory}, keyed by the hash of the level file, so a
+     * thumbnail is only rendered again when the contents of its level change. Levels are processed in parallel, and
+     * each thumbnail is added to {@link LevelManager#getThumbnails()} on the JavaFX Application Thread as soon as it is
+     * ready.
+     * </p>
+     *
+     * @return A future which completes once all thumbnails have been processed.
+     */
+    @NotNull
+    public CompletableFuture<Void> refreshThumbnails() {
+        final int generation = thumbnailGeneration.incrementAndGet();
+        final var directory = mapDirectory;
+        final var cacheDirectory = thumbnailDirectory;
+        final var names = List.copyOf(levelNames);
+        if (Platform.isFxApplicationThread()) {
+            thumbnails.clear();
+        } else if (!thumbnails.isEmpty()) {
+            Platform.runLater(thumbnails::clear);
+        }
+
+        return CompletableFuture.allOf(names.stream()
+                .map(name -> refreshThumbnail(name, generation, directory, cacheDirectory))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Loads or generates the thumbnail of a single level in the background.
+     *
+     * @param name           Name of the level.
+     * @param generation     Value of {@link LevelManager#thumbnailGeneration} the thumbnail belongs to.
+     * @param directory      Directory containing the level.
+     * @param cacheDirectory Directory caching thumbnails.
+     * @return A future which completes once the thumbnail has been processed.
+     */
+    @NotNull
+    private CompletableFuture<Void> refreshThumbnail(@NotNull String name, int generation, @NotNull Path directory,
+                                                     @NotNull Path cacheDirectory) {
+        return CompletableFuture
+                .supplyAsync(() -> loadThumbnail(directory.resolve(name + ".map"), cacheDirectory), BACKGROUND_EXECUTOR)
+                .thenCompose(Function.identity())
+                .thenAccept(image -> Platform.runLater(() -> {
+                    if (thumbnailGeneration.get() == generation) {
+                        thumbnails.put(name, image);
+                    }
+                }))
+                .exceptionally(e -> {
+                    System.err.println("Cannot create thumbnail of level " + name + ": " + e.getCause());
+                    return null;
+                });
+    }
+
+    /**
+     * Saves a level in the background, and updates the level list if the level is in the current map directory.
+     *
+     * <p>
+     * Only the saved level is added to the list and has its thumbnail regenerated; the rest of the map directory is
+     * not scanned again.
+     * </p>
+     *
+     * @param path       Path to save the level to.
+     * @param properties Properties of the level. Must not be modified until the returned future completes.
+     * @return A future which completes once the level is saved, or completes exceptionally if it cannot be saved.
+     */
+    @NotNull
+    public CompletableFuture<Void> saveLevel(@NotNull Path path, @NotNull GameProperties properties) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                new Serializer(path).serializeGameProp(properties);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BACKGROUND_EXECUTOR).thenRun(() -> Platform.runLater(() -> onLevelSaved(path)));
+    }
+
+    /**
+     * Updates the level list after a level file has been written.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread.
+     * </p>
+     *
+     * @param path Path to the level file.
+     */
+    private void onLevelSaved(@NotNull Path path) {
+        final var fileName = path.getFileName().toString();
+        final var parent = path.toAbsolutePath().normalize().getParent();
+        if (!fileName.endsWith(".map") || !mapDirectory.toAbsolutePath().normalize().equals(parent)) {
+            return;
+        }
+
+        final var name = fileName.substring(0, fileName.length() - ".map".length());
+        templates.remove(name);
+        if (!levelNames.contains(name)) {
+            levelNames.add(name);
+        }
+        refreshThumbnail(name, thumbnailGeneration.get(), mapDirectory, thumbnailDirectory);
+    }
+
+    /**
+     * Loads the thumbnail of a level from the cache, rendering and caching it if needed.
+     *
+     * <p>
+     * Rendering is chained onto the {@link TileRasterizer} rather than waited for, so that no background thread is
+     * blocked while the rasteriser's pool works.
+     * </p>
+     *
+     * @param levelPath      Path to the level file.
+     * @param cacheDirectory Directory caching thumbnails.
+     * @return A future completing with the thumbnail of the level.
+     */
+    @NotNull
+    private static CompletableFuture<Image> loadThumbnail(@NotNull Path levelPath, @NotNull Path cacheDirectory) {
+        try {
+            final var hash = hashOf(Files.readAllBytes(levelPath));
+            final var cached = cacheDirectory.resolve(hash + ".png");
+            if (Files.exists(cached)) {
+                return CompletableFuture.completedFuture(new Image(cached.toUri().toString()));
+            }
+
+            final var cells = new Deserializer(levelPath).parseGameFile().cells;
+            final var snapshot = MapSnapshot.of(cells);
+            final int longestSide = Math.max(1, Math.max(snapshot.rows, snapshot.cols));
+            double scale = 1;
+            while (scale * TILE_SIZE * longestSide > THUMBNAIL_SIZE && scale * TILE_SIZE > 1) {
+                scale /= 2;
+            }
+
+            return TileRasterizer.rasterize(snapshot, scale).thenApplyAsync(image -> {
+                try {
+                    writePng(image, cacheDirectory, cached);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return image;
+            }, BACKGROUND_EXECUTOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes an image as a PNG file, replacing the file atomically so that readers never see a partial file.
+     *
+     * @param image     Image to write.
+     * @param directory Directory to write the file to, created if needed.
+     * @param target    Path to the file.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writePng(@NotNull Image image, @NotNull Path directory, @NotNull Path target) throws IOException {
+        final int width = (int) image.getWidth();
+        final int height = (int) image.getHeight();
+        final var pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        final var buffered = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        buffered.setRGB(0, 0, width, height, pixels, 0, width);
+
+        Files.createDirectories(directory);
+        final var temp = Files.createTempFile(directory, "thumbnail", ".tmp");
+        try {
+            ImageIO.write(buffered, "png", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param contents Contents of a level file.
+     * @return Cache key of the thumbnail of the level.
+     */
+    @NotNull
+    private static String hashOf(@NotNull byte[] contents) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(THUMBNAIL_VERSION.getBytes());
+            digest.update((byte) THUMBNAIL_SIZE);
+            return HexFormat.of().formatHex(digest.digest(contents));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Loads a level from the current map directory in the background.
+     *
+     * <p>
+     * Loaded levels are cached until the level file is modified or the level list is reloaded, so loading a level
+     * which has been preloaded with {@link LevelManager#preloadNextLevel()} or loaded before completes immediately.
+     * </p>
+     *
+     * @param levelName Name of the level.
+     * @return A future completing with the template of the level, or completing exceptionally if the level cannot be
+     * loaded.
+     */
+    @NotNull
+    public CompletableFuture<LevelTemplate> loadLevel(@NotNull String levelName) {
+        final var path = mapDirectory.resolve(levelName + ".map");
+        final FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            templates.remove(levelName);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return templates.compute(levelName, (name, cached) -> {
+            if (cached != null && cached.modified.equals(modified) && !cached.template.isCompletedExceptionally()) {
+                return cached;
+            }
+            return new CachedTemplate(modified, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return LevelTemplate.load(path);
+                } catch (FileNotFoundException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, BACKGROUND_EXECUTOR));
+        }).template;
+    }
+
+    /**
+     * Starts loading the level which {@link LevelManager#getAndSetNextLevel()} would switch to, so that it can be
+     * started without waiting for the filesystem.
+     */
+    public void preloadNextLevel() {
+        final var next = peekNextLevel();
+        if (next != null) {
+            loadLevel(next);
+        }
+    }
+
+    /**
+     * @return Thumbnails of the loaded levels, keyed by level name. Levels whose thumbnail is not ready yet are absent.
+     */
+    @NotNull
+    public ObservableMap<String, Image> getThumbnails() {
+        return thumbnails;
+    }
+
+    /**
+     * Sets the directory caching level thumbnails, and reloads the thumbnails from it.
+     *
+     * @param thumbnailDirectory New thumbnail directory.
+     */
+    public void setThumbnailDirectory(@NotNull Path thumbnailDirectory) {
+        this.thumbnailDirectory = thumbnailDirectory;
+        refreshThumbnails();
     }
 
     @NotNull
@@ -153,13 +503,26 @@ public class LevelManager {
     @Nullable
     public String getAndSetNextLevel() {
         // TODO
+    	curLevelNameProperty.set(peekNextLevel());
+    	
+        return curLevelNameProperty.get();
+    }
+
+    /**
+     * @return Name of the level which {@link LevelManager#getAndSetNextLevel()} would switch to, or {@code null} if
+     * there are no levels.
+     */
+    @Nullable
+    public String peekNextLevel() {
+    	if (levelNames.isEmpty()) {
+    		return null;
+    	}
+    	
     	if (levelNames.indexOf(curLevelNameProperty.get()) < levelNames.size() - 1) {
-    		curLevelNameProperty.set(levelNames.get(levelNames.indexOf(curLevelNameProperty.get()) + 1)); 
+    		return levelNames.get(levelNames.indexOf(curLevelNameProperty.get()) + 1);
     	} else {
-    		curLevelNameProperty.set(levelNames.get(0));
+    		return levelNames.get(0);
     	}
-    	
-        return curLevelNameProperty.get();
     }
 
     @NotNull
@@ -0,0 +1,362 @@
+package controllers;
+
+import javafx.application.Platform;
+import models.GameLoop;
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Direction;
+import util.GridIndex;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Validates a level being edited, keeping the result up to date as cells change.
+ *
+ * <p>
+ * The validator keeps its own copy of the level, which is only accessed on its {@link GameLoop}; edits are submitted
+ * from the JavaFX Application Thread and applied in order. Presence and blocking of the source and sink are checked in
+ * constant time. Reachability of the sink is tracked as the set of open cells reachable from the source: opening a
+ * cell next to that set extends it by a flood fill from the cell, and closing a cell outside of it changes nothing.
+ * Only closing a reached cell or moving the source requires a new search, which is linear in the size of the level.
+ * </p>
+ * <p>
+ * After each batch of edits, the result is posted to the JavaFX Application Thread if it has changed.
+ * </p>
+ */
+public class LevelValidator {
+
+    public static final String MSG_MISSING_SOURCE = "Source tile is missing!";
+    public static final String MSG_MISSING_SINK = "Sink tile is missing!";
+    public static final String MSG_BAD_DIMS = "Map size must be at least 2x2!";
+    public static final String MSG_BAD_DELAY = "Delay must be a positive value!";
+    public static final String MSG_SOURCE_TO_WALL = "Source tile is blocked by a wall!";
+    public static final String MSG_SINK_TO_WALL = "Sink tile is blocked by a wall!";
+    public static final String MSG_UNREACHABLE = "Sink cannot be reached from the source!";
+
+    private static final byte WALL = 0;
+    private static final byte OPEN = 1;
+    private static final byte SOURCE = 2;
+    private static final byte SINK = 3;
+    private static final int TYPE_MASK = 0b11;
+    private static final int DIRECTION_SHIFT = 2;
+
+    /**
+     * Thread shared by all validators. Validation is cheap enough that editors never need more than one.
+     */
+    @NotNull
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final var t = new Thread(r, "level-validator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @NotNull
+    private final GameLoop loop = new GameLoop(EXECUTOR);
+    /**
+     * Callback receiving each new result on the JavaFX Application Thread.
+     */
+    @NotNull
+    private final Consumer<Optional<String>> onResult;
+
+    // Everything below is only accessed on the loop
+
+    private int rows;
+    private int cols;
+    private int delay;
+    /**
+     * Encoded cells of the level, in row-major order.
+     */
+    @NotNull
+    private byte[] cells = new byte[0];
+    /**
+     * Index of the source cell, or {@code -1} if there is none.
+     */
+    private int source = -1;
+    /**
+     * Index of the sink cell, or {@code -1} if there is none.
+     */
+    private int sink = -1;
+    /**
+     * Open cells which water from the source can reach.
+     */
+    @NotNull
+    private BitSet reached = new BitSet();
+    /**
+     * Whether {@link LevelValidator#reached} needs to be recomputed from scratch.
+     */
+    private boolean reachedDirty = true;
+    /**
+     * Scratch queue for flood fills, reused between searches.
+     */
+    @NotNull
+    private int[] queue = new int[0];
+    /**
+     * Last result posted to {@link LevelValidator#onResult}.
+     */
+    @Nullable
+    private Optional<String> lastResult = null;
+
+    /**
+     * @param onResult Callback receiving the validation result on the JavaFX Application Thread every time it changes.
+     *                 The result contains the error message, or is empty if the level is valid.
+     */
+    public LevelValidator(@NotNull Consumer<Optional<String>> onResult) {
+        this.onResult = onResult;
+        loop.registerBatchCallback(this::publish);
+    }
+
+    /**
+     * Replaces the whole level.
+     *
+     * @param cells Cells of the level. Only read on the calling thread.
+     * @param delay Delay before the water starts flowing.
+     */
+    public void reset(@NotNull Cell[][] cells, int delay) {
+        final int rows = cells.length;
+        final int cols = rows == 0 ? 0 : cells[0].length;
+        final var encoded = new byte[rows * cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                encoded[r * cols + c] = encode(cells[r][c]);
+            }
+        }
+
+        loop.submit(() -> {
+            this.rows = rows;
+            this.cols = cols;
+            this.delay = delay;
+            this.cells = encoded;
+            this.queue = new int[encoded.length];
+            this.source = indexOf(SOURCE);
+            this.sink = indexOf(SINK);
+            reachedDirty = true;
+        });
+    }
+
+    /**
+     * Replaces a batch of cells of the level at once, e.g. all cells changed by a brush stroke.
+     *
+     * @param cells New cells, placed at their coordinates.
+     */
+    public void setCells(@NotNull List<Cell> cells) {
+        final var rowsOf = new int[cells.size()];
+        final var colsOf = new int[cells.size()];
+        final var codes = new byte[cells.size()];
+        for (int i = 0; i < codes.length; ++i) {
+            final var cell = cells.get(i);
+            rowsOf[i] = cell.coord.row;
+            colsOf[i] = cell.coord.col;
+            codes[i] = encode(cell);
+        }
+
+        loop.submit(() -> {
+            for (int i = 0; i < codes.length; ++i) {
+                if (rowsOf[i] >= 0 && rowsOf[i] < rows && colsOf[i] >= 0 && colsOf[i] < cols) {
+                    applyCell(rowsOf[i] * cols + colsOf[i], codes[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the delay before the water starts flowing.
+     *
+     * @param delay New delay.
+     */
+    public void setDelay(int delay) {
+        loop.submit(() -> this.delay = delay);
+    }
+
+    /**
+     * Validates the level after all edits submitted so far have been applied.
+     *
+     * @return A future completing with the error message, or an empty {@link Optional} if the level is valid.
+     */
+    @NotNull
+    public CompletableFuture<Optional<String>> validate() {
+        final var result = new CompletableFuture<Optional<String>>();
+        loop.submit(() -> result.complete(evaluate()));
+        return result;
+    }
+
+    /**
+     * Stops validating. Pending edits are discarded, and no more results are posted.
+     */
+    public void dispose() {
+        loop.close();
+    }
+
+    private void applyCell(int index, byte code) {
+        final byte old = cells[index];
+        if (old == code) {
+            return;
+        }
+        cells[index] = code;
+
+        if (index == source) {
+            source = -1;
+            reachedDirty = true;
+        }
+        if (index == sink) {
+            sink = -1;
+        }
+
+        switch (code & TYPE_MASK) {
+            case SOURCE:
+                source = index;
+                reachedDirty = true;
+                break;
+            case SINK:
+                sink = index;
+                break;
+            case OPEN:
+                if (!reachedDirty && touchesReached(index)) {
+                    flood(index);
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (old == OPEN && reached.get(index)) {
+            // Cells behind the closed cell may only have been reachable through it
+            reachedDirty = true;
+        }
+    }
+
+    /**
+     * Posts the result to the JavaFX Application Thread if it has changed since the last batch.
+     */
+    private void publish() {
+        final var result = evaluate();
+        if (result.equals(lastResult)) {
+            return;
+        }
+        lastResult = result;
+        Platform.runLater(() -> onResult.accept(result));
+    }
+
+    /**
+     * @return The error message of the level in its current state, or an empty {@link Optional} if it is valid.
+     */
+    @NotNull
+    private Optional<String> evaluate() {
+        if (source == -1) {
+            return Optional.of(MSG_MISSING_SOURCE);
+        }
+        if (sink == -1) {
+            return Optional.of(MSG_MISSING_SINK);
+        }
+        if (rows < 2 || cols < 2) {
+            return Optional.of(MSG_BAD_DIMS);
+        }
+        if (delay < 1) {
+            return Optional.of(MSG_BAD_DELAY);
+        }
+
+        final int sourceTarget = GridIndex.neighbour(source, directionOf(cells[source]), rows, cols);
+        if (sourceTarget == -1 || cells[sourceTarget] == WALL) {
+            return Optional.of(MSG_SOURCE_TO_WALL);
+        }
+        final int sinkFeed = GridIndex.neighbour(sink, directionOf(cells[sink]).getOpposite(), rows, cols);
+        if (sinkFeed == -1 || cells[sinkFeed] == WALL) {
+            return Optional.of(MSG_SINK_TO_WALL);
+        }
+
+        if (reachedDirty) {
+            reached.clear();
+            reachedDirty = false;
+            if (cells[sourceTarget] == OPEN) {
+                flood(sourceTarget);
+            }
+        }
+        if (sourceTarget != sink && !touches(sink, reached)) {
+            return Optional.of(MSG_UNREACHABLE);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Adds all open cells connected to an open cell to {@link LevelValidator#reached}.
+     *
+     * @param start Index of the open cell to start from.
+     */
+    private void flood(int start) {
+        if (reached.get(start)) {
+            return;
+        }
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        reached.set(start);
+        while (head < tail) {
+            final int index = queue[head++];
+            for (var dir : Direction.values()) {
+                final int next = GridIndex.neighbour(index, dir, rows, cols);
+                if (next != -1 && cells[next] == OPEN && !reached.get(next)) {
+                    reached.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param index Index of an open cell.
+     * @return Whether water reaching the cell's neighbours, or flowing out of the source, would reach the cell.
+     */
+    private boolean touchesReached(int index) {
+        if (source != -1 && GridIndex.neighbour(source, directionOf(cells[source]), rows, cols) == index) {
+            return true;
+        }
+        return touches(index, reached);
+    }
+
+    /**
+     * @param index Index of a cell.
+     * @param set   Set of cell indices.
+     * @return Whether any neighbour of the cell is in the set.
+     */
+    private boolean touches(int index, @NotNull BitSet set) {
+        for (var dir : Direction.values()) {
+            final int next = GridIndex.neighbour(index, dir, rows, cols);
+            if (next != -1 && set.get(next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOf(byte type) {
+        for (int i = 0; i < cells.length; ++i) {
+            if ((cells[i] & TYPE_MASK) == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte encode(@NotNull Cell cell) {
+        if (cell instanceof TerminationCell) {
+            final var tCell = (TerminationCell) cell;
+            final byte type = tCell.type == TerminationCell.Type.SOURCE ? SOURCE : SINK;
+            return (byte) (type | tCell.pointingTo.ordinal() << DIRECTION_SHIFT);
+        }
+        return cell instanceof FillableCell ? OPEN : WALL;
+    }
+
+    @NotNull
+    private static Direction directionOf(byte code) {
+        return Direction.values()[code >> DIRECTION_SHIFT];
+    }
+}
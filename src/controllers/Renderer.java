@@ -1,14 +1,20 @@
 package controllers;
 
+import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
 import javafx.scene.transform.Rotate;
+import models.map.MapSnapshot;
 import models.map.cells.Cell;
 import models.pipes.Pipe;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Direction;
 
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -24,27 +30,44 @@ public class Renderer {
      */
     private static final int QUEUE_TILE_PADDING = 8;
 
+    /**
+     * Appearance of hints drawn by {@link Renderer#renderHint(Canvas, int, int, Pipe.Shape, Affine, Runnable)}.
+     */
+    private static final double HINT_ALPHA = 0.6;
+    private static final double HINT_LINE_WIDTH = 3;
+    private static final Color HINT_COLOR = Color.GOLD;
+
+    /**
+     * Key into {@link Canvas#getProperties()} holding the last {@link MapSnapshot} drawn onto the canvas.
+     */
+    private static final String LAST_SNAPSHOT_KEY = Renderer.class.getName() + ".lastSnapshot";
+
+    /**
+     * View transform which draws the map at its natural size, with the top-left tile at the origin of the canvas.
+     */
+    private static final Affine IDENTITY = new Affine();
+
     /**
      * An image of a cell, with support for rotated images.
      */
     public static class CellImage {
 
         /**
-         * Image of the cell.
+         * Key of the image of the cell, as accepted by {@link ResourceLoader#getImage(String)}.
          */
         @NotNull
-        final Image image;
+        final String imageKey;
         /**
          * Rotation of the image.
          */
         final float rotation;
 
         /**
-         * @param image    Image of the cell.
+         * @param imageKey Key of the image of the cell, relative to the resource directory.
          * @param rotation Rotation of the image.
          */
-        public CellImage(@NotNull Image image, float rotation) {
-            this.image = image;
+        public CellImage(@NotNull String imageKey, float rotation) {
+            this.imageKey = imageKey;
             this.rotation = rotation;
         }
     }
@@ -53,13 +76,20 @@ public class Renderer {
      * Sets the current rotation of a {@link GraphicsContext}.
      *
      * @param gc     Target Graphics Context.
+     * @param view   View transform to apply after the rotation.
      * @param angle  Angle to rotate the context by.
      * @param pivotX X-coordinate of the pivot point.
      * @param pivotY Y-coordinate of the pivot point.
      */
-    private static void rotate(@NotNull GraphicsContext gc, double angle, double pivotX, double pivotY) {
+    private static void rotate(@NotNull GraphicsContext gc, @NotNull Affine view, double angle, double pivotX, double pivotY) {
         final var r = new Rotate(angle, pivotX, pivotY);
-        gc.setTransform(r.getMxx(), r.getMyx(), r.getMxy(), r.getMyy(), r.getTx(), r.getTy());
+        gc.setTransform(
+                view.getMxx() * r.getMxx() + view.getMxy() * r.getMyx(),
+                view.getMyx() * r.getMxx() + view.getMyy() * r.getMyx(),
+                view.getMxx() * r.getMxy() + view.getMxy() * r.getMyy(),
+                view.getMyx() * r.getMxy() + view.getMyy() * r.getMyy(),
+                view.getMxx() * r.getTx() + view.getMxy() * r.getTy() + view.getTx(),
+                view.getMyx() * r.getTx() + view.getMyy() * r.getTy() + view.getTy());
     }
 
     /**
@@ -72,6 +102,21 @@ public class Renderer {
      * @param y     Y-coordinate relative to the graphics context to draw the top-left of the image.
      */
     private static void drawRotatedImage(@NotNull GraphicsContext gc, @NotNull Image image, double angle, double x, double y) {
+        drawRotatedImage(gc, image, angle, x, y, IDENTITY);
+    }
+
+    /**
+     * Draws a rotated image onto a {@link GraphicsContext} through a view transform.
+     *
+     * @param gc    Target Graphics Context.
+     * @param image Image to draw.
+     * @param angle Angle to rotate the image by.
+     * @param x     X-coordinate in map space to draw the top-left of the image.
+     * @param y     Y-coordinate in map space to draw the top-left of the image.
+     * @param view  Transform from map space to canvas space.
+     */
+    private static void drawRotatedImage(@NotNull GraphicsContext gc, @NotNull Image image, double angle, double x, double y,
+                                         @NotNull Affine view) {
         // TODO
     	if (angle == 90) {
     		x += 32;
@@ -81,10 +126,39 @@ public class Renderer {
     	} else if (angle == 270) {
     		y += 32;
     	}
-    	rotate(gc, angle, x, y);
+    	rotate(gc, view, angle, x, y);
     	gc.drawImage(image, x, y);
     }
 
+    /**
+     * Resolves the image of a {@link CellImage}.
+     *
+     * @param cellImage Cell image to resolve.
+     * @param pending   Holder for the key of the first image which is not loaded yet, if any.
+     * @return The (possibly still loading) image.
+     */
+    @NotNull
+    private static Image resolve(@NotNull CellImage cellImage, @NotNull String[] pending) {
+        if (pending[0] == null && !ResourceLoader.isImageReady(cellImage.imageKey)) {
+            pending[0] = cellImage.imageKey;
+        }
+        return ResourceLoader.getImage(cellImage.imageKey);
+    }
+
+    /**
+     * Schedules {@code render} to run again on the JavaFX Application Thread once the image identified by
+     * {@code pendingKey} has loaded.
+     *
+     * @param pendingKey Key of an image which was not loaded when rendering, or {@code null} if all images were drawn.
+     * @param render     Render operation to repeat.
+     */
+    private static void rerenderWhenReady(@Nullable String pendingKey, @NotNull Runnable render) {
+        if (pendingKey == null) {
+            return;
+        }
+        ResourceLoader.getImageFuture(pendingKey).thenRun(() -> Platform.runLater(render));
+    }
+
     /**
      * Renders a map into a {@link Canvas}.
      *
@@ -93,17 +167,307 @@ public class Renderer {
      */
     public static void renderMap(@NotNull Canvas canvas, @NotNull Cell[][] map) {
         // TODO
-    	
+    	renderMap(canvas, MapSnapshot.of(map));
+    }
+
+    /**
+     * Draws cells of a map in place, without resizing the canvas.
+     *
+     * @param canvas        Canvas to render to. Must be large enough to hold the map.
+     * @param map           Map to draw.
+     * @param tiles         Indices ({@code row * cols + col}) of the cells to draw, or {@code null} to draw every cell.
+     * @param onImageLoaded Callback to run on the JavaFX Application Thread if some images were not loaded yet, once
+     *                      one of them has loaded.
+     */
+    public static void renderCells(@NotNull Canvas canvas, @NotNull Cell[][] map, @Nullable BitSet tiles,
+                                   @NotNull Runnable onImageLoaded) {
     	GraphicsContext gc = canvas.getGraphicsContext2D();
-    	
-    	for (int row = 0; row < map.length; ++row) {
-    		for (int col = 0; col < map[row].length; ++col) {
-    			CellImage cell_image = map[row][col].getImageRep();
-    			drawRotatedImage(gc, cell_image.image, cell_image.rotation, 32 * col, 32 * row);
+    	String[] pending = new String[1];
+    	final int rows = map.length;
+    	final int cols = rows > 0 ? map[0].length : 0;
+
+    	if (tiles == null) {
+    		gc.setTransform(IDENTITY);
+    		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    		for (int row = 0; row < rows; ++row) {
+    			for (int col = 0; col < cols; ++col) {
+    				drawCell(gc, map[row][col], row, col, pending);
+    			}
+    		}
+    	} else {
+    		for (int i = tiles.nextSetBit(0); i >= 0 && i < rows * cols; i = tiles.nextSetBit(i + 1)) {
+    			clearTile(gc, IDENTITY, i / cols, i % cols);
+    			drawCell(gc, map[i / cols][i % cols], i / cols, i % cols, pending);
+    		}
+    	}
+
+    	rerenderWhenReady(pending[0], onImageLoaded);
+    }
+
+    private static void drawCell(@NotNull GraphicsContext gc, @NotNull Cell cell, int row, int col,
+                                 @NotNull String[] pending) {
+    	CellImage cell_image = cell.getImageRep();
+    	drawRotatedImage(gc, resolve(cell_image, pending), cell_image.rotation, TILE_SIZE * col, TILE_SIZE * row, IDENTITY);
+    }
+
+    /**
+     * Renders a snapshot of a map into a {@link Canvas}, resizing the canvas to fit the map.
+     *
+     * <p>
+     * If the previous snapshot drawn onto the canvas is of the same map, only the cells which differ between the two
+     * snapshots are redrawn; in particular, nothing is drawn if the version of the map has not changed.
+     * </p>
+     *
+     * @param canvas   Canvas to render to.
+     * @param snapshot Snapshot to render.
+     */
+    public static void renderMap(@NotNull Canvas canvas, @NotNull MapSnapshot snapshot) {
+    	final var previous = (MapSnapshot) canvas.getProperties().put(LAST_SNAPSHOT_KEY, snapshot);
+    	if (previous == snapshot) {
+    		return;
+    	}
+
+    	canvas.setWidth(TILE_SIZE * snapshot.cols);
+    	canvas.setHeight(TILE_SIZE * snapshot.rows);
+
+    	final boolean incremental = previous != null && previous.isSameMapAs(snapshot);
+    	if (incremental && previous.version == snapshot.version) {
+    		return;
+    	}
+
+    	drawMap(canvas, snapshot, incremental ? previous : null);
+    }
+
+    /**
+     * Draws the cells of a snapshot.
+     *
+     * @param canvas   Canvas to render to.
+     * @param snapshot Snapshot to draw.
+     * @param previous Snapshot which is currently drawn on the canvas, or {@code null} to draw every cell.
+     */
+    private static void drawMap(@NotNull Canvas canvas, @NotNull MapSnapshot snapshot, @Nullable MapSnapshot previous) {
+    	// Redraw whatever is the latest snapshot by the time the image has loaded
+    	renderCells(canvas, snapshot, previous, IDENTITY, 0, snapshot.rows, 0, snapshot.cols, () -> {
+    		final var latest = (MapSnapshot) canvas.getProperties().get(LAST_SNAPSHOT_KEY);
+    		if (latest != null) {
+    			drawMap(canvas, latest, null);
+    		}
+    	});
+    }
+
+    /**
+     * Draws a rectangular range of cells of a snapshot through a view transform.
+     *
+     * @param canvas        Canvas to render to.
+     * @param snapshot      Snapshot to draw.
+     * @param previous      Snapshot which is currently drawn in the range, or {@code null} to draw every cell in the
+     *                      range. If given, only cells which differ from it are drawn.
+     * @param view          Transform from map space (one tile is {@code TILE_SIZE} units wide) to canvas space.
+     * @param firstRow      First row to draw.
+     * @param endRow        Row after the last row to draw.
+     * @param firstCol      First column to draw.
+     * @param endCol        Column after the last column to draw.
+     * @param onImageLoaded Callback to run on the JavaFX Application Thread if some images were not loaded yet, once
+     *                      one of them has loaded.
+     */
+    public static void renderCells(@NotNull Canvas canvas, @NotNull MapSnapshot snapshot, @Nullable MapSnapshot previous,
+                                   @NotNull Affine view, int firstRow, int endRow, int firstCol, int endCol,
+                                   @NotNull Runnable onImageLoaded) {
+    	GraphicsContext gc = canvas.getGraphicsContext2D();
+    	String[] pending = new String[1];
+
+    	for (int row = Math.max(0, firstRow); row < Math.min(snapshot.rows, endRow); ++row) {
+    		for (int col = Math.max(0, firstCol); col < Math.min(snapshot.cols, endCol); ++col) {
+    			final byte code = snapshot.get(row, col);
+    			if (previous != null && previous.get(row, col) == code) {
+    				continue;
+    			}
+    			CellImage cell_image = MapSnapshot.getImageRep(code);
+    			drawRotatedImage(gc, resolve(cell_image, pending), cell_image.rotation, TILE_SIZE * col, TILE_SIZE * row, view);
+    		}
+    	}
+
+    	rerenderWhenReady(pending[0], onImageLoaded);
+    }
+
+    /**
+     * Draws the dynamic cells (see {@link MapSnapshot}) in a rectangular range of a snapshot through a view transform,
+     * on top of a layer holding the static appearance of the cells.
+     *
+     * <p>
+     * Only dynamic cells are visited, so the cost depends on the number of placed pipes and filled cells rather than
+     * the size of the range. If {@code previous} is given, cells which are unchanged are skipped, and cells which
+     * became static again are cleared to reveal the layer below.
+     * </p>
+     *
+     * @param canvas        Canvas to render to. Must be transparent where no dynamic cell has been drawn.
+     * @param snapshot      Snapshot to draw.
+     * @param previous      Snapshot which is currently drawn in the range, or {@code null} if the range is clear.
+     * @param view          Transform from map space to canvas space.
+     * @param firstRow      First row to draw.
+     * @param endRow        Row after the last row to draw.
+     * @param firstCol      First column to draw.
+     * @param endCol        Column after the last column to draw.
+     * @param onImageLoaded Callback to run on the JavaFX Application Thread if some images were not loaded yet, once
+     *                      one of them has loaded.
+     */
+    public static void renderDynamicCells(@NotNull Canvas canvas, @NotNull MapSnapshot snapshot,
+                                          @Nullable MapSnapshot previous, @NotNull Affine view,
+                                          int firstRow, int endRow, int firstCol, int endCol,
+                                          @NotNull Runnable onImageLoaded) {
+        final var gc = canvas.getGraphicsContext2D();
+        final var pending = new String[1];
+        final int rowEnd = Math.min(snapshot.rows, endRow);
+        final int colStart = Math.max(0, firstCol);
+        final int colEnd = Math.min(snapshot.cols, endCol);
+
+        for (int row = Math.max(0, firstRow); row < rowEnd; ++row) {
+            final int rowBase = row * snapshot.cols;
+
+            // Cells which are dynamic now
+            for (int i = snapshot.nextDynamicCell(rowBase + colStart); i >= 0 && i < rowBase + colEnd;
+                 i = snapshot.nextDynamicCell(i + 1)) {
+                final int col = i - rowBase;
+                final byte code = snapshot.get(row, col);
+                if (previous != null) {
+                    if (previous.get(row, col) == code) {
+                        continue;
+                    }
+                    clearTile(gc, view, row, col);
+                }
+                final var cellImage = MapSnapshot.getImageRep(code);
+                drawRotatedImage(gc, resolve(cellImage, pending), cellImage.rotation, TILE_SIZE * col, TILE_SIZE * row, view);
+            }
+
+            // Cells which were dynamic, but are static now
+            if (previous == null) {
+                continue;
+            }
+            for (int i = previous.nextDynamicCell(rowBase + colStart); i >= 0 && i < rowBase + colEnd;
+                 i = previous.nextDynamicCell(i + 1)) {
+                final int col = i - rowBase;
+                if (!MapSnapshot.isDynamic(snapshot.get(row, col))) {
+                    clearTile(gc, view, row, col);
+                }
+            }
+        }
+
+        rerenderWhenReady(pending[0], onImageLoaded);
+    }
+
+    /**
+     * Clears a tile through a view transform.
+     *
+     * @param gc   Target Graphics Context.
+     * @param view Transform from map space to canvas space.
+     * @param row  Row of the tile.
+     * @param col  Column of the tile.
+     */
+    private static void clearTile(@NotNull GraphicsContext gc, @NotNull Affine view, int row, int col) {
+        gc.setTransform(view);
+        gc.clearRect(TILE_SIZE * col, TILE_SIZE * row, TILE_SIZE, TILE_SIZE);
+    }
+
+    /**
+     * Draws a tile which the water is flowing into, with only part of the tile filled.
+     *
+     * <p>
+     * The unfilled image of the tile is drawn first, then the filled image is drawn clipped to the part of the tile the
+     * water has reached, growing from the edge the water entered from.
+     * </p>
+     *
+     * @param canvas    Canvas to render to.
+     * @param code      Encoded cell as given by {@link MapSnapshot#get(int, int)}.
+     * @param row       Row of the tile.
+     * @param col       Column of the tile.
+     * @param flow      Direction in which the water is flowing through the tile.
+     * @param progress  Fraction of the tile which has been filled, between 0 and 1.
+     */
+    public static void renderPartialFill(@NotNull Canvas canvas, byte code, int row, int col,
+                                         @NotNull Direction flow, double progress) {
+    	renderPartialFill(canvas, code, row, col, flow, progress, IDENTITY);
+    }
+
+    /**
+     * Draws a tile which the water is flowing into through a view transform.
+     *
+     * @param canvas    Canvas to render to.
+     * @param code      Encoded cell as given by {@link MapSnapshot#get(int, int)}.
+     * @param row       Row of the tile.
+     * @param col       Column of the tile.
+     * @param flow      Direction in which the water is flowing through the tile.
+     * @param progress  Fraction of the tile which has been filled, between 0 and 1.
+     * @param view      Transform from map space to canvas space.
+     * @see Renderer#renderPartialFill(Canvas, byte, int, int, Direction, double)
+     */
+    public static void renderPartialFill(@NotNull Canvas canvas, byte code, int row, int col,
+                                         @NotNull Direction flow, double progress, @NotNull Affine view) {
+    	GraphicsContext gc = canvas.getGraphicsContext2D();
+    	String[] pending = new String[1];
+    	final double x = TILE_SIZE * col;
+    	final double y = TILE_SIZE * row;
+
+    	CellImage unfilled = MapSnapshot.getImageRep((byte) (code & ~MapSnapshot.FILLED));
+    	drawRotatedImage(gc, resolve(unfilled, pending), unfilled.rotation, x, y, view);
+
+    	final double extent = TILE_SIZE * Math.max(0, Math.min(1, progress));
+    	if (extent > 0) {
+    		gc.save();
+    		gc.setTransform(view);
+    		gc.beginPath();
+    		switch (flow) {
+    		case RIGHT:
+    			gc.rect(x, y, extent, TILE_SIZE);
+    			break;
+    		case LEFT:
+    			gc.rect(x + TILE_SIZE - extent, y, extent, TILE_SIZE);
+    			break;
+    		case DOWN:
+    			gc.rect(x, y, TILE_SIZE, extent);
+    			break;
+    		case UP:
+    			gc.rect(x, y + TILE_SIZE - extent, TILE_SIZE, extent);
+    			break;
     		}
+    		gc.clip();
+
+    		CellImage filled = MapSnapshot.getImageRep((byte) (code | MapSnapshot.FILLED));
+    		drawRotatedImage(gc, resolve(filled, pending), filled.rotation, x, y, view);
+    		gc.restore();
     	}
     }
 
+    /**
+     * Draws a hint onto a tile: a translucent image of the suggested pipe, outlined so that it stands out from the
+     * pipes around it.
+     *
+     * @param canvas        Canvas to render to.
+     * @param row           Row of the tile.
+     * @param col           Column of the tile.
+     * @param shape         Shape of the suggested pipe.
+     * @param view          Transform from map space to canvas space.
+     * @param onImageLoaded Called on the JavaFX Application Thread if the image of the pipe was not loaded yet.
+     */
+    public static void renderHint(@NotNull Canvas canvas, int row, int col, @NotNull Pipe.Shape shape,
+                                  @NotNull Affine view, @NotNull Runnable onImageLoaded) {
+        final var gc = canvas.getGraphicsContext2D();
+        final var pending = new String[1];
+        final var cellImage = new Pipe(shape).getImageRep();
+
+        gc.save();
+        gc.setGlobalAlpha(HINT_ALPHA);
+        drawRotatedImage(gc, resolve(cellImage, pending), cellImage.rotation, TILE_SIZE * col, TILE_SIZE * row, view);
+        gc.restore();
+
+        gc.setTransform(view);
+        gc.setStroke(HINT_COLOR);
+        gc.setLineWidth(HINT_LINE_WIDTH);
+        gc.strokeRect(TILE_SIZE * col + HINT_LINE_WIDTH / 2, TILE_SIZE * row + HINT_LINE_WIDTH / 2,
+                TILE_SIZE - HINT_LINE_WIDTH, TILE_SIZE - HINT_LINE_WIDTH);
+
+        rerenderWhenReady(pending[0], onImageLoaded);
+    }
+
     /**
      * Renders a pipe queue into a {@link Canvas}.
      *
@@ -115,13 +479,16 @@ public class Renderer {
     	Iterator<Pipe> it = pipeQueue.iterator();
     	
     	GraphicsContext gc = canvas.getGraphicsContext2D();
+    	String[] pending = new String[1];
     	
     	int pos = 0;
     	while (it.hasNext()) {
     		Pipe cur = (Pipe) it.next();
     		CellImage cell_image = cur.getImageRep();
-    		drawRotatedImage(gc, cell_image.image, cell_image.rotation, 48 * pos + 16, 16);
+    		drawRotatedImage(gc, resolve(cell_image, pending), cell_image.rotation, 48 * pos + 16, 16);
     		pos += 1;
     	}
+    	
+    	rerenderWhenReady(pending[0], () -> renderQueue(canvas, pipeQueue));
     }
 }
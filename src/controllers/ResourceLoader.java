@@ -1,10 +1,20 @@
 package controllers;
 
+import javafx.scene.image.Image;
 import models.exceptions.ResourceNotFoundException;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Helper class for loading resources from the filesystem.
@@ -17,9 +27,20 @@ public class ResourceLoader {
     @NotNull
     private static final Path RES_PATH;
 
+    /**
+     * Cache of all images requested so far, keyed by their normalized path relative to the resource directory.
+     */
+    @NotNull
+    private static final Map<String, Image> images = new ConcurrentHashMap<>();
+    /**
+     * Futures which complete once the corresponding image in {@link ResourceLoader#images} is fully loaded.
+     */
+    @NotNull
+    private static final Map<String, CompletableFuture<Image>> readiness = new ConcurrentHashMap<>();
+
     static {
         // TODO: Initialize RES_PATH
-        RES_PATH = Paths.get("resources");
+        RES_PATH = Paths.get("resources").toAbsolutePath();
     }
 
     /**
@@ -32,6 +53,108 @@ public class ResourceLoader {
     @NotNull
     public static String getResource(@NotNull final String relativePath) {
         // TODO
-        return "file:" + RES_PATH + "/" + relativePath;
+        final var path = RES_PATH.resolve(relativePath).normalize();
+        if (!Files.exists(path)) {
+            throw new ResourceNotFoundException("Cannot find resource: " + relativePath);
+        }
+
+        return path.toUri().toString();
+    }
+
+    /**
+     * Retrieves an image from the resource directory.
+     *
+     * <p>
+     * The first request for an image starts loading it in the background; subsequent requests for the same path
+     * return the same {@link Image} instance. The returned image may still be loading, in which case drawing it has no
+     * effect. Use {@link ResourceLoader#getImageFuture(String)} to be notified when it is ready.
+     * </p>
+     *
+     * @param key Path to the image file, relative to the root of the resource directory.
+     * @return The (possibly still loading) image.
+     * @throws ResourceNotFoundException If the file cannot be found under the resource directory.
+     */
+    @NotNull
+    public static Image getImage(@NotNull final String key) {
+        return images.computeIfAbsent(normalize(key), k -> new Image(getResource(k), true));
+    }
+
+    /**
+     * @param key Path to the image file, relative to the root of the resource directory.
+     * @return Whether the image has been fully loaded.
+     */
+    public static boolean isImageReady(@NotNull final String key) {
+        final var image = getImage(key);
+        return image.getProgress() >= 1.0 && !image.isError();
+    }
+
+    /**
+     * Retrieves a future which completes once an image has been fully loaded.
+     *
+     * @param key Path to the image file, relative to the root of the resource directory.
+     * @return A future completing with the loaded image, or completing exceptionally if the image cannot be loaded, in
+     * which case the next call loads it again.
+     */
+    @NotNull
+    public static CompletableFuture<Image> getImageFuture(@NotNull final String key) {
+        final var normalized = normalize(key);
+        final var result = readiness.computeIfAbsent(normalized, k -> {
+            final var image = getImage(k);
+            final var future = new CompletableFuture<Image>();
+
+            image.progressProperty().addListener((observable, oldValue, newValue) -> completeIfDone(image, future));
+            image.errorProperty().addListener((observable, oldValue, newValue) -> completeIfDone(image, future));
+            // The image may have finished loading before the listeners are added
+            completeIfDone(image, future);
+
+            return future;
+        });
+        // A failed image is not kept, so that the next request loads it again
+        result.whenComplete((image, e) -> {
+            if (e != null) {
+                readiness.remove(normalized, result);
+                images.computeIfPresent(normalized, (k, cached) -> cached.isError() ? null : cached);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts loading all images under a directory of the resource directory.
+     *
+     * @param relativeDir Path to the directory, relative to the root of the resource directory.
+     * @return A future which completes once all images in the directory are loaded.
+     */
+    @NotNull
+    public static CompletableFuture<Void> preloadImages(@NotNull final String relativeDir) {
+        final List<String> keys;
+        try (Stream<Path> files = Files.list(RES_PATH.resolve(relativeDir))) {
+            keys = files.filter(it -> it.getFileName().toString().endsWith(".png"))
+                    .map(it -> RES_PATH.relativize(it).toString())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        return CompletableFuture.allOf(keys.stream()
+                .map(ResourceLoader::getImageFuture)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static void completeIfDone(@NotNull Image image, @NotNull CompletableFuture<Image> future) {
+        if (image.isError()) {
+            future.completeExceptionally(image.getException());
+        } else if (image.getProgress() >= 1.0) {
+            future.complete(image);
+        }
+    }
+
+    /**
+     * @param key Path relative to the resource directory.
+     * @return Normalized form of the path, so that equivalent paths share the same cache entry.
+     */
+    @NotNull
+    private static String normalize(@NotNull final String key) {
+        return Paths.get(key).normalize().toString().replace('\\', '/');
     }
 }
@@ -7,7 +7,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import views.panes.*;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Singleton class for managing scenes.
@@ -20,41 +22,26 @@ public class SceneManager {
     private static final SceneManager INSTANCE = new SceneManager();
 
     /**
-     * Main menu scene.
-     */
-    @NotNull
-    private final Scene mainMenuScene = new Scene(new MainMenuPane(), Config.WIDTH / 2.0, Config.HEIGHT);
-    /**
-     * Settings scene.
-     */
-    @NotNull
-    private final Scene settingsScene = new Scene(new SettingsPane(), Config.WIDTH, Config.HEIGHT);
-    /**
-     * Level select scene.
-     */
-    @NotNull
-    private final Scene levelSelectScene = new Scene(new LevelSelectPane(), Config.WIDTH, Config.HEIGHT);
-    /**
-     * Gameplay scene.
-     */
-    @NotNull
-    private final Scene gameplayScene = new Scene(new GameplayPane(), Config.WIDTH, Config.HEIGHT);
-    /**
-     * Level editor scene.
+     * Factories for every known {@link GamePane}, together with the size of the {@link Scene} hosting it.
+     *
+     * <p>
+     * Panes are only constructed the first time they are shown or retrieved, so that startup only pays for the main
+     * menu.
+     * </p>
      */
     @NotNull
-    private final Scene levelEditorScene = new Scene(new LevelEditorPane(), Config.WIDTH, Config.HEIGHT);
+    private final Map<Class<? extends GamePane>, SceneFactory> sceneFactories = Map.ofEntries(
+            Map.entry(MainMenuPane.class, new SceneFactory(MainMenuPane::new, Config.WIDTH / 2.0, Config.HEIGHT)),
+            Map.entry(SettingsPane.class, new SceneFactory(SettingsPane::new, Config.WIDTH, Config.HEIGHT)),
+            Map.entry(LevelSelectPane.class, new SceneFactory(LevelSelectPane::new, Config.WIDTH, Config.HEIGHT)),
+            Map.entry(GameplayPane.class, new SceneFactory(GameplayPane::new, Config.WIDTH, Config.HEIGHT)),
+            Map.entry(LevelEditorPane.class, new SceneFactory(LevelEditorPane::new, Config.WIDTH, Config.HEIGHT))
+    );
     /**
-     * Map for fast lookup of {@link GamePane} to their respective {@link Scene}.
+     * Map for fast lookup of {@link GamePane} to their respective {@link Scene}, populated as scenes are created.
      */
     @NotNull
-    private final Map<Class<? extends GamePane>, Scene> scenes = Map.ofEntries(
-            Map.entry(MainMenuPane.class, mainMenuScene),
-            Map.entry(SettingsPane.class, settingsScene),
-            Map.entry(LevelSelectPane.class, levelSelectScene),
-            Map.entry(GameplayPane.class, gameplayScene),
-            Map.entry(LevelEditorPane.class, levelEditorScene)
-    );
+    private final Map<Class<? extends GamePane>, Scene> scenes = new HashMap<>();
     /**
      * Primary stage.
      */
@@ -62,10 +49,35 @@ public class SceneManager {
     private Stage stage;
 
     private SceneManager() {
-        // TODO: Add CSS styles to every scene    	
-    	for (Map.Entry<Class<? extends GamePane>, Scene> entry : scenes.entrySet()) {
-    		entry.getValue().getStylesheets().add(this.getClass().getResource("/main/styles.css").toExternalForm());
-    	}
+    }
+
+    /**
+     * Retrieves the {@link Scene} of a {@link GamePane}, constructing the pane and its scene on first use.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread.
+     * </p>
+     *
+     * @param pane {@link Class} type of pane to retrieve the scene of.
+     * @return The scene hosting the singleton pane.
+     * @throws IllegalArgumentException If the {@code pane} is not known.
+     */
+    @NotNull
+    private Scene getScene(@NotNull final Class<? extends GamePane> pane) {
+        var scene = scenes.get(pane);
+        if (scene != null) {
+            return scene;
+        }
+
+        final var factory = sceneFactories.get(pane);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown pane: " + pane.getName());
+        }
+
+        scene = new Scene(factory.paneSupplier.get(), factory.width, factory.height);
+        scene.getStylesheets().add(this.getClass().getResource("/main/styles.css").toExternalForm());
+        scenes.put(pane, scene);
+        return scene;
     }
 
     /**
@@ -104,7 +116,7 @@ public class SceneManager {
      */
     public void showPane(@NotNull final Class<? extends GamePane> pane) {
         // TODO
-    	showScene(scenes.get(pane));
+    	showScene(getScene(pane));
     }
 
     /**
@@ -116,11 +128,28 @@ public class SceneManager {
      */
     public <T> T getPane(@NotNull final Class<? extends GamePane> pane) {
         //noinspection unchecked
-        return (T) scenes.get(pane).getRoot();
+        return (T) getScene(pane).getRoot();
     }
 
     @NotNull
     public static SceneManager getInstance() {
         return INSTANCE;
     }
+
+    /**
+     * Data class describing how to construct a {@link GamePane} and its {@link Scene}.
+     */
+    private static class SceneFactory {
+
+        @NotNull
+        final Supplier<? extends GamePane> paneSupplier;
+        final double width;
+        final double height;
+
+        SceneFactory(@NotNull Supplier<? extends GamePane> paneSupplier, double width, double height) {
+            this.paneSupplier = paneSupplier;
+            this.width = width;
+            this.height = height;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package controllers;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import models.map.MapSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static models.Config.TILE_SIZE;
+
+/**
+ * Cache of the static layer of a map, i.e. the appearance of its cells before any pipe is placed or filled.
+ *
+ * <p>
+ * The static layer never changes during a game, so it is rendered once per level and then blitted instead of drawing
+ * every wall and empty tile again. It is split into square chunks of {@link StaticLayerCache#CHUNK_TILES} tiles, which
+ * are rasterised in the background by the {@link TileRasterizer} when they first become visible. Each chunk is
+ * rendered at the smallest power-of-two scale (at most 1) which is not smaller than the scale it is displayed at, so
+ * the memory held by the visible chunks depends on the size of the viewport rather than the zoom level. The least
+ * recently used chunks are evicted once {@link StaticLayerCache#MAX_CHUNKS} chunks are cached.
+ * </p>
+ * <p>
+ * All methods must be called on the JavaFX Application Thread.
+ * </p>
+ */
+public class StaticLayerCache {
+
+    /**
+     * Width and height of a chunk, in tiles.
+     */
+    public static final int CHUNK_TILES = 16;
+    /**
+     * Width and height of a chunk in map space.
+     */
+    public static final int CHUNK_SIZE = CHUNK_TILES * TILE_SIZE;
+
+    private static final int MAX_CHUNKS = 128;
+
+    /**
+     * Snapshot providing the static appearance of the cells. Any version of the map will do.
+     */
+    @NotNull
+    private final MapSnapshot map;
+
+    /**
+     * Rendered chunks, in least-recently-used order.
+     */
+    @NotNull
+    private final Map<Long, Image> chunks = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > MAX_CHUNKS;
+        }
+    };
+
+    /**
+     * Keys of the chunks which are being rasterised.
+     */
+    @NotNull
+    private final Set<Long> inFlight = new HashSet<>();
+    /**
+     * Callback to run when chunks have been rasterised.
+     */
+    @NotNull
+    private final Runnable onChunksReady;
+
+    /**
+     * Whether a call to {@link StaticLayerCache#onChunksReady} is already posted.
+     */
+    private boolean notifyPending = false;
+    private boolean disposed = false;
+
+    /**
+     * @param map           Snapshot of the map whose static layer to cache.
+     * @param onChunksReady Callback to run on the JavaFX Application Thread after chunks requested by
+     *                      {@link StaticLayerCache#getChunk(int, int, double)} have been rasterised. Chunks which
+     *                      finish within the same pulse share a single call.
+     */
+    public StaticLayerCache(@NotNull MapSnapshot map, @NotNull Runnable onChunksReady) {
+        this.map = map;
+        this.onChunksReady = onChunksReady;
+    }
+
+    /**
+     * @param scale Scale the map is displayed at.
+     * @return Scale chunks are rendered at when displayed at {@code scale}.
+     */
+    public static double chunkScale(double scale) {
+        double chunkScale = 1;
+        while (chunkScale / 2 >= scale) {
+            chunkScale /= 2;
+        }
+        return chunkScale;
+    }
+
+    /**
+     * Retrieves a chunk of the static layer, starting to rasterise it if it is not cached.
+     *
+     * @param chunkRow Row of the chunk.
+     * @param chunkCol Column of the chunk.
+     * @param scale    Scale the map is displayed at.
+     * @return Image of the chunk, {@code chunkScale(scale)} pixels per map-space unit, or {@code null} if the chunk is
+     * still being rasterised.
+     */
+    @Nullable
+    public Image getChunk(int chunkRow, int chunkCol, double scale) {
+        final double chunkScale = chunkScale(scale);
+        final long level = Math.round(1 / chunkScale);
+        final long key = level << 48 | (long) chunkRow << 24 | chunkCol;
+
+        final var cached = chunks.get(key);
+        if (cached != null || disposed || !inFlight.add(key)) {
+            return cached;
+        }
+
+        final int firstRow = chunkRow * CHUNK_TILES;
+        final int firstCol = chunkCol * CHUNK_TILES;
+        TileRasterizer.rasterize(map, firstRow, firstRow + CHUNK_TILES, firstCol, firstCol + CHUNK_TILES,
+                        chunkScale, true)
+                .whenComplete((image, e) -> Platform.runLater(() -> {
+                    inFlight.remove(key);
+                    if (e != null) {
+                        e.printStackTrace();
+                        return;
+                    }
+                    if (!disposed) {
+                        chunks.put(key, image);
+                        notifyChunksReady();
+                    }
+                }));
+        return null;
+    }
+
+    /**
+     * Drops all cached chunks, and ignores chunks which are still being rasterised.
+     */
+    public void dispose() {
+        disposed = true;
+        chunks.clear();
+    }
+
+    private void notifyChunksReady() {
+        if (notifyPending) {
+            return;
+        }
+        notifyPending = true;
+        Platform.runLater(() -> {
+            notifyPending = false;
+            if (!disposed) {
+                onChunksReady.run();
+            }
+        });
+    }
+
+    /**
+     * @return Number of chunks currently cached.
+     */
+    public int getCachedChunkCount() {
+        return chunks.size();
+    }
+}
@@ -0,0 +1,327 @@
+package controllers;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import models.map.MapSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static models.Config.TILE_SIZE;
+
+/**
+ * Rasterises snapshots of maps into {@link WritableImage}s off the JavaFX Application Thread.
+ *
+ * <p>
+ * The sprite of every cell encoding is decoded once into ARGB pixels, with its rotation already applied and
+ * downsampled to each supported scale. Rasterising a range of cells is then a matter of copying pixel rows into a
+ * buffer, which is written into an image with a single {@link javafx.scene.image.PixelWriter} call. Maps are split into
+ * chunks which are rasterised in parallel on a dedicated {@link ForkJoinPool}, so the JavaFX Application Thread only
+ * has to blit the finished images.
+ * </p>
+ * <p>
+ * Supported scales are 1, 1/2, 1/4, ... down to one pixel per tile.
+ * </p>
+ */
+public class TileRasterizer {
+
+    /**
+     * Number of supported scales; the smallest draws each tile as a single pixel.
+     */
+    private static final int LEVELS = Integer.numberOfTrailingZeros(TILE_SIZE) + 1;
+
+    /**
+     * Width and height of the chunks a map is split into by {@link TileRasterizer#rasterize(MapSnapshot, double)}, in
+     * tiles.
+     */
+    private static final int CHUNK_TILES = 16;
+
+    @NotNull
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        final var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("tile-rasterizer-" + t.getPoolIndex());
+        return t;
+    }, null, false);
+
+    /**
+     * Sprite pixels, indexed by level and then by cell encoding. Completes once all sprite images are loaded. Reset to
+     * {@code null} if loading fails.
+     */
+    private static volatile CompletableFuture<int[][][]> sprites;
+
+    private TileRasterizer() {
+    }
+
+    /**
+     * Starts decoding the sprites of all cells, if this has not been started yet.
+     *
+     * @return A future which completes once the sprites are decoded.
+     */
+    @NotNull
+    public static CompletableFuture<Void> preload() {
+        return getSprites().thenApply(it -> null);
+    }
+
+    /**
+     * Rasterises a rectangular range of cells.
+     *
+     * @param snapshot   Snapshot to rasterise.
+     * @param firstRow   First row to rasterise.
+     * @param endRow     Row after the last row to rasterise.
+     * @param firstCol   First column to rasterise.
+     * @param endCol     Column after the last column to rasterise.
+     * @param scale      Scale to rasterise at.
+     * @param staticOnly Whether to rasterise the static appearance (see {@link MapSnapshot}) of the cells instead of
+     *                   their current appearance.
+     * @return A future completing with an image of the cells in the range which are within the map, whose top-left
+     * pixel is the top-left corner of the tile at ({@code firstRow}, {@code firstCol}).
+     * @throws IllegalArgumentException If the scale is not supported.
+     */
+    @NotNull
+    public static CompletableFuture<WritableImage> rasterize(@NotNull MapSnapshot snapshot,
+                                                             int firstRow, int endRow, int firstCol, int endCol,
+                                                             double scale, boolean staticOnly) {
+        final int level = toLevel(scale);
+        final int rowStart = Math.max(0, firstRow);
+        final int rowEnd = Math.min(snapshot.rows, endRow);
+        final int colStart = Math.max(0, firstCol);
+        final int colEnd = Math.min(snapshot.cols, endCol);
+
+        return getSprites().thenApplyAsync(sprites -> {
+            final int tileSize = TILE_SIZE >> level;
+            final int width = Math.max(1, (colEnd - colStart) * tileSize);
+            final int height = Math.max(1, (rowEnd - rowStart) * tileSize);
+            final var pixels = new int[width * height];
+            rasterizeInto(pixels, width, snapshot, rowStart, rowEnd, colStart, colEnd, rowStart, colStart,
+                    sprites[level], tileSize, staticOnly);
+            return toImage(pixels, width, height);
+        }, POOL);
+    }
+
+    /**
+     * Rasterises a whole map, splitting it into chunks which are rasterised in parallel.
+     *
+     * @param snapshot Snapshot to rasterise.
+     * @param scale    Scale to rasterise at.
+     * @return A future completing with an image of the map.
+     * @throws IllegalArgumentException If the scale is not supported.
+     */
+    @NotNull
+    public static CompletableFuture<WritableImage> rasterize(@NotNull MapSnapshot snapshot, double scale) {
+        final int level = toLevel(scale);
+
+        return getSprites().thenApplyAsync(sprites -> {
+            final int tileSize = TILE_SIZE >> level;
+            final int width = Math.max(1, snapshot.cols * tileSize);
+            final int height = Math.max(1, snapshot.rows * tileSize);
+            final var pixels = new int[width * height];
+
+            // Chunks write to disjoint parts of the buffer
+            final var tasks = new ArrayList<ForkJoinTask<?>>();
+            for (int row = 0; row < snapshot.rows; row += CHUNK_TILES) {
+                for (int col = 0; col < snapshot.cols; col += CHUNK_TILES) {
+                    final int firstRow = row;
+                    final int firstCol = col;
+                    tasks.add(ForkJoinTask.adapt(() -> rasterizeInto(pixels, width, snapshot,
+                            firstRow, Math.min(snapshot.rows, firstRow + CHUNK_TILES),
+                            firstCol, Math.min(snapshot.cols, firstCol + CHUNK_TILES),
+                            0, 0, sprites[level], tileSize, false)));
+                }
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            return toImage(pixels, width, height);
+        }, POOL);
+    }
+
+    /**
+     * Copies the sprites of a range of cells into a pixel buffer.
+     *
+     * @param pixels     Buffer to write to.
+     * @param width      Width of the buffer, in pixels.
+     * @param snapshot   Snapshot to rasterise.
+     * @param firstRow   First row to rasterise.
+     * @param endRow     Row after the last row to rasterise.
+     * @param firstCol   First column to rasterise.
+     * @param endCol     Column after the last column to rasterise.
+     * @param originRow  Row of the tile at the top-left corner of the buffer.
+     * @param originCol  Column of the tile at the top-left corner of the buffer.
+     * @param sprites    Sprite pixels at the target scale, indexed by cell encoding.
+     * @param tileSize   Width and height of a tile at the target scale, in pixels.
+     * @param staticOnly Whether to rasterise the static appearance of the cells.
+     */
+    private static void rasterizeInto(@NotNull int[] pixels, int width, @NotNull MapSnapshot snapshot,
+                                      int firstRow, int endRow, int firstCol, int endCol, int originRow, int originCol,
+                                      @NotNull int[][] sprites, int tileSize, boolean staticOnly) {
+        for (int row = firstRow; row < endRow; ++row) {
+            final int y = (row - originRow) * tileSize;
+            for (int col = firstCol; col < endCol; ++col) {
+                final byte code = snapshot.get(row, col);
+                final var sprite = sprites[staticOnly ? MapSnapshot.staticCode(code) : code];
+                final int x = (col - originCol) * tileSize;
+                for (int sy = 0; sy < tileSize; ++sy) {
+                    System.arraycopy(sprite, sy * tileSize, pixels, (y + sy) * width + x, tileSize);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static WritableImage toImage(@NotNull int[] pixels, int width, int height) {
+        final var image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * @param scale A scale.
+     * @return Index of the level drawing at the scale.
+     * @throws IllegalArgumentException If the scale is not supported.
+     */
+    private static int toLevel(double scale) {
+        for (int level = 0; level < LEVELS; ++level) {
+            if (scale == 1.0 / (1 << level)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported scale: " + scale);
+    }
+
+    /**
+     * @return A future completing with the decoded sprites, starting to decode them if needed, or if the previous attempt
+     * failed.
+     */
+    @NotNull
+    private static CompletableFuture<int[][][]> getSprites() {
+        var result = sprites;
+        if (result == null) {
+            synchronized (TileRasterizer.class) {
+                result = sprites;
+                if (result == null) {
+                    final var loading = loadSprites();
+                    sprites = loading;
+                    // A failed load is not kept, so that the next call decodes the sprites again
+                    loading.whenComplete((v, e) -> {
+                        if (e != null) {
+                            synchronized (TileRasterizer.class) {
+                                if (sprites == loading) {
+                                    sprites = null;
+                                }
+                            }
+                        }
+                    });
+                    result = loading;
+                }
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private static CompletableFuture<int[][][]> loadSprites() {
+        final var keys = new HashSet<String>();
+        for (int code = 0; code < 1 << 6; ++code) {
+            if (MapSnapshot.isValid((byte) code)) {
+                keys.add(MapSnapshot.getImageRep((byte) code).imageKey);
+            }
+        }
+
+        return CompletableFuture.allOf(keys.stream()
+                        .map(ResourceLoader::getImageFuture)
+                        .toArray(CompletableFuture[]::new))
+                .thenApplyAsync(v -> decodeSprites(), POOL);
+    }
+
+    /**
+     * Decodes the sprites of all cells. All sprite images must be loaded.
+     *
+     * @return Sprite pixels, indexed by level and then by cell encoding. Invalid encodings map to {@code null}.
+     */
+    @NotNull
+    private static int[][][] decodeSprites() {
+        final var result = new int[LEVELS][1 << 6][];
+        for (int code = 0; code < 1 << 6; ++code) {
+            if (!MapSnapshot.isValid((byte) code)) {
+                continue;
+            }
+
+            final var cellImage = MapSnapshot.getImageRep((byte) code);
+            final var image = ResourceLoader.getImage(cellImage.imageKey);
+            final var pixels = new int[TILE_SIZE * TILE_SIZE];
+            image.getPixelReader().getPixels(0, 0, TILE_SIZE, TILE_SIZE, PixelFormat.getIntArgbInstance(),
+                    pixels, 0, TILE_SIZE);
+
+            result[0][code] = rotate(pixels, TILE_SIZE, Math.round(cellImage.rotation));
+            for (int level = 1; level < LEVELS; ++level) {
+                result[level][code] = downsample(result[level - 1][code], TILE_SIZE >> (level - 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rotates a square sprite clockwise, matching how the {@link Renderer} draws rotated images.
+     *
+     * @param pixels Pixels of the sprite.
+     * @param size   Width and height of the sprite.
+     * @param angle  Angle to rotate by; one of 0, 90, 180 and 270.
+     * @return Pixels of the rotated sprite.
+     */
+    @NotNull
+    private static int[] rotate(@NotNull int[] pixels, int size, int angle) {
+        final var rotated = new int[size * size];
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                final int src;
+                switch (angle) {
+                    case 90:
+                        src = (size - 1 - x) * size + y;
+                        break;
+                    case 180:
+                        src = (size - 1 - y) * size + (size - 1 - x);
+                        break;
+                    case 270:
+                        src = x * size + (size - 1 - y);
+                        break;
+                    default:
+                        src = y * size + x;
+                        break;
+                }
+                rotated[y * size + x] = pixels[src];
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Halves the size of a square sprite, averaging each 2x2 block of pixels with alpha weighting.
+     *
+     * @param pixels Pixels of the sprite.
+     * @param size   Width and height of the sprite.
+     * @return Pixels of the downsampled sprite.
+     */
+    @NotNull
+    private static int[] downsample(@NotNull int[] pixels, int size) {
+        final int half = size / 2;
+        final var result = new int[half * half];
+        for (int y = 0; y < half; ++y) {
+            for (int x = 0; x < half; ++x) {
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int i = 0; i < 4; ++i) {
+                    final int p = pixels[(2 * y + i / 2) * size + 2 * x + i % 2];
+                    final int pa = p >>> 24;
+                    a += pa;
+                    r += (p >> 16 & 0xff) * pa;
+                    g += (p >> 8 & 0xff) * pa;
+                    b += (p & 0xff) * pa;
+                }
+                result[y * half + x] = a == 0 ? 0 : (a / 4) << 24 | (r / a) << 16 | (g / a) << 8 | (b / a);
+            }
+        }
+        return result;
+    }
+}
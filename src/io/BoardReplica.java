@@ -0,0 +1,213 @@
+package io;
+
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copy of the state of a remote game, kept up to date by applying the messages of {@link SyncProtocol}.
+ *
+ * <p>
+ * A replica is not thread-safe.
+ * </p>
+ */
+public class BoardReplica {
+
+    /**
+     * Outcome of applying a message.
+     */
+    public enum Result {
+        APPLIED,
+        /**
+         * The message leads to a state the replica has already reached, and was ignored.
+         */
+        STALE,
+        /**
+         * The replica has no snapshot yet, or missed a delta, so the message cannot be applied. The client should ask
+         * for a snapshot.
+         */
+        GAP
+    }
+
+    private static final Pipe.Shape[] SHAPES = Pipe.Shape.values();
+
+    private int rows = 0;
+    private int cols = 0;
+    @NotNull
+    private byte[] cells = new byte[0];
+    private int fillDistance = -1;
+    @NotNull
+    private final List<Pipe.Shape> queue = new ArrayList<>();
+    /**
+     * Sequence number of the current state, or -1 if no snapshot has been applied.
+     */
+    private long sequence = -1;
+
+    /**
+     * Applies a snapshot, delta or heartbeat message.
+     *
+     * @param payload Payload of the message.
+     * @return Outcome of applying the message.
+     * @throws IllegalArgumentException if the message is malformed. The replica may then be inconsistent, and should
+     *                                  be resynchronised.
+     */
+    @NotNull
+    public Result apply(@NotNull byte[] payload) {
+        final var in = new SyncProtocol.Reader(payload);
+        final byte type = in.getByte();
+        final long seq = in.getVarint();
+        switch (type) {
+            case SyncProtocol.SNAPSHOT:
+                if (seq < sequence) {
+                    return Result.STALE;
+                }
+                applySnapshot(in);
+                break;
+            case SyncProtocol.DELTA:
+                if (sequence >= 0 && seq <= sequence) {
+                    return Result.STALE;
+                }
+                if (sequence < 0 || seq != sequence + 1) {
+                    return Result.GAP;
+                }
+                applyDelta(in);
+                break;
+            case SyncProtocol.HEARTBEAT:
+                return seq > sequence ? Result.GAP : Result.STALE;
+            default:
+                throw new IllegalArgumentException("Unknown message type: " + type);
+        }
+        if (!in.isAtEnd()) {
+            throw new IllegalArgumentException("Trailing bytes in message");
+        }
+        sequence = seq;
+        return Result.APPLIED;
+    }
+
+    private void applySnapshot(@NotNull SyncProtocol.Reader in) {
+        rows = in.getVarint(SyncProtocol.MAX_PAYLOAD_LENGTH);
+        cols = in.getVarint(SyncProtocol.MAX_PAYLOAD_LENGTH);
+        if ((long) rows * cols > SyncProtocol.MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Map too large: " + rows + "x" + cols);
+        }
+        fillDistance = in.getVarint(Integer.MAX_VALUE) - 1;
+        cells = new byte[rows * cols];
+        for (int i = 0; i < cells.length; ++i) {
+            cells[i] = getCell(in);
+        }
+        queue.clear();
+        readShapes(in, queue.size());
+    }
+
+    private void applyDelta(@NotNull SyncProtocol.Reader in) {
+        fillDistance = in.getVarint(Integer.MAX_VALUE) - 1;
+        final int changed = in.getVarint(cells.length);
+        int index = 0;
+        for (int i = 0; i < changed; ++i) {
+            index += in.getVarint(cells.length);
+            if (index >= cells.length) {
+                throw new IllegalArgumentException("Cell index out of range: " + index);
+            }
+            cells[index] = getCell(in);
+        }
+
+        final int removed = in.getVarint(queue.size());
+        queue.subList(0, removed).clear();
+        readShapes(in, 0);
+        readShapes(in, queue.size());
+    }
+
+    /**
+     * Reads a list of shapes, and inserts them into the queue.
+     *
+     * @param at Position in the queue to insert the shapes at.
+     */
+    private void readShapes(@NotNull SyncProtocol.Reader in, int at) {
+        final int count = in.getVarint(SyncProtocol.MAX_PAYLOAD_LENGTH);
+        final var shapes = new ArrayList<Pipe.Shape>(count);
+        for (int i = 0; i < count; ++i) {
+            final int ordinal = in.getByte();
+            if (ordinal < 0 || ordinal >= SHAPES.length) {
+                throw new IllegalArgumentException("Unknown pipe shape: " + ordinal);
+            }
+            shapes.add(SHAPES[ordinal]);
+        }
+        queue.addAll(at, shapes);
+    }
+
+    private static byte getCell(@NotNull SyncProtocol.Reader in) {
+        final byte code = in.getByte();
+        if (!MapSnapshot.isValid(code)) {
+            throw new IllegalArgumentException("Invalid cell: " + code);
+        }
+        return code;
+    }
+
+    /**
+     * @return Sequence number of the current state, or -1 if no snapshot has been applied yet.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @return Cell at the given position, encoded in the format of {@link MapSnapshot}.
+     */
+    public byte get(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    /**
+     * @return Distance of the latest fill step, or -1 if the water has not started flowing.
+     */
+    public int getFillDistance() {
+        return fillDistance;
+    }
+
+    /**
+     * @return Shapes of the pipes in the queue, starting with the current pipe.
+     */
+    @NotNull
+    public List<Pipe.Shape> getQueue() {
+        return Collections.unmodifiableList(queue);
+    }
+
+    /**
+     * @param map   Snapshot of a map.
+     * @param queue Pipe queue, starting with the current pipe.
+     * @return Whether this replica holds exactly the given state.
+     */
+    public boolean matches(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        if (map.rows != rows || map.cols != cols || map.fillDistance != fillDistance
+                || queue.size() != this.queue.size()) {
+            return false;
+        }
+        for (int i = 0; i < queue.size(); ++i) {
+            if (queue.get(i).getShape() != this.queue.get(i)) {
+                return false;
+            }
+        }
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                if (map.get(r, c) != get(r, c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
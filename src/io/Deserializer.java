@@ -17,6 +17,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
 /**
@@ -135,10 +136,14 @@ public class Deserializer {
     @NotNull
     public static Cell[][] parseString(final int rows, final int cols, @NotNull final String cellsRep) {
         var cells = new Cell[rows][cols];
+        var lines = cellsRep.lines().toArray(String[]::new);
         for (int r = 0; r < rows; ++r) {
+            if (r >= lines.length) {
+                throw new NoSuchElementException("Missing row " + r + " of map");
+            }
             for (int c = 0; c < cols; ++c) {
                 var coord = new Coordinate(r, c);
-                var ch = cellsRep.lines().skip(r).findFirst().orElseThrow().charAt(c);
+                var ch = lines[r].charAt(c);
 
                 Cell cell;
                 if (r == 0 || r == rows - 1 || c == 0 || c == cols - 1) {
@@ -0,0 +1,279 @@
+package io;
+
+import models.PipeQueue;
+import models.map.LevelSolver;
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates random levels which are guaranteed to be solvable.
+ *
+ * <p>
+ * A level is generated by carving a random path from the source to the sink, scattering walls over the cells off the
+ * path, and drawing the starting pipes of the level from a {@link PipeQueue} seeded by the generator. The level is only
+ * accepted if the {@link LevelSolver} can connect the source to the sink using the starting pipes alone; otherwise a
+ * new level is generated. Generation is deterministic: the same seed always produces the same level.
+ * </p>
+ * <p>
+ * Difficulty ranges from 0 to 1. Harder levels have longer, more winding paths, fewer spare starting pipes, and less
+ * time before the water starts flowing.
+ * </p>
+ */
+public class LevelGenerator {
+
+    /**
+     * Maximum number of levels generated for a seed before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 100;
+
+    /**
+     * Maximum number of search steps when checking whether a level is solvable.
+     */
+    private static final long SOLVER_BUDGET = 200_000;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int rows;
+    private final int cols;
+    private final double wallDensity;
+    private final double difficulty;
+
+    /**
+     * @param rows        Number of rows, including the outer walls.
+     * @param cols        Number of columns, including the outer walls.
+     * @param wallDensity Probability of each cell off the solution path being a wall, from 0 to 1.
+     * @param difficulty  Target difficulty, from 0 to 1.
+     * @throws IllegalArgumentException if the level is smaller than 4x4, or a probability is out of range.
+     */
+    public LevelGenerator(int rows, int cols, double wallDensity, double difficulty) {
+        if (rows < 4 || cols < 4) {
+            throw new IllegalArgumentException("Generated levels must be at least 4x4");
+        }
+        if (!(wallDensity >= 0 && wallDensity <= 1) || !(difficulty >= 0 && difficulty <= 1)) {
+            throw new IllegalArgumentException("Wall density and difficulty must be between 0 and 1");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.wallDensity = wallDensity;
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Generates a level.
+     *
+     * @param seed Seed of the level.
+     * @return Properties of the generated level.
+     * @throws IllegalStateException if no solvable level could be generated.
+     */
+    @NotNull
+    public GameProperties generate(long seed) {
+        final var random = new Random(seed);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+            final var level = tryGenerate(random);
+            if (level != null) {
+                return level;
+            }
+        }
+        throw new IllegalStateException("Cannot generate a solvable level with seed " + seed);
+    }
+
+    /**
+     * Generates levels in parallel on all cores, and saves each of them into a directory.
+     *
+     * @param directory Directory to save the levels to.
+     * @param prefix    Prefix of the file names; levels are named {@code <prefix><index>.map}.
+     * @param count     Number of levels to generate.
+     * @param seed      Seed of the batch. Level {@code i} of a batch is the same regardless of the number of cores.
+     * @return Paths to the saved levels.
+     * @throws UncheckedIOException if a level cannot be saved.
+     */
+    @NotNull
+    public List<Path> generateBatch(@NotNull Path directory, @NotNull String prefix, int count, long seed) {
+        final int digits = String.valueOf(Math.max(0, count - 1)).length();
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> {
+                    final var path = directory.resolve(String.format("%s%0" + digits + "d.map", prefix, i));
+                    try {
+                        new Serializer(path).serializeGameProp(generate(seedOf(seed, i)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return path;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Seed of a level in a batch, spreading consecutive indices over the whole range of seeds.
+     */
+    private static long seedOf(long batchSeed, int index) {
+        long z = batchSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates a level, and checks whether it is solvable with its starting pipes.
+     *
+     * @param random Source of randomness.
+     * @return Properties of the level, or {@code null} if it is not solvable.
+     */
+    @Nullable
+    private GameProperties tryGenerate(@NotNull Random random) {
+        final var cells = new Cell[rows][cols];
+
+        // The sink is on an edge, pointing out of the map; the water enters it from the adjacent inner cell
+        final var sinkDirection = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+        final var sink = onEdge(sinkDirection, random);
+        final var sinkFeed = sink.add(sinkDirection.getOpposite().getOffset());
+
+        // The source is an inner cell pointing at another inner cell
+        Coordinate source;
+        Direction sourceDirection;
+        Coordinate start;
+        do {
+            source = new Coordinate(1 + random.nextInt(rows - 2), 1 + random.nextInt(cols - 2));
+            sourceDirection = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            start = source.add(sourceDirection.getOffset());
+        } while (!isInner(start) || source.equals(sinkFeed));
+
+        final var path = carvePath(start, sinkFeed, source, random);
+        if (path == null) {
+            return null;
+        }
+
+        final var onPath = new BitSet(rows * cols);
+        for (var coord : path) {
+            onPath.set(coord.row * cols + coord.col);
+        }
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                final var coord = new Coordinate(r, c);
+                if (!isInner(coord) || !onPath.get(r * cols + c) && random.nextDouble() < wallDensity) {
+                    cells[r][c] = new Wall(coord);
+                } else {
+                    cells[r][c] = new FillableCell(coord);
+                }
+            }
+        }
+        cells[source.row][source.col] = new TerminationCell(source, sourceDirection, TerminationCell.Type.SOURCE);
+        cells[sink.row][sink.col] = new TerminationCell(sink, sinkDirection, TerminationCell.Type.SINK);
+
+        // Easy levels come with plenty of spare pipes; the hardest with barely more than the path needs
+        final int pipeCount = (int) Math.ceil(path.size() * (1.5 + 2.5 * (1 - difficulty)));
+        final var queue = new PipeQueue(null, new Random(random.nextLong()));
+        final var pipes = new ArrayList<Pipe>(pipeCount);
+        final var shapes = new ArrayList<Pipe.Shape>(pipeCount);
+        for (int i = 0; i < pipeCount; ++i) {
+            final var pipe = queue.peek();
+            queue.consume();
+            pipes.add(pipe);
+            shapes.add(pipe.getShape());
+        }
+
+        if (LevelSolver.solve(cells, shapes, SOLVER_BUDGET) == null) {
+            return null;
+        }
+
+        final int delay = Math.max(3, (int) Math.round(path.size() * (1.5 - difficulty)));
+        return new GameProperties(rows, cols, cells, delay, pipes);
+    }
+
+    /**
+     * Carves a path of inner cells between two cells with a randomised depth-first search. At low difficulty, the
+     * search mostly heads towards the end of the path; at high difficulty, it wanders.
+     *
+     * @param start   First cell of the path.
+     * @param end     Last cell of the path.
+     * @param blocked Cell which the path must avoid.
+     * @param random  Source of randomness.
+     * @return Cells of the path in order, or {@code null} if the cells cannot be connected.
+     */
+    @Nullable
+    private List<Coordinate> carvePath(@NotNull Coordinate start, @NotNull Coordinate end,
+                                       @NotNull Coordinate blocked, @NotNull Random random) {
+        final var visited = new BitSet(rows * cols);
+        visited.set(blocked.row * cols + blocked.col);
+        final var path = new ArrayList<Coordinate>();
+        path.add(start);
+        visited.set(start.row * cols + start.col);
+
+        final var candidates = new ArrayList<Coordinate>(DIRECTIONS.length);
+        while (!path.isEmpty()) {
+            final var current = path.get(path.size() - 1);
+            if (current.equals(end)) {
+                return path;
+            }
+
+            candidates.clear();
+            for (var dir : DIRECTIONS) {
+                final var next = current.add(dir.getOffset());
+                if (isInner(next) && !visited.get(next.row * cols + next.col)) {
+                    candidates.add(next);
+                }
+            }
+            if (candidates.isEmpty()) {
+                path.remove(path.size() - 1);
+                continue;
+            }
+
+            Coordinate chosen = candidates.get(random.nextInt(candidates.size()));
+            if (random.nextDouble() >= difficulty) {
+                for (var candidate : candidates) {
+                    if (distance(candidate, end) < distance(chosen, end)) {
+                        chosen = candidate;
+                    }
+                }
+            }
+            visited.set(chosen.row * cols + chosen.col);
+            path.add(chosen);
+        }
+        return null;
+    }
+
+    /**
+     * @return A random cell on the edge in the given direction, excluding corners.
+     */
+    @NotNull
+    private Coordinate onEdge(@NotNull Direction edge, @NotNull Random random) {
+        switch (edge) {
+            case UP:
+                return new Coordinate(0, 1 + random.nextInt(cols - 2));
+            case DOWN:
+                return new Coordinate(rows - 1, 1 + random.nextInt(cols - 2));
+            case LEFT:
+                return new Coordinate(1 + random.nextInt(rows - 2), 0);
+            case RIGHT:
+                return new Coordinate(1 + random.nextInt(rows - 2), cols - 1);
+            default:
+                throw new IllegalStateException("Unknown direction");
+        }
+    }
+
+    private boolean isInner(@NotNull Coordinate coord) {
+        return coord.row > 0 && coord.row < rows - 1 && coord.col > 0 && coord.col < cols - 1;
+    }
+
+    private static int distance(@NotNull Coordinate a, @NotNull Coordinate b) {
+        return Math.abs(a.row - b.row) + Math.abs(a.col - b.col);
+    }
+}
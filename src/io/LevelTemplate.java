@@ -0,0 +1,130 @@
+package io;
+
+import models.FXGame;
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, parsed form of a level, from which any number of fresh games can be created.
+ *
+ * <p>
+ * Parsing a level file is only done once; creating a game from the template is a copy of the board in memory, so
+ * restarting a level does not touch the filesystem. Walls hold no mutable state and are shared between all boards
+ * created from the same template; every other cell is created afresh.
+ * </p>
+ */
+public final class LevelTemplate {
+
+    public final int rows;
+    public final int cols;
+    public final int delay;
+
+    /**
+     * Cells of the level in their initial state. Never exposed, so the cells are never mutated.
+     */
+    @NotNull
+    private final Cell[][] cells;
+    /**
+     * Shapes of the pipes to start the queue with, or {@code null} if the queue is generated.
+     */
+    @Nullable
+    private final List<Pipe.Shape> pipes;
+
+    /**
+     * @param properties Properties of a newly parsed level. The template takes ownership of its cells.
+     * @throws IllegalArgumentException if the cells are not in their initial state.
+     */
+    public LevelTemplate(@NotNull GameProperties properties) {
+        this.rows = properties.rows;
+        this.cols = properties.cols;
+        this.delay = properties.delay;
+        this.cells = properties.cells;
+
+        for (var row : cells) {
+            for (var cell : row) {
+                if (cell instanceof FillableCell && ((FillableCell) cell).getPipe().isPresent()
+                        || cell instanceof TerminationCell && ((TerminationCell) cell).isFilled()) {
+                    throw new IllegalArgumentException("Level templates must not contain placed pipes or water");
+                }
+            }
+        }
+
+        if (properties.pipes != null) {
+            final var shapes = new ArrayList<Pipe.Shape>(properties.pipes.size());
+            for (var pipe : properties.pipes) {
+                shapes.add(pipe.getShape());
+            }
+            this.pipes = List.copyOf(shapes);
+        } else {
+            this.pipes = null;
+        }
+    }
+
+    /**
+     * Parses a level file into a template.
+     *
+     * @param path Path to the level file.
+     * @return The template of the level.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws models.exceptions.InvalidMapException if the level cannot be parsed.
+     */
+    @NotNull
+    public static LevelTemplate load(@NotNull Path path) throws FileNotFoundException {
+        return new LevelTemplate(new Deserializer(path).parseGameFile());
+    }
+
+    /**
+     * @return A fresh copy of the cells of the level.
+     */
+    @NotNull
+    public Cell[][] newCells() {
+        final var copy = new Cell[rows][cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                final var cell = cells[r][c];
+                if (cell instanceof TerminationCell) {
+                    final var tCell = (TerminationCell) cell;
+                    copy[r][c] = new TerminationCell(cell.coord, tCell.pointingTo, tCell.type);
+                } else if (cell instanceof FillableCell) {
+                    copy[r][c] = new FillableCell(cell.coord);
+                } else {
+                    copy[r][c] = cell;
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return A fresh list of the pipes to start the queue with, or {@code null} if the queue is generated.
+     */
+    @Nullable
+    public List<Pipe> newPipes() {
+        if (pipes == null) {
+            return null;
+        }
+
+        final var copy = new ArrayList<Pipe>(pipes.size());
+        for (var shape : pipes) {
+            copy.add(new Pipe(shape));
+        }
+        return copy;
+    }
+
+    /**
+     * @return A new game of this level, in its initial state.
+     */
+    @NotNull
+    public FXGame newGame() {
+        return new FXGame(rows, cols, delay, newCells(), newPipes());
+    }
+}
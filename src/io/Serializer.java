@@ -1,17 +1,38 @@
 package io;
 
+import models.pipes.Pipe;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.SecureRandom;
+import java.util.stream.Collectors;
 
 /**
  * A serializer for converting {@link GameProperties} into a map file.
+ *
+ * <p>
+ * The map is written to a temporary file next to the target, which is flushed to the storage device and then renamed
+ * over the target in a single atomic step. Readers therefore see either the old or the new map, never a truncated one,
+ * even if the application is interrupted while saving.
+ * </p>
  */
 public class Serializer {
 
+    /**
+     * Source of the suffixes of temporary files.
+     */
+    @NotNull
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     /**
      * Path to the map to serialize to.
      */
@@ -25,10 +46,90 @@ public class Serializer {
     /**
      * Serializes a {@link GameProperties} object and saves it into a file.
      *
+     * <p>
+     * This method blocks on file I/O, and should not be called on the JavaFX Application Thread.
+     * </p>
+     *
      * @param prop {@link GameProperties} objeect to serialize and save.
      * @throws IOException if an I/O exception has occurred.
      */
     public void serializeGameProp(@NotNull final GameProperties prop) throws IOException {
-        // TODO
+        final var target = path.toAbsolutePath();
+        final var directory = target.getParent();
+        Files.createDirectories(directory);
+
+        final var temp = directory.resolve("." + target.getFileName() + "." + Long.toUnsignedString(RANDOM.nextLong(), 36)
+                + ".tmp");
+        try {
+            // Created like any other new file rather than through Files.createTempFile, which restricts the temporary
+            // file (and therefore the renamed map) to its owner
+            try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+                final var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                write(writer, prop);
+                writer.flush();
+                channel.force(true);
+            }
+            copyPermissions(target, temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        forceDirectory(directory);
+    }
+
+    /**
+     * Writes a {@link GameProperties} object in the map file format.
+     *
+     * @param writer Writer to write to.
+     * @param prop   {@link GameProperties} object to write.
+     * @throws IOException if an I/O exception has occurred.
+     */
+    private static void write(@NotNull BufferedWriter writer, @NotNull GameProperties prop) throws IOException {
+        writer.write("# rows\n" + prop.rows + "\n\n");
+        writer.write("# cols\n" + prop.cols + "\n\n");
+        writer.write("# delay before first flow\n" + prop.delay + "\n\n");
+
+        writer.write("# map\n");
+        for (var row : prop.cells) {
+            for (var cell : row) {
+                writer.write(cell.toSerializedRep());
+            }
+            writer.write('\n');
+        }
+
+        if (prop.pipes != null && !prop.pipes.isEmpty()) {
+            writer.write("\n# optional: list of pipes to start with\n");
+            writer.write(prop.pipes.stream().map(Pipe::toSerializedRep).collect(Collectors.joining(", ")));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Copies the POSIX permissions of an existing file, so that replacing a map keeps its permissions. Does nothing if
+     * the file does not exist or the file system has no POSIX permissions.
+     *
+     * @param from File to copy the permissions of.
+     * @param to   File to apply the permissions to.
+     * @throws IOException if an I/O exception has occurred.
+     */
+    private static void copyPermissions(@NotNull Path from, @NotNull Path to) throws IOException {
+        if (!Files.exists(from) || Files.getFileAttributeView(from, PosixFileAttributeView.class) == null) {
+            return;
+        }
+        Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+    }
+
+    /**
+     * Flushes a directory to the storage device, so that a rename inside it survives a crash. Not all platforms
+     * support opening directories, in which case this does nothing.
+     *
+     * @param directory Directory to flush.
+     */
+    private static void forceDirectory(@NotNull Path directory) {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort; the file itself has already been flushed
+        }
     }
 }
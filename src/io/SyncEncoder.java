@@ -0,0 +1,238 @@
+package io;
+
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes successive states of a game into the messages of {@link SyncProtocol}.
+ *
+ * <p>
+ * Deltas are computed from the cells each {@link MapSnapshot} lists as changed since its base version, so encoding a
+ * delta takes time proportional to the number of changed cells rather than to the size of the map, as long as the
+ * encoder is given every snapshot taken from the map. Otherwise, it falls back to comparing every cell. Taking each
+ * snapshot still copies the chunk table of the map, one reference per 256 cells, so a move costs slightly more on larger
+ * maps: {@code SyncEncoderBenchmark.encodeMove} measured about 0.2 us at 64x64 and 2.4 us at 1000x1000, against 4.4 ms
+ * for encoding a snapshot message of the latter.
+ * </p>
+ * <p>
+ * An encoder is not thread-safe; it should be driven by the thread which publishes the snapshots, e.g. from an update
+ * handler of {@link models.FXGame}.
+ * </p>
+ */
+public class SyncEncoder {
+
+    @NotNull
+    private MapSnapshot map;
+    @NotNull
+    private Pipe.Shape[] queue;
+    private long sequence = 0;
+
+    /**
+     * @param map   Snapshot of the initial map.
+     * @param queue Initial pipe queue, starting with the current pipe.
+     */
+    public SyncEncoder(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        this.map = map;
+        this.queue = shapesOf(queue);
+    }
+
+    /**
+     * @return Sequence number of the latest state encoded.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Latest state encoded by a {@link SyncEncoder}, from which a snapshot message can be encoded later on any thread.
+     *
+     * <p>
+     * Taking a checkpoint only copies references, so a caller can take it while holding a lock shared with
+     * {@link SyncEncoder#encodeDelta(MapSnapshot, List)}, and encode the snapshot after releasing it.
+     * </p>
+     */
+    public static final class Checkpoint {
+
+        @NotNull
+        private final MapSnapshot map;
+        @NotNull
+        private final Pipe.Shape[] queue;
+        /**
+         * Sequence number of the state.
+         */
+        public final long sequence;
+
+        private Checkpoint(@NotNull MapSnapshot map, @NotNull Pipe.Shape[] queue, long sequence) {
+            this.map = map;
+            this.queue = queue;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return Snapshot message of the state.
+         */
+        @NotNull
+        public byte[] encodeSnapshot() {
+            final var out = new SyncProtocol.Writer()
+                    .putByte(SyncProtocol.SNAPSHOT)
+                    .putVarint(sequence)
+                    .putVarint(map.rows)
+                    .putVarint(map.cols)
+                    .putVarint(map.fillDistance + 1);
+            for (int r = 0; r < map.rows; ++r) {
+                for (int c = 0; c < map.cols; ++c) {
+                    out.putByte(map.get(r, c));
+                }
+            }
+            out.putVarint(queue.length);
+            for (var shape : queue) {
+                out.putByte(shape.ordinal());
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * @return Latest state encoded. Neither the snapshot nor the queue it holds is mutated afterwards.
+     */
+    @NotNull
+    public Checkpoint checkpoint() {
+        return new Checkpoint(map, queue, sequence);
+    }
+
+    /**
+     * @return Snapshot message of the latest state encoded.
+     * @see Checkpoint#encodeSnapshot()
+     */
+    @NotNull
+    public byte[] encodeSnapshot() {
+        return checkpoint().encodeSnapshot();
+    }
+
+    /**
+     * Encodes the change from the latest state encoded to a new state, which becomes the latest state.
+     *
+     * @param map   Snapshot of the map. Must be of the same size as the previous one.
+     * @param queue Pipe queue, starting with the current pipe.
+     * @return Delta message, or {@code null} if nothing has changed.
+     * @throws IllegalArgumentException if the map has a different size.
+     */
+    @Nullable
+    public byte[] encodeDelta(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        if (map.rows != this.map.rows || map.cols != this.map.cols) {
+            throw new IllegalArgumentException("Cannot encode a delta to a map of a different size");
+        }
+        final var shapes = shapesOf(queue);
+        final boolean sameQueue = Arrays.equals(shapes, this.queue);
+        if (map == this.map && sameQueue) {
+            return null;
+        }
+
+        final int[] changed = changedCells(this.map, map);
+        if (changed.length == 0 && map.fillDistance == this.map.fillDistance && sameQueue) {
+            this.map = map;
+            return null;
+        }
+
+        final var out = new SyncProtocol.Writer()
+                .putByte(SyncProtocol.DELTA)
+                .putVarint(sequence + 1)
+                .putVarint(map.fillDistance + 1)
+                .putVarint(changed.length);
+        int previous = 0;
+        for (int index : changed) {
+            out.putVarint(index - previous).putByte(map.get(index / map.cols, index % map.cols));
+            previous = index;
+        }
+        encodeQueueDelta(out, this.queue, shapes);
+
+        this.map = map;
+        this.queue = shapes;
+        ++sequence;
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Indices of the cells which differ between two snapshots of the same map, in increasing order.
+     */
+    @NotNull
+    private static int[] changedCells(@NotNull MapSnapshot from, @NotNull MapSnapshot to) {
+        if (from == to) {
+            return new int[0];
+        }
+        if (to.isSameMapAs(from) && to.baseVersion == from.version) {
+            final var changed = new int[to.getChangedCellCount()];
+            int count = 0;
+            for (int i = 0; i < changed.length; ++i) {
+                final int index = to.getChangedCell(i);
+                // A cell may have been changed back since the previous snapshot, e.g. by placing and undoing a pipe
+                if (from.get(index / to.cols, index % to.cols) != to.get(index / to.cols, index % to.cols)) {
+                    changed[count++] = index;
+                }
+            }
+            Arrays.sort(changed, 0, count);
+            return Arrays.copyOf(changed, count);
+        }
+
+        // Some snapshot in between was not encoded, so its changes are unknown
+        var changed = new int[16];
+        int count = 0;
+        for (int r = 0; r < to.rows; ++r) {
+            for (int c = 0; c < to.cols; ++c) {
+                if (from.get(r, c) != to.get(r, c)) {
+                    if (count == changed.length) {
+                        changed = Arrays.copyOf(changed, count * 2);
+                    }
+                    changed[count++] = r * to.cols + c;
+                }
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * Encodes a queue change as pipes removed from the head, pipes added to the head, and pipes added to the tail.
+     * Consuming a pipe removes one from the head and adds one to the tail, and undoing adds one to the head.
+     */
+    private static void encodeQueueDelta(@NotNull SyncProtocol.Writer out, @NotNull Pipe.Shape[] from,
+                                         @NotNull Pipe.Shape[] to) {
+        // Find the longest tail of the old queue which appears in the new one
+        int removed = from.length;
+        int added = 0;
+        search:
+        for (int k = 0; k < from.length; ++k) {
+            final int kept = from.length - k;
+            for (int p = 0; p + kept <= to.length; ++p) {
+                if (Arrays.equals(from, k, from.length, to, p, p + kept)) {
+                    removed = k;
+                    added = p;
+                    break search;
+                }
+            }
+        }
+        final int tail = added + from.length - removed;
+
+        out.putVarint(removed).putVarint(added);
+        for (int i = 0; i < added; ++i) {
+            out.putByte(to[i].ordinal());
+        }
+        out.putVarint(to.length - tail);
+        for (int i = tail; i < to.length; ++i) {
+            out.putByte(to[i].ordinal());
+        }
+    }
+
+    @NotNull
+    private static Pipe.Shape[] shapesOf(@NotNull List<Pipe> queue) {
+        final var shapes = new Pipe.Shape[queue.size()];
+        for (int i = 0; i < shapes.length; ++i) {
+            shapes[i] = queue.get(i).getShape();
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,210 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Wire format for synchronising the state of a game to remote clients.
+ *
+ * <p>
+ * Messages are sent as frames: the length of the payload as a varint, followed by the payload. A payload starts with
+ * its type, and unsigned integers are encoded as little-endian base-128 varints, so that small numbers take one byte.
+ * </p>
+ * <ul>
+ * <li>{@link SyncProtocol#SNAPSHOT}: sequence number, rows, columns, fill distance + 1, every cell as a byte in the
+ * format of {@link models.map.MapSnapshot} in row-major order, then the length of the pipe queue and the ordinal of
+ * the shape of each pipe.</li>
+ * <li>{@link SyncProtocol#DELTA}: sequence number, fill distance + 1, the number of changed cells and, for each of them
+ * in increasing order of index, the gap from the previous index and the new cell byte, then the change to the pipe
+ * queue: the number of pipes removed from its head, the pipes added to its head, and the pipes added to its tail,
+ * each list given as its length followed by shape ordinals.</li>
+ * <li>{@link SyncProtocol#HEARTBEAT}: the sequence number of the latest state, sent while there is nothing else to
+ * send.</li>
+ * <li>{@link SyncProtocol#RESYNC}, from a client: the latest sequence number the client has applied, asking for a new
+ * snapshot.</li>
+ * </ul>
+ * <p>
+ * Each snapshot and delta carries the sequence number of the state it leads to, and each delta only applies to the
+ * state with the previous sequence number. A client which misses a delta therefore notices the gap, and asks for a
+ * snapshot instead of drifting out of sync. Heartbeats let it notice a missed delta even when no delta follows it.
+ * </p>
+ */
+public final class SyncProtocol {
+
+    public static final byte SNAPSHOT = 1;
+    public static final byte DELTA = 2;
+    public static final byte RESYNC = 3;
+    public static final byte HEARTBEAT = 4;
+
+    /**
+     * Largest payload accepted, in bytes. Bounds the memory a malformed frame can make the receiver allocate.
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 1 << 20;
+
+    private SyncProtocol() {
+    }
+
+    /**
+     * Growable buffer for encoding a payload.
+     */
+    public static final class Writer {
+
+        @NotNull
+        private byte[] bytes = new byte[64];
+        private int length = 0;
+
+        /**
+         * @param b Byte to append.
+         * @return This writer.
+         */
+        @NotNull
+        public Writer putByte(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+            return this;
+        }
+
+        /**
+         * @param value Non-negative integer to append as a varint.
+         * @return This writer.
+         */
+        @NotNull
+        public Writer putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                putByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            return putByte((int) value);
+        }
+
+        /**
+         * @return Copy of the bytes written so far.
+         */
+        @NotNull
+        public byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    /**
+     * Cursor for decoding a payload.
+     */
+    public static final class Reader {
+
+        @NotNull
+        private final byte[] bytes;
+        private int position = 0;
+
+        /**
+         * @param bytes Payload to decode.
+         */
+        public Reader(@NotNull byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return The next byte.
+         * @throws IllegalArgumentException if the payload has ended.
+         */
+        public byte getByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated payload");
+            }
+            return bytes[position++];
+        }
+
+        /**
+         * @return The next varint.
+         * @throws IllegalArgumentException if the payload has ended, or the varint is too long.
+         */
+        public long getVarint() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                final byte b = getByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /**
+         * @param max Largest value allowed.
+         * @return The next varint, as an {@code int}.
+         * @throws IllegalArgumentException if the value is larger than {@code max}.
+         */
+        public int getVarint(int max) {
+            final long value = getVarint();
+            if (value < 0 || value > max) {
+                throw new IllegalArgumentException("Value out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        /**
+         * @return Whether the whole payload has been read.
+         */
+        public boolean isAtEnd() {
+            return position == bytes.length;
+        }
+    }
+
+    /**
+     * Writes a payload as a frame. The stream is not flushed.
+     *
+     * @param out     Stream to write to.
+     * @param payload Payload to write.
+     * @throws IOException if the stream cannot be written to.
+     */
+    public static void writeFrame(@NotNull OutputStream out, @NotNull byte[] payload) throws IOException {
+        long length = payload.length;
+        while ((length & ~0x7FL) != 0) {
+            out.write((int) (length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write((int) length);
+        out.write(payload);
+    }
+
+    /**
+     * Reads the payload of the next frame, blocking until it has been received.
+     *
+     * @param in Stream to read from.
+     * @return The payload.
+     * @throws EOFException if the stream ends before a whole frame is read.
+     * @throws IOException  if the stream cannot be read, or the frame is too long.
+     */
+    @NotNull
+    public static byte[] readFrame(@NotNull InputStream in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift > 21) {
+                throw new IOException("Malformed frame length");
+            }
+        }
+        if (length > MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Frame too long: " + length);
+        }
+        final var payload = in.readNBytes(length);
+        if (payload.length != length) {
+            throw new EOFException();
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,76 @@
+package main;
+
+import io.LevelGenerator;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line entry point generating batches of levels.
+ *
+ * <p>
+ * Usage: {@code --generate <directory> [--count=N] [--rows=N] [--cols=N] [--density=D] [--difficulty=D] [--seed=N]
+ * [--prefix=S]}
+ * </p>
+ */
+public class GeneratorMain {
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println("Usage: --generate <directory> [--count=N] [--rows=N] [--cols=N] [--density=D]"
+                    + " [--difficulty=D] [--seed=N] [--prefix=S]");
+            System.exit(1);
+        }
+
+        final Path directory = Paths.get(args[0]);
+        int count = 100;
+        int rows = 10;
+        int cols = 10;
+        double density = 0.2;
+        double difficulty = 0.5;
+        long seed = System.nanoTime();
+        String prefix = "generated-";
+
+        for (int i = 1; i < args.length; ++i) {
+            final var arg = args[i];
+            final int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split == -1) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            final var value = arg.substring(split + 1);
+            switch (arg.substring(2, split)) {
+                case "count":
+                    count = Integer.parseInt(value);
+                    break;
+                case "rows":
+                    rows = Integer.parseInt(value);
+                    break;
+                case "cols":
+                    cols = Integer.parseInt(value);
+                    break;
+                case "density":
+                    density = Double.parseDouble(value);
+                    break;
+                case "difficulty":
+                    difficulty = Double.parseDouble(value);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "prefix":
+                    prefix = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        final var generator = new LevelGenerator(rows, cols, density, difficulty);
+        final long start = System.nanoTime();
+        final var paths = generator.generateBatch(directory, prefix, count, seed);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Generated %d levels of %dx%d into %s in %.2f s (%.0f levels/min, seed %d)%n",
+                paths.size(), rows, cols, directory.toAbsolutePath(), seconds, paths.size() / seconds * 60, seed);
+    }
+}
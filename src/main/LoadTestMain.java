@@ -0,0 +1,71 @@
+package main;
+
+import models.FlowTimer;
+import models.bot.LoadDriver;
+
+/**
+ * Command-line entry point running bots against the game engine and reporting its throughput.
+ *
+ * <p>
+ * Usage: {@code --load-test [--bots=N] [--duration=SECONDS] [--strategy=random|greedy|lookahead|mixed] [--rows=N]
+ * [--cols=N] [--think=MILLIS] [--flow-duration=TICKS] [--turn-based] [--seed=N]}
+ * </p>
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        int bots = 1000;
+        long duration = 30;
+        String strategy = LoadDriver.MIXED;
+        int rows = 10;
+        int cols = 10;
+        long think = 200;
+        boolean turnBased = false;
+        long seed = System.nanoTime();
+
+        for (var arg : args) {
+            if (arg.equals("--turn-based")) {
+                turnBased = true;
+                continue;
+            }
+            final int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split == -1) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            final var value = arg.substring(split + 1);
+            switch (arg.substring(2, split)) {
+                case "bots":
+                    bots = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    duration = Long.parseLong(value);
+                    break;
+                case "strategy":
+                    strategy = value;
+                    break;
+                case "rows":
+                    rows = Integer.parseInt(value);
+                    break;
+                case "cols":
+                    cols = Integer.parseInt(value);
+                    break;
+                case "think":
+                    think = Long.parseLong(value);
+                    break;
+                case "flow-duration":
+                    FlowTimer.setDefaultFlowDuration(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        final var driver = new LoadDriver(bots, strategy, rows, cols, think, turnBased);
+        System.out.printf("Running %d %s bots on %s %dx%d games for %d s (seed %d)%n", bots, strategy,
+                turnBased ? "turn-based" : "real-time", rows, cols, duration, seed);
+        System.out.println(driver.run(duration * 1000, seed));
+    }
+}
@@ -1,23 +1,74 @@
 package main;
 
+import controllers.AudioManager;
+import controllers.ResourceLoader;
 import controllers.SceneManager;
+import controllers.TileRasterizer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import models.GameTracker;
 import textgame.Main;
 import views.panes.MainMenuPane;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 public class PipesMain extends Application {
 
+    /**
+     * Prints the time taken by each startup phase once the main menu is shown.
+     */
+    private static final String STARTUP_REPORT_ARG = "--startup-report";
+    /**
+     * Exits as soon as the main menu is shown. Used for training runs which dump a class-data sharing archive.
+     */
+    private static final String EXIT_AFTER_STARTUP_ARG = "--exit-after-startup";
+    /**
+     * Prints the number of live games and threads every time a game ends, to check that long sessions do not leak.
+     */
+    private static final String LEAK_CHECK_ARG = "--leak-check";
+
+    @Override
+    public void init() {
+        StartupReport.mark("Application.init");
+
+        // Images decode in the background while the main menu is being displayed
+        ResourceLoader.preloadImages("assets/images")
+                .whenComplete((v, e) -> StartupReport.mark(e == null ? "Images preloaded" : "Image preload failed"));
+        // Sprites are decoded for the tile rasteriser as soon as their images have loaded
+        TileRasterizer.preload();
+    }
+
     @Override
     public void start(final Stage primaryStage) {
+        StartupReport.mark("Application.start");
+
+        final var args = getParameters().getRaw();
+        GameTracker.setReporting(args.contains(LEAK_CHECK_ARG));
+        primaryStage.setOnShown(e -> {
+            StartupReport.mark("Main menu shown");
+            // The first frame is rendered on the next pulse
+            Platform.runLater(() -> {
+                StartupReport.mark("First pulse");
+                AudioManager.getInstance().preload();
+                if (args.contains(STARTUP_REPORT_ARG)) {
+                    StartupReport.print();
+                }
+                if (args.contains(EXIT_AFTER_STARTUP_ARG)) {
+                    Platform.exit();
+                }
+            });
+        });
+
         SceneManager.getInstance().setStage(primaryStage);
         SceneManager.getInstance().showPane(MainMenuPane.class);
     }
 
     public static void main(String[] args) {
+        StartupReport.mark("PipesMain.main");
+
         if (args.length > 0 && args[0].equals("--text")) {
             final var txtArgs = new ArrayList<>(Arrays.asList(args));
             txtArgs.remove(0);
@@ -26,6 +77,21 @@ public class PipesMain extends Application {
             Main.main(txtArgs.toArray(txtArrayArgs));
 
             System.exit(0);
+        } else if (args.length > 0 && args[0].equals("--generate")) {
+            GeneratorMain.main(Arrays.copyOfRange(args, 1, args.length));
+        } else if (args.length > 0 && args[0].equals("--load-test")) {
+            try {
+                LoadTestMain.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (args.length > 0 && args[0].equals("--server")) {
+            try {
+                ServerMain.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Cannot start the server: " + e.getMessage());
+                System.exit(1);
+            }
         } else {
             PipesMain.launch(args);
         }
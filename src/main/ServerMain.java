@@ -0,0 +1,102 @@
+package main;
+
+import models.FlowTimer;
+import server.Client;
+import server.GameServer;
+import server.SocketListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Command-line entry point hosting many games in one process, played through a local socket or standard input.
+ *
+ * <p>
+ * Usage: {@code --server [--port=N] [--threads=N] [--tick=MILLIS] [--idle-timeout=SECONDS] [--flow-duration=SECONDS]}
+ * </p>
+ * <p>
+ * The socket only listens on the loopback address; a port of 0 disables it. Commands typed on standard input are
+ * handled like those of a socket client, and {@code quit} there stops the server.
+ * </p>
+ */
+public class ServerMain {
+
+    public static void main(String[] args) throws IOException {
+        int port = 7777;
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        long tick = 10;
+        long idleTimeout = 30 * 60;
+
+        for (var arg : args) {
+            final int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split == -1) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            final var value = arg.substring(split + 1);
+            switch (arg.substring(2, split)) {
+                case "port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "tick":
+                    tick = Long.parseLong(value);
+                    break;
+                case "idle-timeout":
+                    idleTimeout = Long.parseLong(value);
+                    break;
+                case "flow-duration":
+                    FlowTimer.setDefaultFlowDuration(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        final var server = new GameServer(threads, tick, idleTimeout * 1000);
+        SocketListener listener = null;
+        if (port != 0) {
+            listener = new SocketListener(server, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                    + listener.getPort());
+        }
+        System.out.println("Type help for the list of commands");
+
+        final var console = new Client() {
+            @Override
+            public void send(String line) {
+                System.out.println(line);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+        };
+        final var in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!server.handle(line, console)) {
+                if (listener != null) {
+                    listener.close();
+                }
+                server.close();
+                return;
+            }
+        }
+
+        // Without standard input, e.g. when run in the background, serve the socket until the process is killed
+        if (listener != null) {
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
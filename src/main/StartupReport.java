@@ -0,0 +1,60 @@
+package main;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time at which each startup phase is reached, relative to the start of the JVM.
+ */
+final class StartupReport {
+
+    /**
+     * Time of JVM start, expressed on the {@link System#nanoTime()} clock.
+     */
+    private static final long JVM_START_NANOS;
+
+    static {
+        final long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        JVM_START_NANOS = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(uptimeMillis);
+    }
+
+    @NotNull
+    private static final List<String> phases = new ArrayList<>();
+    @NotNull
+    private static final List<Long> timestamps = new ArrayList<>();
+
+    private StartupReport() {
+    }
+
+    /**
+     * Marks that a startup phase has been reached.
+     *
+     * @param phase Name of the phase.
+     */
+    static synchronized void mark(@NotNull String phase) {
+        phases.add(phase);
+        timestamps.add(System.nanoTime());
+    }
+
+    /**
+     * Prints all recorded phases to {@link System#out}, with the time since JVM start and since the previous phase.
+     */
+    static synchronized void print() {
+        System.out.println("Startup timing (ms since JVM start, +ms since previous phase):");
+
+        long prev = JVM_START_NANOS;
+        for (int i = 0; i < phases.size(); ++i) {
+            final long t = timestamps.get(i);
+            System.out.println(String.format("  %-28s %7.1f  +%.1f", phases.get(i), toMillis(t - JVM_START_NANOS), toMillis(t - prev)));
+            prev = t;
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
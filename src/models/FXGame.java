@@ -1,17 +1,15 @@
 package models;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import controllers.Renderer;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.control.ChoiceDialog;
 import models.map.Map;
+import models.map.MapSnapshot;
 import models.map.cells.Cell;
 import models.map.cells.FillableCell;
 import models.map.cells.TerminationCell;
 import models.map.cells.Wall;
 import models.map.cells.TerminationCell.Type;
 import models.pipes.Pipe;
-import models.pipes.Pipe.Shape;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -19,18 +17,72 @@ import textgame.game.Game;
 import util.Coordinate;
 import util.Direction;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.Random;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * JavaFX version of {@link textgame.game.Game}.
+ *
+ * <p>
+ * All mutable state of a game is owned by its {@link GameLoop}. Player actions and timer ticks are submitted to the
+ * loop as commands and may be issued from any thread; handlers registered on this class are run on the loop.
+ * </p>
+ * <p>
+ * A game is created in the {@link State#CREATED} state, runs from {@link FXGame#startCountdown()} until
+ * {@link FXGame#stopCountdown()}, and must be released with {@link FXGame#dispose()} once it is no longer displayed.
+ * Disposing a game stops its timer, deregisters all of its handlers and closes its loop, so that nothing outside the
+ * game keeps it reachable.
+ * </p>
+ * <p>
+ * Changes to the game are also published as {@link GameEvent}s by {@link FXGame#getEvents()}.
+ * </p>
  */
 public class FXGame {
 
+    /**
+     * Lifecycle state of a game.
+     */
+    public enum State {
+        /**
+         * The game has been created, but the water has not started flowing.
+         */
+        CREATED,
+        /**
+         * The timer is running. The game may still be paused.
+         */
+        RUNNING,
+        /**
+         * The timer has been stopped, e.g. because the game was won or lost.
+         */
+        STOPPED,
+        /**
+         * The game has been released, and ignores all further commands.
+         */
+        DISPOSED
+    }
+
+    private static final AtomicInteger EVENT_THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Pool delivering events to subscribers, shared by all games. Its threads are daemons so that undelivered events
+     * never keep the JVM alive.
+     */
+    @NotNull
+    private static final ExecutorService EVENT_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            r -> {
+                final var t = new Thread(r, "game-events-" + EVENT_THREAD_COUNT.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
     /**
      * Default number of rows.
      */
@@ -40,20 +92,56 @@ public class FXGame {
      */
     private static int defaultCols = 8;
 
+    /**
+     * Rules and state of the game. Only accessed on the game loop.
+     */
     @NotNull
-    private final Map map;
-    @NotNull
-    private final PipeQueue pipeQueue;
+    private final GameCore core;
     @NotNull
     private final FlowTimer flowTimer;
     @NotNull
-    private final CellStack cellStack = new CellStack();
+    private final GameLoop loop = new GameLoop();
 
-    private IntegerProperty numOfSteps = new SimpleIntegerProperty(0);
-    
-    private int distance;
-    
-    private boolean isReplaced = false;
+    /**
+     * Handlers to run when the player selects a pipe which can be replaced.
+     */
+    @NotNull
+    private final List<Consumer<Coordinate>> onReplaceRequestHandlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Publisher of the events of this game. Each subscriber has a buffer of its own, and events which do not fit are
+     * dropped for that subscriber, so that a slow subscriber never stalls the game loop.
+     */
+    @NotNull
+    private final SubmissionPublisher<GameEvent> events = new SubmissionPublisher<>(EVENT_EXECUTOR,
+            Flow.defaultBufferSize());
+    @NotNull
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /**
+     * Latest published snapshot of the map.
+     */
+    private volatile MapSnapshot mapSnapshot;
+    /**
+     * Latest published snapshot of the pipe queue.
+     */
+    private volatile List<Pipe> queueSnapshot;
+
+    @NotNull
+    private volatile State state = State.CREATED;
+
+    /**
+     * Whether {@link GameEvent.Won} or {@link GameEvent.Lost} has been published. Only accessed on the game loop.
+     */
+    private boolean hasEnded = false;
+    /**
+     * Number of ticks published so far. Only accessed on the game loop.
+     */
+    private int numOfTicks = 0;
+    /**
+     * Number of events published so far. Only written on the game loop.
+     */
+    private volatile long numOfEvents = 0;
 
     /**
      * Sets the default number of rows for generated maps.
@@ -182,10 +270,9 @@ public class FXGame {
     		map_temp = new Map(rows, cols, cells);
     	} while (!map_temp.checkReachable());
     	
-    	map = map_temp;
-    	   	    	
-    	pipeQueue = new PipeQueue(null);
+    	core = new GameCore(map_temp, new PipeQueue(null));
         flowTimer = new FlowTimer(FlowTimer.getDefaultDelay());
+        init();
     }
 
     /**
@@ -199,9 +286,102 @@ public class FXGame {
      */
     public FXGame(int rows, int cols, int delay, @NotNull Cell[][] cells, @Nullable List<Pipe> pipes) {
         // TODO
-        map = (cells != null ? new Map(rows, cols, cells) : null);
-        pipeQueue = new PipeQueue(pipes);
+        core = new GameCore(new Map(rows, cols, cells), new PipeQueue(pipes));
         flowTimer = new FlowTimer(delay);
+        init();
+    }
+
+    /**
+     * Connects the timer to the game loop, and registers the handlers every game needs.
+     */
+    private void init() {
+        flowTimer.setTickDispatcher(loop::submit);
+        flowTimer.registerFlowCallback(() -> {
+            final int distance = core.flow();
+            if (distance >= 0 && events.hasSubscribers()) {
+                publish(new GameEvent.TilesFilled(numOfEvents++, distance, core.getLastFilledTiles()));
+                if (!hasEnded && core.hasLost()) {
+                    hasEnded = true;
+                    publish(new GameEvent.Lost(numOfEvents++));
+                }
+            }
+        });
+        flowTimer.registerTickCallback(() -> {
+            if (events.hasSubscribers()) {
+                publish(new GameEvent.Tick(numOfEvents++, numOfTicks));
+            }
+            ++numOfTicks;
+        });
+        initSnapshots();
+        GameTracker.onCreated(this);
+    }
+
+    /**
+     * Publishes the initial snapshots, and republishes them after every batch of commands.
+     *
+     * <p>
+     * The publishing callback is registered before any other, so update handlers always observe the new snapshots.
+     * </p>
+     */
+    private void initSnapshots() {
+        publishSnapshots();
+        loop.registerBatchCallback(this::publishSnapshots);
+    }
+
+    private void publishSnapshots() {
+        mapSnapshot = core.snapshotMap();
+        queueSnapshot = core.snapshotQueue();
+    }
+
+    /**
+     * Offers an event to every subscriber, dropping it for those whose buffer is full. Runs on the game loop.
+     *
+     * @param event Event to publish.
+     */
+    private void publish(@NotNull GameEvent event) {
+        try {
+            events.offer(event, (subscriber, dropped) -> {
+                droppedEvents.incrementAndGet();
+                return false;
+            });
+        } catch (IllegalStateException e) {
+            // The game has been disposed while the command was running
+        }
+    }
+
+    /**
+     * Returns the stream of events of this game.
+     *
+     * <p>
+     * Events are delivered on a shared pool, never on the game loop. Each subscriber has a bounded buffer of its own,
+     * and only receives as many events as it requests; events which arrive while its buffer is full are dropped for
+     * that subscriber, and counted by {@link FXGame#getDroppedEventCount()}. Subscribers are completed when the game is
+     * disposed. Events are only produced while there are subscribers, so a subscriber only receives the events which
+     * happen after it subscribes.
+     * </p>
+     *
+     * @return Publisher of the events of this game.
+     */
+    @NotNull
+    public Flow.Publisher<GameEvent> getEvents() {
+        // Hides the publisher itself, so that only the game can submit events
+        return events::subscribe;
+    }
+
+    /**
+     * Should be called on the game loop, i.e. from a handler, to be consistent with the snapshots.
+     *
+     * @return Number of events published so far, i.e. the sequence number of the next event.
+     */
+    public long getEventCount() {
+        return numOfEvents;
+    }
+
+    /**
+     * @return Number of events dropped because the buffer of a subscriber was full, counted once per subscriber.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
     }
 
     /**
@@ -222,26 +402,57 @@ public class FXGame {
         flowTimer.registerTickCallback(handler);
     }
 
+    /**
+     * Adds a handler to be run after the game loop has processed a batch of commands.
+     *
+     * <p>
+     * This is the point at which observers should read the state of the game, e.g. to render it or to check whether
+     * the game has been won.
+     * </p>
+     *
+     * @param handler {@link Runnable} to execute.
+     */
+    public void addOnUpdateHandler(@NotNull Runnable handler) {
+        loop.registerBatchCallback(handler);
+    }
+
+    /**
+     * Adds a handler to be run when the player selects a pipe which can be replaced.
+     *
+     * <p>
+     * The flow of water is paused before the handler runs. The handler should eventually call either
+     * {@link FXGame#replacePipe(int, int, Pipe)} or {@link FXGame#resumeGame()}.
+     * </p>
+     *
+     * @param handler Handler accepting the coordinate of the selected pipe.
+     */
+    public void addOnReplaceRequestHandler(@NotNull Consumer<Coordinate> handler) {
+        onReplaceRequestHandlers.add(handler);
+    }
+
     /**
      * Starts the flow of water.
+     *
+     * @throws IllegalStateException if the game has already been started.
      */
     public void startCountdown() {
+        if (state != State.CREATED) {
+            throw new IllegalStateException("Cannot start a game in state " + state);
+        }
+        state = State.RUNNING;
         flowTimer.start();
-        distance = 0;
-        
-    	addOnFlowHandler(new Runnable() {
-			@Override
-			public void run() {
-				// TODO Auto-generated method stub
-				map.fillTiles(distance);
-				distance = distance + 1;
-			}
-		});
     }
     
     public boolean isPaused() {
     	return flowTimer.isPaused();
     }
+
+    /**
+     * @return Number of seconds between each water flow in this game.
+     */
+    public int getFlowDuration() {
+        return flowTimer.getFlowDuration();
+    }
     
     public void pauseGame() {
 		flowTimer.pauseTimer();
@@ -256,6 +467,39 @@ public class FXGame {
      */
     public void stopCountdown() {
         flowTimer.stop();
+        if (state == State.CREATED || state == State.RUNNING) {
+            state = State.STOPPED;
+        }
+    }
+
+    /**
+     * Releases the game: stops the timer, deregisters all handlers and closes the game loop, discarding pending
+     * commands. Snapshots published before disposal remain readable.
+     *
+     * <p>
+     * Calling this method more than once has no effect.
+     * </p>
+     */
+    public void dispose() {
+        if (state == State.DISPOSED) {
+            return;
+        }
+        state = State.DISPOSED;
+
+        flowTimer.stop();
+        flowTimer.clearCallbacks();
+        onReplaceRequestHandlers.clear();
+        loop.close();
+        events.close();
+        GameTracker.onDisposed();
+    }
+
+    /**
+     * @return Current lifecycle state of the game.
+     */
+    @NotNull
+    public State getState() {
+        return state;
     }
 
     /**
@@ -265,75 +509,54 @@ public class FXGame {
      */
     public void placePipe(int row, int col) {
         // TODO
-    	Pipe first_pipe = pipeQueue.peek();
-    	if (!isReplaced) {
-    		if (map.canReplacePipe(new Coordinate(row, col))) {
-    			// show dialog and get new pipe
-    			// need to pause timer
-    			flowTimer.pauseTimer();
-    			
-    			List<String> choices = new ArrayList<>();
-    			choices.add("Top Left");
-    			choices.add("Top Right");
-    			choices.add("Bottom Left");
-    			choices.add("Bottom Right");
-    			choices.add("Horizontal");
-    			choices.add("Vertical");
-    			choices.add("Cross");
-
-    			ChoiceDialog<String> dialog = new ChoiceDialog<>("Top Left", choices);
-    			dialog.setTitle("Choice Dialog");
-    			dialog.setHeaderText("Choose pipe");
-    			dialog.setContentText("Choose pipe type:");
-
-    			// Traditional way to get the response value.
-    			Optional<String> result = dialog.showAndWait();
-    			boolean isConfirmed = false;
-    			if (result.isPresent()){
-    			    System.out.println("Your choice: " + result.get());
-    			    isConfirmed = true;
-    			}    			
-    			
-    			Pipe new_pipe = new Pipe(Shape.CROSS);
-    			switch (result.get()) {
-    			case "Top Left":
-    				new_pipe = new Pipe(Shape.TOP_LEFT);
-    				break;
-    			case "Top Right":
-    				new_pipe = new Pipe(Shape.TOP_RIGHT);
-    				break;
-    			case "Bottom Left":
-    				new_pipe = new Pipe(Shape.BOTTOM_LEFT);
-    				break;
-    			case "Bottom Right":
-    				new_pipe = new Pipe(Shape.BOTTOM_RIGHT);
-    				break;
-    			case "Horizontal":
-    				new_pipe = new Pipe(Shape.HORIZONTAL);
-    				break;
-    			case "Vertical":
-    				new_pipe = new Pipe(Shape.VERTICAL);
-    				break;
-    			case "Cross":
-    				new_pipe = new Pipe(Shape.CROSS);
-    				break;
-    			}
-    			
-    			// resume timer here 
-    			flowTimer.resumeTimer();
-    			
-    			if (isConfirmed) {
-    				map.replacePipe(new Coordinate(row, col), new_pipe);
-        			
-        			isReplaced = true;
-    			}
-    		}
+    	loop.submit(() -> doPlacePipe(new Coordinate(row, col)));
+    }
+
+    private void doPlacePipe(@NotNull Coordinate coord) {
+    	if (!onReplaceRequestHandlers.isEmpty() && core.canReplacePipe(coord)) {
+    		flowTimer.pauseTimer();
+    		onReplaceRequestHandlers.forEach(handler -> handler.accept(coord));
+    		return;
     	}
-    	if (map.tryPlacePipe(new Coordinate(row, col), first_pipe)) {
-    		pipeQueue.consume();
-    		numOfSteps.set(numOfSteps.get() + 1);
-    		cellStack.push(new FillableCell(new Coordinate(row, col), first_pipe));
+
+    	final var placed = core.placePipe(coord);
+    	if (placed == null) {
+    		return;
     	}
+    	if (events.hasSubscribers()) {
+    		publish(new GameEvent.PipePlaced(numOfEvents++, coord, placed.getShape()));
+    	}
+    	publishWon();
+    }
+
+    /**
+     * Publishes {@link GameEvent.Won} once the game has been won. Runs on the game loop after the moves which can win.
+     */
+    private void publishWon() {
+    	if (!hasEnded && core.hasWon() && events.hasSubscribers()) {
+    		hasEnded = true;
+    		publish(new GameEvent.Won(numOfEvents++));
+    	}
+    }
+
+    /**
+     * Replaces an unfilled pipe with another pipe, then resumes the flow of water.
+     *
+     * <p>
+     * Only one pipe can be replaced per game.
+     * </p>
+     *
+     * @param row  Row index of the pipe to replace
+     * @param col  Column index of the pipe to replace
+     * @param pipe Pipe to replace with.
+     */
+    public void replacePipe(int row, int col, @NotNull Pipe pipe) {
+    	loop.submit(() -> {
+    		if (core.replacePipe(new Coordinate(row, col), pipe)) {
+    			publishWon();
+    		}
+    		flowTimer.resumeTimer();
+    	});
     }
 
     /**
@@ -341,7 +564,12 @@ public class FXGame {
      */
     public void skipPipe() {
         // TODO
-    	pipeQueue.consume();
+    	loop.submit(() -> {
+    		final var skipped = core.skipPipe();
+    		if (skipped != null && events.hasSubscribers()) {
+    			publish(new GameEvent.PipeSkipped(numOfEvents++, skipped.getShape()));
+    		}
+    	});
     }
 
     /**
@@ -349,32 +577,55 @@ public class FXGame {
      */
     public void undoStep() {
         // TODO
-    	FillableCell undo_cell = cellStack.pop();
-    	
-    	if (undo_cell == null || undo_cell.getPipe().get().getFilled()) {
-    		return;
-    	}
-    	
-    	map.undo(undo_cell.coord);
-    	pipeQueue.undo(undo_cell.getPipe().get());    	
+    	loop.submit(() -> {
+    		FillableCell undo_cell = core.undoStep();
+    		if (undo_cell != null && events.hasSubscribers()) {
+    			publish(new GameEvent.Undo(numOfEvents++, undo_cell.coord, undo_cell.getPipe().get().getShape()));
+    		}
+    	});
+    }
+
+    /**
+     * @return The latest published snapshot of the map. May be called from any thread.
+     */
+    @NotNull
+    public MapSnapshot getMapSnapshot() {
+        return mapSnapshot;
     }
 
     /**
-     * Renders the map onto a {@link Canvas}.
+     * @return The latest published snapshot of the pipe queue, starting with the current pipe. May be called from any
+     * thread.
+     */
+    @NotNull
+    public List<Pipe> getQueueSnapshot() {
+        return queueSnapshot;
+    }
+
+    /**
+     * Renders the latest published snapshot of the map onto a {@link Canvas}.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread. Nothing is drawn if the snapshot has already been drawn.
+     * </p>
      *
      * @param canvas {@link Canvas} to render to.
      */
     public void renderMap(@NotNull Canvas canvas) {
-        map.render(canvas);
+        Renderer.renderMap(canvas, mapSnapshot);
     }
 
     /**
-     * Renders the queue onto a {@link Canvas}.
+     * Renders the latest published snapshot of the queue onto a {@link Canvas}.
+     *
+     * <p>
+     * Must be called on the JavaFX Application Thread.
+     * </p>
      *
      * @param canvas {@link Canvas} to render to.
      */
     public void renderQueue(@NotNull Canvas canvas) {
-        pipeQueue.render(canvas);
+        Renderer.renderQueue(canvas, queueSnapshot);
     }
 
     /**
@@ -385,34 +636,49 @@ public class FXGame {
     }
 
     /**
-     * @see Game#updateState()
+     * Should only be called on the game loop, i.e. from a handler. Does not search the map, so it is cheap enough to
+     * call after every batch.
+     *
+     * @see Game#hasWon()
      */
     public boolean hasWon() {
         // TODO
-        return map.checkPath();
+        return core.hasWon();
     }
 
     /**
+     * Should only be called on the game loop, i.e. from a handler.
+     *
      * @see Game#hasLost()
      */
     public boolean hasLost() {
         // TODO
-        return map.hasLost();
+        return core.hasLost();
     }
 
     /**
      * Fills all reachable pipes in the map.
      */
     public void fillAllPipes() {
-        map.fillAll();
+        loop.submit(core::fillAll);
     }
 
-    public IntegerProperty getNumOfSteps() {
-        return numOfSteps;
+    /**
+     * Should only be called on the game loop, i.e. from a handler.
+     *
+     * @return Number of pipes placed so far.
+     */
+    public int getNumOfSteps() {
+        return core.getNumOfSteps();
     }
 
-    public IntegerProperty getNumOfUndo() {
-        return cellStack.getUndoCountProperty();
+    /**
+     * Should only be called on the game loop, i.e. from a handler.
+     *
+     * @return Number of undo actions so far.
+     */
+    public int getNumOfUndo() {
+        return core.getNumOfUndo();
     }
     
 }
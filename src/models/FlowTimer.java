@@ -3,15 +3,27 @@ package models;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Timer for handling flow events.
+ *
+ * <p>
+ * All timers share a single scheduler thread, which only dispatches ticks; the callbacks of a tick run on the executor
+ * set by {@link FlowTimer#setTickDispatcher(Executor)}. A stopped timer holds no thread and no scheduled task.
+ * </p>
+ * <p>
+ * The latency of each tick, from when it was due until its callbacks start running, is reported to
+ * {@link GameTracker}. It grows if the shared scheduler thread falls behind, or if the executor is backed up.
+ * </p>
  */
 public class FlowTimer {
 
@@ -25,11 +37,34 @@ public class FlowTimer {
      */
     private static int defaultFlowDuration = 5;
 
+    private static final long TICK_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     /**
-     * Backing timer.
+     * Scheduler shared by all timers. Its thread is a daemon so that running timers never keep the JVM alive, and
+     * cancelled ticks are removed from its queue immediately.
      */
     @NotNull
-    private final Timer flowTimer = new Timer(true);
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, r -> {
+        final var t = new Thread(r, "flow-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Scheduled ticks of this timer, or {@code null} if the timer has not been started.
+     */
+    @Nullable
+    private ScheduledFuture<?> ticks;
+    /**
+     * Time the previous tick was dispatched, as given by {@link System#nanoTime()}. Only accessed on the scheduler
+     * thread.
+     */
+    private long lastDispatched;
+    private boolean hasDispatched = false;
 
     /**
      * Current value of the flow timer.
@@ -39,15 +74,35 @@ public class FlowTimer {
     /**
      * List of callbacks to execute when a tick has passed.
      */
-    private final List<Runnable> onTickCallbacks = new ArrayList<>();
+    private final List<Runnable> onTickCallbacks = new CopyOnWriteArrayList<>();
     /**
      * List of callbacks to execute when the water flows an additional tile.
      */
-    private final List<Runnable> onFlowCallbacks = new ArrayList<>();
+    private final List<Runnable> onFlowCallbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Executor on which each tick and its callbacks are run. Defaults to running on the shared scheduler thread.
+     */
+    @NotNull
+    private Executor tickDispatcher = Runnable::run;
+
+    /**
+     * Delay of this timer before the water starts flowing.
+     */
+    private final int delay;
+    /**
+     * Duration of this timer between each water flow.
+     */
+    private final int flowDuration;
 
     private int ticksElapsed;
     
-    private boolean isPlaying = true;
+    private volatile boolean isPlaying = true;
+
+    /**
+     * Whether the timer has been stopped. Ticks which were already dispatched when the timer stops are discarded.
+     */
+    private volatile boolean isStopped = false;
     
     private boolean isFlowing = false;
 
@@ -100,15 +155,17 @@ public class FlowTimer {
      * <p>
      * This constructor should also register a callback to decrement current value on flow.
      * </p>
+     * <p>
+     * The delay and the flow duration are fixed when the timer is created, so that games running at the same time
+     * never see each other's settings.
+     * </p>
      *
-     * @param initialValue Initial delay value.
+     * @param initialValue Initial delay value, or 0 to use the default delay.
      */
     FlowTimer(int initialValue) {
         // TODO
-    	if (initialValue != 0) {
-    		defaultDelay = initialValue;
-    	}
-    		
+    	delay = initialValue != 0 ? initialValue : defaultDelay;
+    	flowDuration = defaultFlowDuration;
     }
 
     /**
@@ -128,6 +185,19 @@ public class FlowTimer {
     void registerTickCallback(@NotNull final Runnable cb) {
         onTickCallbacks.add(cb);
     }
+
+    /**
+     * Sets the executor on which ticks are run, so that callbacks run on the same thread as the rest of the game.
+     *
+     * <p>
+     * Must be called before {@link FlowTimer#start()}.
+     * </p>
+     *
+     * @param dispatcher Executor to run ticks on.
+     */
+    void setTickDispatcher(@NotNull final Executor dispatcher) {
+        tickDispatcher = dispatcher;
+    }
     
     public void pauseTimer() {
     	isPlaying = false;
@@ -146,53 +216,53 @@ public class FlowTimer {
      *
      * <p>
      * The timer should tick down every one second, with a delay of one second. The water should flow an additional tile
-     * every {@link FlowTimer#defaultFlowDuration} seconds.
+     * every {@link FlowTimer#flowDuration} seconds.
      * </p>
      */
     void start() {
         // TODO
-    	flowTimer.schedule(new TimerTask() {
-
-			@Override
-			public void run() {
-				// TODO Auto-generated method stub
-				if (!isPlaying) {
-					return;
-				}
-				
-				Iterator<Runnable> it = onTickCallbacks.iterator();
-				while (it.hasNext()) {
-					((Runnable) it.next()).run();
-				}
-				
-				if (ticksElapsed >= defaultDelay && (ticksElapsed - defaultDelay) % defaultFlowDuration == 0) {
-					it = onFlowCallbacks.iterator();
-	    			while (it.hasNext()) {
-	    				((Runnable)it.next()).run();
-	    			}
-				}
-				
-				ticksElapsed += 1;
-			}
-    		
-    	}, 0, 1000);
-    	
-//    	flowTimer.schedule(new TimerTask() {
-//    		
-//    		@Override
-//    		public void run() {
-//    			flowTimer.schedule(new TimerTask() {
-//    	    		
-//    	    		@Override
-//    	    		public void run() {
-//    	    			Iterator<Runnable> it = onFlowCallbacks.iterator();
-//    	    			while (it.hasNext()) {
-//    	    				((Runnable)it.next()).run();
-//    	    			}
-//    	    		}
-//    	    	}, 0, defaultFlowDuration * 1000);
-//    		}
-//    	}, defaultDelay * 1000);
+    	if (isStopped || ticks != null) {
+    		return;
+    	}
+    	ticks = SCHEDULER.scheduleWithFixedDelay(this::dispatchTick, 0, TICK_PERIOD_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Hands a tick over to the tick dispatcher. Runs on the scheduler thread.
+     */
+    private void dispatchTick() {
+    	final long now = System.nanoTime();
+    	// With a fixed delay, each tick is due one period after the previous one was dispatched
+    	final long due = hasDispatched ? lastDispatched + TICK_PERIOD_NANOS : now;
+    	lastDispatched = now;
+    	hasDispatched = true;
+    	tickDispatcher.execute(() -> tick(due));
+    }
+
+    /**
+     * Runs the callbacks of a single tick, and the flow callbacks if the water flows during this tick.
+     *
+     * @param due Time the tick was due, as given by {@link System#nanoTime()}.
+     */
+    private void tick(long due) {
+    	if (!isPlaying || isStopped) {
+    		return;
+    	}
+    	GameTracker.onTick(System.nanoTime() - due);
+
+    	Iterator<Runnable> it = onTickCallbacks.iterator();
+    	while (it.hasNext()) {
+    		((Runnable) it.next()).run();
+    	}
+
+    	if (ticksElapsed >= delay && (ticksElapsed - delay) % flowDuration == 0) {
+    		it = onFlowCallbacks.iterator();
+    		while (it.hasNext()) {
+    			((Runnable) it.next()).run();
+    		}
+    	}
+
+    	ticksElapsed += 1;
     }
 
     /**
@@ -200,7 +270,32 @@ public class FlowTimer {
      */
     void stop() {
         // TODO
-    	flowTimer.cancel();
+    	isStopped = true;
+    	if (ticks != null) {
+    		ticks.cancel(false);
+    	}
+    }
+
+    /**
+     * Deregisters all tick and flow callbacks.
+     */
+    void clearCallbacks() {
+        onTickCallbacks.clear();
+        onFlowCallbacks.clear();
+    }
+
+    /**
+     * @return Delay of this timer before the water starts flowing.
+     */
+    int getDelay() {
+        return delay;
+    }
+
+    /**
+     * @return Duration of this timer between each water flow.
+     */
+    int getFlowDuration() {
+        return flowDuration;
     }
 
     /**
@@ -0,0 +1,267 @@
+package models;
+
+import models.map.Map;
+import models.map.MapSnapshot;
+import models.map.cells.FillableCell;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+
+import java.util.List;
+
+/**
+ * Rules of a real-time game, without any UI, timer or thread.
+ *
+ * <p>
+ * The core owns the map, the pipe queue and the undo stack, and applies the moves of the player and the steps of the
+ * water to them. It is shared by {@link FXGame} and the sessions of the game server, which only decide when moves and
+ * flows happen and how they are reported. A core is not thread-safe; it is meant to be owned by a {@link GameLoop}.
+ * </p>
+ * <p>
+ * The game is won as soon as a placed or replaced pipe connects the source to the sink, at which point the water fills
+ * every reachable pipe at once. It is lost when a step of the water fills no tile. No moves are accepted and the water
+ * no longer flows once the game is won or lost.
+ * </p>
+ */
+public class GameCore {
+
+    @NotNull
+    private final Map map;
+    @NotNull
+    private final PipeQueue pipeQueue;
+    @NotNull
+    private final CellStack cellStack = new CellStack();
+
+    /**
+     * Number of pipes placed so far.
+     */
+    private int numOfSteps = 0;
+    /**
+     * Distance of the next step of the water.
+     */
+    private int distance = 0;
+    /**
+     * Whether a pipe has been replaced. Only one pipe can be replaced per game.
+     */
+    private boolean isReplaced = false;
+    private boolean isWon = false;
+    private boolean isLost = false;
+
+    /**
+     * @param map       Map to play on.
+     * @param pipeQueue Queue of pipes to place.
+     */
+    public GameCore(@NotNull Map map, @NotNull PipeQueue pipeQueue) {
+        this.map = map;
+        this.pipeQueue = pipeQueue;
+    }
+
+    /**
+     * @return Whether the game has been won or lost.
+     */
+    public boolean isOver() {
+        return isWon || isLost;
+    }
+
+    /**
+     * @return The pipe which would be placed next.
+     */
+    @NotNull
+    public Pipe peekPipe() {
+        return pipeQueue.peek();
+    }
+
+    /**
+     * Places the current pipe.
+     *
+     * @param coord Coordinate to place the pipe at.
+     * @return The pipe placed, or {@code null} if the pipe cannot be placed there or the game is over.
+     * @see textgame.game.Game#placePipe(int, char)
+     */
+    @Nullable
+    public Pipe placePipe(@NotNull Coordinate coord) {
+        if (isOver()) {
+            return null;
+        }
+
+        final var pipe = pipeQueue.peek();
+        if (!map.tryPlacePipe(coord, pipe)) {
+            return null;
+        }
+        pipeQueue.consume();
+        cellStack.push(new FillableCell(coord, pipe));
+        ++numOfSteps;
+        updateWon();
+        return pipe;
+    }
+
+    /**
+     * @param coord Coordinate of a cell.
+     * @return Whether the cell holds a pipe which can be replaced.
+     */
+    public boolean canReplacePipe(@NotNull Coordinate coord) {
+        return !isOver() && !isReplaced && map.canReplacePipe(coord);
+    }
+
+    /**
+     * Replaces an unfilled pipe with another pipe. Only one pipe can be replaced per game.
+     *
+     * @param coord Coordinate of the pipe to replace.
+     * @param pipe  Pipe to replace with.
+     * @return Whether the pipe has been replaced.
+     */
+    public boolean replacePipe(@NotNull Coordinate coord, @NotNull Pipe pipe) {
+        if (!canReplacePipe(coord)) {
+            return false;
+        }
+        map.replacePipe(coord, pipe);
+        isReplaced = true;
+        updateWon();
+        return true;
+    }
+
+    /**
+     * Skips the current pipe.
+     *
+     * @return The pipe skipped, or {@code null} if the game is over.
+     * @see textgame.game.Game#skipPipe()
+     */
+    @Nullable
+    public Pipe skipPipe() {
+        if (isOver()) {
+            return null;
+        }
+
+        final var skipped = pipeQueue.peek();
+        pipeQueue.consume();
+        return skipped;
+    }
+
+    /**
+     * Undoes the latest pipe placed, unless it has been filled.
+     *
+     * @return The cell as it was before being undone, or {@code null} if there is nothing to undo, the latest pipe has
+     * been filled, or the game is over.
+     * @see textgame.game.Game#undoStep()
+     */
+    @Nullable
+    public FillableCell undoStep() {
+        if (isOver()) {
+            return null;
+        }
+
+        final var cell = cellStack.pop();
+        if (cell == null) {
+            return null;
+        }
+        final var pipe = cell.getPipe().orElseThrow();
+        if (pipe.getFilled()) {
+            cellStack.push(cell);
+            return null;
+        }
+        map.undo(cell.coord);
+        pipeQueue.undo(pipe);
+        return cell;
+    }
+
+    /**
+     * Fills the next step of the water, and checks whether the game has been lost.
+     *
+     * @return Distance of the step filled, or {@code -1} if the game is over and the water no longer flows.
+     * @see FlowTimer
+     */
+    public int flow() {
+        if (isOver()) {
+            return -1;
+        }
+
+        final int filled = distance++;
+        map.fillTiles(filled);
+        isLost = map.hasLost();
+        return filled;
+    }
+
+    /**
+     * Fills all pipes which can be reached from the source.
+     */
+    public void fillAll() {
+        map.fillAll();
+    }
+
+    /**
+     * Ends the game if the latest change to the pipes connected the source to the sink.
+     *
+     * <p>
+     * Only placing or replacing a pipe can connect them: filling does not change any connection, and undoing only
+     * removes one. Checking here rather than after every step keeps the search off idle ticks.
+     * </p>
+     */
+    private void updateWon() {
+        if (!map.checkPath()) {
+            return;
+        }
+        isWon = true;
+        map.fillAll();
+    }
+
+    /**
+     * @return Whether the source has been connected to the sink.
+     */
+    public boolean hasWon() {
+        return isWon;
+    }
+
+    /**
+     * @return Whether a step of the water has filled no tile.
+     */
+    public boolean hasLost() {
+        return isLost;
+    }
+
+    /**
+     * @return Number of pipes placed so far.
+     */
+    public int getNumOfSteps() {
+        return numOfSteps;
+    }
+
+    /**
+     * @return Number of undo actions so far.
+     */
+    public int getNumOfUndo() {
+        return cellStack.getUndoCountProperty().get();
+    }
+
+    /**
+     * @return Number of steps the water has flowed so far.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Coordinates of the tiles filled in the latest step of the water, in the order they were filled.
+     */
+    @NotNull
+    public List<Coordinate> getLastFilledTiles() {
+        return map.getLastFilledTiles();
+    }
+
+    /**
+     * @return Snapshot of the current state of the map.
+     * @see Map#snapshot()
+     */
+    @NotNull
+    public MapSnapshot snapshotMap() {
+        return map.snapshot();
+    }
+
+    /**
+     * @return Pipes in the queue, starting with the current pipe.
+     */
+    @NotNull
+    public List<Pipe> snapshotQueue() {
+        return pipeQueue.snapshot();
+    }
+}
@@ -0,0 +1,169 @@
+package models;
+
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import util.Coordinate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event published by {@link FXGame#getEvents()}.
+ *
+ * <p>
+ * Events are immutable, and are published in the order the game loop produced them.
+ * </p>
+ */
+public abstract class GameEvent {
+
+    /**
+     * Position of this event among the events of its game. Consecutive events have consecutive sequence numbers,
+     * starting from 0.
+     */
+    public final long sequence;
+
+    private GameEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * A pipe has been placed on the map.
+     */
+    public static final class PipePlaced extends GameEvent {
+
+        @NotNull
+        public final Coordinate coord;
+        @NotNull
+        public final Pipe.Shape shape;
+
+        PipePlaced(long sequence, @NotNull Coordinate coord, @NotNull Pipe.Shape shape) {
+            super(sequence);
+            this.coord = coord;
+            this.shape = shape;
+        }
+
+        @Override
+        public String toString() {
+            return "PipePlaced(" + coord + ", " + shape + ")";
+        }
+    }
+
+    /**
+     * The current pipe has been skipped.
+     */
+    public static final class PipeSkipped extends GameEvent {
+
+        @NotNull
+        public final Pipe.Shape shape;
+
+        PipeSkipped(long sequence, @NotNull Pipe.Shape shape) {
+            super(sequence);
+            this.shape = shape;
+        }
+
+        @Override
+        public String toString() {
+            return "PipeSkipped(" + shape + ")";
+        }
+    }
+
+    /**
+     * A pipe has been removed from the map, and returned to the head of the queue.
+     */
+    public static final class Undo extends GameEvent {
+
+        @NotNull
+        public final Coordinate coord;
+        @NotNull
+        public final Pipe.Shape shape;
+
+        Undo(long sequence, @NotNull Coordinate coord, @NotNull Pipe.Shape shape) {
+            super(sequence);
+            this.coord = coord;
+            this.shape = shape;
+        }
+
+        @Override
+        public String toString() {
+            return "Undo(" + coord + ", " + shape + ")";
+        }
+    }
+
+    /**
+     * The water has flowed one step further.
+     */
+    public static final class TilesFilled extends GameEvent {
+
+        /**
+         * Distance of the tiles from the source tile.
+         */
+        public final int distance;
+        /**
+         * Tiles filled by this step. Empty if the water could not flow any further.
+         */
+        @NotNull
+        public final List<Coordinate> coords;
+
+        TilesFilled(long sequence, int distance, @NotNull List<Coordinate> coords) {
+            super(sequence);
+            this.distance = distance;
+            this.coords = Collections.unmodifiableList(coords);
+        }
+
+        @Override
+        public String toString() {
+            return "TilesFilled(" + distance + ", " + coords + ")";
+        }
+    }
+
+    /**
+     * The source is connected to the sink. Published at most once per game, and never after {@link Lost}.
+     */
+    public static final class Won extends GameEvent {
+
+        Won(long sequence) {
+            super(sequence);
+        }
+
+        @Override
+        public String toString() {
+            return "Won";
+        }
+    }
+
+    /**
+     * The water has reached a dead end. Published at most once per game, and never after {@link Won}.
+     */
+    public static final class Lost extends GameEvent {
+
+        Lost(long sequence) {
+            super(sequence);
+        }
+
+        @Override
+        public String toString() {
+            return "Lost";
+        }
+    }
+
+    /**
+     * A second of the timer has elapsed.
+     */
+    public static final class Tick extends GameEvent {
+
+        /**
+         * Number of ticks elapsed before this one.
+         */
+        public final int count;
+
+        Tick(long sequence, int count) {
+            super(sequence);
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return "Tick(" + count + ")";
+        }
+    }
+}
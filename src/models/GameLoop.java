@@ -0,0 +1,181 @@
+package models;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-writer loop which owns the mutable state of a game.
+ *
+ * <p>
+ * Commands may be submitted from any thread. They are appended to a lock-free multi-producer queue and executed one
+ * at a time, in submission order, by at most one thread of the backing {@link Executor} at any moment. A loop is not
+ * bound to a dedicated thread: it only occupies a pool thread while it has commands to drain, so many loops can share
+ * a small pool.
+ * </p>
+ * <p>
+ * After each batch of commands is drained, all batch callbacks are run on the loop, so observers see the state once per
+ * batch instead of once per command. Batches are bounded, so observers keep being notified under sustained input.
+ * </p>
+ */
+public class GameLoop {
+
+    /**
+     * Maximum number of commands run before the batch callbacks are run and the pool thread is given up.
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Default pool shared by all game loops. Its threads are daemons so idle loops never keep the JVM alive.
+     */
+    @NotNull
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            r -> {
+                final var t = new Thread(r, "game-loop-" + THREAD_COUNT.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    @NotNull
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    /**
+     * Whether a drain of this loop is scheduled or running. Only the thread which flips this flag to {@code true} may
+     * drain the queue.
+     */
+    @NotNull
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    @NotNull
+    private final Executor executor;
+    /**
+     * List of callbacks to execute after a batch of commands is drained.
+     */
+    @NotNull
+    private final List<Runnable> onBatchCallbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Thread currently draining this loop, or {@code null} if the loop is idle.
+     */
+    private volatile Thread drainingThread;
+    /**
+     * Whether the loop has been closed. A closed loop discards all commands.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a loop running on the default shared pool.
+     */
+    public GameLoop() {
+        this(DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Creates a loop running on a given executor.
+     *
+     * @param executor Executor to drain commands on.
+     */
+    public GameLoop(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a command to be run on this loop.
+     *
+     * @param command Command to run.
+     */
+    public void submit(@NotNull Runnable command) {
+        if (closed) {
+            return;
+        }
+        commands.offer(command);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Registers a callback to be run on this loop after every drained batch of commands.
+     *
+     * @param cb Callback to run.
+     */
+    public void registerBatchCallback(@NotNull Runnable cb) {
+        onBatchCallbacks.add(cb);
+    }
+
+    /**
+     * Closes this loop. Pending and future commands are discarded, and all batch callbacks are deregistered.
+     *
+     * <p>
+     * May be called from any thread, including from a command of this loop; in that case, the rest of the batch is
+     * discarded.
+     * </p>
+     */
+    public void close() {
+        closed = true;
+        onBatchCallbacks.clear();
+        commands.clear();
+    }
+
+    /**
+     * @return Whether the loop has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return Whether the calling thread is currently running commands of this loop.
+     */
+    public boolean isLoopThread() {
+        return drainingThread == Thread.currentThread();
+    }
+
+    /**
+     * Runs a batch of at most {@link GameLoop#MAX_BATCH_SIZE} queued commands followed by the batch callbacks, then
+     * reschedules itself if more commands are pending.
+     */
+    private void drain() {
+        drainingThread = Thread.currentThread();
+        try {
+            Runnable command;
+            for (int i = 0; i < MAX_BATCH_SIZE && !closed && (command = commands.poll()) != null; ++i) {
+                runSafely(command);
+            }
+            for (var cb : onBatchCallbacks) {
+                runSafely(cb);
+            }
+        } finally {
+            drainingThread = null;
+        }
+
+        if (!commands.isEmpty()) {
+            // Go to the back of the executor queue so that loops sharing the pool take turns
+            executor.execute(this::drain);
+            return;
+        }
+
+        scheduled.set(false);
+        // A command may have been queued after the check above but before the flag was cleared
+        if (!commands.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private static void runSafely(@NotNull Runnable r) {
+        try {
+            r.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
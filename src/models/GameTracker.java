@@ -0,0 +1,117 @@
+package models;
+
+import org.jetbrains.annotations.NotNull;
+import util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the lifecycle of all {@link FXGame}s, to detect games which are never disposed or never garbage collected.
+ *
+ * <p>
+ * In a long session, the number of games which have been disposed but not collected, and the number of live threads,
+ * should stay flat no matter how many games have been played. If reporting is enabled, a report is printed every time
+ * a game is disposed.
+ * </p>
+ * <p>
+ * The tracker also records the latency of every tick of every game, i.e. how late the tick callbacks ran compared to
+ * when the tick was due, to check that the timer and the game loops keep up under load.
+ * </p>
+ */
+public final class GameTracker {
+
+    @NotNull
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong disposed = new AtomicLong();
+    private static final AtomicLong collected = new AtomicLong();
+
+    @NotNull
+    private static final LatencyHistogram tickLatencies = new LatencyHistogram();
+
+    private static volatile boolean reporting = false;
+
+    private GameTracker() {
+    }
+
+    /**
+     * Starts tracking a newly created game.
+     *
+     * @param game Game to track.
+     */
+    static void onCreated(@NotNull FXGame game) {
+        created.incrementAndGet();
+        // The cleanup action must not refer to the game, or it would never become unreachable
+        CLEANER.register(game, collected::incrementAndGet);
+    }
+
+    /**
+     * Records that a game has been disposed.
+     */
+    static void onDisposed() {
+        disposed.incrementAndGet();
+        if (reporting) {
+            System.err.println(report());
+        }
+    }
+
+    /**
+     * Records the latency of a tick.
+     *
+     * @param latencyNanos Time between when the tick was due and when its callbacks started running, in nanoseconds.
+     */
+    static void onTick(long latencyNanos) {
+        tickLatencies.record(latencyNanos);
+    }
+
+    /**
+     * @return Latencies of the ticks of all games, in nanoseconds. The histogram may be reset by the caller.
+     */
+    @NotNull
+    public static LatencyHistogram getTickLatencies() {
+        return tickLatencies;
+    }
+
+    /**
+     * Sets whether a report is printed every time a game is disposed.
+     *
+     * @param enabled Whether to print reports.
+     */
+    public static void setReporting(boolean enabled) {
+        reporting = enabled;
+    }
+
+    /**
+     * @return Number of games created so far.
+     */
+    public static long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return Number of games disposed so far.
+     */
+    public static long getDisposedCount() {
+        return disposed.get();
+    }
+
+    /**
+     * @return Number of games which have been garbage collected so far.
+     */
+    public static long getCollectedCount() {
+        return collected.get();
+    }
+
+    /**
+     * @return A one-line summary of the tracked games and the live threads of the JVM.
+     */
+    @NotNull
+    public static String report() {
+        return String.format("Games: created=%d, disposed=%d, collected=%d, live=%d; threads=%d",
+                getCreatedCount(), getDisposedCount(), getCollectedCount(), getCreatedCount() - getCollectedCount(),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
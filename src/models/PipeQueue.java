@@ -23,6 +23,12 @@ public class PipeQueue {
     @NotNull
     private final LinkedList<Pipe> pipeQueue;
 
+    /**
+     * Source of the generated pipes. Seeding it makes the sequence of generated pipes reproducible.
+     */
+    @NotNull
+    private final Random random;
+
     /**
      * Creates an empty pipe queue.
      *
@@ -32,6 +38,7 @@ public class PipeQueue {
      */
     public PipeQueue() {
         pipeQueue = new LinkedList<>();
+        random = new Random();
 
         while (pipeQueue.size() < MAX_GEN_LENGTH) {
             pipeQueue.add(generateNewPipe());
@@ -48,7 +55,19 @@ public class PipeQueue {
      * @param pipes List of pipes to display before generated pipes.
      */
     public PipeQueue(@Nullable List<Pipe> pipes) {
+        this(pipes, new Random());
+    }
+
+    /**
+     * Creates a pipe queue with pipes already filled in the queue, generating further pipes from a given source of
+     * randomness.
+     *
+     * @param pipes  List of pipes to display before generated pipes.
+     * @param random Source of the generated pipes.
+     */
+    public PipeQueue(@Nullable List<Pipe> pipes, @NotNull Random random) {
         pipeQueue = new LinkedList<>();
+        this.random = random;
         if (pipes != null) {
             pipeQueue.addAll(pipes);
         }
@@ -108,6 +127,14 @@ public class PipeQueue {
         System.out.println();
     }
 
+    /**
+     * @return An immutable copy of the pipes currently in the queue.
+     */
+    @NotNull
+    public List<Pipe> snapshot() {
+        return List.copyOf(pipeQueue);
+    }
+
     /**
      * Renders this queue to a canvas.
      *
@@ -115,7 +142,7 @@ public class PipeQueue {
      */
     public void render(@NotNull Canvas canvas) {
         // TODO
-    	Renderer.renderQueue(canvas, pipeQueue);
+    	Renderer.renderQueue(canvas, snapshot());
     }
 
     /**
@@ -128,10 +155,9 @@ public class PipeQueue {
      * @return A new pipe.
      */
     @NotNull
-    private static Pipe generateNewPipe() {
-        var rand = new Random();
+    private Pipe generateNewPipe() {
         var availablePipes = Pipe.Shape.values();
-        int index = rand.nextInt(availablePipes.length);
+        int index = random.nextInt(availablePipes.length);
 
         return new Pipe(availablePipes[index]);
     }
@@ -0,0 +1,202 @@
+package models.bot;
+
+import models.FXGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import textgame.game.Game;
+import util.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays games headlessly through the same public API as a human player.
+ *
+ * <p>
+ * A bot plays either a {@link Game}, which is turn-based and is played as fast as the strategy decides, or an
+ * {@link FXGame}, which runs in real time: the bot waits for a think time before each move, and then for the game loop
+ * to process the move before deciding the next one. Playing an {@link FXGame} blocks the calling thread for the length
+ * of the game, so many bots should be run on virtual threads where available.
+ * </p>
+ */
+public class Bot {
+
+    /**
+     * How a game played by a bot ended.
+     */
+    public enum Outcome {
+        WON, LOST,
+        /**
+         * The bot stopped playing before the game was won or lost, e.g. because it ran out of time or moves.
+         */
+        ABANDONED
+    }
+
+    /**
+     * Outcome of a game played by a bot.
+     */
+    public static final class Result {
+        @NotNull
+        public final Outcome outcome;
+        /**
+         * Number of moves the bot made.
+         */
+        public final int moves;
+
+        Result(@NotNull Outcome outcome, int moves) {
+            this.outcome = outcome;
+            this.moves = moves;
+        }
+    }
+
+    /**
+     * Longest time to wait for the game loop to process a move.
+     */
+    private static final long MOVE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @NotNull
+    private final BotStrategy strategy;
+
+    /**
+     * @param strategy Strategy deciding the moves of the bot.
+     */
+    public Bot(@NotNull BotStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Plays a turn-based game until it is won or lost.
+     *
+     * @param game         Game to play.
+     * @param maxMoves     Number of moves after which the bot gives up.
+     * @param timeoutNanos Time after which the bot gives up, in nanoseconds.
+     * @param latency      Histogram to record the time each move takes, including updating the game, or
+     *                     {@code null}.
+     * @return Outcome of the game.
+     */
+    @NotNull
+    public Result play(@NotNull Game game, int maxMoves, long timeoutNanos, @Nullable LatencyHistogram latency) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        for (int moves = 0; moves < maxMoves; ) {
+            final long start = System.nanoTime();
+            if (deadline - start <= 0) {
+                return new Result(Outcome.ABANDONED, moves);
+            }
+            final var move = strategy.nextMove(game.getMapSnapshot(), game.getQueueSnapshot());
+            switch (move.kind) {
+                case PLACE:
+                    game.placePipe(move.row, (char) ('A' + move.col - 1));
+                    break;
+                case SKIP:
+                    game.skipPipe();
+                    break;
+                case UNDO:
+                    game.undoStep();
+                    break;
+            }
+            ++moves;
+            game.updateState();
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+
+            if (game.hasWon()) {
+                return new Result(Outcome.WON, moves);
+            }
+            if (game.hasLost()) {
+                return new Result(Outcome.LOST, moves);
+            }
+        }
+        return new Result(Outcome.ABANDONED, maxMoves);
+    }
+
+    /**
+     * Starts a real-time game and plays it until it is won or lost, blocking the calling thread.
+     *
+     * <p>
+     * The game is stopped, but not disposed, when this method returns.
+     * </p>
+     *
+     * @param game         Game to play, which must not have been started.
+     * @param thinkMillis  Average time to wait before each move, in milliseconds.
+     * @param timeoutNanos Time after which the bot gives up, in nanoseconds.
+     * @param latency      Histogram to record the time between submitting each move and the game loop processing it,
+     *                     or {@code null}.
+     * @return Outcome of the game.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    @NotNull
+    public Result play(@NotNull FXGame game, long thinkMillis, long timeoutNanos, @Nullable LatencyHistogram latency)
+            throws InterruptedException {
+        final var thread = Thread.currentThread();
+        final var updates = new AtomicLong();
+        final var outcome = new AtomicReference<Outcome>();
+
+        // Both handlers run on the game loop, like those of the gameplay pane
+        game.addOnUpdateHandler(() -> {
+            if (outcome.get() == null && game.hasWon()) {
+                outcome.set(Outcome.WON);
+                game.stopCountdown();
+            }
+            updates.incrementAndGet();
+            LockSupport.unpark(thread);
+        });
+        game.addOnFlowHandler(() -> {
+            if (outcome.get() == null && game.hasLost()) {
+                outcome.set(Outcome.LOST);
+                game.stopCountdown();
+            }
+        });
+        game.startCountdown();
+
+        final long deadline = System.nanoTime() + timeoutNanos;
+        int moves = 0;
+        try {
+            while (outcome.get() == null && deadline - System.nanoTime() > 0) {
+                if (thinkMillis > 0) {
+                    // Jitter keeps bots from moving in lockstep
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(thinkMillis / 2, thinkMillis * 3 / 2 + 1));
+                }
+                if (outcome.get() != null) {
+                    break;
+                }
+
+                final var move = strategy.nextMove(game.getMapSnapshot(), game.getQueueSnapshot());
+                final long seen = updates.get();
+                final long submitted = System.nanoTime();
+                switch (move.kind) {
+                    case PLACE:
+                        game.placePipe(move.row, move.col);
+                        break;
+                    case SKIP:
+                        game.skipPipe();
+                        break;
+                    case UNDO:
+                        game.undoStep();
+                        break;
+                }
+                ++moves;
+
+                // Wait for the batch which runs the move. If the loop was already past polling its queue when the
+                // move was submitted, this is the end of the previous batch, and the latency is slightly understated
+                while (updates.get() == seen && System.nanoTime() - submitted < MOVE_TIMEOUT_NANOS) {
+                    LockSupport.parkNanos(MOVE_TIMEOUT_NANOS);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                if (latency != null) {
+                    latency.record(System.nanoTime() - submitted);
+                }
+            }
+        } finally {
+            game.stopCountdown();
+        }
+
+        final var result = outcome.get();
+        return new Result(result == null ? Outcome.ABANDONED : result, moves);
+    }
+}
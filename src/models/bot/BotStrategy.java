@@ -0,0 +1,55 @@
+package models.bot;
+
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Decides the moves of a {@link Bot}.
+ *
+ * <p>
+ * Strategies only see what a player sees: the map and the pipe queue. A strategy is used by a single bot at a time,
+ * and may keep state between moves.
+ * </p>
+ */
+public interface BotStrategy {
+
+    /**
+     * Names accepted by {@link BotStrategy#create(String, long)}.
+     */
+    List<String> NAMES = List.of("random", "greedy", "lookahead");
+
+    /**
+     * Decides the next move.
+     *
+     * @param map   Snapshot of the map.
+     * @param queue Pipes in the queue, starting with the current pipe.
+     * @return The move to make.
+     */
+    @NotNull
+    Move nextMove(@NotNull MapSnapshot map, @NotNull List<Pipe> queue);
+
+    /**
+     * Creates a strategy by name.
+     *
+     * @param name Name of the strategy, one of {@link BotStrategy#NAMES}.
+     * @param seed Seed of the strategy, for strategies which make random choices.
+     * @return A new strategy.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    @NotNull
+    static BotStrategy create(@NotNull String name, long seed) {
+        switch (name) {
+            case "random":
+                return new RandomStrategy(seed);
+            case "greedy":
+                return new GreedyStrategy();
+            case "lookahead":
+                return new LookaheadStrategy(LookaheadStrategy.DEFAULT_BUDGET_MICROS);
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package models.bot;
+
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+
+import java.util.List;
+
+/**
+ * Plays like a player who only thinks one pipe ahead: follows the pipes connected to the source to the first empty
+ * cell, and places the current pipe there if it connects to that cell and leads somewhere open. Otherwise, the pipe is
+ * skipped.
+ */
+public class GreedyStrategy implements BotStrategy {
+
+    @NotNull
+    @Override
+    public Move nextMove(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        if (queue.isEmpty()) {
+            return Move.SKIP;
+        }
+
+        Coordinate source = null;
+        for (int r = 0; r < map.rows && source == null; ++r) {
+            for (int c = 0; c < map.cols; ++c) {
+                if ((map.get(r, c) & MapSnapshot.KIND_MASK) == MapSnapshot.SOURCE) {
+                    source = new Coordinate(r, c);
+                    break;
+                }
+            }
+        }
+        if (source == null) {
+            return Move.SKIP;
+        }
+
+        // Follow the connected pipes; each step enters a cell from the side opposite to the flow
+        var flow = MapSnapshot.directionOf(map.get(source.row, source.col));
+        var cell = source.add(flow.getOffset());
+        for (int steps = 0; steps < map.rows * map.cols; ++steps) {
+            if (!inBounds(map, cell)) {
+                return Move.SKIP;
+            }
+            final byte code = map.get(cell.row, cell.col);
+            if ((code & MapSnapshot.KIND_MASK) != MapSnapshot.FILLABLE) {
+                return Move.SKIP;
+            }
+            final var shape = MapSnapshot.shapeOf(code);
+            if (shape == null) {
+                return leadsSomewhere(map, cell, flow.getOpposite(), queue.get(0)) ? Move.place(cell) : Move.SKIP;
+            }
+
+            final var exit = exitOf(new Pipe(shape), flow.getOpposite());
+            if (exit == null) {
+                return Move.SKIP;
+            }
+            flow = exit;
+            cell = cell.add(exit.getOffset());
+        }
+        return Move.SKIP;
+    }
+
+    /**
+     * @param map   Snapshot of the map.
+     * @param cell  Empty cell.
+     * @param entry Side of the cell the water would enter from.
+     * @param pipe  Pipe to place on the cell.
+     * @return Whether the pipe connects to the entry side, and the water would flow out of it into an empty cell or the
+     * sink.
+     */
+    private static boolean leadsSomewhere(@NotNull MapSnapshot map, @NotNull Coordinate cell, @NotNull Direction entry,
+                                          @NotNull Pipe pipe) {
+        final var exit = exitOf(pipe, entry);
+        if (exit == null) {
+            return false;
+        }
+        final var next = cell.add(exit.getOffset());
+        if (!inBounds(map, next)) {
+            return false;
+        }
+        final byte code = map.get(next.row, next.col);
+        if ((code & MapSnapshot.KIND_MASK) == MapSnapshot.SINK) {
+            return MapSnapshot.directionOf(code) == exit;
+        }
+        return code == MapSnapshot.FILLABLE;
+    }
+
+    /**
+     * @param pipe  A pipe.
+     * @param entry Side the water enters the pipe from.
+     * @return Side the water leaves the pipe through, or {@code null} if the pipe is not connected to the entry side.
+     * Water flows straight through a cross.
+     */
+    @Nullable
+    private static Direction exitOf(@NotNull Pipe pipe, @NotNull Direction entry) {
+        final var connections = pipe.getConnections();
+        if (connections.length > 2) {
+            return entry.getOpposite();
+        }
+        if (connections[0] == entry) {
+            return connections[1];
+        }
+        return connections[1] == entry ? connections[0] : null;
+    }
+
+    private static boolean inBounds(@NotNull MapSnapshot map, @NotNull Coordinate coord) {
+        return coord.row >= 0 && coord.row < map.rows && coord.col >= 0 && coord.col < map.cols;
+    }
+}
@@ -0,0 +1,342 @@
+package models.bot;
+
+import io.GameProperties;
+import io.LevelGenerator;
+import models.FXGame;
+import models.GameTracker;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import textgame.game.Game;
+import util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stresses the game engine with many concurrent {@link Bot}s.
+ *
+ * <p>
+ * Each bot plays generated levels back to back until the run ends. Real-time games ({@link FXGame}) are played with a
+ * think time between moves, like human players; turn-based games ({@link Game}) are played as fast as possible, to
+ * measure the raw cost of moves.
+ * </p>
+ * <p>
+ * Bots block while they wait, so each needs a thread of its own. On runtimes with virtual threads, bots run on virtual
+ * threads, which are looked up reflectively so that the driver still builds for older runtimes; otherwise, each bot
+ * gets a platform thread with a small stack.
+ * </p>
+ */
+public class LoadDriver {
+
+    /**
+     * Name of the strategy which assigns the strategies of {@link BotStrategy#NAMES} to bots in turn.
+     */
+    public static final String MIXED = "mixed";
+
+    /**
+     * Stack size of platform threads running bots. Bots only need a shallow stack.
+     */
+    private static final long BOT_STACK_SIZE = 256 * 1024;
+
+    private static final double WALL_DENSITY = 0.2;
+    private static final double DIFFICULTY = 0.5;
+
+    /**
+     * Summary of a run.
+     */
+    public static final class Report {
+        public final int bots;
+        /**
+         * Whether the bots ran on virtual threads.
+         */
+        public final boolean virtualThreads;
+        public final long elapsedNanos;
+        public final long games;
+        public final long won;
+        public final long lost;
+        public final long moves;
+        public final long errors;
+        /**
+         * Time for each move to be processed, in nanoseconds.
+         */
+        @NotNull
+        public final LatencyHistogram moveLatencies;
+        /**
+         * Latency of ticks, in nanoseconds. Empty for turn-based games.
+         */
+        @NotNull
+        public final LatencyHistogram tickLatencies;
+        /**
+         * Bytes allocated by all threads during the run, or -1 if the runtime cannot measure it.
+         */
+        public final long allocatedBytes;
+        public final int peakThreads;
+
+        Report(int bots, boolean virtualThreads, long elapsedNanos, long games, long won, long lost, long moves,
+               long errors, @NotNull LatencyHistogram moveLatencies, @NotNull LatencyHistogram tickLatencies,
+               long allocatedBytes, int peakThreads) {
+            this.bots = bots;
+            this.virtualThreads = virtualThreads;
+            this.elapsedNanos = elapsedNanos;
+            this.games = games;
+            this.won = won;
+            this.lost = lost;
+            this.moves = moves;
+            this.errors = errors;
+            this.moveLatencies = moveLatencies;
+            this.tickLatencies = tickLatencies;
+            this.allocatedBytes = allocatedBytes;
+            this.peakThreads = peakThreads;
+        }
+
+        /**
+         * @return Moves made per second, over all bots.
+         */
+        public double getMovesPerSecond() {
+            return moves / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return Megabytes allocated per second, or -1 if the runtime cannot measure allocations.
+         */
+        public double getAllocationRate() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            final var sb = new StringBuilder();
+            sb.append(String.format("Bots: %d on %s threads, %.1f s, peak %d platform threads%n", bots,
+                    virtualThreads ? "virtual" : "platform", elapsedNanos / 1e9, peakThreads));
+            sb.append(String.format("Games: %d (won %d, lost %d, abandoned %d), errors: %d%n", games, won, lost,
+                    games - won - lost, errors));
+            sb.append(String.format("Moves: %d (%.0f moves/s)%n", moves, getMovesPerSecond()));
+            sb.append("Move latency: ").append(percentiles(moveLatencies)).append(System.lineSeparator());
+            sb.append("Tick latency: ").append(percentiles(tickLatencies)).append(System.lineSeparator());
+            if (allocatedBytes < 0) {
+                sb.append("Allocation: not supported by this runtime");
+            } else {
+                sb.append(String.format("Allocation: %.1f MB (%.1f MB/s)", allocatedBytes / 1e6, getAllocationRate()));
+            }
+            return sb.toString();
+        }
+
+        @NotNull
+        private static String percentiles(@NotNull LatencyHistogram histogram) {
+            if (histogram.getCount() == 0) {
+                return "none recorded";
+            }
+            return String.format("p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms (%d samples)",
+                    histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6,
+                    histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6, histogram.getCount());
+        }
+    }
+
+    private final int bots;
+    @NotNull
+    private final String strategy;
+    @NotNull
+    private final LevelGenerator generator;
+    private final long thinkMillis;
+    private final boolean turnBased;
+
+    /**
+     * @param bots        Number of concurrent bots.
+     * @param strategy    Name of the strategy of all bots, one of {@link BotStrategy#NAMES} or {@link LoadDriver#MIXED}.
+     * @param rows        Number of rows of the generated levels.
+     * @param cols        Number of columns of the generated levels.
+     * @param thinkMillis Average time between the moves of each bot in real-time games, in milliseconds.
+     * @param turnBased   Whether to play turn-based games instead of real-time games.
+     * @throws IllegalArgumentException if the strategy is unknown.
+     */
+    public LoadDriver(int bots, @NotNull String strategy, int rows, int cols, long thinkMillis, boolean turnBased) {
+        if (!strategy.equals(MIXED) && !BotStrategy.NAMES.contains(strategy)) {
+            throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+        this.bots = bots;
+        this.strategy = strategy;
+        this.generator = new LevelGenerator(rows, cols, WALL_DENSITY, DIFFICULTY);
+        this.thinkMillis = thinkMillis;
+        this.turnBased = turnBased;
+    }
+
+    /**
+     * Runs the bots, blocking until the run ends.
+     *
+     * @param durationMillis Length of the run, in milliseconds. Games still being played at the end are abandoned.
+     * @param seed           Seed of the levels and strategies.
+     * @return Summary of the run.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the bots.
+     */
+    @NotNull
+    public Report run(long durationMillis, long seed) throws InterruptedException {
+        final var games = new AtomicLong();
+        final var won = new AtomicLong();
+        final var lost = new AtomicLong();
+        final var moves = new AtomicLong();
+        final var errors = new AtomicLong();
+        final var moveLatencies = new LatencyHistogram();
+        final var tickLatencies = GameTracker.getTickLatencies();
+
+        var executor = newVirtualThreadExecutor();
+        final boolean virtualThreads = executor != null;
+        if (executor == null) {
+            executor = newPlatformThreadExecutor();
+        }
+
+        final var threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        tickLatencies.reset();
+        final var allocatedBefore = allocatedBytesByThread();
+        // Platform threads running bots may exit before the run ends, so they measure their own allocations
+        final var botAllocated = new AtomicLong();
+        final var botThreads = ConcurrentHashMap.<Long>newKeySet();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        for (int i = 0; i < bots; ++i) {
+            final var botRandom = new Random(seed + i);
+            final var name = strategy.equals(MIXED) ? BotStrategy.NAMES.get(i % BotStrategy.NAMES.size()) : strategy;
+            final var bot = new Bot(BotStrategy.create(name, botRandom.nextLong()));
+            executor.execute(() -> {
+                final long allocatedAtStart = virtualThreads ? -1 : currentThreadAllocatedBytes();
+                if (allocatedAtStart >= 0) {
+                    botThreads.add(Thread.currentThread().getId());
+                }
+                try {
+                    while (deadline - System.nanoTime() > 0) {
+                        final var level = generator.generate(botRandom.nextLong());
+                        final var result = play(bot, level, deadline - System.nanoTime(), moveLatencies);
+                        games.incrementAndGet();
+                        moves.addAndGet(result.moves);
+                        if (result.outcome == Bot.Outcome.WON) {
+                            won.incrementAndGet();
+                        } else if (result.outcome == Bot.Outcome.LOST) {
+                            lost.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    if (errors.getAndIncrement() == 0) {
+                        e.printStackTrace();
+                    }
+                } finally {
+                    if (allocatedAtStart >= 0) {
+                        botAllocated.addAndGet(currentThreadAllocatedBytes() - allocatedAtStart);
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(durationMillis + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final var allocatedAfter = allocatedBytesByThread();
+
+        long allocated = -1;
+        if (allocatedBefore != null && allocatedAfter != null) {
+            allocated = botAllocated.get();
+            for (var entry : allocatedAfter.entrySet()) {
+                if (!botThreads.contains(entry.getKey())) {
+                    allocated += entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L);
+                }
+            }
+        }
+
+        return new Report(bots, virtualThreads, elapsed, games.get(), won.get(), lost.get(), moves.get(),
+                errors.get(), moveLatencies, tickLatencies, allocated, threads.getPeakThreadCount());
+    }
+
+    /**
+     * Plays a level with a bot.
+     *
+     * @param remainingNanos Time left in the run.
+     */
+    @NotNull
+    private Bot.Result play(@NotNull Bot bot, @NotNull GameProperties level, long remainingNanos,
+                            @NotNull LatencyHistogram latencies) throws InterruptedException {
+        if (turnBased) {
+            final var game = new Game(level.rows, level.cols, level.delay, level.cells, level.pipes);
+            return bot.play(game, level.rows * level.cols * 4, remainingNanos, latencies);
+        }
+
+        final var game = new FXGame(level.rows, level.cols, level.delay, level.cells, level.pipes);
+        try {
+            return bot.play(game, thinkMillis, remainingNanos, latencies);
+        } finally {
+            game.dispose();
+        }
+    }
+
+    /**
+     * @return An executor starting a virtual thread per task, or {@code null} if the runtime has no virtual threads.
+     */
+    @Nullable
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static ExecutorService newPlatformThreadExecutor() {
+        final var count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            final var t = new Thread(null, r, "bot-" + count.incrementAndGet(), BOT_STACK_SIZE);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return Bytes allocated so far by the calling platform thread, or -1 if the runtime cannot measure it.
+     */
+    private static long currentThreadAllocatedBytes() {
+        final var bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the bytes allocated so far by each live thread. Virtual threads allocate on their carrier threads,
+     * which are platform threads and therefore included.
+     *
+     * @return Bytes allocated by each thread, keyed by thread ID, or {@code null} if the runtime cannot measure it.
+     */
+    @Nullable
+    private static Map<Long, Long> allocatedBytesByThread() {
+        final var bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final var threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+
+        final long[] ids = threads.getAllThreadIds();
+        final long[] bytes = threads.getThreadAllocatedBytes(ids);
+        final var result = new HashMap<Long, Long>(ids.length * 2);
+        for (int i = 0; i < ids.length; ++i) {
+            if (bytes[i] >= 0) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package models.bot;
+
+import models.map.HintSearch;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Plays the move suggested by a {@link HintSearch}, which plans a whole path to the sink using the pipes in the queue.
+ */
+public class LookaheadStrategy implements BotStrategy {
+
+    /**
+     * Default time spent planning each move.
+     */
+    public static final long DEFAULT_BUDGET_MICROS = 2_000;
+
+    private final long budgetNanos;
+
+    /**
+     * @param budgetMicros Maximum time spent planning each move, in microseconds.
+     */
+    public LookaheadStrategy(long budgetMicros) {
+        this.budgetNanos = budgetMicros * 1_000;
+    }
+
+    @NotNull
+    @Override
+    public Move nextMove(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        final var shapes = queue.stream().map(Pipe::getShape).collect(Collectors.toList());
+        final var hint = HintSearch.search(map, shapes, System.nanoTime() + budgetNanos, () -> false);
+        if (hint == null || hint.coord == null) {
+            return Move.SKIP;
+        }
+        return Move.place(hint.coord);
+    }
+}
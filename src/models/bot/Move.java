@@ -0,0 +1,53 @@
+package models.bot;
+
+import org.jetbrains.annotations.NotNull;
+import util.Coordinate;
+
+/**
+ * A move of a player, i.e. a call to {@code placePipe}, {@code skipPipe} or {@code undoStep}.
+ */
+public final class Move {
+
+    /**
+     * Kind of a move.
+     */
+    public enum Kind {
+        PLACE, SKIP, UNDO
+    }
+
+    @NotNull
+    public static final Move SKIP = new Move(Kind.SKIP, -1, -1);
+    @NotNull
+    public static final Move UNDO = new Move(Kind.UNDO, -1, -1);
+
+    @NotNull
+    public final Kind kind;
+    /**
+     * Row of the cell to place the current pipe on, or -1 if the move does not place a pipe.
+     */
+    public final int row;
+    /**
+     * Column of the cell to place the current pipe on, or -1 if the move does not place a pipe.
+     */
+    public final int col;
+
+    private Move(@NotNull Kind kind, int row, int col) {
+        this.kind = kind;
+        this.row = row;
+        this.col = col;
+    }
+
+    /**
+     * @param coord Cell to place the current pipe on.
+     * @return A move placing the current pipe on the cell.
+     */
+    @NotNull
+    public static Move place(@NotNull Coordinate coord) {
+        return new Move(Kind.PLACE, coord.row, coord.col);
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.PLACE ? "PLACE(" + row + ", " + col + ")" : kind.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package models.bot;
+
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import util.Coordinate;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays like a player who does not know the rules: places the current pipe on a random empty cell, and occasionally
+ * skips a pipe or undoes a move.
+ */
+public class RandomStrategy implements BotStrategy {
+
+    private static final double SKIP_CHANCE = 0.1;
+    private static final double UNDO_CHANCE = 0.05;
+
+    @NotNull
+    private final Random random;
+
+    /**
+     * @param seed Seed of the random choices.
+     */
+    public RandomStrategy(long seed) {
+        random = new Random(seed);
+    }
+
+    @NotNull
+    @Override
+    public Move nextMove(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        final double roll = random.nextDouble();
+        if (roll < UNDO_CHANCE) {
+            return Move.UNDO;
+        }
+        if (roll < UNDO_CHANCE + SKIP_CHANCE) {
+            return Move.SKIP;
+        }
+
+        int empty = 0;
+        for (int r = 0; r < map.rows; ++r) {
+            for (int c = 0; c < map.cols; ++c) {
+                if (map.get(r, c) == MapSnapshot.FILLABLE) {
+                    ++empty;
+                }
+            }
+        }
+        if (empty == 0) {
+            return Move.SKIP;
+        }
+
+        int chosen = random.nextInt(empty);
+        for (int r = 0; r < map.rows; ++r) {
+            for (int c = 0; c < map.cols; ++c) {
+                if (map.get(r, c) == MapSnapshot.FILLABLE && chosen-- == 0) {
+                    return Move.place(new Coordinate(r, c));
+                }
+            }
+        }
+        throw new IllegalStateException("Empty cell not found");
+    }
+}
@@ -0,0 +1,164 @@
+package models.map;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Encoded cells of a map, in the format of {@link MapSnapshot}, stored in fixed-size chunks which are shared
+ * copy-on-write between a {@link Map} and its snapshots.
+ *
+ * <p>
+ * Cells are stored in row-major order, {@link ChunkedCells#CHUNK_SIZE} cells per chunk. Each chunk also holds a bit
+ * per cell, set if the cell is dynamic. {@link ChunkedCells#freeze()} hands out an immutable view which shares every
+ * chunk with the mutable instance; the mutable instance copies a chunk the first time it is written after a freeze. A
+ * snapshot therefore only copies the chunk table, plus each chunk which is later mutated.
+ * </p>
+ */
+final class ChunkedCells {
+
+    private static final int CHUNK_SHIFT = 8;
+    /**
+     * Number of cells per chunk.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE / Long.SIZE;
+
+    private final int size;
+    @NotNull
+    private final byte[][] codes;
+    /**
+     * Dynamic cells of each chunk, one bit per cell.
+     */
+    @NotNull
+    private final long[][] dynamic;
+    /**
+     * Whether each chunk is shared with a frozen view, and must be copied before it is written. {@code null} if this
+     * instance is frozen itself.
+     */
+    private final boolean[] shared;
+    private int dynamicCount;
+
+    /**
+     * Creates a mutable instance with all cells set to {@link MapSnapshot#WALL}.
+     *
+     * @param size Number of cells.
+     */
+    ChunkedCells(int size) {
+        final int chunks = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+
+        this.size = size;
+        this.codes = new byte[chunks][CHUNK_SIZE];
+        this.dynamic = new long[chunks][WORDS_PER_CHUNK];
+        this.shared = new boolean[chunks];
+    }
+
+    private ChunkedCells(@NotNull ChunkedCells from) {
+        this.size = from.size;
+        this.codes = from.codes.clone();
+        this.dynamic = from.dynamic.clone();
+        this.shared = null;
+        this.dynamicCount = from.dynamicCount;
+    }
+
+    /**
+     * @return Number of cells.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index Row-major index of the cell.
+     * @return Encoded cell.
+     */
+    byte get(int index) {
+        return codes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Sets a cell, copying its chunk first if it is shared with a frozen view.
+     *
+     * @param index Row-major index of the cell.
+     * @param code  New encoded cell.
+     * @return Whether the cell was changed.
+     * @throws IllegalStateException If this instance is frozen.
+     */
+    boolean set(int index, byte code) {
+        if (shared == null) {
+            throw new IllegalStateException("Cells are frozen");
+        }
+
+        final int chunk = index >>> CHUNK_SHIFT;
+        final int offset = index & CHUNK_MASK;
+        if (codes[chunk][offset] == code) {
+            return false;
+        }
+        if (shared[chunk]) {
+            codes[chunk] = codes[chunk].clone();
+            dynamic[chunk] = dynamic[chunk].clone();
+            shared[chunk] = false;
+        }
+
+        codes[chunk][offset] = code;
+
+        final long bit = 1L << offset;
+        final long[] words = dynamic[chunk];
+        final boolean wasDynamic = (words[offset >>> 6] & bit) != 0;
+        if (MapSnapshot.isDynamic(code) != wasDynamic) {
+            words[offset >>> 6] ^= bit;
+            dynamicCount += wasDynamic ? -1 : 1;
+        }
+        return true;
+    }
+
+    /**
+     * Takes an immutable view of the current cells.
+     *
+     * @return View sharing all chunks with this instance.
+     */
+    @NotNull
+    ChunkedCells freeze() {
+        if (shared == null) {
+            return this;
+        }
+        Arrays.fill(shared, true);
+        return new ChunkedCells(this);
+    }
+
+    /**
+     * Finds the next dynamic cell in row-major order.
+     *
+     * @param fromIndex Row-major index to start searching from, inclusive.
+     * @return Row-major index of the next dynamic cell, or -1 if there is none.
+     */
+    int nextDynamic(int fromIndex) {
+        if (fromIndex < 0 || fromIndex >= size) {
+            return -1;
+        }
+
+        int chunk = fromIndex >>> CHUNK_SHIFT;
+        int word = (fromIndex & CHUNK_MASK) >>> 6;
+        long bits = dynamic[chunk][word] & -1L << (fromIndex & 63);
+        while (true) {
+            if (bits != 0) {
+                return chunk << CHUNK_SHIFT | word << 6 | Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == WORDS_PER_CHUNK) {
+                word = 0;
+                if (++chunk == dynamic.length) {
+                    return -1;
+                }
+            }
+            bits = dynamic[chunk][word];
+        }
+    }
+
+    /**
+     * @return Number of dynamic cells.
+     */
+    int dynamicCount() {
+        return dynamicCount;
+    }
+}
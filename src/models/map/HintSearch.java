@@ -0,0 +1,432 @@
+package models.map;
+
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+import util.GridIndex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches for the best cell to place the current pipe of a game on.
+ *
+ * <p>
+ * The search looks for a path from the source to the sink which runs through the pipes already placed and through
+ * empty cells, and which needs as few new pipes as possible. Among paths of similar length, it prefers paths on which
+ * the current pipe fits, and then paths which the following pipes in the queue fit. The hint is the cell of the best
+ * path which the current pipe fits and which the water reaches first; if the current pipe fits nowhere on the best
+ * path, the hint is to skip it.
+ * </p>
+ * <p>
+ * The search is a depth-first search over paths, like {@link LevelSolver}. Before searching, a breadth-first search
+ * from the sink computes for each cell the fewest new pipes any route from it to the sink needs, ignoring which way the
+ * placed pipes point. This lower bound orders the directions to try, so that the first path found is usually already
+ * among the shortest, and prunes paths which cannot beat the best one found so far. The search is an anytime search:
+ * it stops at a deadline or when cancelled, and returns the best path found until then.
+ * </p>
+ */
+public final class HintSearch {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Pipe.Shape[] SHAPES = Pipe.Shape.values();
+
+    /**
+     * Number of search steps between checks of the deadline and cancellation.
+     */
+    private static final int CHECK_INTERVAL = 64;
+
+    /**
+     * Weight of a new pipe in the value of a path, where each lookahead pipe which fits the path counts one.
+     */
+    private static final int PIPE_WEIGHT = 4;
+
+    /**
+     * Sides connected by each shape, as bit masks of {@link Direction} ordinals.
+     */
+    @NotNull
+    private static final int[] CONNECTIONS = new int[SHAPES.length];
+
+    static {
+        for (var shape : SHAPES) {
+            for (var dir : new Pipe(shape).getConnections()) {
+                CONNECTIONS[shape.ordinal()] |= 1 << dir.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Suggested move for the current pipe.
+     */
+    public static final class Hint {
+        /**
+         * Cell to place the current pipe on, or {@code null} if the current pipe should be skipped.
+         */
+        @Nullable
+        public final Coordinate coord;
+        /**
+         * Shape of the current pipe.
+         */
+        @NotNull
+        public final Pipe.Shape shape;
+        /**
+         * Number of new pipes the best path needs, including the current pipe.
+         */
+        public final int pipesNeeded;
+        /**
+         * Whether all paths were searched, i.e. the search was not cut short by its deadline.
+         */
+        public final boolean complete;
+
+        Hint(@Nullable Coordinate coord, @NotNull Pipe.Shape shape, int pipesNeeded, boolean complete) {
+            this.coord = coord;
+            this.shape = shape;
+            this.pipesNeeded = pipesNeeded;
+            this.complete = complete;
+        }
+
+        @Override
+        public String toString() {
+            return (coord == null ? "skip " + shape : shape + "@" + coord) + " (" + pipesNeeded + " pipes"
+                    + (complete ? ")" : ", partial)");
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    @NotNull
+    private final byte[] cells;
+    private int source = -1;
+    private int sink = -1;
+    /**
+     * Fewest new pipes needed after each cell to reach the sink, or {@link Integer#MAX_VALUE} if it cannot be reached.
+     */
+    @NotNull
+    private final int[] remaining;
+
+    @NotNull
+    private final Pipe.Shape current;
+    /**
+     * Number of pipes of each shape in the queue after the current pipe.
+     */
+    @NotNull
+    private final int[] lookahead = new int[SHAPES.length];
+    private final int lookaheadSize;
+
+    // Best path found so far
+
+    private int bestValue = Integer.MAX_VALUE;
+    private int bestCell = -1;
+    private int bestPipes = 0;
+
+    private HintSearch(@NotNull MapSnapshot snapshot, @NotNull List<Pipe.Shape> queue) {
+        rows = snapshot.rows;
+        cols = snapshot.cols;
+        cells = new byte[rows * cols];
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                final byte code = snapshot.get(r, c);
+                cells[r * cols + c] = code;
+                if ((code & MapSnapshot.KIND_MASK) == MapSnapshot.SOURCE) {
+                    source = r * cols + c;
+                } else if ((code & MapSnapshot.KIND_MASK) == MapSnapshot.SINK) {
+                    sink = r * cols + c;
+                }
+            }
+        }
+
+        current = queue.get(0);
+        for (var shape : queue.subList(1, queue.size())) {
+            ++lookahead[shape.ordinal()];
+        }
+        lookaheadSize = queue.size() - 1;
+        remaining = new int[cells.length];
+    }
+
+    /**
+     * Searches for the best cell to place the current pipe on.
+     *
+     * @param snapshot  Snapshot of the map.
+     * @param queue     Shapes of the pipes in the queue, starting with the current pipe.
+     * @param deadline  Value of {@link System#nanoTime()} at which to stop searching.
+     * @param cancelled Polled during the search; the search stops once it returns {@code true}.
+     * @return The suggested move, or {@code null} if the queue is empty, the map has no source or sink, or no path to
+     * the sink was found.
+     */
+    @Nullable
+    public static Hint search(@NotNull MapSnapshot snapshot, @NotNull List<Pipe.Shape> queue, long deadline,
+                              @NotNull BooleanSupplier cancelled) {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        final var search = new HintSearch(snapshot, queue);
+        if (search.source == -1 || search.sink == -1) {
+            return null;
+        }
+        final boolean complete = search.run(deadline, cancelled);
+        if (search.bestValue == Integer.MAX_VALUE) {
+            return null;
+        }
+        final var coord = search.bestCell == -1 ? null
+                : new Coordinate(search.bestCell / search.cols, search.bestCell % search.cols);
+        return new Hint(coord, search.current, search.bestPipes, complete);
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @return Whether the search space was exhausted.
+     */
+    private boolean run(long deadline, @NotNull BooleanSupplier cancelled) {
+        final var sourceDirection = MapSnapshot.directionOf(cells[source]);
+        final var sinkDirection = MapSnapshot.directionOf(cells[sink]);
+        final int first = GridIndex.neighbour(source, sourceDirection, rows, cols);
+        if (first == sink && sourceDirection == sinkDirection) {
+            bestValue = 0;
+            return true;
+        }
+        if (first == -1 || !canEnter(first, sourceDirection.getOpposite())) {
+            return true;
+        }
+        computeRemaining(GridIndex.neighbour(sink, sinkDirection.getOpposite(), rows, cols));
+        if (remaining[first] == Integer.MAX_VALUE) {
+            return true;
+        }
+
+        int maxDepth = 0;
+        for (byte code : cells) {
+            if ((code & MapSnapshot.KIND_MASK) == MapSnapshot.FILLABLE) {
+                ++maxDepth;
+            }
+        }
+        // Per depth: cell, side the water enters from, exits in the order to try, next exit to try, shape required of
+        // a new pipe (or -1 if the cell already has one), and number of new pipes up to and including the cell
+        final var cell = new int[maxDepth];
+        final var entry = new Direction[maxDepth];
+        final var exits = new Direction[maxDepth][];
+        final var nextExit = new int[maxDepth];
+        final var required = new int[maxDepth];
+        final var pipes = new int[maxDepth];
+        final var visited = new BitSet(rows * cols);
+
+        int depth = 0;
+        push(0, first, sourceDirection.getOpposite(), 0, cell, entry, exits, nextExit, pipes);
+        visited.set(first);
+
+        for (long steps = 0; depth >= 0; ++steps) {
+            if (steps % CHECK_INTERVAL == 0 && (System.nanoTime() - deadline >= 0 || cancelled.getAsBoolean())) {
+                return false;
+            }
+            if (nextExit[depth] == exits[depth].length) {
+                visited.clear(cell[depth]);
+                --depth;
+                continue;
+            }
+
+            final var exit = exits[depth][nextExit[depth]++];
+            required[depth] = isEmpty(cell[depth]) ? LevelSolver.shapeOf(entry[depth], exit).ordinal() : -1;
+            final int next = GridIndex.neighbour(cell[depth], exit, rows, cols);
+            if (next == sink && exit == sinkDirection) {
+                evaluate(cell, required, depth);
+                continue;
+            }
+            if (next == -1 || visited.get(next) || depth + 1 == maxDepth || !canEnter(next, exit.getOpposite())) {
+                continue;
+            }
+
+            // Even if the rest of the path is as short as possible, and the current pipe and every lookahead pipe
+            // fit, the path cannot beat the best one
+            final long minPipes = (long) pipes[depth] + (isEmpty(next) ? 1 : 0) + remaining[next];
+            if (PIPE_WEIGHT * (minPipes - 1) - lookaheadSize >= bestValue) {
+                continue;
+            }
+
+            ++depth;
+            push(depth, next, exit.getOpposite(), pipes[depth - 1], cell, entry, exits, nextExit, pipes);
+            visited.set(next);
+        }
+        return true;
+    }
+
+    private void push(int depth, int index, @NotNull Direction from, int pipesSoFar, @NotNull int[] cell,
+                      @NotNull Direction[] entry, @NotNull Direction[][] exits, @NotNull int[] nextExit,
+                      @NotNull int[] pipes) {
+        cell[depth] = index;
+        entry[depth] = from;
+        exits[depth] = exitsOf(index, from);
+        nextExit[depth] = 0;
+        pipes[depth] = pipesSoFar + (isEmpty(index) ? 1 : 0);
+    }
+
+    /**
+     * Fills {@link HintSearch#remaining} with a breadth-first search from the cell feeding the sink. Moving into a cell
+     * costs a pipe if the cell is empty, so the search keeps a deque of cells: cells reached for free go to its front,
+     * and cells reached for a pipe to its back.
+     *
+     * @param feed Index of the cell the water flows into the sink from.
+     */
+    private void computeRemaining(int feed) {
+        Arrays.fill(remaining, Integer.MAX_VALUE);
+        if (feed == -1 || (cells[feed] & MapSnapshot.KIND_MASK) != MapSnapshot.FILLABLE) {
+            return;
+        }
+
+        // Each cell is pushed at most twice: once when first reached, once more if later reached for free
+        final int capacity = 2 * cells.length + 1;
+        final var deque = new int[capacity];
+        int head = 0;
+        int tail = 0;
+        remaining[feed] = 0;
+        deque[tail++] = feed;
+        while (head != tail) {
+            final int index = deque[head];
+            head = (head + 1) % capacity;
+            final int cost = remaining[index] + (isEmpty(index) ? 1 : 0);
+            for (var dir : DIRECTIONS) {
+                final int next = GridIndex.neighbour(index, dir, rows, cols);
+                if (next == -1 || (cells[next] & MapSnapshot.KIND_MASK) != MapSnapshot.FILLABLE
+                        || remaining[next] <= cost) {
+                    continue;
+                }
+                remaining[next] = cost;
+                if (cost == remaining[index]) {
+                    head = (head - 1 + capacity) % capacity;
+                    deque[head] = next;
+                } else {
+                    deque[tail] = next;
+                    tail = (tail + 1) % capacity;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores a path reaching the sink, and keeps it if it is the best so far.
+     *
+     * @param cell     Cells of the path.
+     * @param required Shape required of a new pipe on each cell of the path, or -1 if the cell has a pipe.
+     * @param depth    Depth of the last cell of the path.
+     */
+    private void evaluate(@NotNull int[] cell, @NotNull int[] required, int depth) {
+        int newPipes = 0;
+        int hint = -1;
+        for (int d = 0; d <= depth; ++d) {
+            if (required[d] == -1) {
+                continue;
+            }
+            ++newPipes;
+            if (hint == -1 && fits(current.ordinal(), required[d])) {
+                hint = d;
+            }
+        }
+
+        final var counts = lookahead.clone();
+        int matched = 0;
+        for (int d = 0; d <= depth; ++d) {
+            if (required[d] != -1 && d != hint && takePipe(counts, required[d])) {
+                ++matched;
+            }
+        }
+
+        final int value = PIPE_WEIGHT * (newPipes - (hint == -1 ? 0 : 1)) - matched;
+        if (value < bestValue) {
+            bestValue = value;
+            bestCell = hint == -1 ? -1 : cell[hint];
+            bestPipes = newPipes;
+        }
+    }
+
+    /**
+     * @param shape    Ordinal of the shape of a pipe.
+     * @param required Ordinal of the shape required on a cell.
+     * @return Whether the pipe can be placed on the cell. A cross can replace a straight pipe.
+     */
+    private static boolean fits(int shape, int required) {
+        return shape == required || shape == Pipe.Shape.CROSS.ordinal()
+                && (required == Pipe.Shape.HORIZONTAL.ordinal() || required == Pipe.Shape.VERTICAL.ordinal());
+    }
+
+    /**
+     * Takes a pipe fitting a cell from the available pipes, preferring the exact shape over a cross.
+     *
+     * @return Whether a pipe was taken.
+     */
+    private static boolean takePipe(@NotNull int[] counts, int required) {
+        if (counts[required] > 0) {
+            --counts[required];
+            return true;
+        }
+        final int cross = Pipe.Shape.CROSS.ordinal();
+        if (counts[cross] > 0 && fits(cross, required)) {
+            --counts[cross];
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isEmpty(int index) {
+        return cells[index] == MapSnapshot.FILLABLE;
+    }
+
+    /**
+     * @param index Index of a cell.
+     * @param from  Side of the cell the water enters from.
+     * @return Whether water can flow into the cell from the side.
+     */
+    private boolean canEnter(int index, @NotNull Direction from) {
+        final byte code = cells[index];
+        if ((code & MapSnapshot.KIND_MASK) != MapSnapshot.FILLABLE) {
+            return false;
+        }
+        final var shape = MapSnapshot.shapeOf(code);
+        return shape == null || (CONNECTIONS[shape.ordinal()] & 1 << from.ordinal()) != 0;
+    }
+
+    /**
+     * @param index Index of a cell which water can enter.
+     * @param from  Side of the cell the water enters from.
+     * @return The sides the water can leave the cell through, ordered by the fewest new pipes needed after the adjacent
+     * cell, then by its distance to the sink.
+     */
+    @NotNull
+    private Direction[] exitsOf(int index, @NotNull Direction from) {
+        final var shape = MapSnapshot.shapeOf(cells[index]);
+        final int mask = shape == null ? (1 << DIRECTIONS.length) - 1 : CONNECTIONS[shape.ordinal()];
+
+        final var result = new Direction[Integer.bitCount(mask & ~(1 << from.ordinal()))];
+        final var distances = new long[result.length];
+        int n = 0;
+        for (var dir : DIRECTIONS) {
+            if (dir == from || (mask & 1 << dir.ordinal()) == 0) {
+                continue;
+            }
+            final int next = GridIndex.neighbour(index, dir, rows, cols);
+            final long distance;
+            if (next == -1) {
+                distance = Long.MAX_VALUE;
+            } else if (next == sink) {
+                distance = -1;
+            } else {
+                distance = (long) remaining[next] * (rows + cols) + distanceToSink(next);
+            }
+            // Insertion sort; there are at most three sides
+            int i = n++;
+            while (i > 0 && distances[i - 1] > distance) {
+                result[i] = result[i - 1];
+                distances[i] = distances[i - 1];
+                --i;
+            }
+            result[i] = dir;
+            distances[i] = distance;
+        }
+        return result;
+    }
+
+    private int distanceToSink(int index) {
+        return Math.abs(index / cols - sink / cols) + Math.abs(index % cols - sink % cols);
+    }
+}
@@ -0,0 +1,279 @@
+package models.map;
+
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+import util.GridIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Searches for a way to connect the source of a level to its sink using a given set of pipes.
+ *
+ * <p>
+ * The player may place the pipes of the queue on any empty cell and skip pipes they do not need, so the order of the
+ * pipes does not matter: a level is solvable with a list of pipes if some path of empty cells from the source to the
+ * sink can be built from a subset of the list. A straight segment may be built from either the matching straight pipe
+ * or a cross.
+ * </p>
+ * <p>
+ * The search is a depth-first search over paths, trying the directions which lead towards the sink first. It is bounded
+ * by a budget of search steps, so that pathological levels are rejected quickly instead of being searched
+ * exhaustively.
+ * </p>
+ */
+public final class LevelSolver {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Pipe.Shape[] SHAPES = Pipe.Shape.values();
+
+    /**
+     * A pipe to place on the path from the source to the sink.
+     */
+    public static final class Placement {
+        @NotNull
+        public final Coordinate coord;
+        @NotNull
+        public final Pipe.Shape shape;
+
+        Placement(@NotNull Coordinate coord, @NotNull Pipe.Shape shape) {
+            this.coord = coord;
+            this.shape = shape;
+        }
+
+        @Override
+        public String toString() {
+            return shape.toString() + "@" + coord;
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    /**
+     * Whether each cell is an empty {@link FillableCell}, in row-major order.
+     */
+    @NotNull
+    private final BitSet open;
+    private final int source;
+    @NotNull
+    private final Direction sourceDirection;
+    private final int sink;
+    @NotNull
+    private final Direction sinkDirection;
+
+    private LevelSolver(@NotNull Cell[][] cells) {
+        rows = cells.length;
+        cols = rows > 0 ? cells[0].length : 0;
+        open = new BitSet(rows * cols);
+
+        TerminationCell sourceCell = null;
+        TerminationCell sinkCell = null;
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                final var cell = cells[r][c];
+                if (cell instanceof FillableCell && ((FillableCell) cell).getPipe().isEmpty()) {
+                    open.set(r * cols + c);
+                } else if (cell instanceof TerminationCell) {
+                    if (((TerminationCell) cell).type == TerminationCell.Type.SOURCE) {
+                        sourceCell = (TerminationCell) cell;
+                    } else {
+                        sinkCell = (TerminationCell) cell;
+                    }
+                }
+            }
+        }
+        if (sourceCell == null || sinkCell == null) {
+            throw new IllegalArgumentException("Level must contain a source and a sink");
+        }
+
+        source = sourceCell.coord.row * cols + sourceCell.coord.col;
+        sourceDirection = sourceCell.pointingTo;
+        sink = sinkCell.coord.row * cols + sinkCell.coord.col;
+        sinkDirection = sinkCell.pointingTo;
+    }
+
+    /**
+     * Searches for pipes which connect the source of a level to its sink.
+     *
+     * @param cells  Cells of the level. Must contain exactly one source and one sink.
+     * @param pipes  Pipes available to the player.
+     * @param budget Maximum number of search steps.
+     * @return The pipes to place, in the order the water flows through them, or {@code null} if no solution was found
+     * within the budget.
+     * @throws IllegalArgumentException if the level does not contain a source or a sink.
+     */
+    @Nullable
+    public static List<Placement> solve(@NotNull Cell[][] cells, @NotNull List<Pipe.Shape> pipes, long budget) {
+        final var counts = new int[SHAPES.length];
+        for (var shape : pipes) {
+            ++counts[shape.ordinal()];
+        }
+        return new LevelSolver(cells).search(counts, budget);
+    }
+
+    @Nullable
+    private List<Placement> search(@NotNull int[] counts, long budget) {
+        final int first = GridIndex.neighbour(source, sourceDirection, rows, cols);
+        if (first == sink && sourceDirection == sinkDirection) {
+            return List.of();
+        }
+        if (first == -1 || !open.get(first)) {
+            return null;
+        }
+
+        final int maxDepth = open.cardinality();
+        // Per depth: cell, side the water enters from, exits in the order to try, next exit to try, pipe used
+        final var cell = new int[maxDepth];
+        final var entry = new Direction[maxDepth];
+        final var exits = new Direction[maxDepth][];
+        final var nextExit = new int[maxDepth];
+        final var used = new int[maxDepth];
+        final var visited = new BitSet(rows * cols);
+
+        int depth = 0;
+        push(0, first, sourceDirection.getOpposite(), cell, entry, exits, nextExit, used);
+        visited.set(first);
+
+        for (long steps = 0; depth >= 0; ++steps) {
+            if (steps >= budget) {
+                return null;
+            }
+            if (used[depth] != -1) {
+                ++counts[used[depth]];
+                used[depth] = -1;
+            }
+            if (nextExit[depth] == exits[depth].length) {
+                visited.clear(cell[depth]);
+                --depth;
+                continue;
+            }
+
+            final var exit = exits[depth][nextExit[depth]++];
+            final int shape = takePipe(counts, entry[depth], exit);
+            if (shape == -1) {
+                continue;
+            }
+
+            final int next = GridIndex.neighbour(cell[depth], exit, rows, cols);
+            if (next == sink && exit == sinkDirection) {
+                used[depth] = shape;
+                return toPlacements(cell, used, depth);
+            }
+            if (next == -1 || !open.get(next) || visited.get(next) || depth + 1 == maxDepth) {
+                ++counts[shape];
+                continue;
+            }
+
+            used[depth] = shape;
+            ++depth;
+            push(depth, next, exit.getOpposite(), cell, entry, exits, nextExit, used);
+            visited.set(next);
+        }
+        return null;
+    }
+
+    private void push(int depth, int index, @NotNull Direction from, @NotNull int[] cell,
+                      @NotNull Direction[] entry, @NotNull Direction[][] exits, @NotNull int[] nextExit,
+                      @NotNull int[] used) {
+        cell[depth] = index;
+        entry[depth] = from;
+        exits[depth] = exitsTowardsSink(index, from);
+        nextExit[depth] = 0;
+        used[depth] = -1;
+    }
+
+    /**
+     * @param index Index of a cell.
+     * @param from  Side of the cell the water enters from.
+     * @return The other sides of the cell, ordered by how close the adjacent cell is to the sink.
+     */
+    @NotNull
+    private Direction[] exitsTowardsSink(int index, @NotNull Direction from) {
+        final var result = new Direction[DIRECTIONS.length - 1];
+        final var distances = new int[result.length];
+        int n = 0;
+        for (var dir : DIRECTIONS) {
+            if (dir == from) {
+                continue;
+            }
+            final int next = GridIndex.neighbour(index, dir, rows, cols);
+            final int distance = next == -1 ? Integer.MAX_VALUE : distanceToSink(next);
+            // Insertion sort; there are only three sides
+            int i = n++;
+            while (i > 0 && distances[i - 1] > distance) {
+                result[i] = result[i - 1];
+                distances[i] = distances[i - 1];
+                --i;
+            }
+            result[i] = dir;
+            distances[i] = distance;
+        }
+        return result;
+    }
+
+    private int distanceToSink(int index) {
+        return Math.abs(index / cols - sink / cols) + Math.abs(index % cols - sink % cols);
+    }
+
+    /**
+     * Takes a pipe connecting two sides of a cell from the available pipes.
+     *
+     * @param counts Number of available pipes of each shape.
+     * @param from   Side the water enters from.
+     * @param to     Side the water leaves through.
+     * @return Ordinal of the shape taken, or {@code -1} if no suitable pipe is available.
+     */
+    private static int takePipe(@NotNull int[] counts, @NotNull Direction from, @NotNull Direction to) {
+        final var shape = shapeOf(from, to);
+        int taken = -1;
+        if (counts[shape.ordinal()] > 0) {
+            taken = shape.ordinal();
+        } else if ((shape == Pipe.Shape.HORIZONTAL || shape == Pipe.Shape.VERTICAL)
+                && counts[Pipe.Shape.CROSS.ordinal()] > 0) {
+            // A cross can replace a straight pipe, but a straight pipe is never worse to use
+            taken = Pipe.Shape.CROSS.ordinal();
+        }
+        if (taken != -1) {
+            --counts[taken];
+        }
+        return taken;
+    }
+
+    /**
+     * @param a One side of a cell.
+     * @param b Another side of the cell.
+     * @return Shape of the pipe connecting the two sides.
+     */
+    @NotNull
+    static Pipe.Shape shapeOf(@NotNull Direction a, @NotNull Direction b) {
+        final boolean up = a == Direction.UP || b == Direction.UP;
+        final boolean down = a == Direction.DOWN || b == Direction.DOWN;
+        final boolean left = a == Direction.LEFT || b == Direction.LEFT;
+        if (up && down) {
+            return Pipe.Shape.VERTICAL;
+        }
+        if (!up && !down) {
+            return Pipe.Shape.HORIZONTAL;
+        }
+        if (up) {
+            return left ? Pipe.Shape.TOP_LEFT : Pipe.Shape.TOP_RIGHT;
+        }
+        return left ? Pipe.Shape.BOTTOM_LEFT : Pipe.Shape.BOTTOM_RIGHT;
+    }
+
+    @NotNull
+    private List<Placement> toPlacements(@NotNull int[] cell, @NotNull int[] used, int depth) {
+        final var result = new ArrayList<Placement>(depth + 1);
+        for (int d = 0; d <= depth; ++d) {
+            result.add(new Placement(new Coordinate(cell[d] / cols, cell[d] % cols), SHAPES[used[d]]));
+        }
+        return result;
+    }
+}
@@ -34,6 +34,44 @@ public class Map {
     private int prevFilledTiles = 0;
     private Integer prevFilledDistance;
 
+    /**
+     * Encoded cells as of the latest mutation, in the format of {@link MapSnapshot}, shared copy-on-write with the
+     * snapshots taken so far.
+     */
+    @NotNull
+    private final ChunkedCells encodedCells;
+    /**
+     * Number of mutations to the cells so far.
+     */
+    private long version = 0;
+    /**
+     * Snapshot of the latest version taken so far, if any.
+     */
+    private MapSnapshot snapshot;
+    /**
+     * Indices of the cells mutated since the latest snapshot, each listed once, in order of first mutation. Only the
+     * first {@link Map#changedCount} elements are used.
+     */
+    @NotNull
+    private int[] changedCells = new int[16];
+    private int changedCount = 0;
+    /**
+     * Indices of the cells listed in {@link Map#changedCells}.
+     */
+    @NotNull
+    private final BitSet changedSinceSnapshot = new BitSet();
+
+    /**
+     * Indices (in row-major order) of the tiles filled in the latest fill step.
+     */
+    @NotNull
+    private final List<Integer> frontierTiles = new ArrayList<>();
+    /**
+     * Direction in which the water was flowing when it entered each tile of {@link Map#frontierTiles}.
+     */
+    @NotNull
+    private final List<Direction> frontierDirections = new ArrayList<>();
+
     /**
      * Creates a map with size of rows x cols.
      *
@@ -71,6 +109,8 @@ public class Map {
         TerminationCell.CreateInfo sinkCellInfo = generateEndCellInfo();
         sinkCell = new TerminationCell(sinkCellInfo.coord, sinkCellInfo.dir, TerminationCell.Type.SINK);
         cells[sinkCellInfo.coord.row][sinkCellInfo.coord.col] = sinkCell;
+
+        encodedCells = encodeAll();
     }
 
     /**
@@ -116,6 +156,8 @@ public class Map {
         if (sourceCell == null || sinkCell == null) {
             throw new IllegalArgumentException();
         }
+
+        encodedCells = encodeAll();
     }
 
     /**
@@ -191,13 +233,107 @@ public class Map {
             return false;
         }
 
-        System.out.println("r = " + row + " , col = " + col + " , " + p.toSerializedRep());
         cells[row][col] = new FillableCell(new Coordinate(row, col), p);
+        markDirty(row, col);
         return true;
     }
     
     public void replacePipe(Coordinate coord, Pipe p) {
     	cells[coord.row][coord.col] = new FillableCell(coord, p);
+    	markDirty(coord.row, coord.col);
+    }
+
+    /**
+     * Re-encodes a cell after it has been mutated, and bumps the version of the map if its encoding changed.
+     *
+     * @param row Row of the mutated cell.
+     * @param col Column of the mutated cell.
+     */
+    private void markDirty(int row, int col) {
+        final int index = row * cols + col;
+        if (!encodedCells.set(index, MapSnapshot.encode(cells[row][col]))) {
+            return;
+        }
+        ++version;
+
+        if (!changedSinceSnapshot.get(index)) {
+            changedSinceSnapshot.set(index);
+            if (changedCount == changedCells.length) {
+                changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+            }
+            changedCells[changedCount++] = index;
+        }
+    }
+
+    /**
+     * Records a tile as filled in the current fill step.
+     *
+     * @param coord     Coordinate of the tile.
+     * @param direction Direction in which the water entered the tile.
+     */
+    private void addToFrontier(@NotNull Coordinate coord, @NotNull Direction direction) {
+        frontierTiles.add(coord.row * cols + coord.col);
+        frontierDirections.add(direction);
+    }
+
+    /**
+     * @return Coordinates of the tiles filled in the latest fill step, in the order they were filled.
+     */
+    @NotNull
+    public List<Coordinate> getLastFilledTiles() {
+        final var filled = new ArrayList<Coordinate>(frontierTiles.size());
+        for (int index : frontierTiles) {
+            filled.add(new Coordinate(index / cols, index % cols));
+        }
+        return filled;
+    }
+
+    @NotNull
+    private ChunkedCells encodeAll() {
+        final var encoded = new ChunkedCells(rows * cols);
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                encoded.set(r * cols + c, MapSnapshot.encode(cells[r][c]));
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Takes an immutable snapshot of the current cells.
+     *
+     * <p>
+     * Must be called on the thread which mutates this map. The returned snapshot can then be handed to any thread.
+     * </p>
+     * <p>
+     * The cells are shared copy-on-write with the map, so this only copies the chunk table and the cells changed
+     * since the previous snapshot, never the whole map.
+     * </p>
+     *
+     * @return Snapshot of the current version of the map. The same instance is returned until the map is mutated.
+     */
+    @NotNull
+    public MapSnapshot snapshot() {
+        if (snapshot == null || snapshot.version != version) {
+            final var frontier = new int[frontierTiles.size()];
+            final var directions = new byte[frontierTiles.size()];
+            for (int i = 0; i < frontier.length; ++i) {
+                frontier[i] = frontierTiles.get(i);
+                directions[i] = (byte) frontierDirections.get(i).ordinal();
+            }
+
+            // Only the cells listed are cleared, so that taking a snapshot after a few moves stays cheap
+            final var changed = Arrays.copyOf(changedCells, changedCount);
+            for (int index : changed) {
+                changedSinceSnapshot.clear(index);
+            }
+            changedCount = 0;
+
+            snapshot = new MapSnapshot(this, rows, cols, version,
+                    snapshot == null ? MapSnapshot.UNVERSIONED : snapshot.version, changed, encodedCells.freeze(),
+                    prevFilledDistance == null ? -1 : prevFilledDistance, frontier, directions);
+        }
+        return snapshot;
     }
 
     @NotNull
@@ -333,12 +469,15 @@ public class Map {
     /**
      * Renders the map onto a {@link Canvas}.
      *
+     * <p>
+     * A snapshot of the current map is taken on the calling thread and rendered on the JavaFX Application Thread.
+     * </p>
+     *
      * @param canvas Canvas to render to.
      */
-    public void render(@NotNull Canvas canvas) {    	
-    	canvas.setWidth(32 * cols);
-    	canvas.setHeight(32 * rows);
-        Platform.runLater(() -> Renderer.renderMap(canvas, cells));
+    public void render(@NotNull Canvas canvas) {
+        final var frame = snapshot();
+        Platform.runLater(() -> Renderer.renderMap(canvas, frame));
     }
 
     /**
@@ -356,10 +495,12 @@ public class Map {
             throw new IllegalArgumentException("Cannot undo on non-FillableCell types!");
         }
         cells[coord.row][coord.col] = new FillableCell(coord);
+        markDirty(coord.row, coord.col);
     }
 
     public void fillBeginTile() {
         sourceCell.setFilled();
+        markDirty(sourceCell.coord.row, sourceCell.coord.col);
     }
 
     @NotNull
@@ -386,10 +527,18 @@ public class Map {
         while (prevFilledDistance != distance) {
             var currentDistance = prevFilledDistance + 1;
             prevFilledTiles = 0;
+            // The frontier is part of the snapshot, so clearing a non-empty frontier is a new version even if nothing
+            // is filled in this step. Steps which fill nothing after an empty one leave the version unchanged.
+            if (!frontierTiles.isEmpty()) {
+                ++version;
+            }
+            frontierTiles.clear();
+            frontierDirections.clear();
 
             if (currentDistance == 0) {
             	fillBeginTile();
                 filledTiles.add(sourceCell.coord);
+                addToFrontier(sourceCell.coord, sourceCell.pointingTo);
                 prevFilledTiles = 1;
             } else if (currentDistance == 1) {
                 var coord = sourceCell.coord;
@@ -407,7 +556,9 @@ public class Map {
                 }
 
                 cell.getPipe().get().setFilled();
+                markDirty(newCoord.row, newCoord.col);
                 filledTiles.add(newCoord);
+                addToFrontier(newCoord, sourceCell.pointingTo);
                 prevFilledTiles = 1;
             } else {
                 final var traversedTiles = getTraversedCoords();
@@ -440,7 +591,10 @@ public class Map {
                         }
 
                         cell.getPipe().get().setFilled();
-                        filledTiles.add(newCoord);
+                        markDirty(newCoord.row, newCoord.col);
+                        if (filledTiles.add(newCoord)) {
+                            addToFrontier(newCoord, d);
+                        }
                     }
                 }
 
@@ -449,7 +603,6 @@ public class Map {
 
             prevFilledDistance = currentDistance;
         }
-        System.out.println(" " + prevFilledTiles);
     }
 
     /**
@@ -461,6 +614,7 @@ public class Map {
     		fillTiles(prevFilledDistance == null ? 0 : prevFilledDistance + 1);
     	} while (prevFilledTiles != 0);
     	sinkCell.setFilled();
+    	markDirty(sinkCell.coord.row, sinkCell.coord.col);
     }
 
     /**
@@ -474,17 +628,22 @@ public class Map {
      * @return {@code true} if a path exists, else {@code false}.
      */
     public boolean checkPath() {
-        // BFS woohoo!
-        var coordsTraversed = new ArrayList<Coordinate>();
+        // BFS woohoo! Visited tiles are marked by index, so each tile is checked in constant time
+        final var coordsTraversed = new BitSet(rows * cols);
 
-        Queue<Coordinate> coordsToCheck = new LinkedList<>();
+        Queue<Coordinate> coordsToCheck = new ArrayDeque<>();
         coordsToCheck.add(sourceCell.coord);
 
         while (!coordsToCheck.isEmpty()) {
             var thisCoord = coordsToCheck.remove();
-            if (coordsTraversed.stream().anyMatch(it -> it.equals(thisCoord))) {
+            if (thisCoord.row < 0 || thisCoord.row >= rows || thisCoord.col < 0 || thisCoord.col >= cols) {
                 continue;
             }
+            final int index = thisCoord.row * cols + thisCoord.col;
+            if (coordsTraversed.get(index)) {
+                continue;
+            }
+            coordsTraversed.set(index);
 
             var thisCell = cells[thisCoord.row][thisCoord.col];
             if (thisCell instanceof TerminationCell) {
@@ -503,8 +662,6 @@ public class Map {
                     }
                 });
             }
-
-            coordsTraversed.add(thisCoord);
         }
 
         return false;
@@ -0,0 +1,386 @@
+package models.map;
+
+import controllers.Renderer;
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+
+/**
+ * Immutable snapshot of the cells of a {@link Map}, for rendering outside the thread which mutates the map.
+ *
+ * <p>
+ * Each cell is encoded into a single byte: bits 0-1 hold the kind of the cell ({@link MapSnapshot#WALL},
+ * {@link MapSnapshot#FILLABLE}, {@link MapSnapshot#SOURCE} or {@link MapSnapshot#SINK}), bits 2-4 hold the pipe shape
+ * of a fillable cell (0 if empty, otherwise the ordinal of {@link Pipe.Shape} plus one) or the direction of a
+ * termination cell, and bit 5 is set if the cell is filled.
+ * </p>
+ * <p>
+ * Snapshots taken from a map are versioned; a map returns the same instance until it is mutated again. They also
+ * carry the frontier of the water flow, i.e. the tiles filled in the latest fill step and the direction the water
+ * entered each of them from, so that the flow can be animated.
+ * </p>
+ * <p>
+ * Each snapshot taken from a map also lists the cells mutated since the previous snapshot of the same map, whose
+ * version is recorded as the base version. Consumers which have seen the base version can therefore find what changed
+ * without comparing every cell.
+ * </p>
+ * <p>
+ * Cells which look the same throughout a game (walls, empty cells and unfilled termination cells) are <i>static</i>;
+ * all other cells are <i>dynamic</i>. Snapshots index their dynamic cells, so that renderers can draw the static
+ * background once and then only visit the dynamic cells.
+ * </p>
+ * <p>
+ * The cells of consecutive snapshots of a map are shared copy-on-write in chunks (see {@link ChunkedCells}), so taking a
+ * snapshot after a few mutations costs time proportional to the number of chunks touched rather than the whole map.
+ * </p>
+ */
+public final class MapSnapshot {
+
+    public static final int KIND_MASK = 0b11;
+    public static final int WALL = 0;
+    public static final int FILLABLE = 1;
+    public static final int SOURCE = 2;
+    public static final int SINK = 3;
+
+    private static final int DETAIL_SHIFT = 2;
+    private static final int DETAIL_MASK = 0b111;
+    public static final int FILLED = 1 << 5;
+
+    /**
+     * Version of snapshots which are not taken from a {@link Map}.
+     */
+    public static final long UNVERSIONED = -1;
+
+    /**
+     * Image representation of each cell encoding, created on first use.
+     */
+    @NotNull
+    private static final Renderer.CellImage[] IMAGE_REPS = new Renderer.CellImage[1 << 6];
+
+    public final int rows;
+    public final int cols;
+    /**
+     * Version of the map when this snapshot was taken, or {@link MapSnapshot#UNVERSIONED}.
+     */
+    public final long version;
+    /**
+     * Version of the previous snapshot taken from the same map, or {@link MapSnapshot#UNVERSIONED} if there is none.
+     */
+    public final long baseVersion;
+    /**
+     * Indices (in row-major order) of the cells mutated since the snapshot of {@link MapSnapshot#baseVersion}.
+     */
+    @NotNull
+    private final int[] changedCells;
+
+    /**
+     * Map this snapshot was taken from, or {@code null} if this snapshot was taken from a bare array of cells.
+     */
+    @Nullable
+    final Map source;
+    /**
+     * Encoded cells and the index of dynamic cells. Always frozen.
+     */
+    @NotNull
+    private final ChunkedCells cells;
+
+    /**
+     * Distance of the latest fill step which changed the map, or -1 if the water has not started flowing.
+     */
+    public final int fillDistance;
+    /**
+     * Indices of the tiles filled in the latest fill step, in row-major order.
+     */
+    @NotNull
+    private final int[] frontier;
+    /**
+     * Ordinal of the {@link Direction} in which the water entered each tile of {@link MapSnapshot#frontier}.
+     */
+    @NotNull
+    private final byte[] frontierDirections;
+
+    /**
+     * @param source             Map the snapshot is taken from, if any.
+     * @param rows               Number of rows.
+     * @param cols               Number of columns.
+     * @param version            Version of the map.
+     * @param baseVersion        Version of the previous snapshot of the map.
+     * @param changedCells       Indices of the cells mutated since the previous snapshot. The snapshot takes ownership
+     *                           of the array.
+     * @param cells              Frozen encoded cells.
+     * @param fillDistance       Distance of the latest fill step.
+     * @param frontier           Indices of the tiles filled in the latest fill step. The snapshot takes ownership of
+     *                           the array.
+     * @param frontierDirections Directions the water entered each frontier tile from. The snapshot takes ownership of
+     *                           the array.
+     */
+    MapSnapshot(@Nullable Map source, int rows, int cols, long version, long baseVersion, @NotNull int[] changedCells,
+                @NotNull ChunkedCells cells, int fillDistance, @NotNull int[] frontier,
+                @NotNull byte[] frontierDirections) {
+        this.source = source;
+        this.rows = rows;
+        this.cols = cols;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.changedCells = changedCells;
+        this.cells = cells;
+        this.fillDistance = fillDistance;
+        this.frontier = frontier;
+        this.frontierDirections = frontierDirections;
+    }
+
+    /**
+     * Takes an unversioned snapshot of an array of cells.
+     *
+     * @param cells Cells to take a snapshot of.
+     * @return Snapshot of the cells.
+     */
+    @NotNull
+    public static MapSnapshot of(@NotNull Cell[][] cells) {
+        final int rows = cells.length;
+        final int cols = rows > 0 ? cells[0].length : 0;
+
+        final var encoded = new ChunkedCells(rows * cols);
+        for (int r = 0; r < rows; ++r) {
+            for (int c = 0; c < cols; ++c) {
+                encoded.set(r * cols + c, encode(cells[r][c]));
+            }
+        }
+        return new MapSnapshot(null, rows, cols, UNVERSIONED, UNVERSIONED, new int[0], encoded.freeze(), -1,
+                new int[0], new byte[0]);
+    }
+
+    /**
+     * @param row Row of the cell.
+     * @param col Column of the cell.
+     * @return Encoded cell at the given position.
+     */
+    public byte get(int row, int col) {
+        return cells.get(row * cols + col);
+    }
+
+    /**
+     * Finds the next dynamic cell in row-major order.
+     *
+     * @param fromIndex Row-major index to start searching from, inclusive.
+     * @return Row-major index of the next dynamic cell, or -1 if there is none.
+     */
+    public int nextDynamicCell(int fromIndex) {
+        return cells.nextDynamic(fromIndex);
+    }
+
+    /**
+     * @return Number of dynamic cells.
+     */
+    public int getDynamicCellCount() {
+        return cells.dynamicCount();
+    }
+
+    /**
+     * @return Number of cells mutated since the snapshot of {@link MapSnapshot#baseVersion}.
+     */
+    public int getChangedCellCount() {
+        return changedCells.length;
+    }
+
+    /**
+     * @param i Index into the changed cells.
+     * @return Row-major index of the {@code i}-th changed cell.
+     */
+    public int getChangedCell(int i) {
+        return changedCells[i];
+    }
+
+    /**
+     * @return Number of tiles filled in the latest fill step.
+     */
+    public int getFrontierSize() {
+        return frontier.length;
+    }
+
+    /**
+     * @param i Index into the frontier.
+     * @return Row of the {@code i}-th frontier tile.
+     */
+    public int getFrontierRow(int i) {
+        return frontier[i] / cols;
+    }
+
+    /**
+     * @param i Index into the frontier.
+     * @return Column of the {@code i}-th frontier tile.
+     */
+    public int getFrontierCol(int i) {
+        return frontier[i] % cols;
+    }
+
+    /**
+     * @param i Index into the frontier.
+     * @return Direction in which the water was flowing when it entered the {@code i}-th frontier tile.
+     */
+    @NotNull
+    public Direction getFrontierDirection(int i) {
+        return Direction.values()[frontierDirections[i]];
+    }
+
+    /**
+     * @param other Another snapshot.
+     * @return Whether both snapshots are versions of the same map with the same dimensions, so that they can be
+     * compared cell by cell.
+     */
+    public boolean isSameMapAs(@NotNull MapSnapshot other) {
+        return source != null && source == other.source && rows == other.rows && cols == other.cols;
+    }
+
+    /**
+     * Encodes a cell into a byte.
+     *
+     * @param cell Cell to encode.
+     * @return The encoded cell.
+     */
+    static byte encode(@NotNull Cell cell) {
+        if (cell instanceof FillableCell) {
+            final var pipe = ((FillableCell) cell).getPipe();
+            if (pipe.isEmpty()) {
+                return FILLABLE;
+            }
+            final int shape = pipe.get().getShape().ordinal() + 1;
+            return (byte) (FILLABLE | shape << DETAIL_SHIFT | (pipe.get().getFilled() ? FILLED : 0));
+        } else if (cell instanceof TerminationCell) {
+            final var tCell = (TerminationCell) cell;
+            final int kind = tCell.type == TerminationCell.Type.SOURCE ? SOURCE : SINK;
+            return (byte) (kind | tCell.pointingTo.ordinal() << DETAIL_SHIFT | (tCell.isFilled() ? FILLED : 0));
+        }
+        return WALL;
+    }
+
+    /**
+     * @param code A byte.
+     * @return Whether the byte is the encoding of some cell.
+     */
+    public static boolean isValid(byte code) {
+        final int detail = code >> DETAIL_SHIFT & DETAIL_MASK;
+        final boolean filled = (code & FILLED) != 0;
+        if ((code & ~(KIND_MASK | DETAIL_MASK << DETAIL_SHIFT | FILLED)) != 0) {
+            return false;
+        }
+
+        switch (code & KIND_MASK) {
+            case FILLABLE:
+                return detail <= Pipe.Shape.values().length && (detail != 0 || !filled);
+            case SOURCE:
+            case SINK:
+                return detail < Direction.values().length;
+            default:
+                return code == WALL;
+        }
+    }
+
+    /**
+     * @param code Encoded fillable cell.
+     * @return Shape of the pipe in the cell, or {@code null} if the cell is empty.
+     */
+    @Nullable
+    public static Pipe.Shape shapeOf(byte code) {
+        final int detail = code >> DETAIL_SHIFT & DETAIL_MASK;
+        return detail == 0 ? null : Pipe.Shape.values()[detail - 1];
+    }
+
+    /**
+     * @param code Encoded termination cell.
+     * @return Direction the termination cell is pointing to.
+     */
+    @NotNull
+    public static Direction directionOf(byte code) {
+        return Direction.values()[code >> DETAIL_SHIFT & DETAIL_MASK];
+    }
+
+    /**
+     * @param code Encoded cell.
+     * @return Encoding of what the cell looks like at the start of a game, before any pipe is placed or filled.
+     */
+    public static byte staticCode(byte code) {
+        switch (code & KIND_MASK) {
+            case FILLABLE:
+                return FILLABLE;
+            case SOURCE:
+            case SINK:
+                return (byte) (code & ~FILLED);
+            default:
+                return WALL;
+        }
+    }
+
+    /**
+     * @param code Encoded cell.
+     * @return Whether the cell looks different from its static appearance.
+     */
+    public static boolean isDynamic(byte code) {
+        return staticCode(code) != code;
+    }
+
+    /**
+     * Retrieves the image representation of an encoded cell.
+     *
+     * @param code Encoded cell.
+     * @return The image representation, shared between all cells with the same encoding.
+     */
+    @NotNull
+    public static Renderer.CellImage getImageRep(byte code) {
+        var rep = IMAGE_REPS[code];
+        if (rep == null) {
+            rep = decode(code).getImageRep();
+            IMAGE_REPS[code] = rep;
+        }
+        return rep;
+    }
+
+    /**
+     * Retrieves the character representation of an encoded cell, as printed by {@link Map#display()}.
+     *
+     * @param code Encoded cell.
+     * @return The character representation.
+     */
+    public static char toSingleChar(byte code) {
+        return decode(code).toSingleChar();
+    }
+
+    /**
+     * @param code Encoded cell.
+     * @return A cell with the given encoding, at an arbitrary coordinate.
+     */
+    @NotNull
+    private static Cell decode(byte code) {
+        final var coord = new Coordinate(0, 0);
+        final int detail = code >> DETAIL_SHIFT & DETAIL_MASK;
+        final boolean filled = (code & FILLED) != 0;
+
+        switch (code & KIND_MASK) {
+            case FILLABLE:
+                if (detail == 0) {
+                    return new FillableCell(coord);
+                }
+                final var pipe = new Pipe(Pipe.Shape.values()[detail - 1]);
+                if (filled) {
+                    pipe.setFilled();
+                }
+                return new FillableCell(coord, pipe);
+            case SOURCE:
+            case SINK:
+                final var type = (code & KIND_MASK) == SOURCE ? TerminationCell.Type.SOURCE : TerminationCell.Type.SINK;
+                final var tCell = new TerminationCell(coord, Direction.values()[detail], type);
+                if (filled) {
+                    tCell.setFilled();
+                }
+                return tCell;
+            default:
+                return new Wall(coord);
+        }
+    }
+}
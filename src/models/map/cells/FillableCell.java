@@ -1,8 +1,6 @@
 package models.map.cells;
 
 import controllers.Renderer;
-import controllers.ResourceLoader;
-import javafx.scene.image.Image;
 import models.MapElement;
 import models.pipes.Pipe;
 import org.jetbrains.annotations.NotNull;
@@ -17,9 +15,9 @@ import java.util.Optional;
 public class FillableCell extends Cell implements MapElement {
 
     /**
-     * Image representing a cell.
+     * Key of the image representing a cell.
      */
-    private static final Image IMAGE = new Image(ResourceLoader.getResource("assets/images/empty-cell.png"));
+    private static final String IMAGE_KEY = "assets/images/empty-cell.png";
 
     @Nullable
     private final Pipe pipe;
@@ -73,7 +71,7 @@ public class FillableCell extends Cell implements MapElement {
     	if (pipe != null) {
     		return pipe.getImageRep();
     	}
-        return new Renderer.CellImage(IMAGE, 0);
+        return new Renderer.CellImage(IMAGE_KEY, 0);
     }
 
     @NotNull
@@ -1,8 +1,6 @@
 package models.map.cells;
 
 import controllers.Renderer;
-import controllers.ResourceLoader;
-import javafx.scene.image.Image;
 import org.jetbrains.annotations.NotNull;
 import util.Coordinate;
 import util.Direction;
@@ -14,13 +12,13 @@ import util.PipePatterns;
 public class TerminationCell extends Cell {
 
     /**
-     * Image representing an unfilled termination cell.
+     * Key of the image representing an unfilled termination cell.
      */
-    private static final Image UNFILLED_IMG = new Image(ResourceLoader.getResource("assets/images/dest-unfilled.png"));
+    private static final String UNFILLED_IMG = "assets/images/dest-unfilled.png";
     /**
-     * Image representing a filled termination cell.
+     * Key of the image representing a filled termination cell.
      */
-    private static final Image FILLED_IMG = new Image(ResourceLoader.getResource("assets/images/dest-filled.png"));
+    private static final String FILLED_IMG = "assets/images/dest-filled.png";
 
     private boolean isFilled = false;
     @NotNull
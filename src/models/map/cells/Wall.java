@@ -1,8 +1,6 @@
 package models.map.cells;
 
 import controllers.Renderer;
-import controllers.ResourceLoader;
-import javafx.scene.image.Image;
 import models.map.Map;
 import org.jetbrains.annotations.NotNull;
 import util.Coordinate;
@@ -14,9 +12,9 @@ import util.PipePatterns;
 public class Wall extends Cell {
 
     /**
-     * Image representing a wall.
+     * Key of the image representing a wall.
      */
-    private static final Image IMAGE = new Image(ResourceLoader.getResource("assets/images/wall.png"));
+    private static final String IMAGE_KEY = "assets/images/wall.png";
 
     public Wall(@NotNull Coordinate coord) {
         super(coord);
@@ -31,7 +29,7 @@ public class Wall extends Cell {
     @Override
     public Renderer.CellImage getImageRep() {
         // TODO
-        return new Renderer.CellImage(IMAGE, 0);
+        return new Renderer.CellImage(IMAGE_KEY, 0);
     }
 
     @NotNull
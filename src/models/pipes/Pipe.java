@@ -1,8 +1,6 @@
 package models.pipes;
 
 import controllers.Renderer;
-import controllers.ResourceLoader;
-import javafx.scene.image.Image;
 import models.MapElement;
 import org.jetbrains.annotations.NotNull;
 import util.Direction;
@@ -25,6 +23,14 @@ public class Pipe implements MapElement {
         this.shape = shape;
     }
 
+    /**
+     * @return Shape of this pipe.
+     */
+    @NotNull
+    public Shape getShape() {
+        return shape;
+    }
+
     /**
      * Sets the pipe as filled.
      */
@@ -126,12 +132,12 @@ public class Pipe implements MapElement {
         BOTTOM_RIGHT("BR", PipePatterns.Filled.BOTTOM_RIGHT, PipePatterns.Unfilled.BOTTOM_RIGHT),
         CROSS("CR", PipePatterns.Filled.CROSS, PipePatterns.Unfilled.CROSS);
 
-        private static final Image CORNER_UNFILLED = new Image(ResourceLoader.getResource("assets/images/top-left-unfilled.png"));
-        private static final Image CORNER_FILLED = new Image(ResourceLoader.getResource("assets/images/top-left-filled.png"));
-        private static final Image CROSS_UNFILLED = new Image(ResourceLoader.getResource("assets/images/cross-unfilled.png"));
-        private static final Image CROSS_FILLED = new Image(ResourceLoader.getResource("assets/images/cross-filled.png"));
-        private static final Image STRAIGHT_UNFILLED = new Image(ResourceLoader.getResource("assets/images/vert-unfilled.png"));
-        private static final Image STRAIGHT_FILLED = new Image(ResourceLoader.getResource("assets/images/vert-filled.png"));
+        private static final String CORNER_UNFILLED = "assets/images/top-left-unfilled.png";
+        private static final String CORNER_FILLED = "assets/images/top-left-filled.png";
+        private static final String CROSS_UNFILLED = "assets/images/cross-unfilled.png";
+        private static final String CROSS_FILLED = "assets/images/cross-filled.png";
+        private static final String STRAIGHT_UNFILLED = "assets/images/vert-unfilled.png";
+        private static final String STRAIGHT_FILLED = "assets/images/vert-filled.png";
 
         @NotNull
         final String rep;
@@ -157,7 +163,7 @@ public class Pipe implements MapElement {
          */
         @NotNull Renderer.CellImage getCellImage(boolean isFilled) {
             // TODO
-        	Image ref = null;
+        	String ref = null;
         	int angle = 0;        	
         	
         	if (isFilled) {
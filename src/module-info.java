@@ -3,8 +3,11 @@ module pipes {
     requires javafx.graphics;
     requires javafx.media;
     
-    requires annotations;
+    requires static org.jetbrains.annotations;
 	requires javafx.base;
+	requires java.management;
+	requires jdk.management;
+	requires java.desktop;
 
     exports main;
-}
\ No newline at end of file
+}
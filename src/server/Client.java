@@ -0,0 +1,22 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A connection to the {@link GameServer}, which receives responses and events as lines of text.
+ */
+public interface Client {
+
+    /**
+     * Sends a line to the client. Must not block, as it is called on the threads running the sessions. May be called
+     * from any thread.
+     *
+     * @param line Line to send, without the line terminator.
+     */
+    void send(@NotNull String line);
+
+    /**
+     * @return Whether the client is still connected. Sessions stop sending events to disconnected clients.
+     */
+    boolean isOpen();
+}
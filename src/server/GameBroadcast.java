@@ -0,0 +1,307 @@
+package server;
+
+import models.FXGame;
+import models.GameEvent;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fans the events of an {@link FXGame} out to many local viewers.
+ *
+ * <p>
+ * The broadcast is a single subscriber of {@link FXGame#getEvents()}, which copies every event into a shared ring
+ * buffer. Each viewer reads the ring at its own pace with a cursor of its own, so the game loop does the same work
+ * whatever the number of viewers, and adding a viewer allocates nothing but the viewer itself.
+ * </p>
+ * <p>
+ * A viewer starts from a {@link Bootstrap}: the latest snapshot of the game, taken on the game loop together with the
+ * sequence number of the next event. A viewer which falls so far behind that the events it has yet to read are
+ * overwritten, or which misses events the broadcast itself missed, starts again from the latest bootstrap.
+ * </p>
+ */
+public class GameBroadcast {
+
+    /**
+     * Default number of events kept in the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * State of the game from which a viewer can follow the events.
+     */
+    public static final class Bootstrap {
+
+        @NotNull
+        public final MapSnapshot map;
+        /**
+         * Pipe queue, starting with the current pipe.
+         */
+        @NotNull
+        public final List<Pipe> queue;
+        /**
+         * Sequence number of the first event not reflected in the snapshot.
+         */
+        public final long sequence;
+
+        Bootstrap(@NotNull MapSnapshot map, @NotNull List<Pipe> queue, long sequence) {
+            this.map = map;
+            this.queue = queue;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Receives what a viewer reads.
+     */
+    public interface Handler {
+
+        /**
+         * Called when the viewer starts from a snapshot, i.e. before its first event and whenever it had to skip
+         * events. The state held by the handler should be replaced by the snapshot.
+         *
+         * @param bootstrap Snapshot to start from.
+         */
+        void onBootstrap(@NotNull Bootstrap bootstrap);
+
+        /**
+         * Called for each event following the latest bootstrap, in order.
+         *
+         * @param event Event to apply.
+         */
+        void onEvent(@NotNull GameEvent event);
+    }
+
+    /**
+     * Cursor of a viewer into the ring buffer.
+     *
+     * <p>
+     * A viewer must only be read by one thread at a time.
+     * </p>
+     */
+    public final class Viewer {
+
+        @Nullable
+        private Bootstrap bootstrap = null;
+        /**
+         * Sequence number of the next event to read.
+         */
+        private long cursor;
+        private long bootstrapCount = 0;
+
+        private Viewer() {
+        }
+
+        /**
+         * Reads the events available to this viewer, without blocking.
+         *
+         * @param handler Handler to pass the events to.
+         * @param max     Maximum number of events to read.
+         * @return Number of events read, not counting bootstraps.
+         */
+        public int drain(@NotNull Handler handler, int max) {
+            if (bootstrap == null) {
+                restart(handler);
+            }
+            int count = 0;
+            while (count < max) {
+                final var event = ring.get((int) (cursor & mask));
+                if (event != null && event.sequence == cursor) {
+                    handler.onEvent(event);
+                    ++cursor;
+                    ++count;
+                } else if ((event != null && event.sequence > cursor) || cursor < firstAfterGap) {
+                    // The event has been overwritten, or never reached the broadcast
+                    if (latest == bootstrap) {
+                        // Wait for the game loop to publish a bootstrap past the missing events
+                        break;
+                    }
+                    restart(handler);
+                } else {
+                    // The event has not been published yet
+                    break;
+                }
+            }
+            return count;
+        }
+
+        private void restart(@NotNull Handler handler) {
+            final var next = latest;
+            bootstrap = next;
+            cursor = next.sequence;
+            ++bootstrapCount;
+            handler.onBootstrap(next);
+        }
+
+        /**
+         * @return Whether the game has been disposed, and this viewer has read all of its events.
+         */
+        public boolean isFinished() {
+            return completed && cursor >= received;
+        }
+
+        /**
+         * @return Number of bootstraps this viewer started from, including the first one.
+         */
+        public long getBootstrapCount() {
+            return bootstrapCount;
+        }
+    }
+
+    @NotNull
+    private final AtomicReferenceArray<GameEvent> ring;
+    private final int mask;
+
+    /**
+     * Latest bootstrap, published on the game loop after every batch.
+     */
+    @NotNull
+    private volatile Bootstrap latest;
+    /**
+     * Sequence number of the first event received after the latest missed one. Only written by the subscriber.
+     */
+    private volatile long firstAfterGap = 0;
+    /**
+     * Sequence number following the latest event received. Only written by the subscriber.
+     */
+    private volatile long received = 0;
+    private volatile boolean completed = false;
+    @Nullable
+    private volatile Flow.Subscription subscription;
+
+    /**
+     * Starts broadcasting a game with a ring buffer of {@link GameBroadcast#DEFAULT_CAPACITY} events.
+     *
+     * @param game Game to broadcast.
+     * @see GameBroadcast#GameBroadcast(FXGame, int)
+     */
+    public GameBroadcast(@NotNull FXGame game) {
+        this(game, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts broadcasting a game. Should be called before the game is started, so that the first bootstrap is
+     * consistent with the events following it.
+     *
+     * @param game     Game to broadcast.
+     * @param capacity Number of events kept in the ring buffer. Must be a power of two.
+     */
+    public GameBroadcast(@NotNull FXGame game, int capacity) {
+        this(new Bootstrap(game.getMapSnapshot(), game.getQueueSnapshot(), game.getEventCount()), capacity);
+
+        game.addOnUpdateHandler(() -> {
+            final var map = game.getMapSnapshot();
+            final var queue = game.getQueueSnapshot();
+            final long sequence = game.getEventCount();
+            // Batches which change nothing, e.g. idle ticks without subscribers, reuse the previous bootstrap
+            final var previous = latest;
+            if (previous.map != map || previous.queue != queue || previous.sequence != sequence) {
+                publish(new Bootstrap(map, queue, sequence));
+            }
+        });
+        game.getEvents().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(@NotNull Flow.Subscription s) {
+                subscription = s;
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(@NotNull GameEvent event) {
+                receive(event);
+            }
+
+            @Override
+            public void onError(@NotNull Throwable throwable) {
+                completed = true;
+            }
+
+            @Override
+            public void onComplete() {
+                completed = true;
+            }
+        });
+    }
+
+    /**
+     * Creates a broadcast which is not attached to a game. Events and bootstraps are only added by
+     * {@link GameBroadcast#receive(GameEvent)} and {@link GameBroadcast#publish(Bootstrap)}, e.g. by tests.
+     *
+     * @param bootstrap First bootstrap.
+     * @param capacity  Number of events kept in the ring buffer. Must be a power of two.
+     */
+    GameBroadcast(@NotNull Bootstrap bootstrap, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.latest = bootstrap;
+        this.received = bootstrap.sequence;
+        this.firstAfterGap = bootstrap.sequence;
+    }
+
+    /**
+     * Replaces the latest bootstrap. Only called on the game loop.
+     *
+     * @param bootstrap Snapshot taken after the latest batch.
+     */
+    void publish(@NotNull Bootstrap bootstrap) {
+        latest = bootstrap;
+    }
+
+    /**
+     * Stores an event in the ring buffer. Only called by the subscriber of the game.
+     *
+     * @param event Event received, which may follow missed events.
+     */
+    void receive(@NotNull GameEvent event) {
+        if (event.sequence != received) {
+            firstAfterGap = event.sequence;
+        }
+        ring.lazySet((int) (event.sequence & mask), event);
+        received = event.sequence + 1;
+    }
+
+    /**
+     * Adds a viewer, which starts from the latest bootstrap on its first {@link Viewer#drain(Handler, int)}. May be
+     * called from any thread, and does not involve the game loop.
+     *
+     * @return The new viewer.
+     */
+    @NotNull
+    public Viewer join() {
+        return new Viewer();
+    }
+
+    /**
+     * @return Latest bootstrap published by the game loop.
+     */
+    @NotNull
+    public Bootstrap getLatest() {
+        return latest;
+    }
+
+    /**
+     * @return Sequence number following the latest event received.
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * Stops receiving events. Viewers can still read the events already received.
+     */
+    public void close() {
+        final var s = subscription;
+        if (s != null) {
+            s.cancel();
+        }
+        completed = true;
+    }
+}
@@ -0,0 +1,239 @@
+package server;
+
+import io.LevelGenerator;
+import org.jetbrains.annotations.NotNull;
+import util.LatencyHistogram;
+import util.TimingWheel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many real-time games in a single JVM, addressed by ID, with a fixed number of threads.
+ *
+ * <p>
+ * Commands arrive as lines of text from any number of {@link Client}s, e.g. through a {@link SocketListener} or
+ * standard input. Each command but {@code help} is answered with a single line starting with {@code ok} or
+ * {@code err}. Replies to commands on different sessions may arrive out of order, so every reply about a session
+ * carries its ID. Clients watching a session also receive its events, as lines starting with {@code event <id>}.
+ * </p>
+ * <p>
+ * Sessions run on a fixed pool, and all of their flows of water are timeouts on one {@link TimingWheel}, so the number
+ * of threads does not grow with the number of sessions. Sessions which receive no command for a while are closed.
+ * </p>
+ */
+public class GameServer {
+
+    /**
+     * Lines describing the commands understood by the server.
+     */
+    public static final String HELP = String.join(System.lineSeparator(),
+            "new [<rows> <cols> [<seed>]]  create a session of up to 100x100, including the outer walls, and watch it",
+            "start <id>                    start the flow of water",
+            "place <id> <row> <col>        place the current pipe, counting from the top-left wall",
+            "skip <id>                     skip the current pipe",
+            "undo <id>                     undo the latest unfilled pipe",
+            "show <id>                     show the state, the pipe queue and the map",
+            "watch <id> | unwatch <id>     start or stop receiving the events of a session",
+            "close <id>                    close a session",
+            "stats                         show the number of sessions and the timer lateness",
+            "quit                          disconnect");
+
+    /**
+     * Commands addressed to a session, followed by its ID.
+     */
+    private static final Set<String> SESSION_COMMANDS =
+            Set.of("start", "place", "skip", "undo", "show", "watch", "unwatch", "close");
+
+    private static final int DEFAULT_ROWS = 10;
+    private static final int DEFAULT_COLS = 10;
+    /**
+     * Largest number of rows or columns of a generated level. Bounds the memory and time a single command can make the
+     * shared pool spend on generating a level.
+     */
+    private static final int MAX_SIZE = 100;
+    private static final double WALL_DENSITY = 0.2;
+    private static final double DIFFICULTY = 0.5;
+
+    @NotNull
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    @NotNull
+    private final AtomicLong nextId = new AtomicLong(1);
+    @NotNull
+    private final ExecutorService executor;
+    @NotNull
+    private final TimingWheel wheel;
+    private final long idleTimeoutNanos;
+
+    /**
+     * @param threads           Number of threads running the sessions.
+     * @param tickMillis        Resolution of the timer, in milliseconds.
+     * @param idleTimeoutMillis Time without commands after which a session is closed, in milliseconds.
+     */
+    public GameServer(int threads, long tickMillis, long idleTimeoutMillis) {
+        final var count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            final var t = new Thread(r, "session-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.wheel = new TimingWheel(tickMillis, "session-timer");
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    /**
+     * Handles a line of input from a client. Never blocks, so it may be called on an I/O thread.
+     *
+     * @param line   Line to handle.
+     * @param client Client which sent the line.
+     * @return {@code false} if the client asked to disconnect.
+     */
+    public boolean handle(@NotNull String line, @NotNull Client client) {
+        final var args = line.trim().split("\\s+");
+        if (args[0].isEmpty()) {
+            return true;
+        }
+
+        try {
+            switch (args[0]) {
+                case "quit":
+                    return false;
+                case "help":
+                    HELP.lines().forEach(client::send);
+                    break;
+                case "stats":
+                    client.send(stats());
+                    break;
+                case "new":
+                    create(args, client);
+                    break;
+                default:
+                    if (SESSION_COMMANDS.contains(args[0])) {
+                        handleSessionCommand(args, client);
+                    } else {
+                        client.send("err unknown command: " + args[0]);
+                    }
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            client.send("err invalid number: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of open sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes all sessions and stops the threads of the server.
+     */
+    public void close() {
+        sessions.values().forEach(session -> session.close("shutdown"));
+        executor.shutdown();
+        wheel.close();
+    }
+
+    private void create(@NotNull String[] args, @NotNull Client client) {
+        if (args.length != 1 && args.length != 3 && args.length != 4) {
+            client.send("err usage: new [<rows> <cols> [<seed>]]");
+            return;
+        }
+        final int rows = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROWS;
+        final int cols = args.length > 1 ? Integer.parseInt(args[2]) : DEFAULT_COLS;
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : ThreadLocalRandom.current().nextLong();
+        if (rows > MAX_SIZE || cols > MAX_SIZE) {
+            client.send("err levels must be at most " + MAX_SIZE + "x" + MAX_SIZE);
+            return;
+        }
+
+        // Generating a level runs a solver, so it is kept off the calling thread
+        executor.execute(() -> {
+            final Session session;
+            try {
+                final var level = new LevelGenerator(rows, cols, WALL_DENSITY, DIFFICULTY).generate(seed);
+                final long id = nextId.getAndIncrement();
+                session = new Session(id, level, executor, wheel, idleTimeoutNanos, client,
+                        () -> sessions.remove(id));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                client.send("err " + e.getMessage());
+                return;
+            }
+            sessions.put(session.id, session);
+            // Only now can the idle check find the session in the map when it closes it
+            session.open();
+            client.send("ok " + session.id + " created");
+        });
+    }
+
+    private void handleSessionCommand(@NotNull String[] args, @NotNull Client client) {
+        if (args.length < 2) {
+            client.send("err usage: " + args[0] + " <id>");
+            return;
+        }
+        final var session = sessions.get(Long.parseLong(args[1]));
+        if (session == null) {
+            client.send("err " + args[1] + " no such session");
+            return;
+        }
+
+        switch (args[0]) {
+            case "start":
+                session.start(client);
+                break;
+            case "place":
+                if (args.length != 4) {
+                    client.send("err usage: place <id> <row> <col>");
+                    return;
+                }
+                session.placePipe(Integer.parseInt(args[2]), Integer.parseInt(args[3]), client);
+                break;
+            case "skip":
+                session.skipPipe(client);
+                break;
+            case "undo":
+                session.undoStep(client);
+                break;
+            case "show":
+                session.describe(client);
+                break;
+            case "watch":
+                session.watch(client);
+                break;
+            case "unwatch":
+                session.unwatch(client);
+                break;
+            case "close":
+                session.close("closed by client");
+                client.send("ok " + session.id + " closing");
+                break;
+            default:
+                throw new IllegalStateException("Unknown command: " + args[0]);
+        }
+    }
+
+    @NotNull
+    private String stats() {
+        final int[] counts = new int[Session.State.values().length];
+        for (var session : sessions.values()) {
+            ++counts[session.getState().ordinal()];
+        }
+        final LatencyHistogram lateness = wheel.getLateness();
+        return String.format("ok sessions=%d created=%d running=%d won=%d lost=%d timeouts=%d"
+                        + " lateness-p50=%.1fms lateness-p99=%.1fms lateness-max=%.1fms threads=%d",
+                sessions.size(), counts[Session.State.CREATED.ordinal()], counts[Session.State.RUNNING.ordinal()],
+                counts[Session.State.WON.ordinal()], counts[Session.State.LOST.ordinal()],
+                wheel.getPendingCount(), lateness.getPercentile(50) / 1e6, lateness.getPercentile(99) / 1e6,
+                lateness.getMax() / 1e6, ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
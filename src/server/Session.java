@@ -0,0 +1,355 @@
+package server;
+
+import io.GameProperties;
+import models.FlowTimer;
+import models.GameCore;
+import models.GameLoop;
+import models.PipeQueue;
+import models.map.Map;
+import models.map.MapSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A real-time game hosted by a {@link GameServer}.
+ *
+ * <p>
+ * A session plays by the same {@link GameCore} as an {@link models.FXGame}, but holds no thread or timer of its own:
+ * its state is owned by a {@link GameLoop} on the pool shared by all sessions, and each flow of water is a single
+ * timeout on the shared {@link TimingWheel}, scheduled when the previous one runs. A session which is not being played
+ * therefore costs nothing but its memory.
+ * </p>
+ * <p>
+ * Commands may be issued from any thread. Their replies are sent to the issuing client, and the events of the game are
+ * sent to all clients watching the session, both on the loop.
+ * </p>
+ */
+public class Session {
+
+    /**
+     * Lifecycle state of a session.
+     */
+    public enum State {
+        /**
+         * The session has been created, but the water has not started flowing.
+         */
+        CREATED,
+        RUNNING,
+        WON,
+        LOST,
+        /**
+         * The session has been closed, and ignores all further commands.
+         */
+        CLOSED
+    }
+
+    public final long id;
+
+    /**
+     * Rules and state of the game. Only accessed on the loop.
+     */
+    @NotNull
+    private final GameCore core;
+    @NotNull
+    private final GameLoop loop;
+    @NotNull
+    private final TimingWheel wheel;
+    /**
+     * Callback run on the loop once the session is closed.
+     */
+    @NotNull
+    private final Runnable onClosed;
+
+    /**
+     * Delay before the water starts flowing, in seconds.
+     */
+    private final int delay;
+    /**
+     * Duration between each water flow, in seconds.
+     */
+    private final int flowDuration;
+    private final long idleTimeoutNanos;
+
+    @NotNull
+    private volatile State state = State.CREATED;
+
+    // Only accessed on the loop
+    @NotNull
+    private final List<Client> watchers = new ArrayList<>();
+    @Nullable
+    private TimingWheel.Timeout nextFlow;
+    @Nullable
+    private TimingWheel.Timeout idleCheck;
+    private long lastActive = System.nanoTime();
+
+    /**
+     * @param id               ID of the session.
+     * @param level            Level to play.
+     * @param executor         Pool to run the loop of the session on.
+     * @param wheel            Wheel to schedule flows and idle checks on.
+     * @param idleTimeoutNanos Time without commands after which the session is closed, in nanoseconds.
+     * @param owner            Client watching the session from the start.
+     * @param onClosed         Callback run on the loop once the session is closed.
+     */
+    Session(long id, @NotNull GameProperties level, @NotNull Executor executor, @NotNull TimingWheel wheel,
+            long idleTimeoutNanos, @NotNull Client owner, @NotNull Runnable onClosed) {
+        this.id = id;
+        this.core = new GameCore(new Map(level.rows, level.cols, level.cells), new PipeQueue(level.pipes));
+        this.loop = new GameLoop(executor);
+        this.wheel = wheel;
+        this.onClosed = onClosed;
+        this.delay = level.delay;
+        this.flowDuration = FlowTimer.getDefaultFlowDuration();
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.watchers.add(owner);
+    }
+
+    /**
+     * Starts closing the session once it has been idle for too long. Called by the server once the session has been
+     * registered, so that {@code onClosed} never runs before the session can be found.
+     */
+    void open() {
+        scheduleIdleCheck(idleTimeoutNanos);
+    }
+
+    /**
+     * @return Current lifecycle state of the session. May be called from any thread.
+     */
+    @NotNull
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Starts the flow of water.
+     *
+     * @param client Client to reply to.
+     */
+    public void start(@NotNull Client client) {
+        submit(client, () -> {
+            if (state != State.CREATED) {
+                client.send("err " + id + " already started");
+                return;
+            }
+            state = State.RUNNING;
+            scheduleFlow(delay);
+            client.send("ok " + id + " started");
+        });
+    }
+
+    /**
+     * Places the current pipe.
+     *
+     * @param row    Row index, including the surrounding walls.
+     * @param col    Column index, including the surrounding walls.
+     * @param client Client to reply to.
+     * @see GameCore#placePipe(util.Coordinate)
+     */
+    public void placePipe(int row, int col, @NotNull Client client) {
+        submitMove(client, () -> {
+            final var pipe = core.placePipe(new Coordinate(row, col));
+            if (pipe == null) {
+                client.send("err " + id + " cannot place at " + row + " " + col);
+                return;
+            }
+            client.send("ok " + id + " placed " + pipe.toSingleChar() + " at " + row + " " + col);
+            if (core.hasWon()) {
+                state = State.WON;
+                cancel(nextFlow);
+                emit("won");
+            }
+        });
+    }
+
+    /**
+     * Skips the current pipe.
+     *
+     * @param client Client to reply to.
+     * @see GameCore#skipPipe()
+     */
+    public void skipPipe(@NotNull Client client) {
+        submitMove(client, () -> {
+            core.skipPipe();
+            client.send("ok " + id + " skipped");
+        });
+    }
+
+    /**
+     * Undoes the latest pipe placed, unless it has been filled.
+     *
+     * @param client Client to reply to.
+     * @see GameCore#undoStep()
+     */
+    public void undoStep(@NotNull Client client) {
+        submitMove(client, () -> {
+            if (core.undoStep() == null) {
+                client.send("err " + id + " cannot undo");
+                return;
+            }
+            client.send("ok " + id + " undone");
+        });
+    }
+
+    /**
+     * Replies with the state of the session, the pipe queue, and the map with rows separated by {@code '|'}.
+     *
+     * @param client Client to reply to.
+     */
+    public void describe(@NotNull Client client) {
+        submit(client, () -> {
+            final var sb = new StringBuilder();
+            sb.append("ok ").append(id)
+                    .append(" state=").append(state)
+                    .append(" steps=").append(core.getNumOfSteps())
+                    .append(" distance=").append(core.getDistance())
+                    .append(" queue=");
+            for (var pipe : core.snapshotQueue()) {
+                sb.append(pipe.toSingleChar());
+            }
+            sb.append(" map=");
+            final var snapshot = core.snapshotMap();
+            for (int r = 0; r < snapshot.rows; ++r) {
+                if (r != 0) {
+                    sb.append('|');
+                }
+                for (int c = 0; c < snapshot.cols; ++c) {
+                    sb.append(MapSnapshot.toSingleChar(snapshot.get(r, c)));
+                }
+            }
+            client.send(sb.toString());
+        });
+    }
+
+    /**
+     * Sends all further events of the session to a client, until it disconnects or stops watching.
+     *
+     * @param client Client to send events to.
+     */
+    public void watch(@NotNull Client client) {
+        submit(client, () -> {
+            if (!watchers.contains(client)) {
+                watchers.add(client);
+            }
+            client.send("ok " + id + " watching");
+        });
+    }
+
+    /**
+     * Stops sending events of the session to a client.
+     *
+     * @param client Client to stop sending events to.
+     */
+    public void unwatch(@NotNull Client client) {
+        submit(client, () -> {
+            watchers.remove(client);
+            client.send("ok " + id + " unwatched");
+        });
+    }
+
+    /**
+     * Closes the session, notifying its watchers. Pending commands are discarded.
+     *
+     * @param reason Reason sent to the watchers.
+     */
+    public void close(@NotNull String reason) {
+        loop.submit(() -> doClose(reason));
+    }
+
+    /**
+     * Runs a command on the loop, replying with an error if the session has been closed in the meantime.
+     */
+    private void submit(@NotNull Client client, @NotNull Runnable command) {
+        loop.submit(() -> {
+            lastActive = System.nanoTime();
+            command.run();
+        });
+        if (loop.isClosed()) {
+            client.send("err " + id + " closed");
+        }
+    }
+
+    /**
+     * Runs a move on the loop, unless the game is over.
+     */
+    private void submitMove(@NotNull Client client, @NotNull Runnable move) {
+        submit(client, () -> {
+            if (state != State.CREATED && state != State.RUNNING) {
+                client.send("err " + id + " game over");
+                return;
+            }
+            move.run();
+        });
+    }
+
+    private void scheduleFlow(int seconds) {
+        nextFlow = wheel.schedule(seconds, TimeUnit.SECONDS, () -> loop.submit(this::flow));
+    }
+
+    /**
+     * Fills the next step of the water. Runs on the loop.
+     *
+     * @see GameCore#flow()
+     */
+    private void flow() {
+        if (state != State.RUNNING) {
+            return;
+        }
+        final int distance = core.flow();
+        emit("flow " + distance);
+
+        if (core.hasLost()) {
+            state = State.LOST;
+            emit("lost");
+            return;
+        }
+        scheduleFlow(flowDuration);
+    }
+
+    private void scheduleIdleCheck(long delayNanos) {
+        idleCheck = wheel.schedule(delayNanos, TimeUnit.NANOSECONDS, () -> loop.submit(() -> {
+            final long idle = System.nanoTime() - lastActive;
+            if (idle >= idleTimeoutNanos) {
+                doClose("idle");
+            } else {
+                scheduleIdleCheck(idleTimeoutNanos - idle);
+            }
+        }));
+    }
+
+    private void doClose(@NotNull String reason) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CLOSED;
+        cancel(nextFlow);
+        cancel(idleCheck);
+        emit("closed " + reason);
+        watchers.clear();
+        loop.close();
+        onClosed.run();
+    }
+
+    /**
+     * Sends an event to all watchers, forgetting those which have disconnected. Runs on the loop.
+     */
+    private void emit(@NotNull String event) {
+        final var line = "event " + id + " " + event;
+        watchers.removeIf(client -> !client.isOpen());
+        for (var client : watchers) {
+            client.send(line);
+        }
+    }
+
+    private static void cancel(@Nullable TimingWheel.Timeout timeout) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
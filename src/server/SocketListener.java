@@ -0,0 +1,277 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts connections on a local socket and relays their lines to a {@link GameServer}.
+ *
+ * <p>
+ * All connections are served by a single thread with non-blocking I/O, so the number of threads does not grow with the
+ * number of clients. Lines sent to a connection are queued and written by that thread; a connection which falls too
+ * far behind in reading them is dropped, so that a slow client can never hold up the sessions.
+ * </p>
+ */
+public class SocketListener {
+
+    /**
+     * Longest line accepted from a client, in bytes.
+     */
+    private static final int MAX_LINE_LENGTH = 1024;
+    /**
+     * Largest number of bytes queued to a client before it is dropped.
+     */
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+
+    @NotNull
+    private final GameServer server;
+    @NotNull
+    private final Selector selector;
+    @NotNull
+    private final ServerSocketChannel serverChannel;
+    /**
+     * Connections with lines to write, or which have been dropped by another thread.
+     */
+    @NotNull
+    private final Queue<Connection> flushRequests = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    /**
+     * A client connected through the socket.
+     */
+    private final class Connection implements Client {
+
+        @NotNull
+        private final SocketChannel channel;
+        @NotNull
+        private final SelectionKey key;
+        @NotNull
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        @NotNull
+        private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+        @NotNull
+        private final AtomicInteger pendingBytes = new AtomicInteger();
+        @NotNull
+        private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+        private volatile boolean open = true;
+        /**
+         * Whether the client fell too far behind, and is to be disconnected without sending what is queued.
+         */
+        private volatile boolean dropped = false;
+
+        private Connection(@NotNull SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        @Override
+        public void send(@NotNull String line) {
+            if (!open) {
+                return;
+            }
+            final var bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            if (pendingBytes.addAndGet(bytes.length) > MAX_PENDING_BYTES) {
+                open = false;
+                dropped = true;
+            } else {
+                output.offer(ByteBuffer.wrap(bytes));
+            }
+            if (flushRequested.compareAndSet(false, true)) {
+                flushRequests.offer(this);
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+    }
+
+    /**
+     * Binds the socket and starts serving connections.
+     *
+     * @param server  Server to relay lines to.
+     * @param address Address to bind to. Should be a loopback address, as connections are not authenticated.
+     * @throws IOException if the socket cannot be bound.
+     */
+    public SocketListener(@NotNull GameServer server, @NotNull InetSocketAddress address) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        final var thread = new Thread(this::run, "server-io");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return Port the socket is bound to.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, and disconnects all clients.
+     */
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+
+                Connection connection;
+                while ((connection = flushRequests.poll()) != null) {
+                    // Lines queued after this point request another flush
+                    connection.flushRequested.set(false);
+                    flush(connection);
+                }
+
+                for (var key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (var key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    disconnect((Connection) key.attachment());
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final var channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        new Connection(channel);
+    }
+
+    /**
+     * Reads what the client has sent, and handles each complete line.
+     */
+    private void read(@NotNull Connection connection) {
+        try {
+            if (connection.channel.read(connection.input) < 0) {
+                disconnect(connection);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+
+        final var input = connection.input;
+        int start = 0;
+        for (int i = 0; i < input.position(); ++i) {
+            if (input.get(i) != '\n') {
+                continue;
+            }
+            final int end = i > start && input.get(i - 1) == '\r' ? i - 1 : i;
+            final var line = new String(input.array(), start, end - start, StandardCharsets.UTF_8);
+            start = i + 1;
+            if (!server.handle(line, connection)) {
+                disconnect(connection);
+                return;
+            }
+        }
+
+        input.flip().position(start);
+        input.compact();
+        if (!input.hasRemaining()) {
+            connection.send("err line too long");
+            connection.open = false;
+            flush(connection);
+        }
+    }
+
+    /**
+     * Writes as many queued lines as the socket accepts, and waits for the socket to become writable if some remain.
+     */
+    private void flush(@NotNull Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        if (connection.dropped) {
+            disconnect(connection);
+            return;
+        }
+        try {
+            ByteBuffer buffer;
+            while ((buffer = connection.output.peek()) != null) {
+                connection.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                connection.output.poll();
+                connection.pendingBytes.addAndGet(-buffer.capacity());
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+
+        if (connection.open) {
+            connection.key.interestOps(SelectionKey.OP_READ);
+        } else {
+            // The client is being disconnected, and has now been sent everything queued before
+            disconnect(connection);
+        }
+    }
+
+    private void disconnect(@NotNull Connection connection) {
+        connection.open = false;
+        connection.key.cancel();
+        connection.output.clear();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // The connection is being discarded anyway
+        }
+    }
+}
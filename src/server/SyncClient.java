@@ -0,0 +1,169 @@
+package server;
+
+import io.BoardReplica;
+import io.SyncProtocol;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of a {@link SyncServer}, keeping a {@link BoardReplica} of the remote game up to date.
+ *
+ * <p>
+ * Messages are received and applied on a thread of the client. When the replica notices a missed delta, the client
+ * asks the server for a snapshot, and ignores deltas until it arrives.
+ * </p>
+ */
+public class SyncClient {
+
+    @NotNull
+    private final Socket socket;
+    /**
+     * Replica of the game. Guarded by this client.
+     */
+    @NotNull
+    private final BoardReplica replica = new BoardReplica();
+
+    @NotNull
+    private final AtomicLong bytesReceived = new AtomicLong();
+    @NotNull
+    private final AtomicLong messagesReceived = new AtomicLong();
+    @NotNull
+    private final AtomicLong resyncs = new AtomicLong();
+
+    /**
+     * Connects to a server and starts receiving its messages.
+     *
+     * @param address Address of the server.
+     * @throws IOException if the server cannot be connected to.
+     */
+    public SyncClient(@NotNull InetSocketAddress address) throws IOException {
+        this.socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+
+        final var thread = new Thread(this::receive, "sync-client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return Sequence number of the state of the replica, or -1 if no snapshot has been received yet.
+     */
+    public synchronized long getSequence() {
+        return replica.getSequence();
+    }
+
+    /**
+     * Waits until the replica has reached a state.
+     *
+     * @param sequence      Sequence number of the state to wait for.
+     * @param timeoutMillis Longest time to wait, in milliseconds.
+     * @return Whether the replica has reached the state.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public synchronized boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (replica.getSequence() < sequence) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @param map   Snapshot of a map.
+     * @param queue Pipe queue, starting with the current pipe.
+     * @return Whether the replica holds exactly the given state.
+     * @see BoardReplica#matches(MapSnapshot, List)
+     */
+    public synchronized boolean matches(@NotNull MapSnapshot map, @NotNull List<Pipe> queue) {
+        return replica.matches(map, queue);
+    }
+
+    /**
+     * @return Bytes received so far, including framing.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    /**
+     * @return Number of snapshots the client has asked for after missing a delta.
+     */
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+
+    /**
+     * Disconnects from the server.
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    private void receive() {
+        boolean resyncPending = false;
+        try (var in = new BufferedInputStream(socket.getInputStream())) {
+            final OutputStream out = socket.getOutputStream();
+            while (true) {
+                final var payload = SyncProtocol.readFrame(in);
+                bytesReceived.addAndGet(payload.length + varintLength(payload.length));
+                messagesReceived.incrementAndGet();
+
+                BoardReplica.Result result;
+                final long sequence;
+                synchronized (this) {
+                    try {
+                        result = replica.apply(payload);
+                    } catch (IllegalArgumentException e) {
+                        result = BoardReplica.Result.GAP;
+                    }
+                    sequence = replica.getSequence();
+                    notifyAll();
+                }
+
+                if (result == BoardReplica.Result.APPLIED && payload[0] == SyncProtocol.SNAPSHOT) {
+                    resyncPending = false;
+                } else if (result == BoardReplica.Result.GAP && !resyncPending) {
+                    resyncPending = true;
+                    resyncs.incrementAndGet();
+                    SyncProtocol.writeFrame(out, new SyncProtocol.Writer()
+                            .putByte(SyncProtocol.RESYNC)
+                            .putVarint(Math.max(0, sequence))
+                            .toByteArray());
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The server has disconnected
+        }
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            ++length;
+        }
+        return length;
+    }
+}
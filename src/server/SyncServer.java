@@ -0,0 +1,351 @@
+package server;
+
+import io.SyncEncoder;
+import io.SyncProtocol;
+import models.FXGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.LatencyHistogram;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the state of an {@link FXGame} to remote clients with {@link SyncProtocol}.
+ *
+ * <p>
+ * Each client first receives a snapshot, then a delta after every batch of the game loop which changes the state. The
+ * size of a delta only depends on the cells it changes, and the time to encode it only grows with the chunk table
+ * copied by each map snapshot, as measured in {@link SyncEncoder}. Deltas are encoded once on the game loop and shared
+ * by all clients. A client which misses deltas, because it asked for a resync or fell too far behind, is sent a new
+ * snapshot, which its own writer thread encodes so that the game loop never waits for it. Idle clients are sent
+ * heartbeats, so that they also notice when the latest delta was missed.
+ * </p>
+ * <p>
+ * Each client is served by two threads of its own, which is meant for a handful of remote players per game.
+ * </p>
+ */
+public class SyncServer {
+
+    /**
+     * Number of messages queued to a client before it is considered too far behind.
+     */
+    private static final int QUEUE_CAPACITY = 256;
+    /**
+     * Time without messages after which a client is sent a heartbeat, in milliseconds.
+     */
+    private static final long HEARTBEAT_MILLIS = 1000;
+    /**
+     * Placeholder queued to a client in place of a snapshot, which its writer encodes from
+     * {@link Subscriber#pendingSnapshot}.
+     */
+    @NotNull
+    private static final byte[] SNAPSHOT_MARKER = new byte[0];
+
+    @NotNull
+    private final FXGame game;
+    @NotNull
+    private final ServerSocket serverSocket;
+
+    /**
+     * Guards the encoder and the clients, so that a client joining or resyncing receives a snapshot whose sequence
+     * number immediately precedes the next delta queued to it. Only deltas are encoded while holding it; snapshots are
+     * encoded by the writers afterwards.
+     */
+    @NotNull
+    private final Object lock = new Object();
+    @NotNull
+    private final SyncEncoder encoder;
+    @NotNull
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    @NotNull
+    private final LatencyHistogram encodeTimes = new LatencyHistogram();
+    @NotNull
+    private final AtomicLong deltaCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong deltaBytes = new AtomicLong();
+    @NotNull
+    private final AtomicLong snapshotCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong snapshotBytes = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    /**
+     * A connected client.
+     */
+    private final class Subscriber {
+
+        @NotNull
+        private final Socket socket;
+        @NotNull
+        private final BlockingQueue<byte[]> outbox = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        @NotNull
+        private final Thread writer;
+        @NotNull
+        private final Thread reader;
+        /**
+         * State to send a snapshot of when the writer reaches {@link SyncServer#SNAPSHOT_MARKER}, or {@code null} if
+         * it has already been sent. Guarded by the lock.
+         */
+        @Nullable
+        private SyncEncoder.Checkpoint pendingSnapshot = null;
+
+        private Subscriber(@NotNull Socket socket, int id) {
+            this.socket = socket;
+            this.writer = new Thread(this::write, "sync-writer-" + id);
+            this.reader = new Thread(this::read, "sync-reader-" + id);
+            writer.setDaemon(true);
+            reader.setDaemon(true);
+        }
+
+        /**
+         * Queues a delta. Must be called while holding the lock.
+         */
+        private void offer(@NotNull byte[] delta) {
+            if (!outbox.offer(delta)) {
+                // The queued deltas are superseded by a snapshot of the state after the latest one
+                requestSnapshot();
+            }
+        }
+
+        /**
+         * Replaces the queued messages with a snapshot of the latest state encoded. Must be called while holding the
+         * lock. Only takes a checkpoint of the state; the writer encodes the snapshot once it has released the lock.
+         */
+        private void requestSnapshot() {
+            outbox.clear();
+            pendingSnapshot = encoder.checkpoint();
+            outbox.offer(SNAPSHOT_MARKER);
+        }
+
+        /**
+         * @return Snapshot requested by {@link Subscriber#requestSnapshot()}, or {@code null} if a later request has
+         * already been sent.
+         */
+        @Nullable
+        private byte[] takeSnapshot() {
+            final SyncEncoder.Checkpoint checkpoint;
+            synchronized (lock) {
+                checkpoint = pendingSnapshot;
+                pendingSnapshot = null;
+            }
+            return checkpoint == null ? null : snapshot(checkpoint);
+        }
+
+        private void write() {
+            try (var out = new BufferedOutputStream(socket.getOutputStream())) {
+                while (!closed) {
+                    var frame = outbox.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (frame == null) {
+                        frame = heartbeat();
+                    } else if (frame == SNAPSHOT_MARKER) {
+                        frame = takeSnapshot();
+                    }
+                    if (frame != null) {
+                        SyncProtocol.writeFrame(out, frame);
+                    }
+                    if (outbox.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client has disconnected, or the server is closing
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * @return Heartbeat with the latest sequence number, or {@code null} if a message was queued meanwhile.
+         */
+        private byte[] heartbeat() {
+            synchronized (lock) {
+                // Every delta up to the latest one has been written unless one is queued
+                if (!outbox.isEmpty()) {
+                    return null;
+                }
+                return new SyncProtocol.Writer()
+                        .putByte(SyncProtocol.HEARTBEAT)
+                        .putVarint(encoder.getSequence())
+                        .toByteArray();
+            }
+        }
+
+        private void read() {
+            try (var in = new BufferedInputStream(socket.getInputStream())) {
+                while (!closed) {
+                    final var payload = SyncProtocol.readFrame(in);
+                    if (payload.length == 0 || payload[0] != SyncProtocol.RESYNC) {
+                        throw new IOException("Unexpected message from client");
+                    }
+                    synchronized (lock) {
+                        requestSnapshot();
+                    }
+                }
+            } catch (IOException e) {
+                // The client has disconnected, or sent garbage
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            synchronized (lock) {
+                subscribers.remove(this);
+            }
+            writer.interrupt();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The connection is being discarded anyway
+            }
+        }
+    }
+
+    /**
+     * Binds the socket and starts streaming the game. Should be called before the game is started, so that no batch
+     * is missed.
+     *
+     * @param game    Game to stream.
+     * @param address Address to bind to. Should be a loopback address, as connections are not authenticated.
+     * @throws IOException if the socket cannot be bound.
+     */
+    public SyncServer(@NotNull FXGame game, @NotNull InetSocketAddress address) throws IOException {
+        this.game = game;
+        this.encoder = new SyncEncoder(game.getMapSnapshot(), game.getQueueSnapshot());
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+
+        game.addOnUpdateHandler(this::publish);
+
+        final var acceptor = new Thread(this::accept, "sync-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return Port the socket is bound to.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return Sequence number of the latest state sent.
+     */
+    public long getSequence() {
+        synchronized (lock) {
+            return encoder.getSequence();
+        }
+    }
+
+    /**
+     * @return Time to encode each delta, in nanoseconds.
+     */
+    @NotNull
+    public LatencyHistogram getEncodeTimes() {
+        return encodeTimes;
+    }
+
+    public long getDeltaCount() {
+        return deltaCount.get();
+    }
+
+    /**
+     * @return Total size of the deltas encoded, in bytes, not counting framing or the number of clients.
+     */
+    public long getDeltaBytes() {
+        return deltaBytes.get();
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.get();
+    }
+
+    /**
+     * @return Total size of the snapshots sent, in bytes.
+     */
+    public long getSnapshotBytes() {
+        return snapshotBytes.get();
+    }
+
+    /**
+     * Stops accepting clients, and disconnects all clients. The game itself is left running.
+     */
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing more can be done
+        }
+        final List<Subscriber> toClose;
+        synchronized (lock) {
+            toClose = new ArrayList<>(subscribers);
+        }
+        toClose.forEach(Subscriber::close);
+    }
+
+    /**
+     * Encodes the changes made by a batch, and queues them to all clients. Runs on the game loop.
+     */
+    private void publish() {
+        synchronized (lock) {
+            final long start = System.nanoTime();
+            final var delta = encoder.encodeDelta(game.getMapSnapshot(), game.getQueueSnapshot());
+            if (delta == null) {
+                return;
+            }
+            encodeTimes.record(System.nanoTime() - start);
+            deltaCount.incrementAndGet();
+            deltaBytes.addAndGet(delta.length);
+            for (var subscriber : subscribers) {
+                subscriber.offer(delta);
+            }
+        }
+    }
+
+    private void accept() {
+        int count = 0;
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                // The server socket has been closed
+                return;
+            }
+            final var subscriber = new Subscriber(socket, ++count);
+            synchronized (lock) {
+                subscribers.add(subscriber);
+                subscriber.requestSnapshot();
+            }
+            subscriber.writer.start();
+            subscriber.reader.start();
+        }
+    }
+
+    /**
+     * Encodes a snapshot message. Should be called without holding the lock.
+     */
+    @NotNull
+    private byte[] snapshot(@NotNull SyncEncoder.Checkpoint checkpoint) {
+        final var snapshot = checkpoint.encodeSnapshot();
+        snapshotCount.incrementAndGet();
+        snapshotBytes.addAndGet(snapshot.length);
+        return snapshot;
+    }
+}
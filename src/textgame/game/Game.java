@@ -4,6 +4,7 @@ import io.Deserializer;
 import models.CellStack;
 import models.PipeQueue;
 import models.map.Map;
+import models.map.MapSnapshot;
 import models.map.cells.Cell;
 import models.map.cells.FillableCell;
 import models.pipes.Pipe;
@@ -192,6 +193,22 @@ public class Game {
         }
     }
 
+    /**
+     * @return Snapshot of the current state of the map.
+     */
+    @NotNull
+    public MapSnapshot getMapSnapshot() {
+        return map.snapshot();
+    }
+
+    /**
+     * @return Pipes in the queue, starting with the current pipe.
+     */
+    @NotNull
+    public List<Pipe> getQueueSnapshot() {
+        return pipeQueue.snapshot();
+    }
+
     /**
      * @return Number of steps the player has taken.
      */
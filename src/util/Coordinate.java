@@ -43,6 +43,14 @@ public class Coordinate {
         return Objects.hash(row, col);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "(" + row + ", " + col + ")";
+    }
+
     /**
      * Adds {@code this} coordinate with another coordinate.
      *
@@ -0,0 +1,37 @@
+package util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Utilities for grids stored as flat arrays in row-major order, where the cell at {@code (row, col)} has the index
+ * {@code row * cols + col}.
+ */
+public final class GridIndex {
+
+    private GridIndex() {
+    }
+
+    /**
+     * @param index Index of a cell.
+     * @param dir   Direction to move in.
+     * @param rows  Number of rows of the grid.
+     * @param cols  Number of columns of the grid.
+     * @return Index of the adjacent cell in the direction, or {@code -1} if it is outside of the grid.
+     */
+    public static int neighbour(int index, @NotNull Direction dir, int rows, int cols) {
+        final int row = index / cols;
+        final int col = index % cols;
+        switch (dir) {
+            case UP:
+                return row > 0 ? index - cols : -1;
+            case DOWN:
+                return row < rows - 1 ? index + cols : -1;
+            case LEFT:
+                return col > 0 ? index - 1 : -1;
+            case RIGHT:
+                return col < cols - 1 ? index + 1 : -1;
+            default:
+                throw new IllegalStateException("Unknown direction");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative durations, for reporting latency percentiles.
+ *
+ * <p>
+ * Values are counted in buckets whose width grows with the value: each power of two is split into eight buckets, so a
+ * percentile is accurate to within 12.5% regardless of its magnitude, and the histogram has a fixed size. Recording is
+ * lock-free and may be done from any number of threads at once.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(Long.SIZE << SUB_BUCKET_BITS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value Value to record, e.g. a latency in nanoseconds.
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.incrementAndGet();
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * @return Number of values recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return Largest value recorded, or 0 if none has been recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile Percentile to compute, from 0 to 100.
+     * @return Upper bound of the bucket containing the percentile, or 0 if no value has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        final long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(lowerBoundOf(i + 1) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Discards all recorded values. Values recorded concurrently may or may not be discarded.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); ++i) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @param value A non-negative value.
+     * @return Index of the bucket counting the value.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS | sub;
+    }
+
+    /**
+     * @param index Index of a bucket.
+     * @return Smallest value counted by the bucket.
+     */
+    private static long lowerBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        if (shift >= Long.SIZE - SUB_BUCKET_BITS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    }
+}
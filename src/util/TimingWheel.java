@@ -0,0 +1,365 @@
+package util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel, running any number of timeouts on a single thread.
+ *
+ * <p>
+ * Time is divided into ticks of a fixed length, and each timeout expires at the end of the tick containing its
+ * deadline. Timeouts due within the next 64 ticks are kept in the 64 buckets of the lowest wheel; timeouts further away
+ * are kept in coarser wheels, each of whose buckets spans a whole turn of the wheel below, and are moved down when the
+ * wheel below comes round to them. Scheduling, cancelling and expiring a timeout therefore take constant time however
+ * many timeouts are pending, unlike a priority queue.
+ * </p>
+ * <p>
+ * Timeouts may be scheduled and cancelled from any thread: both are queued and applied by the wheel thread at the next
+ * tick. Tasks run on the wheel thread, so they must be short, and should hand any real work over to another executor.
+ * The wheel thread sleeps without waking up while no timeout is pending.
+ * </p>
+ */
+public final class TimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    /**
+     * Number of ticks covered by all wheels. Timeouts further away wait in the last bucket of the coarsest wheel, and go
+     * round the wheels again until they are due.
+     */
+    static final long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A task scheduled on a {@link TimingWheel}.
+     */
+    public final class Timeout {
+
+        private final long deadline;
+        @NotNull
+        private final Runnable task;
+        @NotNull
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Only accessed on the wheel thread
+        private long tick;
+        private int level = -1;
+        private int index;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(long deadline, @NotNull Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * Cancels this timeout. May be called from any thread.
+         *
+         * @return {@code true} if the task will not run, or {@code false} if it has already run.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return state.get() == CANCELLED;
+            }
+            cancelled.offer(this);
+            pending.decrementAndGet();
+            return true;
+        }
+
+        /**
+         * @return Whether this timeout has been cancelled.
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * @return Whether the task of this timeout has run.
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Heads of the buckets of each wheel. Each bucket is a doubly-linked list, so that cancelled timeouts can be
+     * unlinked in constant time. Only accessed on the wheel thread.
+     */
+    @NotNull
+    private final Timeout[][] buckets = new Timeout[LEVELS][WHEEL_SIZE];
+    /**
+     * Next tick to expire. Only accessed on the wheel thread.
+     */
+    private long nextTick;
+
+    @NotNull
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    @NotNull
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    /**
+     * Number of timeouts which have been scheduled, and have neither expired nor been cancelled.
+     */
+    @NotNull
+    private final AtomicInteger pending = new AtomicInteger();
+    /**
+     * Time between the deadline of each timeout and its task starting to run, in nanoseconds.
+     */
+    @NotNull
+    private final LatencyHistogram lateness = new LatencyHistogram();
+
+    /**
+     * Wheel thread, or {@code null} if ticks are only run by {@link TimingWheel#advance()}.
+     */
+    @Nullable
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a wheel and starts its thread. The thread is a daemon, so that pending timeouts never keep the JVM
+     * alive.
+     *
+     * @param tickMillis Length of a tick, in milliseconds. Timeouts expire up to one tick late.
+     * @param name       Name of the wheel thread.
+     */
+    public TimingWheel(long tickMillis, @NotNull String name) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates a wheel without a thread, whose ticks only run when {@link TimingWheel#advance()} is called. Used by tests
+     * to step through ticks deterministically.
+     *
+     * @param tickMillis Length of a tick, in milliseconds.
+     */
+    TimingWheel(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.thread = null;
+    }
+
+    /**
+     * Schedules a task. May be called from any thread.
+     *
+     * @param delay Time before the task runs.
+     * @param unit  Unit of the delay.
+     * @param task  Task to run on the wheel thread.
+     * @return Handle to cancel the task with.
+     */
+    @NotNull
+    public Timeout schedule(long delay, @NotNull TimeUnit unit, @NotNull Runnable task) {
+        final var timeout = new Timeout(System.nanoTime() + unit.toNanos(Math.max(0, delay)), task);
+        if (closed) {
+            timeout.state.set(CANCELLED);
+            return timeout;
+        }
+        added.offer(timeout);
+        if (pending.getAndIncrement() == 0) {
+            // The wheel thread sleeps indefinitely while nothing is pending
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * @return Number of timeouts which have neither expired nor been cancelled.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * @return Time between the deadline of each timeout and its task starting to run, in nanoseconds.
+     */
+    @NotNull
+    public LatencyHistogram getLateness() {
+        return lateness;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timeouts never run, and timeouts scheduled afterwards are cancelled immediately.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!closed) {
+            if (pending.get() == 0) {
+                // All buckets are empty once the cancelled timeouts are unlinked, so empty ticks can be skipped
+                removeCancelled();
+                LockSupport.park(this);
+                nextTick = Math.max(nextTick, tickOf(System.nanoTime()));
+                continue;
+            }
+
+            final long due = startTime + nextTick * tickNanos;
+            final long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            advance();
+        }
+    }
+
+    /**
+     * Runs the next tick, whether or not it is due. Only called on the wheel thread, or by tests on a wheel without a
+     * thread.
+     */
+    void advance() {
+        addScheduled();
+        removeCancelled();
+        cascade();
+        expire();
+        ++nextTick;
+    }
+
+    /**
+     * @return Next tick to run. Only called on the wheel thread, or by tests on a wheel without a thread.
+     */
+    long getNextTick() {
+        return nextTick;
+    }
+
+    /**
+     * @param time Time as given by {@link System#nanoTime()}.
+     * @return First tick ending at or after the given time.
+     */
+    private long tickOf(long time) {
+        final long elapsed = time - startTime;
+        return elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+    }
+
+    private void addScheduled() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() == PENDING) {
+                timeout.tick = Math.max(nextTick, tickOf(timeout.deadline));
+                insert(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            // Timeouts cancelled before being added are skipped when the queue of added timeouts is drained
+            if (timeout.level != -1) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    /**
+     * Moves the timeouts of the coarser buckets which start at the next tick down to the finer wheels.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; ++level) {
+            final int shift = WHEEL_BITS * level;
+            if ((nextTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            final int index = (int) (nextTick >>> shift) & WHEEL_MASK;
+            var timeout = buckets[level][index];
+            buckets[level][index] = null;
+            while (timeout != null) {
+                final var next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Runs the timeouts of the next tick. All timeouts in its bucket of the finest wheel are due.
+     */
+    private void expire() {
+        final int index = (int) nextTick & WHEEL_MASK;
+        var timeout = buckets[0][index];
+        buckets[0][index] = null;
+        while (timeout != null) {
+            final var next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.level = -1;
+            if (timeout.tick > nextTick) {
+                // Parked in the last bucket because it was further away than all wheels cover
+                if (timeout.state.get() == PENDING) {
+                    insert(timeout);
+                }
+            } else if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                pending.decrementAndGet();
+                lateness.record(System.nanoTime() - timeout.deadline);
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Adds a timeout to the bucket of the finest wheel whose current turn contains its tick.
+     */
+    private void insert(@NotNull Timeout timeout) {
+        final long ticks = Math.min(timeout.tick - nextTick, MAX_TICKS - 1);
+        final long tick = nextTick + ticks;
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (WHEEL_BITS * (level + 1))) {
+            ++level;
+        }
+        final int index = (int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+
+        timeout.level = level;
+        timeout.index = index;
+        timeout.prev = null;
+        timeout.next = buckets[level][index];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[level][index] = timeout;
+    }
+
+    private void unlink(@NotNull Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.level][timeout.index] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+}
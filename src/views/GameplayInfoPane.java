@@ -52,6 +52,7 @@ public class GameplayInfoPane extends BigVBox {
      */
     public void bindTo(StringProperty levelNameProperty, IntegerProperty timerProperty, IntegerProperty numMovesProperty, IntegerProperty numUndoProperty) {
         // TODO
+    	unbind();
     	if (levelNameProperty.get() == null || levelNameProperty.get() == "") {
     		levelNameLabel.textProperty().bind(Bindings.concat("Level: ").concat(levelNameProperty).concat("<Generated>"));
     	} else {
@@ -61,4 +62,15 @@ public class GameplayInfoPane extends BigVBox {
     	numMovesLabel.textProperty().bind(numMovesProperty.asString("Moves: %d"));
     	numUndoLabel.textProperty().bind(numUndoProperty.asString("Undo Count: %d"));
     }
+
+    /**
+     * Unbinds all UI elements from the properties they were bound to, so that the properties no longer refer to this
+     * pane. The labels keep their last values.
+     */
+    public void unbind() {
+        levelNameLabel.textProperty().unbind();
+        timerLabel.textProperty().unbind();
+        numMovesLabel.textProperty().unbind();
+        numUndoLabel.textProperty().unbind();
+    }
 }
@@ -1,17 +1,22 @@
 package views;
 
+import controllers.FrameScheduler;
+import controllers.LevelManager;
+import controllers.LevelValidator;
 import controllers.Renderer;
 import io.Deserializer;
 import io.GameProperties;
 import io.Serializer;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import models.exceptions.InvalidMapException;
-import models.map.Map;
 import models.map.cells.Cell;
 import models.map.cells.FillableCell;
 import models.map.cells.TerminationCell;
@@ -24,36 +29,71 @@ import org.jetbrains.annotations.Nullable;
 import util.Coordinate;
 import util.Direction;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static models.Config.TILE_SIZE;
 
 public class LevelEditorCanvas extends Canvas {
 
-    private static final String MSG_MISSING_SOURCE = "Source tile is missing!";
-    private static final String MSG_MISSING_SINK = "Sink tile is missing!";
-    private static final String MSG_BAD_DIMS = "Map size must be at least 2x2!";
-    private static final String MSG_BAD_DELAY = "Delay must be a positive value!";
-    private static final String MSG_SOURCE_TO_WALL = "Source tile is blocked by a wall!";
-    private static final String MSG_SINK_TO_WALL = "Sink tile is blocked by a wall!";
-
     private GameProperties gameProp;
 
+    /**
+     * Error message of the map being edited, or {@code null} if it is valid. Updated in the background as the map is
+     * edited.
+     */
+    private final ReadOnlyStringWrapper errorMessage = new ReadOnlyStringWrapper();
+    @NotNull
+    private final LevelValidator validator = new LevelValidator(result -> errorMessage.set(result.orElse(null)));
+
     @Nullable
     private TerminationCell sourceCell;
     @Nullable
     private TerminationCell sinkCell;
 
+    /**
+     * Repaints the tiles changed by edits once per frame. Only runs while a repaint is pending, so an idle editor does
+     * not request any pulses.
+     */
+    @NotNull
+    private final FrameScheduler frameScheduler = new FrameScheduler();
+    /**
+     * Indices ({@code row * cols + col}) of the tiles changed since the last repaint.
+     */
+    @NotNull
+    private final BitSet dirtyTiles = new BitSet();
+    /**
+     * Whether the whole map needs to be repainted.
+     */
+    private boolean repaintAll = true;
+    /**
+     * Cells set since the validator was last notified.
+     */
+    @NotNull
+    private final List<Cell> pendingEdits = new ArrayList<>();
+
+    /**
+     * Tool of the stroke in progress, or {@code null} if no stroke is in progress.
+     */
+    @Nullable
+    private Tool strokeTool = null;
+    @Nullable
+    private CellSelection strokeSelection = null;
+    /**
+     * Tile where the stroke in progress started (for {@link Tool#RECTANGLE}) or was last painted (for
+     * {@link Tool#BRUSH}).
+     */
+    private int strokeRow;
+    private int strokeCol;
+
     public LevelEditorCanvas(int rows, int cols, int delay) {
         super();
 
@@ -84,6 +124,10 @@ public class LevelEditorCanvas extends Canvas {
         // TODO
     	
     	gameProp = new GameProperties(rows, cols);
+    	sourceCell = null;
+    	sinkCell = null;
+    	strokeTool = null;
+    	pendingEdits.clear();
     	setAmountOfDelay(delay);
     	this.setWidth(32 * cols);
     	this.setHeight(32 * rows);
@@ -97,14 +141,44 @@ public class LevelEditorCanvas extends Canvas {
     			}
     		}
     	}
+    	validator.reset(gameProp.cells, delay);
     	renderCanvas();
     }
 
     /**
-     * Renders the canvas.
+     * Renders the whole canvas in the next frame.
      */
     private void renderCanvas() {
-        Platform.runLater(() -> Renderer.renderMap(this, gameProp.cells));
+        repaintAll = true;
+        dirtyTiles.clear();
+        requestRepaint();
+    }
+
+    /**
+     * Requests the tiles changed since the last repaint to be drawn in the next frame.
+     */
+    private void requestRepaint() {
+        frameScheduler.start();
+        frameScheduler.request(this, this::repaint);
+    }
+
+    private void repaint() {
+        frameScheduler.stop();
+        Renderer.renderCells(this, gameProp.cells, repaintAll ? null : dirtyTiles, this::renderCanvas);
+        repaintAll = false;
+        dirtyTiles.clear();
+    }
+
+    /**
+     * Sends all cells set since the last call to the validator, and repaints them in the next frame.
+     */
+    private void commitEdits() {
+        if (pendingEdits.isEmpty()) {
+            return;
+        }
+        validator.setCells(new ArrayList<>(pendingEdits));
+        pendingEdits.clear();
+        requestRepaint();
     }
 
     /**
@@ -125,47 +199,220 @@ public class LevelEditorCanvas extends Canvas {
     	int sel_col = (int) (x / 32);
     	int sel_row = (int) (y / 32);
     	
-    	if ("Wall" == sel.toString()) {
-    		gameProp.cells[sel_row][sel_col] = new Wall(new Coordinate(sel_row, sel_col));
-    		if (sourceCell != null && sourceCell.coord.row == sel_row && sourceCell.coord.col == sel_col) {
-    			sourceCell = null;
-    		}
-    		if (sinkCell != null && sinkCell.coord.row == sel_row && sinkCell.coord.col == sel_col) {
-    			sinkCell = null;
-    		}
-    	} else if ("Cell" == sel.toString()) {
-    		gameProp.cells[sel_row][sel_col] = new FillableCell(new Coordinate(sel_row, sel_col));
-    		if (sourceCell != null && sourceCell.coord.row == sel_row && sourceCell.coord.col == sel_col) {
-    			sourceCell = null;
-    		}
-    		if (sinkCell != null && sinkCell.coord.row == sel_row && sinkCell.coord.col == sel_col) {
-    			sinkCell = null;
-    		}
+    	if (!isInMap(sel_row, sel_col)) {
+    		return;
+    	}
+    	
+    	if ("Wall" == sel.toString() || "Cell" == sel.toString()) {
+    		paintTile(sel, sel_row, sel_col);
     	} else if ("Source/Sink" == sel.toString()) {
     		if (sel_row == 0 && sinkCell == null) {
-    			sinkCell = new TerminationCell(new Coordinate(sel_row, sel_col),
-    					Direction.UP, TerminationCell.Type.SINK);
-    			gameProp.cells[sel_row][sel_col] = sinkCell;
+    			setTileByMapCoord(new TerminationCell(new Coordinate(sel_row, sel_col),
+    					Direction.UP, TerminationCell.Type.SINK));
     		} else if (sel_row == gameProp.rows - 1 && sinkCell == null) {
-    			sinkCell = new TerminationCell(new Coordinate(sel_row, sel_col),
-    					Direction.DOWN, TerminationCell.Type.SINK);
-    			gameProp.cells[sel_row][sel_col] = sinkCell;
+    			setTileByMapCoord(new TerminationCell(new Coordinate(sel_row, sel_col),
+    					Direction.DOWN, TerminationCell.Type.SINK));
     		} else if (sel_col == 0 && sinkCell == null) {
-    			sinkCell = new TerminationCell(new Coordinate(sel_row, sel_col),
-    					Direction.LEFT, TerminationCell.Type.SINK);
-    			gameProp.cells[sel_row][sel_col] = sinkCell;
+    			setTileByMapCoord(new TerminationCell(new Coordinate(sel_row, sel_col),
+    					Direction.LEFT, TerminationCell.Type.SINK));
     		} else if (sel_col == gameProp.cols - 1 && sinkCell == null) {
-    			sinkCell = new TerminationCell(new Coordinate(sel_row, sel_col),
-    					Direction.RIGHT, TerminationCell.Type.SINK);
-    			gameProp.cells[sel_row][sel_col] = sinkCell;
+    			setTileByMapCoord(new TerminationCell(new Coordinate(sel_row, sel_col),
+    					Direction.RIGHT, TerminationCell.Type.SINK));
     		}
     		else if (sourceCell == null) {
-    			sourceCell = new TerminationCell(new Coordinate(sel_row, sel_col), 
-    					Direction.UP, models.map.cells.TerminationCell.Type.SOURCE);    			
-    			gameProp.cells[sel_row][sel_col] = sourceCell;
+    			setTileByMapCoord(new TerminationCell(new Coordinate(sel_row, sel_col), 
+    					Direction.UP, models.map.cells.TerminationCell.Type.SOURCE));
     		}    		
     	}
-    	renderCanvas();
+    	commitEdits();
+    }
+
+    /**
+     * Starts a stroke of a tool at a position on the canvas.
+     *
+     * <p>
+     * Source and sink tiles are always placed one at a time, as with {@link LevelEditorCanvas#setTile}.
+     * </p>
+     *
+     * @param tool Tool to use.
+     * @param sel  Selected {@link CellSelection}.
+     * @param x    X-coordinate relative to the canvas.
+     * @param y    Y-coordinate relative to the canvas.
+     */
+    public void beginStroke(@NotNull Tool tool, @Nullable CellSelection sel, double x, double y) {
+        strokeTool = null;
+        if (sel == null) {
+            return;
+        }
+        if (sel == CellSelection.TERMINATION_CELL) {
+            setTile(sel, x, y);
+            return;
+        }
+
+        final int row = toRow(y);
+        final int col = toCol(x);
+        if (!isInMap(row, col)) {
+            return;
+        }
+
+        switch (tool) {
+            case BRUSH:
+                paintTile(sel, row, col);
+                commitEdits();
+                break;
+            case RECTANGLE:
+                break;
+            case FILL:
+                floodFill(sel, row, col);
+                commitEdits();
+                return;
+            default:
+                throw new IllegalArgumentException("Unexpected value: " + tool);
+        }
+        strokeTool = tool;
+        strokeSelection = sel;
+        strokeRow = row;
+        strokeCol = col;
+    }
+
+    /**
+     * Continues the stroke in progress to a position on the canvas. The brush paints every tile on the line from the
+     * last position, so fast drags leave no gaps.
+     *
+     * @param x X-coordinate relative to the canvas.
+     * @param y Y-coordinate relative to the canvas.
+     */
+    public void continueStroke(double x, double y) {
+        if (strokeTool != Tool.BRUSH || strokeSelection == null) {
+            return;
+        }
+
+        final int row = toRow(y);
+        final int col = toCol(x);
+        if (row == strokeRow && col == strokeCol) {
+            return;
+        }
+        paintLine(strokeSelection, strokeRow, strokeCol, row, col);
+        strokeRow = row;
+        strokeCol = col;
+        commitEdits();
+    }
+
+    /**
+     * Ends the stroke in progress at a position on the canvas. A rectangle is filled from the position the stroke
+     * started at to this position.
+     *
+     * @param x X-coordinate relative to the canvas.
+     * @param y Y-coordinate relative to the canvas.
+     */
+    public void endStroke(double x, double y) {
+        if (strokeTool == Tool.RECTANGLE && strokeSelection != null) {
+            final int row = Math.max(0, Math.min(gameProp.rows - 1, toRow(y)));
+            final int col = Math.max(0, Math.min(gameProp.cols - 1, toCol(x)));
+            for (int r = Math.min(strokeRow, row); r <= Math.max(strokeRow, row); ++r) {
+                for (int c = Math.min(strokeCol, col); c <= Math.max(strokeCol, col); ++c) {
+                    paintTile(strokeSelection, r, c);
+                }
+            }
+            commitEdits();
+        } else if (strokeTool == Tool.BRUSH) {
+            continueStroke(x, y);
+        }
+        strokeTool = null;
+        strokeSelection = null;
+    }
+
+    /**
+     * Paints every tile on a line between two tiles, using Bresenham's algorithm. Tiles outside of the map are skipped.
+     */
+    private void paintLine(@NotNull CellSelection sel, int fromRow, int fromCol, int toRow, int toCol) {
+        final int dRow = Math.abs(toRow - fromRow);
+        final int dCol = Math.abs(toCol - fromCol);
+        final int stepRow = fromRow < toRow ? 1 : -1;
+        final int stepCol = fromCol < toCol ? 1 : -1;
+        int err = dCol - dRow;
+        int row = fromRow;
+        int col = fromCol;
+        while (true) {
+            if (isInMap(row, col)) {
+                paintTile(sel, row, col);
+            }
+            if (row == toRow && col == toCol) {
+                return;
+            }
+            final int err2 = 2 * err;
+            if (err2 > -dRow) {
+                err -= dRow;
+                col += stepCol;
+            }
+            if (err2 < dCol) {
+                err += dCol;
+                row += stepRow;
+            }
+        }
+    }
+
+    /**
+     * Replaces the 4-connected region of walls or cells containing a tile with the selected kind of tile. Source and
+     * sink tiles bound the region and are never replaced.
+     */
+    private void floodFill(@NotNull CellSelection sel, int row, int col) {
+        final var target = gameProp.cells[row][col];
+        if (target instanceof TerminationCell || isSelection(target, sel)) {
+            return;
+        }
+
+        final var targetClass = target.getClass();
+        final var queue = new int[gameProp.rows * gameProp.cols];
+        final var visited = new BitSet(queue.length);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = row * gameProp.cols + col;
+        visited.set(row * gameProp.cols + col);
+        while (head < tail) {
+            final int index = queue[head++];
+            final int r = index / gameProp.cols;
+            final int c = index % gameProp.cols;
+            paintTile(sel, r, c);
+
+            for (var dir : Direction.values()) {
+                final int nr = r + dir.getOffset().row;
+                final int nc = c + dir.getOffset().col;
+                final int next = nr * gameProp.cols + nc;
+                if (isInMap(nr, nc) && !visited.get(next) && gameProp.cells[nr][nc].getClass() == targetClass) {
+                    visited.set(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a tile to a wall or a cell, unless it already is one.
+     */
+    private void paintTile(@NotNull CellSelection sel, int row, int col) {
+        if (isSelection(gameProp.cells[row][col], sel)) {
+            return;
+        }
+        final var coord = new Coordinate(row, col);
+        setTileByMapCoord(sel == CellSelection.WALL ? new Wall(coord) : new FillableCell(coord));
+    }
+
+    private static boolean isSelection(@NotNull Cell cell, @NotNull CellSelection sel) {
+        return sel == CellSelection.WALL && cell instanceof Wall
+                || sel == CellSelection.CELL && cell instanceof FillableCell;
+    }
+
+    private int toRow(double y) {
+        return (int) Math.floor(y / TILE_SIZE);
+    }
+
+    private int toCol(double x) {
+        return (int) Math.floor(x / TILE_SIZE);
+    }
+
+    private boolean isInMap(int row, int col) {
+        return row >= 0 && row < gameProp.rows && col >= 0 && col < gameProp.cols;
     }
 
     /**
@@ -178,6 +425,34 @@ public class LevelEditorCanvas extends Canvas {
      */
     private void setTileByMapCoord(@NotNull Cell cell) {
         // TODO
+    	final int row = cell.coord.row;
+    	final int col = cell.coord.col;
+    	
+    	if (sourceCell != null && sourceCell.coord.equals(cell.coord)) {
+    		sourceCell = null;
+    	}
+    	if (sinkCell != null && sinkCell.coord.equals(cell.coord)) {
+    		sinkCell = null;
+    	}
+    	
+    	if (cell instanceof TerminationCell) {
+    		final var tCell = (TerminationCell) cell;
+    		if (tCell.type == Type.SOURCE) {
+    			if (sourceCell != null) {
+    				setTileByMapCoord(new FillableCell(sourceCell.coord));
+    			}
+    			sourceCell = tCell;
+    		} else {
+    			if (sinkCell != null) {
+    				setTileByMapCoord(new Wall(sinkCell.coord));
+    			}
+    			sinkCell = tCell;
+    		}
+    	}
+    	
+    	gameProp.cells[row][col] = cell;
+    	pendingEdits.add(cell);
+    	dirtyTiles.set(row * gameProp.cols + col);
     }
 
     /**
@@ -188,28 +463,29 @@ public class LevelEditorCanvas extends Canvas {
     	if (sourceCell == null)
     		return;
     	
+    	TerminationCell rotated;
     	switch (sourceCell.pointingTo) {
 		case UP:
-			sourceCell = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
+			rotated = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
 					Direction.RIGHT, TerminationCell.Type.SOURCE);
 			break;
 		case RIGHT:
-			sourceCell = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
+			rotated = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
 					Direction.DOWN, TerminationCell.Type.SOURCE);
 			break;
 		case DOWN:
-			sourceCell = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
+			rotated = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
 					Direction.LEFT, TerminationCell.Type.SOURCE);
 			break;
 		case LEFT:
-			sourceCell = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
+			rotated = new TerminationCell(new Coordinate(sourceCell.coord.row, sourceCell.coord.col), 
 					Direction.UP, TerminationCell.Type.SOURCE);
 			break;
 		default:
 			throw new IllegalArgumentException("Unexpected value: " + sourceCell.pointingTo);
 		}
-    	gameProp.cells[sourceCell.coord.row][sourceCell.coord.col] = sourceCell;
-    	renderCanvas();
+    	setTileByMapCoord(rotated);
+    	commitEdits();
     }
 
     /**
@@ -261,51 +537,23 @@ public class LevelEditorCanvas extends Canvas {
     private boolean loadFromFile(@NotNull Path path) {
         // TODO
     	try {
-    		BufferedReader in = new BufferedReader(
-    		           new InputStreamReader(new FileInputStream(path.toFile()), "UTF-8"));
+    		GameProperties loaded = new Deserializer(path).parseGameFile();
     		
-    		String str;
-    		int rd_rows = 0;
-    		int rd_cols = 0;
-    		int rd_delay = 0;
-    		while ((str = in.readLine()) != null) {
-                if (str.equals("# rows")) {
-                	rd_rows = Integer.parseInt(in.readLine());
-                	System.out.print("row " + rd_rows);
-                } else if (str.equals("# cols")) {
-                	rd_cols = Integer.parseInt(in.readLine());
-                	System.out.print("col " + rd_cols);
-                } else if (str.equals("# delay before first flow")) {
-                	rd_delay = Integer.parseInt(in.readLine());
-                	System.out.print("delay " + rd_delay);
-                } else if (str.equals("# map")) {
-                	resetMap(rd_rows, rd_cols, rd_delay);
-                	
-                	for (int i = 0; i < rd_rows; ++i) {
-                		str = in.readLine();
-                		for (int j = 0; j < rd_cols; ++j) {
-                			TerminationCell.Type type = null;
-                			if (str.charAt(j) != 'W' && str.charAt(j) != '.') {
-                				if (i == 0 || i == rd_rows -1 || j == 0 || j == rd_cols - 1) {
-                					type = TerminationCell.Type.SINK;
-                				} else {
-                					type = TerminationCell.Type.SOURCE;
-                				}
-                			}
-                			gameProp.cells[i][j] = Cell.fromChar(str.charAt(j), new Coordinate(i, j), type);
-                			if (str.charAt(j) != 'W' && str.charAt(j) != '.') {
-                				if (i == 0 || i == rd_rows -1 || j == 0 || j == rd_cols - 1) {
-                					sinkCell = (@Nullable TerminationCell) gameProp.cells[i][j];
-                				} else {
-                					sourceCell = (@Nullable TerminationCell) gameProp.cells[i][j];
-                				}
-                			}
-                		}
-                	}
-                }
-            }
-            in.close();    
+    		resetMap(loaded.rows, loaded.cols, loaded.delay);
+    		gameProp = loaded;
+    		for (Cell[] row : gameProp.cells) {
+    			for (Cell cell : row) {
+    				if (cell instanceof TerminationCell) {
+    					if (((TerminationCell) cell).type == Type.SOURCE) {
+    						sourceCell = (TerminationCell) cell;
+    					} else {
+    						sinkCell = (TerminationCell) cell;
+    					}
+    				}
+    			}
+    		}
             
+            validator.reset(gameProp.cells, gameProp.delay);
             renderCanvas();
             
             return true;
@@ -320,16 +568,17 @@ public class LevelEditorCanvas extends Canvas {
      */
     public void saveToFile() {
         // TODO
-    	Optional<String> map_valid;
-    	if ((map_valid = checkValidity()) != null) {
-    		System.out.println(map_valid);
-    		return;
-    	}
-    	File file = getTargetSaveDirectory();
-    	
-    	if (file != null) {
-    		exportToFile(file.toPath());
-    	}
+    	checkValidity().thenAccept(map_valid -> Platform.runLater(() -> {
+    		if (map_valid.isPresent()) {
+    			showSaveError(map_valid.get());
+    			return;
+    		}
+    		File file = getTargetSaveDirectory();
+    		
+    		if (file != null) {
+    			exportToFile(file.toPath());
+    		}
+    	}));
     }
 
     /**
@@ -355,6 +604,9 @@ public class LevelEditorCanvas extends Canvas {
     /**
      * Exports the current map to a file.
      * <p>
+     * The map is copied and saved in the background by {@link LevelManager#saveLevel(Path, GameProperties)}, so the
+     * map can be edited further while it is being written.
+     * <p>
      * Hint:
      * You should handle any exceptions which arise from saving in this method.
      *
@@ -362,31 +614,32 @@ public class LevelEditorCanvas extends Canvas {
      */
     private void exportToFile(@NotNull Path p) {
         // TODO
-    	try {
-    		PrintWriter writer;
-    		writer = new PrintWriter(p.toFile(), StandardCharsets.UTF_8);
-    		
-    		writer.println("# rows");
-    		writer.println(gameProp.rows + "\n");
-    		
-    		writer.println("# cols");
-    		writer.println(gameProp.cols + "\n");
-    		
-    		writer.println("# delay before first flow");
-    		writer.println(gameProp.delay + "\n");
-    		
-    		writer.println("# map");
-    		for (int row = 0; row < gameProp.cells.length; ++row) {
-    			for (int col = 0; col < gameProp.cells[row].length; ++col) {
-    				writer.print(gameProp.cells[row][col].toSerializedRep());
-    			}
-    			writer.println();
-    		}
-    		
-    		writer.close();
-    	} catch(IOException e) {
-    		e.printStackTrace();
+    	Cell[][] cells = new Cell[gameProp.rows][];
+    	for (int row = 0; row < gameProp.rows; ++row) {
+    		cells[row] = gameProp.cells[row].clone();
     	}
+    	GameProperties copy = new GameProperties(gameProp.rows, gameProp.cols, cells, gameProp.delay,
+    			gameProp.pipes == null ? null : List.copyOf(gameProp.pipes));
+    	
+    	LevelManager.getInstance().saveLevel(p, copy).whenComplete((v, e) -> {
+    		if (e != null) {
+    			final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    			Platform.runLater(() -> showSaveError("Cannot write " + p.getFileName() + ": " + cause.getMessage()));
+    		}
+    	});
+    }
+
+    /**
+     * Tells the player that the map has not been saved. Must be called on the FX thread.
+     *
+     * @param message Reason the map has not been saved.
+     */
+    private void showSaveError(@NotNull String message) {
+    	Alert alert = new Alert(AlertType.WARNING);
+    	alert.setTitle("Error");
+    	alert.setHeaderText("Cannot Save Map");
+    	alert.setContentText(message);
+    	alert.showAndWait();
     }
 
     /**
@@ -400,34 +653,23 @@ public class LevelEditorCanvas extends Canvas {
      * <li>Minimum map size is 2x2</li>
      * <li>Flow delay is at least 1</li>
      * <li>Source/Sink tiles are not blocked by walls</li>
+     * <li>Sink is reachable from the source</li>
      * </ul>
+     * The checks are made by the {@link LevelValidator}, which keeps them up to date as the map is edited.
      *
-     * @return {@link Optional} containing the error message, or an empty {@link Optional} if the map is valid.
+     * @return A future completing with an {@link Optional} containing the error message, or an empty {@link Optional}
+     * if the map is valid, once all edits made so far have been validated.
      */
-    private Optional<String> checkValidity() {
+    private CompletableFuture<Optional<String>> checkValidity() {
         // TODO
-    	
-    	if (sourceCell == null) {
-    		return Optional.of("Source does't exist on the map.");
-    	}
-    	if (sinkCell == null) {
-    		return Optional.of("Sink doesn't exist on the map.");    		
-    	}
-    	if (gameProp.rows < 2) {
-    		return Optional.of("Less than 2 rows");
-    	}
-    	if (gameProp.cols < 2) {
-    		return Optional.of("Less than 2 cols");
-    	}
-    	if (gameProp.delay < 1) {
-    		return Optional.of("Flow delay must be at least 1");
-    	}
-    	
-    	Map temp = new Map(gameProp.rows, gameProp.cols, gameProp.cells);
-    	if (!temp.checkReachable()) {
-    		return Optional.of("Source is blocked by wall");
-    	}
-		return null;    
+    	return validator.validate();
+    }
+
+    /**
+     * @return Property holding the error message of the map being edited, or {@code null} if the map is valid.
+     */
+    public ReadOnlyStringProperty errorMessageProperty() {
+        return errorMessage.getReadOnlyProperty();
     }
 
     public int getNumOfRows() {
@@ -444,6 +686,36 @@ public class LevelEditorCanvas extends Canvas {
 
     public void setAmountOfDelay(int delay) {
         gameProp.delay = delay;
+        validator.setDelay(delay);
+    }
+
+    /**
+     * Tools for painting walls and cells.
+     */
+    public enum Tool {
+        /**
+         * Paints every tile the mouse is dragged over.
+         */
+        BRUSH("Brush"),
+        /**
+         * Fills the rectangle between where the mouse is pressed and released.
+         */
+        RECTANGLE("Rectangle"),
+        /**
+         * Replaces the connected region of walls or cells which is clicked.
+         */
+        FILL("Flood Fill");
+
+        private String text;
+
+        Tool(@NotNull String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
     }
 
     public enum CellSelection {
@@ -0,0 +1,417 @@
+package views;
+
+import controllers.Renderer;
+import controllers.StaticLayerCache;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Affine;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.Coordinate;
+import util.Direction;
+
+import static models.Config.TILE_SIZE;
+
+/**
+ * Scrollable and zoomable view of a map.
+ *
+ * <p>
+ * The backing canvas is only as large as the viewport itself, and only the tiles within the visible range are drawn,
+ * so the cost of the view does not depend on the size of the map. Scroll to pan, hold Ctrl while scrolling to zoom, or
+ * drag with the secondary or middle mouse button to pan.
+ * </p>
+ * <p>
+ * The view is drawn in two layers. The static layer (walls, empty tiles and unfilled termination cells) is blitted
+ * from a {@link StaticLayerCache} and is only redrawn when the view is panned, zoomed or resized. The dynamic layer on
+ * top holds the placed pipes and filled cells, so the cost of a repaint depends on the number of placed pipes rather
+ * than the area of the board.
+ * </p>
+ * <p>
+ * A third layer on top of both holds the hint, if any, and is only redrawn when the hint changes or the view moves.
+ * </p>
+ */
+public class MapViewport extends Region {
+
+    private static final double MIN_SCALE = 0.125;
+    private static final double MAX_SCALE = 4;
+    private static final double ZOOM_STEP = 1.1;
+
+    /**
+     * Canvas holding the static layer.
+     */
+    @NotNull
+    private final Canvas staticCanvas = new Canvas();
+    /**
+     * Canvas holding the dynamic layer, transparent except where dynamic cells are drawn.
+     */
+    @NotNull
+    private final Canvas canvas = new Canvas();
+    /**
+     * Canvas holding the hint layer.
+     */
+    @NotNull
+    private final Canvas hintCanvas = new Canvas();
+
+    /**
+     * Snapshot to display.
+     */
+    @Nullable
+    private MapSnapshot snapshot;
+    /**
+     * Snapshot currently drawn on the canvas, or {@code null} if the canvas needs a full redraw.
+     */
+    @Nullable
+    private MapSnapshot drawn;
+    /**
+     * Static layer of the displayed map.
+     */
+    @Nullable
+    private StaticLayerCache staticLayer;
+
+    /**
+     * Tile to suggest placing the current pipe on, or {@code null} if there is no hint.
+     */
+    @Nullable
+    private Coordinate hint;
+    /**
+     * Shape of the suggested pipe.
+     */
+    @Nullable
+    private Pipe.Shape hintShape;
+
+    /**
+     * Scale of the map, where 1 draws each tile {@code TILE_SIZE} pixels wide.
+     */
+    private double scale = 1;
+    /**
+     * Map-space coordinates of the top-left corner of the viewport.
+     */
+    private double offsetX = 0;
+    private double offsetY = 0;
+
+    private double dragX;
+    private double dragY;
+
+    public MapViewport() {
+        getChildren().addAll(staticCanvas, canvas, hintCanvas);
+        setMinSize(0, 0);
+
+        final var clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+
+        addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        addEventHandler(MouseEvent.MOUSE_PRESSED, e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onDrag);
+    }
+
+    /**
+     * Displays a snapshot of a map.
+     *
+     * <p>
+     * If the snapshot is a newer version of the map currently displayed, only visible cells which changed are redrawn.
+     * Otherwise, the view is reset to show the map from its top-left corner, shrinking it if needed to fit the
+     * viewport.
+     * </p>
+     *
+     * @param snapshot Snapshot to display.
+     */
+    public void render(@NotNull MapSnapshot snapshot) {
+        if (this.snapshot == null || !snapshot.isSameMapAs(this.snapshot)) {
+            setPrefSize(TILE_SIZE * snapshot.cols, TILE_SIZE * snapshot.rows);
+            setMaxSize(TILE_SIZE * snapshot.cols, TILE_SIZE * snapshot.rows);
+            this.snapshot = snapshot;
+            drawn = null;
+            if (staticLayer != null) {
+                staticLayer.dispose();
+            }
+            staticLayer = new StaticLayerCache(snapshot, this::redraw);
+            resetView();
+        } else {
+            this.snapshot = snapshot;
+        }
+        draw();
+    }
+
+    /**
+     * Removes the displayed map.
+     */
+    public void clear() {
+        snapshot = null;
+        drawn = null;
+        if (staticLayer != null) {
+            staticLayer.dispose();
+            staticLayer = null;
+        }
+        hint = null;
+        hintShape = null;
+        setPrefSize(0, 0);
+        clearCanvas(staticCanvas);
+        clearCanvas(canvas);
+        clearCanvas(hintCanvas);
+    }
+
+    /**
+     * Displays a hint on top of the map, replacing the previous hint.
+     *
+     * @param coord Tile to suggest placing a pipe on, or {@code null} to remove the hint.
+     * @param shape Shape of the suggested pipe. Ignored if {@code coord} is {@code null}.
+     */
+    public void setHint(@Nullable Coordinate coord, @Nullable Pipe.Shape shape) {
+        hint = shape == null ? null : coord;
+        hintShape = shape;
+        drawHint();
+    }
+
+    /**
+     * Draws a tile which the water is flowing into, if it is visible.
+     *
+     * @param code     Encoded cell.
+     * @param row      Row of the tile.
+     * @param col      Column of the tile.
+     * @param flow     Direction in which the water is flowing through the tile.
+     * @param progress Fraction of the tile which has been filled.
+     * @see Renderer#renderPartialFill(javafx.scene.canvas.Canvas, byte, int, int, Direction, double)
+     */
+    public void renderPartialFill(byte code, int row, int col, @NotNull Direction flow, double progress) {
+        if (row < firstVisibleRow() || row >= endVisibleRow() || col < firstVisibleCol() || col >= endVisibleCol()) {
+            return;
+        }
+        Renderer.renderPartialFill(canvas, code, row, col, flow, progress, getViewTransform());
+    }
+
+    /**
+     * Maps a point in the viewport to the tile under it.
+     *
+     * @param x X-coordinate relative to the viewport.
+     * @param y Y-coordinate relative to the viewport.
+     * @return Coordinate of the tile, or {@code null} if no map is displayed or the point is outside the map.
+     */
+    @Nullable
+    public Coordinate toCoordinate(double x, double y) {
+        if (snapshot == null) {
+            return null;
+        }
+
+        final int col = (int) Math.floor((x / scale + offsetX) / TILE_SIZE);
+        final int row = (int) Math.floor((y / scale + offsetY) / TILE_SIZE);
+        if (row < 0 || row >= snapshot.rows || col < 0 || col >= snapshot.cols) {
+            return null;
+        }
+        return new Coordinate(row, col);
+    }
+
+    /**
+     * @return Transform from map space to viewport space.
+     */
+    @NotNull
+    private Affine getViewTransform() {
+        return new Affine(scale, 0, -offsetX * scale, 0, scale, -offsetY * scale);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        final double width = Math.floor(getWidth());
+        final double height = Math.floor(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            staticCanvas.setWidth(width);
+            staticCanvas.setHeight(height);
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            hintCanvas.setWidth(width);
+            hintCanvas.setHeight(height);
+            clampOffsets();
+            redraw();
+        }
+    }
+
+    private void onScroll(@NotNull ScrollEvent e) {
+        if (snapshot == null) {
+            return;
+        }
+
+        if (e.isControlDown()) {
+            final double factor = e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP;
+            zoom(factor, e.getX(), e.getY());
+        } else {
+            pan(-e.getDeltaX(), -e.getDeltaY());
+        }
+        e.consume();
+    }
+
+    private void onDrag(@NotNull MouseEvent e) {
+        if (e.getButton() == MouseButton.PRIMARY) {
+            return;
+        }
+
+        pan(dragX - e.getX(), dragY - e.getY());
+        dragX = e.getX();
+        dragY = e.getY();
+        e.consume();
+    }
+
+    /**
+     * Moves the viewport.
+     *
+     * @param dx Distance to move right, in viewport pixels.
+     * @param dy Distance to move down, in viewport pixels.
+     */
+    private void pan(double dx, double dy) {
+        offsetX += dx / scale;
+        offsetY += dy / scale;
+        clampOffsets();
+        redraw();
+    }
+
+    /**
+     * Zooms the map, keeping the map point under a pivot fixed.
+     *
+     * @param factor Factor to multiply the scale by.
+     * @param pivotX X-coordinate of the pivot, relative to the viewport.
+     * @param pivotY Y-coordinate of the pivot, relative to the viewport.
+     */
+    private void zoom(double factor, double pivotX, double pivotY) {
+        final double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        offsetX += pivotX / scale - pivotX / newScale;
+        offsetY += pivotY / scale - pivotY / newScale;
+        scale = newScale;
+        clampOffsets();
+        redraw();
+    }
+
+    private void resetView() {
+        offsetX = 0;
+        offsetY = 0;
+        scale = 1;
+    }
+
+    /**
+     * Keeps the viewport within the bounds of the map.
+     */
+    private void clampOffsets() {
+        if (snapshot == null) {
+            return;
+        }
+        final double maxX = Math.max(0, TILE_SIZE * snapshot.cols - canvas.getWidth() / scale);
+        final double maxY = Math.max(0, TILE_SIZE * snapshot.rows - canvas.getHeight() / scale);
+        offsetX = Math.max(0, Math.min(maxX, offsetX));
+        offsetY = Math.max(0, Math.min(maxY, offsetY));
+    }
+
+    /**
+     * Draws the visible range of the current snapshot.
+     *
+     * <p>
+     * If {@link MapViewport#drawn} is {@code null}, both layers are redrawn; otherwise only the dynamic cells which
+     * changed since are redrawn.
+     * </p>
+     */
+    private void draw() {
+        final var current = snapshot;
+        final var layer = staticLayer;
+        if (current == null || layer == null || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        if (drawn == current) {
+            return;
+        }
+
+        final var previous = drawn != null && drawn.isSameMapAs(current) ? drawn : null;
+        if (previous == null) {
+            drawStaticLayer(layer);
+            clearCanvas(canvas);
+        }
+
+        Renderer.renderDynamicCells(canvas, current, previous, getViewTransform(),
+                firstVisibleRow(), endVisibleRow(), firstVisibleCol(), endVisibleCol(), this::redraw);
+        drawn = current;
+    }
+
+    /**
+     * Redraws both layers.
+     */
+    private void redraw() {
+        drawn = null;
+        draw();
+        drawHint();
+    }
+
+    /**
+     * Redraws the hint layer.
+     */
+    private void drawHint() {
+        clearCanvas(hintCanvas);
+        final var coord = hint;
+        final var shape = hintShape;
+        if (snapshot == null || coord == null || shape == null
+                || coord.row >= snapshot.rows || coord.col >= snapshot.cols) {
+            return;
+        }
+        Renderer.renderHint(hintCanvas, coord.row, coord.col, shape, getViewTransform(), this::drawHint);
+    }
+
+    /**
+     * Blits the visible chunks of the static layer. Chunks which are still being rasterised are left blank until the
+     * layer calls back.
+     *
+     * @param layer Static layer of the current snapshot.
+     */
+    private void drawStaticLayer(@NotNull StaticLayerCache layer) {
+        final var current = snapshot;
+        if (current == null) {
+            return;
+        }
+
+        clearCanvas(staticCanvas);
+        final var gc = staticCanvas.getGraphicsContext2D();
+        final var view = getViewTransform();
+        final double chunkScale = StaticLayerCache.chunkScale(scale);
+
+        final int endChunkRow = Math.min(endVisibleRow(), current.rows);
+        final int endChunkCol = Math.min(endVisibleCol(), current.cols);
+        for (int chunkRow = firstVisibleRow() / StaticLayerCache.CHUNK_TILES;
+             chunkRow * StaticLayerCache.CHUNK_TILES < endChunkRow; ++chunkRow) {
+            for (int chunkCol = firstVisibleCol() / StaticLayerCache.CHUNK_TILES;
+                 chunkCol * StaticLayerCache.CHUNK_TILES < endChunkCol; ++chunkCol) {
+                final var chunk = layer.getChunk(chunkRow, chunkCol, scale);
+                if (chunk != null) {
+                    gc.setTransform(view);
+                    gc.drawImage(chunk, chunkCol * StaticLayerCache.CHUNK_SIZE, chunkRow * StaticLayerCache.CHUNK_SIZE,
+                            chunk.getWidth() / chunkScale, chunk.getHeight() / chunkScale);
+                }
+            }
+        }
+    }
+
+    private static void clearCanvas(@NotNull Canvas canvas) {
+        final var gc = canvas.getGraphicsContext2D();
+        gc.setTransform(1, 0, 0, 1, 0, 0);
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    private int firstVisibleRow() {
+        return (int) Math.floor(offsetY / TILE_SIZE);
+    }
+
+    private int endVisibleRow() {
+        return (int) Math.ceil((offsetY + canvas.getHeight() / scale) / TILE_SIZE);
+    }
+
+    private int firstVisibleCol() {
+        return (int) Math.floor(offsetX / TILE_SIZE);
+    }
+
+    private int endVisibleCol() {
+        return (int) Math.ceil((offsetX + canvas.getWidth() / scale) / TILE_SIZE);
+    }
+}
@@ -2,11 +2,14 @@ package views.panes;
 
 import controllers.AudioManager;
 import controllers.AudioManager.SoundRes;
+import controllers.FlowAnimator;
+import controllers.FrameScheduler;
+import controllers.HintService;
 import controllers.LevelManager;
 import controllers.Renderer;
 import controllers.ResourceLoader;
 import controllers.SceneManager;
-import io.Deserializer;
+import io.LevelTemplate;
 import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -20,33 +23,40 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBar.ButtonData;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.media.AudioClip;
 import models.FXGame;
-import models.map.cells.Cell;
-import models.map.cells.TerminationCell;
+import models.map.HintSearch;
+import models.map.MapSnapshot;
 import models.pipes.Pipe;
+import models.pipes.Pipe.Shape;
 import util.Coordinate;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import views.BigButton;
 import views.BigVBox;
 import views.GameplayInfoPane;
+import views.MapViewport;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static models.Config.TILE_SIZE;
 
@@ -55,18 +65,60 @@ import static models.Config.TILE_SIZE;
  */
 public class GameplayPane extends GamePane {
 
+    /**
+     * Maximum time spent searching for each hint.
+     */
+    private static final long HINT_BUDGET_MILLIS = 50;
+
     private HBox topBar = new HBox(20);
     private VBox canvasContainer = new BigVBox();
-    private Canvas gameplayCanvas = new Canvas();
+    private MapViewport gameplayView = new MapViewport();
     private HBox bottomBar = new HBox(20);
     private Canvas queueCanvas = new Canvas();
     private Button quitToMenuButton = new BigButton("Quit to menu");
     private Button pauseButton = new BigButton("Pause");
+    private Button restartButton = new BigButton("Restart");
+    private ToggleButton hintButton = new ToggleButton("Hint");
+    private Label hintLabel = new Label();
 
-    private FXGame game;
+    /**
+     * Game being played, or {@code null} if no game is being played.
+     */
+    @Nullable
+    private FXGame game = null;
+    /**
+     * Template of the level being played, or {@code null} if the map was generated.
+     */
+    @Nullable
+    private LevelTemplate template = null;
 
     private final IntegerProperty ticksElapsed = new SimpleIntegerProperty();
+    private final IntegerProperty numOfSteps = new SimpleIntegerProperty();
+    private final IntegerProperty numOfUndo = new SimpleIntegerProperty();
     private GameplayInfoPane infoPane = null;
+
+    /**
+     * Coalesces repaints and info updates of the current game into at most one pass per frame.
+     */
+    private final FrameScheduler frameScheduler = new FrameScheduler();
+    /**
+     * Renders the map of the current game every frame, animating the flow of water.
+     */
+    private FlowAnimator flowAnimator = null;
+
+    /**
+     * Searches for hints for the current game in the background.
+     */
+    private final HintService hintService = new HintService(HINT_BUDGET_MILLIS, this::showHint);
+    /**
+     * Whether hints are shown. Read by the game loop to decide whether to request hints.
+     */
+    private volatile boolean hintsEnabled = false;
+    /**
+     * Whether the displayed hint was cleared, so that the game loop should request a new one even if the game has not
+     * changed.
+     */
+    private volatile boolean hintCleared = false;
     
     public GameplayPane() {
         connectComponents();
@@ -82,12 +134,12 @@ public class GameplayPane extends GamePane {
         // TODO
 //    	this.setTop(topBar);
     	    	
-		game = new FXGame();    	
-    	infoPane = new GameplayInfoPane(LevelManager.getInstance().getCurrentLevelProperty(), ticksElapsed, game.getNumOfSteps(), game.getNumOfUndo());
+    	infoPane = new GameplayInfoPane(LevelManager.getInstance().getCurrentLevelProperty(), ticksElapsed, numOfSteps, numOfUndo);
     	this.setTop(infoPane);
     	
     	this.setCenter(canvasContainer);    	
-    	canvasContainer.getChildren().add(gameplayCanvas);
+    	canvasContainer.getChildren().add(gameplayView);
+    	VBox.setVgrow(gameplayView, Priority.ALWAYS);
     	
     	this.setBottom(bottomBar);
     	queueCanvas.setWidth(256);
@@ -95,6 +147,9 @@ public class GameplayPane extends GamePane {
     	bottomBar.getChildren().add(queueCanvas);
     	bottomBar.getChildren().add(quitToMenuButton);
     	bottomBar.getChildren().add(pauseButton);
+    	bottomBar.getChildren().add(restartButton);
+    	bottomBar.getChildren().add(hintButton);
+    	bottomBar.getChildren().add(hintLabel);
     }
 
     /**
@@ -104,6 +159,7 @@ public class GameplayPane extends GamePane {
     void styleComponents() {
         // TODO
     	bottomBar.setAlignment(Pos.CENTER_LEFT);
+    	hintButton.getStyleClass().add("big-button");
     }
 
     /**
@@ -113,7 +169,7 @@ public class GameplayPane extends GamePane {
     void setCallbacks() {
         // TODO
     	
-    	gameplayCanvas.setOnMouseClicked(e -> {
+    	gameplayView.setOnMouseClicked(e -> {
     		onCanvasClicked(e);
     	});
     	
@@ -126,6 +182,9 @@ public class GameplayPane extends GamePane {
     	});
     	
     	pauseButton.setOnAction(e -> {
+    		if (game == null) {
+    			return;
+    		}
     		if (pauseButton.getText() == "Pause") {
     			pauseButton.setText("Resume");
     			game.pauseGame();
@@ -134,34 +193,129 @@ public class GameplayPane extends GamePane {
     			game.resumeGame();
     		}
     	});
+    	
+    	restartButton.setOnAction(e -> {
+    		restartGame();
+    	});
+    	
+    	hintButton.selectedProperty().addListener((observable, oldValue, selected) -> {
+    		hintsEnabled = selected;
+    		clearHint();
+    		if (selected && game != null) {
+    			hintService.request(game.getMapSnapshot(), game.getQueueSnapshot());
+    		}
+    	});
     }
 
     /**
-     * Handles events when somewhere on the {@link GameplayPane#gameplayCanvas} is clicked.
+     * Handles events when somewhere on the {@link GameplayPane#gameplayView} is clicked.
      *
      * @param event Event to handle.
      */
     private void onCanvasClicked(MouseEvent event) {
         // TODO
-    	if (game.isPaused()) {
+    	if (game == null || game.isPaused() || event.getButton() != MouseButton.PRIMARY || !event.isStillSincePress()) {
     		return;
     	}
     	
-    	int sel_col = (int) (event.getX() / 32);
-    	int sel_row = (int) (event.getY() / 32);
-    	game.placePipe(sel_row, sel_col);
-    	game.renderMap(gameplayCanvas);
-    	game.renderQueue(queueCanvas);
+    	Coordinate selected = gameplayView.toCoordinate(event.getX(), event.getY());
+    	if (selected == null) {
+    		return;
+    	}
+    	clearHint();
+    	game.placePipe(selected.row, selected.col);
     	AudioManager.getInstance().playSound(SoundRes.MOVE);
-    	
-    	if (game.hasWon()) {
-    		game.fillAllPipes();
-    		game.stopCountdown();
-    		createWinPopup();
-    		AudioManager.getInstance().playSound(SoundRes.WIN);
+    }
+
+    /**
+     * Asks the player which pipe to replace a selected pipe with.
+     *
+     * @param game  Game which requested the replacement.
+     * @param coord Coordinate of the pipe to replace.
+     */
+    private void promptReplacement(@NotNull FXGame game, @NotNull Coordinate coord) {
+    	List<String> choices = new ArrayList<>();
+    	choices.add("Top Left");
+    	choices.add("Top Right");
+    	choices.add("Bottom Left");
+    	choices.add("Bottom Right");
+    	choices.add("Horizontal");
+    	choices.add("Vertical");
+    	choices.add("Cross");
+
+    	ChoiceDialog<String> dialog = new ChoiceDialog<>("Top Left", choices);
+    	dialog.setTitle("Choice Dialog");
+    	dialog.setHeaderText("Choose pipe");
+    	dialog.setContentText("Choose pipe type:");
+
+    	Optional<String> result = dialog.showAndWait();
+    	if (result.isEmpty()) {
+    		game.resumeGame();
+    		return;
+    	}
+
+    	Shape shape = Shape.CROSS;
+    	switch (result.get()) {
+    	case "Top Left":
+    		shape = Shape.TOP_LEFT;
+    		break;
+    	case "Top Right":
+    		shape = Shape.TOP_RIGHT;
+    		break;
+    	case "Bottom Left":
+    		shape = Shape.BOTTOM_LEFT;
+    		break;
+    	case "Bottom Right":
+    		shape = Shape.BOTTOM_RIGHT;
+    		break;
+    	case "Horizontal":
+    		shape = Shape.HORIZONTAL;
+    		break;
+    	case "Vertical":
+    		shape = Shape.VERTICAL;
+    		break;
+    	}
+
+    	clearHint();
+    	game.replacePipe(coord.row, coord.col, new Pipe(shape));
+    }
+
+    /**
+     * Displays a hint computed by {@link GameplayPane#hintService}.
+     *
+     * @param hint Hint to display, or {@code null} if no path to the sink was found.
+     */
+    private void showHint(@Nullable HintSearch.Hint hint) {
+    	if (!hintsEnabled) {
+    		return;
+    	}
+    	if (hint == null) {
+    		gameplayView.setHint(null, null);
+    		hintLabel.setText("No hint found");
+    	} else if (hint.coord == null) {
+    		gameplayView.setHint(null, null);
+    		hintLabel.setText(hint.pipesNeeded == 0 ? "" : "Skip this pipe");
+    	} else {
+    		gameplayView.setHint(hint.coord, hint.shape);
+    		hintLabel.setText(hint.pipesNeeded + " pipes to go");
     	}
     }
 
+    /**
+     * Removes the displayed hint, and stops searching for it. The next update of the game requests a new hint.
+     *
+     * <p>
+     * Should be called before a move is submitted to the game, so that the request made after the move is not
+     * cancelled.
+     * </p>
+     */
+    private void clearHint() {
+    	hintCleared = true;
+    	hintService.cancel();
+    	gameplayView.setHint(null, null);
+    	hintLabel.setText("");
+    }
+
     /**
      * Handles events when a key is pressed.
      *
@@ -170,19 +324,18 @@ public class GameplayPane extends GamePane {
     private void onKeyPressed(KeyEvent event) {
         // TODO
     	
-    	if (game.isPaused()) {
+    	if (game == null || game.isPaused()) {
     		return;
     	}
     	
     	switch (event.getCode()) {
 		case U:
+			clearHint();
 			game.undoStep();
-			game.renderMap(gameplayCanvas);
-			game.renderQueue(queueCanvas);
 			break;
 		case S:
+			clearHint();
 			game.skipPipe();
-			game.renderQueue(queueCanvas);
 			break;
 		}
     }
@@ -221,59 +374,31 @@ public class GameplayPane extends GamePane {
     	}
     	
     	String newLevel = LevelManager.getInstance().getAndSetNextLevel();
-    	System.out.println(newLevel);
-    	
-    	int rd_rows = 0;
-		int rd_cols = 0;
-		int rd_delay = 0;
-		Cell[][] cells = null;
-		List<Pipe> pipes = null;
-    	try {
-			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(LevelManager.getInstance().getCurrentLevelPath() + 
-					"/" + newLevel + ".map"), "UTF-8"));
-			
-			String str;
-			
-			while ((str = in.readLine()) != null) {
-	            if (str.equals("# rows")) {
-	            	rd_rows = Integer.parseInt(in.readLine());
-	            } else if (str.equals("# cols")) {
-	            	rd_cols = Integer.parseInt(in.readLine());
-	            } else if (str.equals("# delay before first flow")) {
-	            	rd_delay = Integer.parseInt(in.readLine());                	
-	            } else if (str.equals("# map")) {   
-	            	cells = new Cell[rd_rows][rd_cols];
-	            	
-	            	for (int i = 0; i < rd_rows; ++i) {
-	            		str = in.readLine();
-	            		for (int j = 0; j < rd_cols; ++j) {
-	            			TerminationCell.Type type = null;
-	            			if (str.charAt(j) != 'W' && str.charAt(j) != '.') {
-	            				if (i == 0 || i == rd_rows -1 || j == 0 || j == rd_cols - 1) {
-	            					type = TerminationCell.Type.SINK;
-	            				} else {
-	            					type = TerminationCell.Type.SOURCE;
-	            				}
-	            			}
-	            			cells[i][j] = Cell.fromChar(str.charAt(j), new Coordinate(i, j), type);
-	            		}
-	            	}
-	            } else if (str.contains(",") && str.charAt(0) != '#') {
-	            	String[] pipes_str = str.split(",");
-	            	pipes = new ArrayList<Pipe>();
-	            	for (String pipe_str : pipes_str) {
-	            		pipes.add(Pipe.fromString(pipe_str.trim()));
-	            	}
-	            }
-	        }
-	        in.close();    
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+    	if (newLevel == null) {
+    		doQuitToMenu();
+    		return;
+    	}
     	
-    	FXGame game = new FXGame(rd_rows, rd_cols, rd_delay, cells, pipes);
+    	// Usually preloaded while the previous level was being played
+    	LevelManager.getInstance().loadLevel(newLevel).whenComplete((level, e) -> Platform.runLater(() -> {
+    		if (e != null) {
+    			e.printStackTrace();
+    			doQuitToMenu();
+    			return;
+    		}
+    		startLevel(level);
+    	}));
+    }
+
+    /**
+     * Restarts the level being played from its template, without reloading it from the filesystem.
+     */
+    private void restartGame() {
+    	if (template == null) {
+    		return;
+    	}
     	
-    	startGame(game);
+    	startGame(template.newGame(), template);
     }
 
     /**
@@ -315,13 +440,23 @@ public class GameplayPane extends GamePane {
      */
     private void doQuitToMenu() {
         // TODO
-    	game.stopCountdown();
+    	endGame();
     	SceneManager.getInstance().showPane(LevelSelectPane.class);
     	
     	LevelSelectPane levelSelect = SceneManager.getInstance().getPane(LevelSelectPane.class);
     	levelSelect.resetLevel();
     }
 
+    /**
+     * Starts a level, and starts preloading the level after it.
+     *
+     * @param template Template of the level to start.
+     */
+    void startLevel(@NotNull LevelTemplate template) {
+    	startGame(template.newGame(), template);
+    	LevelManager.getInstance().preloadNextLevel();
+    }
+
     /**
      * Starts a new game with the given name.
      *
@@ -329,18 +464,83 @@ public class GameplayPane extends GamePane {
      */
     private int b = 3;
     void startGame(@NotNull FXGame game) {
+    	startGame(game, null);
+    }
+
+    /**
+     * Starts a new game, ending the game currently being played.
+     *
+     * @param game     New game to start.
+     * @param template Template the game was created from, or {@code null} if the map was generated.
+     */
+    private void startGame(@NotNull FXGame game, @Nullable LevelTemplate template) {
         // TODO
-    	if (AudioManager.getInstance().isCountingDown()) {
-    		ticksElapsed.set(30);
-    	} else {
-    		ticksElapsed.set(0);
-    	}
+    	endGame();
+    	
+    	this.template = template;
+    	restartButton.setDisable(template == null);
+    	pauseButton.setText("Pause");
+    	
+    	final boolean countingDown = AudioManager.getInstance().isCountingDown();
+    	// Timer value as seen by the game loop; the property is only updated on the JavaFX Application Thread
+    	final var ticks = new AtomicInteger(countingDown ? 30 : 0);
+    	ticksElapsed.set(ticks.get());
+    	
+    	numOfSteps.set(0);
+    	numOfUndo.set(0);
     	
     	this.game = game;
-    	infoPane.bindTo(LevelManager.getInstance().getCurrentLevelProperty(), ticksElapsed, game.getNumOfSteps(), game.getNumOfUndo());
+    	infoPane.bindTo(LevelManager.getInstance().getCurrentLevelProperty(), ticksElapsed, numOfSteps, numOfUndo);
     	
-    	game.renderMap(gameplayCanvas);
+    	gameplayView.render(game.getMapSnapshot());
     	game.renderQueue(queueCanvas);
+    	frameScheduler.start();
+    	
+    	flowAnimator = new FlowAnimator(gameplayView, game::getMapSnapshot, game::isPaused,
+    			game.getFlowDuration());
+    	flowAnimator.start();
+    	
+    	// Whether the game has been won or lost; only accessed on the game loop
+    	final var ended = new AtomicBoolean(false);
+    	// State of the game the latest hint was requested for; only accessed on the game loop
+    	final var hintedMap = new AtomicReference<MapSnapshot>();
+    	final var hintedQueue = new AtomicReference<List<Pipe>>();
+    	
+    	game.addOnReplaceRequestHandler(coord -> Platform.runLater(() -> promptReplacement(game, coord)));
+    	
+    	game.addOnUpdateHandler(() -> {
+    		final int steps = game.getNumOfSteps();
+    		final int undos = game.getNumOfUndo();
+    		final boolean won = !ended.get() && game.hasWon();
+    		if (won) {
+    			// The game has already filled the pipes when the sink was connected
+    			ended.set(true);
+    			game.stopCountdown();
+    		}
+    		
+    		frameScheduler.set(numOfSteps, steps);
+    		frameScheduler.set(numOfUndo, undos);
+    		frameScheduler.request(queueCanvas, () -> game.renderQueue(queueCanvas));
+    		
+    		// Every move and every step of the water supersedes the hint being searched for
+    		final var map = game.getMapSnapshot();
+    		final var queue = game.getQueueSnapshot();
+    		if (hintsEnabled && !ended.get()
+    				&& (hintCleared || map != hintedMap.get() || !queue.equals(hintedQueue.get()))) {
+    			hintCleared = false;
+    			hintedMap.set(map);
+    			hintedQueue.set(queue);
+    			hintService.request(map, queue);
+    		}
+    		
+    		if (won) {
+    			// Dialogs cannot be shown during a pulse
+    			Platform.runLater(() -> {
+    				AudioManager.getInstance().playSound(SoundRes.WIN);
+    				createWinPopup();
+    			});
+    		}
+    	});
     	
     	game.startCountdown();
     	
@@ -349,15 +549,15 @@ public class GameplayPane extends GamePane {
 			@Override
 			public void run() {
 				// TODO Auto-generated method stub
-				if (AudioManager.getInstance().isCountingDown()) {
-					if (ticksElapsed.get() <= 1) {
+				if (countingDown) {
+					if (ticks.get() <= 1 && !ended.getAndSet(true)) {
 						game.stopCountdown();
 	    				Platform.runLater(() -> createLosePopup());
 	    				AudioManager.getInstance().playSound(SoundRes.LOSE);
 					}
-					Platform.runLater(() -> ticksElapsed.set(ticksElapsed.get() - 1));
+					frameScheduler.set(ticksElapsed, ticks.decrementAndGet());
 				} else {
-					Platform.runLater(() -> ticksElapsed.set(ticksElapsed.get() + 1));
+					frameScheduler.set(ticksElapsed, ticks.incrementAndGet());
 				}
 			}
 		});
@@ -366,8 +566,8 @@ public class GameplayPane extends GamePane {
     		
     		@Override
 			public void run() {
-    			game.renderMap(gameplayCanvas);
-    			if (game.hasLost()) {
+    			if (!ended.get() && game.hasLost()) {
+    				ended.set(true);
     				game.stopCountdown();
     				Platform.runLater(() -> createLosePopup());
     				AudioManager.getInstance().playSound(SoundRes.LOSE);
@@ -378,10 +578,25 @@ public class GameplayPane extends GamePane {
 
     /**
      * Cleans up the currently bound game.
+     *
+     * <p>
+     * The game is disposed, which releases its timer, handlers and loop, and the UI is unbound from it, so that nothing
+     * keeps the game reachable once the next one starts.
+     * </p>
      */
     private void endGame() {
         // TODO
-    	game.stopCountdown();   	
+    	frameScheduler.stop();
+    	clearHint();
+    	if (flowAnimator != null) {
+    		flowAnimator.stop();
+    		flowAnimator = null;
+    	}
+    	infoPane.unbind();
     	
+    	if (game != null) {
+    		game.dispose();
+    		game = null;
+    	}
     }
 }
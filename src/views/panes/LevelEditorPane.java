@@ -1,6 +1,7 @@
 package views.panes;
 
 import controllers.SceneManager;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -8,6 +9,7 @@ import javafx.event.EventHandler;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.layout.BorderPane;
@@ -48,9 +50,15 @@ public class LevelEditorPane extends GamePane {
     private ObservableList<LevelEditorCanvas.CellSelection> cellList = FXCollections.observableList(Arrays.asList(LevelEditorCanvas.CellSelection.values()));
     private ListView<LevelEditorCanvas.CellSelection> selectedCell = new ListView<>();
 
+    private ChoiceBox<LevelEditorCanvas.Tool> selectedTool = new ChoiceBox<>(FXCollections.observableArrayList(LevelEditorCanvas.Tool.values()));
+
     private Button toggleRotationButton = new BigButton("Toggle Source Rotation");
     private Button loadButton = new BigButton("Load");
     private Button saveButton = new BigButton("Save As");
+    /**
+     * Shows whether the map being edited is valid, updating as the map is edited.
+     */
+    private Label validityLabel = new Label();
 
     private VBox centerContainer = new BigVBox();
 
@@ -74,10 +82,13 @@ public class LevelEditorPane extends GamePane {
     	leftContainer.getChildren().add(newGridButton);
     	leftContainer.getChildren().add(delayBox);
     	leftContainer.getChildren().add(selectedCell);
+    	leftContainer.getChildren().add(selectedTool);
+    	selectedTool.setValue(LevelEditorCanvas.Tool.BRUSH);
     	selectedCell.getItems().addAll(cellList);
     	leftContainer.getChildren().add(toggleRotationButton);
     	leftContainer.getChildren().add(loadButton);
     	leftContainer.getChildren().add(saveButton);
+    	leftContainer.getChildren().add(validityLabel);
     	
         this.setCenter(levelEditor);
     }
@@ -90,6 +101,7 @@ public class LevelEditorPane extends GamePane {
     @Override
     void styleComponents() {
         // TODO
+    	validityLabel.setWrapText(true);
     }
 
     /**
@@ -98,6 +110,10 @@ public class LevelEditorPane extends GamePane {
     @Override
     void setCallbacks() {
         // TODO
+    	validityLabel.textProperty().bind(Bindings.createStringBinding(() -> {
+    		String message = levelEditor.errorMessageProperty().get();
+    		return message == null ? "Map is valid" : message;
+    	}, levelEditor.errorMessageProperty()));
     	
     	delayField.textProperty().addListener((observable, oldValue, newValue) -> {
     		levelEditor.setAmountOfDelay(Integer.parseInt(newValue));
@@ -119,8 +135,16 @@ public class LevelEditorPane extends GamePane {
     		levelEditor.toggleSourceTileRotation();
     	});
     	
-    	levelEditor.setOnMouseClicked(event -> {    		
-    		levelEditor.setTile(selectedCell.getSelectionModel().getSelectedItem(), event.getX(), event.getY());
+    	levelEditor.setOnMousePressed(event -> {
+    		levelEditor.beginStroke(selectedTool.getValue(), selectedCell.getSelectionModel().getSelectedItem(), event.getX(), event.getY());
+    	});
+    	
+    	levelEditor.setOnMouseDragged(event -> {
+    		levelEditor.continueStroke(event.getX(), event.getY());
+    	});
+    	
+    	levelEditor.setOnMouseReleased(event -> {
+    		levelEditor.endStroke(event.getX(), event.getY());
     	});
     	
     	newGridButton.setOnAction(new EventHandler<ActionEvent>() {
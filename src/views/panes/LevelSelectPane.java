@@ -1,36 +1,30 @@
 package views.panes;
 
 import controllers.LevelManager;
-import controllers.Renderer;
 import controllers.SceneManager;
 import controllers.Renderer.CellImage;
 import io.Deserializer;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.stage.DirectoryChooser;
 import models.FXGame;
-import models.map.cells.Cell;
-import models.map.cells.TerminationCell;
-import models.pipes.Pipe;
-import util.Coordinate;
+import models.map.MapSnapshot;
 import views.BigButton;
 import views.BigVBox;
+import views.MapViewport;
 import views.SideMenuVBox;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Observable;
 
 import org.jetbrains.annotations.Nullable;
@@ -44,7 +38,7 @@ public class LevelSelectPane extends GamePane {
     private BigButton chooseMapDirButton = new BigButton("Choose map directory");
     private ListView<String> levelsListView = new ListView<>(LevelManager.getInstance().getLevelNames());
     private BigVBox centerContainer = new BigVBox();
-    private Canvas levelPreview = new Canvas();
+    private MapViewport levelPreview = new MapViewport();
 
     public LevelSelectPane() {
         connectComponents();
@@ -78,6 +72,23 @@ public class LevelSelectPane extends GamePane {
     	
     	playButton.setDisable(true);
     	
+    	// Thumbnails are generated in the background by LevelManager and shown as soon as they are ready
+    	levelsListView.setCellFactory(list -> new ListCell<>() {
+    		private final ImageView thumbnail = new ImageView();
+
+    		@Override
+    		protected void updateItem(String item, boolean empty) {
+    			super.updateItem(item, empty);
+    			if (empty || item == null) {
+    				setText(null);
+    				setGraphic(null);
+    				return;
+    			}
+    			setText(item);
+    			thumbnail.setImage(LevelManager.getInstance().getThumbnails().get(item));
+    			setGraphic(thumbnail);
+    		}
+    	});
     }
     
     public void resetLevel() {
@@ -100,6 +111,9 @@ public class LevelSelectPane extends GamePane {
     void setCallbacks() {
         // TODO
     	
+    	LevelManager.getInstance().getThumbnails().addListener(
+    			(MapChangeListener<String, Image>) change -> levelsListView.refresh());
+    	
     	levelsListView.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<String>() {
     	    @Override
     	    public void changed(ObservableValue<? extends String> observable,
@@ -149,65 +163,16 @@ public class LevelSelectPane extends GamePane {
     		return;
     	}
     	
-    	LevelManager lvlManager = LevelManager.getInstance();
-    	//lvlManager.
-    	SceneManager.getInstance().showPane(GameplayPane.class);
-    	
-    	    
-    	
-    	int rd_rows = 0;
-		int rd_cols = 0;
-		int rd_delay = 0;
-		GraphicsContext gc = levelPreview.getGraphicsContext2D();
-		Cell[][] cells = null;
-		List<Pipe> pipes = null;
-    	try {
-			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(lvlManager.getCurrentLevelPath() + 
-					"/" + lvlManager.getCurrentLevelProperty().get() + ".map"), "UTF-8"));
-			
-			String str;
-			
-			while ((str = in.readLine()) != null) {
-	            if (str.equals("# rows")) {
-	            	rd_rows = Integer.parseInt(in.readLine());
-	            	levelPreview.setHeight(32 * rd_rows);
-	            } else if (str.equals("# cols")) {
-	            	rd_cols = Integer.parseInt(in.readLine());
-	            	levelPreview.setWidth(32 * rd_cols);
-	            } else if (str.equals("# delay before first flow")) {
-	            	rd_delay = Integer.parseInt(in.readLine());                	
-	            } else if (str.equals("# map")) {   
-	            	cells = new Cell[rd_rows][rd_cols];
-	            	
-	            	for (int i = 0; i < rd_rows; ++i) {
-	            		str = in.readLine();
-	            		for (int j = 0; j < rd_cols; ++j) {
-	            			TerminationCell.Type type = null;
-	            			if (str.charAt(j) != 'W' && str.charAt(j) != '.') {
-	            				if (i == 0 || i == rd_rows -1 || j == 0 || j == rd_cols - 1) {
-	            					type = TerminationCell.Type.SINK;
-	            				} else {
-	            					type = TerminationCell.Type.SOURCE;
-	            				}
-	            			}
-	            			cells[i][j] = Cell.fromChar(str.charAt(j), new Coordinate(i, j), type);
-	            		}
-	            	}
-	            } else if (str.contains(",") && str.charAt(0) != '#') {
-	            	String[] pipes_str = str.split(",");
-	            	pipes = new ArrayList<Pipe>();
-	            	for (String pipe_str : pipes_str) {
-	            		pipes.add(Pipe.fromString(pipe_str.trim()));
-	            	}
-	            }
-	        }
-	        in.close();    
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-    	
-    	FXGame game = new FXGame(rd_rows, rd_cols, rd_delay, cells, pipes);
-    	play.startGame(game);
+    	// Usually already loaded when the level was selected
+    	String levelName = LevelManager.getInstance().getCurrentLevelProperty().get();
+    	LevelManager.getInstance().loadLevel(levelName).whenComplete((level, e) -> Platform.runLater(() -> {
+    		if (e != null) {
+    			e.printStackTrace();
+    			return;
+    		}
+    		SceneManager.getInstance().showPane(GameplayPane.class);
+    		play.startLevel(level);
+    	}));
     }
 
     /**
@@ -222,56 +187,21 @@ public class LevelSelectPane extends GamePane {
     	LevelManager.getInstance().setLevel(newValue);
     	
     	if (newValue == null || newValue == "") {
-    		levelPreview.setWidth(0);
+    		levelPreview.clear();
     		playButton.setDisable(true);
     		return;
     	}
     	
-    	try {
-			BufferedReader in = new BufferedReader(
-			           new InputStreamReader(new FileInputStream(LevelManager.getInstance().getCurrentLevelPath() + "/" + newValue + ".map"), "UTF-8"));
-			
-			String str;
-			int rd_rows = 0;
-			int rd_cols = 0;
-			int rd_delay = 0;
-			GraphicsContext gc = levelPreview.getGraphicsContext2D();
-			Cell[][] cells = null;
-			
-			while ((str = in.readLine()) != null) {
-	            if (str.equals("# rows")) {
-	            	rd_rows = Integer.parseInt(in.readLine());
-	            	levelPreview.setHeight(32 * rd_rows);
-	            } else if (str.equals("# cols")) {
-	            	rd_cols = Integer.parseInt(in.readLine());
-	            	levelPreview.setWidth(32 * rd_cols);
-	            } else if (str.equals("# delay before first flow")) {
-	            	rd_delay = Integer.parseInt(in.readLine());                	
-	            } else if (str.equals("# map")) {   
-	            	cells = new Cell[rd_rows][rd_cols];
-	            	
-	            	for (int i = 0; i < rd_rows; ++i) {
-	            		str = in.readLine();
-	            		for (int j = 0; j < rd_cols; ++j) {
-	            			TerminationCell.Type type = null;
-	            			if (str.charAt(j) != 'W' && str.charAt(j) != '.') {
-	            				if (i == 0 || i == rd_rows -1 || j == 0 || j == rd_cols - 1) {
-	            					type = TerminationCell.Type.SINK;
-	            				} else {
-	            					type = TerminationCell.Type.SOURCE;
-	            				}
-	            			}
-	            			cells[i][j] = Cell.fromChar(str.charAt(j), new Coordinate(i, j), type);
-	            		}
-	            	}
-	            }
-	        }
-	        in.close();    
-	        
-	        Renderer.renderMap(levelPreview, cells);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+    	LevelManager.getInstance().loadLevel(newValue).whenComplete((level, e) -> Platform.runLater(() -> {
+    		if (e != null) {
+    			e.printStackTrace();
+    			return;
+    		}
+    		// Another level may have been selected while this one was loading
+    		if (newValue.equals(levelsListView.getSelectionModel().getSelectedItem())) {
+    			levelPreview.render(MapSnapshot.of(level.newCells()));
+    		}
+    	}));
     }
 
     /**
@@ -0,0 +1,64 @@
+package controllers;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.paint.Color;
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+import util.Direction;
+import util.FxToolkit;
+
+import static models.Config.TILE_SIZE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Smoke test for the headless test setup: starts JavaFX on Monocle, renders a map and reads the pixels back.
+ */
+class HeadlessRenderTest {
+
+    @Test
+    void toolkitRunsOnMonocle() throws Exception {
+        // Glass is internal to javafx.graphics, so look the running application up reflectively
+        final String platform = FxToolkit.call(() -> Class.forName("com.sun.glass.ui.Application")
+                .getMethod("GetApplication")
+                .invoke(null)
+                .getClass()
+                .getName());
+
+        assertTrue(platform.contains("monocle"), () -> "Expected the Monocle glass platform, got " + platform);
+    }
+
+    @Test
+    void renderMapDrawsEveryTile() throws Exception {
+        final Cell[][] cells = {
+                {new Wall(new Coordinate(0, 0)), new Wall(new Coordinate(0, 1)), new Wall(new Coordinate(0, 2))},
+                {
+                        new TerminationCell(new Coordinate(1, 0), Direction.RIGHT, TerminationCell.Type.SOURCE),
+                        new FillableCell(new Coordinate(1, 1), new Pipe(Pipe.Shape.HORIZONTAL)),
+                        new TerminationCell(new Coordinate(1, 2), Direction.RIGHT, TerminationCell.Type.SINK)
+                },
+                {new Wall(new Coordinate(2, 0)), new Wall(new Coordinate(2, 1)), new Wall(new Coordinate(2, 2))},
+        };
+
+        final var image = FxToolkit.call(() -> {
+            final var canvas = new Canvas(TILE_SIZE * 3, TILE_SIZE * 3);
+            Renderer.renderMap(canvas, cells);
+            return canvas.snapshot(null, null);
+        });
+
+        assertEquals(TILE_SIZE * 3, image.getWidth());
+        final var reader = image.getPixelReader();
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < 3; ++c) {
+                final Color center = reader.getColor(c * TILE_SIZE + TILE_SIZE / 2, r * TILE_SIZE + TILE_SIZE / 2);
+                assertNotEquals(0.0, center.getOpacity(), "Tile (" + r + ", " + c + ") was not drawn");
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package controllers;
+
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+import util.Direction;
+import util.FxToolkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LevelValidatorTest {
+
+    private static final int SIZE = 12;
+
+    private Cell[][] cells;
+    private LevelValidator validator;
+
+    @BeforeAll
+    static void startToolkit() {
+        // Results are posted to the FX thread
+        FxToolkit.ensureStarted();
+    }
+
+    /**
+     * Starts from a walled level with the source at (1, 1) pointing right and the sink on the right edge of row 1.
+     */
+    @BeforeEach
+    void setUp() {
+        cells = new Cell[SIZE][SIZE];
+        for (int r = 0; r < SIZE; ++r) {
+            for (int c = 0; c < SIZE; ++c) {
+                final var coord = new Coordinate(r, c);
+                if (r == 0 || c == 0 || r == SIZE - 1 || c == SIZE - 1) {
+                    cells[r][c] = new Wall(coord);
+                } else {
+                    cells[r][c] = new FillableCell(coord);
+                }
+            }
+        }
+        cells[1][1] = new TerminationCell(new Coordinate(1, 1), Direction.RIGHT, TerminationCell.Type.SOURCE);
+        cells[1][SIZE - 1] = new TerminationCell(new Coordinate(1, SIZE - 1), Direction.RIGHT,
+                TerminationCell.Type.SINK);
+
+        validator = new LevelValidator(result -> {
+        });
+        validator.reset(cells, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validator.dispose();
+    }
+
+    private void set(Cell... edits) {
+        final var batch = new ArrayList<Cell>();
+        for (var cell : edits) {
+            cells[cell.coord.row][cell.coord.col] = cell;
+            batch.add(cell);
+        }
+        validator.setCells(batch);
+    }
+
+    private static Wall wall(int row, int col) {
+        return new Wall(new Coordinate(row, col));
+    }
+
+    private static FillableCell open(int row, int col) {
+        return new FillableCell(new Coordinate(row, col));
+    }
+
+    private static Optional<String> validate(LevelValidator validator) throws Exception {
+        return validator.validate().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Validates the current level from scratch with a new validator.
+     */
+    private Optional<String> fullValidation() throws Exception {
+        final var fresh = new LevelValidator(result -> {
+        });
+        try {
+            fresh.reset(cells, 10);
+            return validate(fresh);
+        } finally {
+            fresh.dispose();
+        }
+    }
+
+    private void assertMatchesFullValidation() throws Exception {
+        assertEquals(fullValidation(), validate(validator));
+    }
+
+    /**
+     * Walls off column {@code col} except for the cell in {@code gapRow}.
+     */
+    private void wallColumn(int col, int gapRow) {
+        final var edits = new ArrayList<Cell>();
+        for (int r = 1; r < SIZE - 1; ++r) {
+            edits.add(r == gapRow ? open(r, col) : wall(r, col));
+        }
+        set(edits.toArray(Cell[]::new));
+    }
+
+    @Test
+    void openLevelIsValid() throws Exception {
+        assertEquals(Optional.empty(), validate(validator));
+    }
+
+    @Test
+    void openingACellNextToTheReachedSetReconnectsTheSink() throws Exception {
+        wallColumn(6, -1);
+        assertEquals(Optional.of(LevelValidator.MSG_UNREACHABLE), validate(validator));
+
+        set(open(7, 6));
+        assertEquals(Optional.empty(), validate(validator));
+        assertMatchesFullValidation();
+    }
+
+    @Test
+    void closingAReachedCellDisconnectsTheSink() throws Exception {
+        wallColumn(6, 4);
+        assertEquals(Optional.empty(), validate(validator));
+
+        set(wall(4, 6));
+        assertEquals(Optional.of(LevelValidator.MSG_UNREACHABLE), validate(validator));
+        assertMatchesFullValidation();
+    }
+
+    @Test
+    void closingAnUnreachedCellChangesNothing() throws Exception {
+        wallColumn(6, -1);
+        set(wall(5, 8));
+        assertEquals(Optional.of(LevelValidator.MSG_UNREACHABLE), validate(validator));
+        assertMatchesFullValidation();
+    }
+
+    @Test
+    void movingTheSourceAcrossAWall() throws Exception {
+        wallColumn(6, -1);
+        assertEquals(Optional.of(LevelValidator.MSG_UNREACHABLE), validate(validator));
+
+        set(open(1, 1), new TerminationCell(new Coordinate(5, 8), Direction.UP, TerminationCell.Type.SOURCE));
+        assertEquals(Optional.empty(), validate(validator));
+        assertMatchesFullValidation();
+
+        set(open(5, 8), new TerminationCell(new Coordinate(5, 3), Direction.DOWN, TerminationCell.Type.SOURCE));
+        assertEquals(Optional.of(LevelValidator.MSG_UNREACHABLE), validate(validator));
+        assertMatchesFullValidation();
+    }
+
+    @Test
+    void randomEditsMatchFullValidation() throws Exception {
+        final var rng = new Random(3021);
+        final var directions = Direction.values();
+        var source = new Coordinate(1, 1);
+
+        for (int step = 0; step < 400; ++step) {
+            final int row = 1 + rng.nextInt(SIZE - 2);
+            final int col = 1 + rng.nextInt(SIZE - 2);
+            final int kind = rng.nextInt(20);
+
+            if (kind == 0) {
+                if (!(cells[row][col] instanceof TerminationCell)) {
+                    set(open(source.row, source.col), new TerminationCell(new Coordinate(row, col),
+                            directions[rng.nextInt(directions.length)], TerminationCell.Type.SOURCE));
+                    source = new Coordinate(row, col);
+                }
+            } else if (!(cells[row][col] instanceof TerminationCell)) {
+                // Bias towards walls so that the level keeps being split and rejoined
+                set(kind < 11 ? wall(row, col) : open(row, col));
+            }
+
+            if (step % 3 == 0) {
+                assertMatchesFullValidation();
+            }
+        }
+        assertMatchesFullValidation();
+    }
+
+    @Test
+    void batchedEditsMatchFullValidation() throws Exception {
+        final var rng = new Random(42);
+
+        for (int batch = 0; batch < 100; ++batch) {
+            final List<Cell> edits = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                final int row = 1 + rng.nextInt(SIZE - 2);
+                final int col = 1 + rng.nextInt(SIZE - 2);
+                if (!(cells[row][col] instanceof TerminationCell)) {
+                    edits.add(rng.nextBoolean() ? wall(row, col) : open(row, col));
+                }
+            }
+            set(edits.toArray(Cell[]::new));
+            assertMatchesFullValidation();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io;
+
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.Coordinate;
+import util.Direction;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SerializerTest {
+
+    @TempDir
+    Path directory;
+
+    private static GameProperties level() {
+        final var cells = new Cell[4][4];
+        for (int r = 0; r < 4; ++r) {
+            for (int c = 0; c < 4; ++c) {
+                final var coord = new Coordinate(r, c);
+                cells[r][c] = r == 0 || c == 0 || r == 3 || c == 3 ? new Wall(coord) : new FillableCell(coord);
+            }
+        }
+        cells[1][1] = new TerminationCell(new Coordinate(1, 1), Direction.RIGHT, TerminationCell.Type.SOURCE);
+        cells[2][3] = new TerminationCell(new Coordinate(2, 3), Direction.RIGHT, TerminationCell.Type.SINK);
+        return new GameProperties(4, 4, cells, 7);
+    }
+
+    private void assumePosix() {
+        assumeTrue(Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null);
+    }
+
+    @Test
+    void savedMapCanBeLoadedAgain() throws Exception {
+        final var path = directory.resolve("level.map");
+        new Serializer(path).serializeGameProp(level());
+
+        final var loaded = new Deserializer(path).parseGameFile();
+        assertEquals(4, loaded.rows);
+        assertEquals(4, loaded.cols);
+        assertEquals(7, loaded.delay);
+        for (int r = 0; r < 4; ++r) {
+            for (int c = 0; c < 4; ++c) {
+                assertEquals(level().cells[r][c].toSerializedRep(), loaded.cells[r][c].toSerializedRep());
+            }
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "The temporary file is left behind");
+        }
+    }
+
+    @Test
+    void newMapIsNotRestrictedToTheOwner() throws Exception {
+        assumePosix();
+        final var path = directory.resolve("level.map");
+        final var reference = Files.createFile(directory.resolve("reference"));
+
+        new Serializer(path).serializeGameProp(level());
+
+        // A new map gets the same permissions as any other new file, as the writer before atomic saving did
+        assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(path));
+    }
+
+    @Test
+    void replacingAMapKeepsItsPermissions() throws Exception {
+        assumePosix();
+        final var path = directory.resolve("level.map");
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.createFile(path);
+        Files.setPosixFilePermissions(path, permissions);
+
+        new Serializer(path).serializeGameProp(level());
+
+        assertEquals(permissions, Files.getPosixFilePermissions(path));
+        assertTrue(Files.size(path) > 0);
+    }
+}
@@ -0,0 +1,253 @@
+package io;
+
+import models.map.Boards;
+import models.map.Map;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncEncoderTest {
+
+    private static final Pipe.Shape H = Pipe.Shape.HORIZONTAL;
+    private static final Pipe.Shape V = Pipe.Shape.VERTICAL;
+    private static final Pipe.Shape TL = Pipe.Shape.TOP_LEFT;
+    private static final Pipe.Shape CR = Pipe.Shape.CROSS;
+
+    private static List<Pipe> queue(Pipe.Shape... shapes) {
+        final var pipes = new ArrayList<Pipe>();
+        for (var shape : shapes) {
+            pipes.add(new Pipe(shape));
+        }
+        return pipes;
+    }
+
+    /**
+     * Reads the queue change of a delta which changes no cell.
+     *
+     * @return Pipes removed from the head, and the shapes added to the head and to the tail.
+     */
+    private static Object[] queueDelta(byte[] delta) {
+        final var in = new SyncProtocol.Reader(delta);
+        assertEquals(SyncProtocol.DELTA, in.getByte());
+        in.getVarint();
+        in.getVarint();
+        assertEquals(0, in.getVarint(), "Changed cells");
+
+        final int removed = in.getVarint(Integer.MAX_VALUE);
+        final var head = new Pipe.Shape[in.getVarint(Integer.MAX_VALUE)];
+        for (int i = 0; i < head.length; ++i) {
+            head[i] = Pipe.Shape.values()[in.getByte()];
+        }
+        final var tail = new Pipe.Shape[in.getVarint(Integer.MAX_VALUE)];
+        for (int i = 0; i < tail.length; ++i) {
+            tail[i] = Pipe.Shape.values()[in.getByte()];
+        }
+        assertTrue(in.isAtEnd());
+        return new Object[]{removed, head, tail};
+    }
+
+    /**
+     * Encodes a change to the queue alone, and checks it against the expected change and a replica.
+     */
+    private static void assertQueueDelta(Pipe.Shape[] from, Pipe.Shape[] to,
+                                         int removed, Pipe.Shape[] head, Pipe.Shape[] tail) {
+        final var map = new Map(4, 4, Boards.walled(4)).snapshot();
+        final var encoder = new SyncEncoder(map, queue(from));
+        final var replica = new BoardReplica();
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(encoder.encodeSnapshot()));
+
+        final var delta = encoder.encodeDelta(map, queue(to));
+        assertNotNull(delta);
+        final var change = queueDelta(delta);
+        assertEquals(removed, change[0], "Removed from the head");
+        assertArrayEquals(head, (Pipe.Shape[]) change[1], "Added to the head");
+        assertArrayEquals(tail, (Pipe.Shape[]) change[2], "Added to the tail");
+
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(delta));
+        assertEquals(List.of(to), replica.getQueue());
+    }
+
+    private static Pipe.Shape[] shapes(Pipe.Shape... shapes) {
+        return shapes;
+    }
+
+    @Test
+    void snapshotRoundTrip() {
+        final var map = new Map(6, 6, Boards.walled(6));
+        map.tryPlacePipe(new Coordinate(1, 2), new Pipe(H));
+        map.fillTiles(1);
+        final var queue = queue(H, V, CR);
+
+        final var replica = new BoardReplica();
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(new SyncEncoder(map.snapshot(), queue).encodeSnapshot()));
+        assertEquals(0, replica.getSequence());
+        assertTrue(replica.matches(map.snapshot(), queue));
+    }
+
+    @Test
+    void deltasRoundTrip() {
+        final int size = 12;
+        final var map = new Map(size, size, Boards.walled(size));
+        // Pipes along the row of the source, for the water to fill
+        for (int c = 2; c < size / 2; ++c) {
+            map.tryPlacePipe(new Coordinate(1, c), new Pipe(H));
+        }
+        final var encoder = new SyncEncoder(map.snapshot(), queue(H, V));
+        final var replica = new BoardReplica();
+        replica.apply(encoder.encodeSnapshot());
+
+        final var rng = new Random(48);
+        final var shapes = Pipe.Shape.values();
+        int distance = 0;
+        for (int step = 0; step < 200; ++step) {
+            final var coord = new Coordinate(2 + rng.nextInt(size - 3), 1 + rng.nextInt(size - 2));
+            switch (rng.nextInt(3)) {
+                case 0:
+                    map.tryPlacePipe(coord, new Pipe(shapes[rng.nextInt(shapes.length)]));
+                    break;
+                case 1:
+                    map.undo(coord);
+                    break;
+                default:
+                    map.fillTiles(distance++);
+                    break;
+            }
+            final var queue = queue(shapes[rng.nextInt(shapes.length)], shapes[rng.nextInt(shapes.length)]);
+            final var snapshot = map.snapshot();
+
+            final var delta = encoder.encodeDelta(snapshot, queue);
+            if (delta != null) {
+                assertEquals(BoardReplica.Result.APPLIED, replica.apply(delta));
+            }
+            assertEquals(encoder.getSequence(), replica.getSequence());
+            assertTrue(replica.matches(snapshot, queue), "Replica differs after step " + step);
+        }
+    }
+
+    @Test
+    void unchangedStateEncodesNothing() {
+        final var map = new Map(4, 4, Boards.walled(4));
+        final var queue = queue(H, V);
+        final var encoder = new SyncEncoder(map.snapshot(), queue);
+
+        assertNull(encoder.encodeDelta(map.snapshot(), queue(H, V)));
+        // Placing and undoing a pipe leaves the cells as they were
+        map.tryPlacePipe(new Coordinate(2, 2), new Pipe(H));
+        map.undo(new Coordinate(2, 2));
+        assertNull(encoder.encodeDelta(map.snapshot(), queue));
+        assertEquals(0, encoder.getSequence());
+    }
+
+    @Test
+    void skippedSnapshotsFallBackToComparingCells() {
+        final var map = new Map(6, 6, Boards.walled(6));
+        final var queue = queue(H);
+        final var encoder = new SyncEncoder(map.snapshot(), queue);
+        final var replica = new BoardReplica();
+        replica.apply(encoder.encodeSnapshot());
+
+        map.tryPlacePipe(new Coordinate(2, 2), new Pipe(H));
+        map.snapshot();
+        map.tryPlacePipe(new Coordinate(3, 3), new Pipe(V));
+        final var snapshot = map.snapshot();
+
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(encoder.encodeDelta(snapshot, queue)));
+        assertTrue(replica.matches(snapshot, queue));
+    }
+
+    @Test
+    void queueDeltaOfConsume() {
+        assertQueueDelta(shapes(H, V, TL), shapes(V, TL, CR), 1, shapes(), shapes(CR));
+    }
+
+    @Test
+    void queueDeltaOfUndo() {
+        assertQueueDelta(shapes(V, TL, CR), shapes(H, V, TL, CR), 0, shapes(H), shapes());
+    }
+
+    @Test
+    void queueDeltaWithRepeatedShapes() {
+        assertQueueDelta(shapes(H, H, V), shapes(H, V, H), 1, shapes(), shapes(H));
+        assertQueueDelta(shapes(H, H, H), shapes(H, H, H, H), 0, shapes(), shapes(H));
+    }
+
+    @Test
+    void queueDeltaFromAndToEmpty() {
+        assertQueueDelta(shapes(), shapes(H, V), 0, shapes(), shapes(H, V));
+        assertQueueDelta(shapes(H, V), shapes(), 2, shapes(), shapes());
+    }
+
+    @Test
+    void queueDeltaOfUnrelatedQueues() {
+        assertQueueDelta(shapes(H, V), shapes(TL, CR, TL), 2, shapes(), shapes(TL, CR, TL));
+    }
+
+    @Test
+    void queueDeltaOfUnchangedQueue() {
+        final var map = new Map(4, 4, Boards.walled(4));
+        final var queue = queue(H, V);
+        final var encoder = new SyncEncoder(map.snapshot(), queue);
+        final var replica = new BoardReplica();
+        replica.apply(encoder.encodeSnapshot());
+
+        map.tryPlacePipe(new Coordinate(2, 2), new Pipe(CR));
+        final var delta = encoder.encodeDelta(map.snapshot(), queue);
+        assertNotNull(delta);
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(delta));
+        assertEquals(List.of(H, V), replica.getQueue());
+        assertEquals(MapSnapshot.FILLABLE, replica.get(2, 2) & MapSnapshot.KIND_MASK);
+        assertTrue(replica.matches(map.snapshot(), queue));
+    }
+
+    @Test
+    void droppedDeltaIsRecoveredWithSnapshot() {
+        final var map = new Map(6, 6, Boards.walled(6));
+        final var queue = queue(H, V);
+        final var encoder = new SyncEncoder(map.snapshot(), queue);
+        final var replica = new BoardReplica();
+        assertEquals(BoardReplica.Result.GAP, replica.apply(heartbeat(encoder)), "No snapshot yet");
+        replica.apply(encoder.encodeSnapshot());
+
+        map.tryPlacePipe(new Coordinate(2, 2), new Pipe(H));
+        final var dropped = encoder.encodeDelta(map.snapshot(), queue);
+        assertNotNull(dropped);
+
+        // A heartbeat after the dropped delta reveals the gap even when no delta follows
+        assertEquals(BoardReplica.Result.GAP, replica.apply(heartbeat(encoder)));
+
+        map.tryPlacePipe(new Coordinate(3, 3), new Pipe(V));
+        final var next = encoder.encodeDelta(map.snapshot(), queue);
+        assertEquals(BoardReplica.Result.GAP, replica.apply(next));
+        assertEquals(0, replica.getSequence());
+
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(encoder.encodeSnapshot()));
+        assertTrue(replica.matches(map.snapshot(), queue));
+        // Deltas arriving late after the snapshot are stale
+        assertEquals(BoardReplica.Result.STALE, replica.apply(dropped));
+        assertEquals(BoardReplica.Result.STALE, replica.apply(next));
+        assertEquals(BoardReplica.Result.STALE, replica.apply(heartbeat(encoder)));
+
+        map.fillTiles(0);
+        map.fillTiles(1);
+        assertEquals(BoardReplica.Result.APPLIED, replica.apply(encoder.encodeDelta(map.snapshot(), queue)));
+        assertTrue(replica.matches(map.snapshot(), queue));
+    }
+
+    private static byte[] heartbeat(SyncEncoder encoder) {
+        return new SyncProtocol.Writer()
+                .putByte(SyncProtocol.HEARTBEAT)
+                .putVarint(encoder.getSequence())
+                .toByteArray();
+    }
+}
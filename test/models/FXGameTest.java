@@ -0,0 +1,94 @@
+package models;
+
+import models.map.Boards;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FXGameTest {
+
+    private FXGame game;
+    private final BlockingQueue<GameEvent> events = new LinkedBlockingQueue<>();
+
+    /**
+     * Creates a game on {@link Boards#corridor()}, whose sink is connected by the first two pipes.
+     */
+    @BeforeEach
+    void setUp() {
+        game = new FXGame(3, 4, 10, Boards.corridor(), List.of(
+                new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.VERTICAL)));
+        game.getEvents().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GameEvent item) {
+                events.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        game.dispose();
+    }
+
+    /**
+     * Waits until the game loop has processed every command submitted so far, then reads the game on the loop.
+     */
+    private boolean hasWonAfterPendingCommands() throws Exception {
+        final var result = new CompletableFuture<Boolean>();
+        game.addOnUpdateHandler(() -> result.complete(game.hasWon()));
+        // Any command is followed by a batch, and with it the handler above
+        game.skipPipe();
+        return result.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void connectingTheSinkWinsOnce() throws Exception {
+        game.placePipe(1, 1);
+        assertInstanceOf(GameEvent.PipePlaced.class, events.poll(10, TimeUnit.SECONDS));
+
+        game.placePipe(1, 2);
+        assertInstanceOf(GameEvent.PipePlaced.class, events.poll(10, TimeUnit.SECONDS));
+        assertInstanceOf(GameEvent.Won.class, events.poll(10, TimeUnit.SECONDS));
+
+        // The skip is rejected once the game is over
+        assertTrue(hasWonAfterPendingCommands());
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS), "Won is published only once");
+    }
+
+    @Test
+    void idleBatchesDoNotWin() throws Exception {
+        game.placePipe(1, 1);
+
+        assertFalse(hasWonAfterPendingCommands());
+        assertInstanceOf(GameEvent.PipePlaced.class, events.poll(10, TimeUnit.SECONDS));
+        assertInstanceOf(GameEvent.PipeSkipped.class, events.poll(10, TimeUnit.SECONDS));
+        assertEquals(0, events.size());
+    }
+}
@@ -0,0 +1,40 @@
+package models;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlowTimerTest {
+
+    private final int defaultDelay = FlowTimer.getDefaultDelay();
+    private final int defaultFlowDuration = FlowTimer.getDefaultFlowDuration();
+
+    @AfterEach
+    void restoreDefaults() {
+        FlowTimer.setDefaultDelay(defaultDelay);
+        FlowTimer.setDefaultFlowDuration(defaultFlowDuration);
+    }
+
+    @Test
+    void timersKeepTheirOwnSettings() {
+        FlowTimer.setDefaultFlowDuration(2);
+        final var first = new FlowTimer(3);
+        FlowTimer.setDefaultFlowDuration(7);
+        final var second = new FlowTimer(5);
+
+        assertEquals(3, first.getDelay());
+        assertEquals(2, first.getFlowDuration());
+        assertEquals(5, second.getDelay());
+        assertEquals(7, second.getFlowDuration());
+    }
+
+    @Test
+    void creatingATimerLeavesTheDefaultDelayAlone() {
+        FlowTimer.setDefaultDelay(4);
+        new FlowTimer(9);
+
+        assertEquals(4, FlowTimer.getDefaultDelay());
+        assertEquals(4, new FlowTimer(0).getDelay());
+    }
+}
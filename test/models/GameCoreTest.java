@@ -0,0 +1,90 @@
+package models;
+
+import models.map.Boards;
+import models.map.Map;
+import models.map.MapSnapshot;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameCoreTest {
+
+    private GameCore core;
+
+    /**
+     * Creates a game on {@link Boards#corridor()}, whose sink is connected by the first two pipes.
+     */
+    @BeforeEach
+    void setUp() {
+        core = new GameCore(new Map(3, 4, Boards.corridor()), new PipeQueue(List.of(
+                new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.VERTICAL))));
+    }
+
+    @Test
+    void connectingTheSinkWinsAndFillsThePath() {
+        assertNotNull(core.placePipe(new Coordinate(1, 1)));
+        assertFalse(core.hasWon());
+
+        assertNotNull(core.placePipe(new Coordinate(1, 2)));
+        assertTrue(core.hasWon());
+        assertTrue(core.isOver());
+        assertEquals(2, core.getNumOfSteps());
+        assertTrue((core.snapshotMap().get(1, 2) & MapSnapshot.FILLED) != 0, "The path is filled as soon as the game is won");
+    }
+
+    @Test
+    void gameOverRejectsMovesAndFlow() {
+        core.placePipe(new Coordinate(1, 1));
+        core.placePipe(new Coordinate(1, 2));
+
+        assertNull(core.skipPipe());
+        assertNull(core.undoStep());
+        assertFalse(core.canReplacePipe(new Coordinate(1, 1)));
+        assertEquals(-1, core.flow());
+        assertEquals(2, core.getNumOfSteps());
+    }
+
+    @Test
+    void stepsCountPlacementsOnly() {
+        assertNull(core.placePipe(new Coordinate(0, 0)), "A wall cannot hold a pipe");
+        assertNotNull(core.skipPipe());
+        assertNotNull(core.placePipe(new Coordinate(1, 2)));
+        assertNotNull(core.undoStep());
+
+        assertEquals(1, core.getNumOfSteps());
+        assertEquals(1, core.getNumOfUndo());
+        assertNull(core.undoStep(), "Nothing is left to undo");
+    }
+
+    @Test
+    void filledPipeCannotBeUndone() {
+        core.placePipe(new Coordinate(1, 1));
+        assertEquals(0, core.flow());
+        assertEquals(1, core.flow());
+
+        assertNull(core.undoStep());
+        assertFalse(core.canReplacePipe(new Coordinate(1, 1)));
+    }
+
+    @Test
+    void waterWithNowhereToGoLoses() {
+        core.placePipe(new Coordinate(1, 1));
+
+        int distance;
+        while ((distance = core.flow()) >= 0) {
+            assertTrue(distance < 10, "The water should stop after the placed pipe");
+        }
+        assertTrue(core.hasLost());
+        assertFalse(core.hasWon());
+        assertNull(core.placePipe(new Coordinate(1, 2)));
+    }
+}
@@ -0,0 +1,21 @@
+package models;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates game events for tests outside of {@link FXGame}, whose event constructors are package-private.
+ */
+public final class GameEvents {
+
+    private GameEvents() {
+    }
+
+    /**
+     * @param sequence Sequence number of the event.
+     * @return A tick event, the simplest event carrying a sequence number.
+     */
+    @NotNull
+    public static GameEvent tick(long sequence) {
+        return new GameEvent.Tick(sequence, (int) sequence);
+    }
+}
@@ -0,0 +1,64 @@
+package models.map;
+
+import models.map.cells.Cell;
+import models.map.cells.FillableCell;
+import models.map.cells.TerminationCell;
+import models.map.cells.Wall;
+import org.jetbrains.annotations.NotNull;
+import util.Coordinate;
+import util.Direction;
+
+/**
+ * Boards shared by the tests.
+ */
+public final class Boards {
+
+    private Boards() {
+    }
+
+    /**
+     * Creates a square board surrounded by walls, with a source on the left and a sink on the right of row 1, and no
+     * pipes.
+     *
+     * @param size Number of rows and columns, including the walls. At least 4.
+     * @return Cells of the board.
+     */
+    @NotNull
+    public static Cell[][] walled(int size) {
+        final var cells = new Cell[size][size];
+        for (int r = 0; r < size; ++r) {
+            for (int c = 0; c < size; ++c) {
+                final var coord = new Coordinate(r, c);
+                if (r == 0 || c == 0 || r == size - 1 || c == size - 1) {
+                    cells[r][c] = new Wall(coord);
+                } else {
+                    cells[r][c] = new FillableCell(coord);
+                }
+            }
+        }
+        cells[1][1] = new TerminationCell(new Coordinate(1, 1), Direction.RIGHT, TerminationCell.Type.SOURCE);
+        cells[1][size - 1] = new TerminationCell(new Coordinate(1, size - 1), Direction.RIGHT, TerminationCell.Type.SINK);
+        return cells;
+    }
+
+    /**
+     * Creates a board of 3 rows and 4 columns, with a single row from a source on the left edge to a sink on the right
+     * edge, two tiles apart.
+     *
+     * @return Cells of the board.
+     */
+    @NotNull
+    public static Cell[][] corridor() {
+        final var cells = new Cell[3][4];
+        for (int r = 0; r < 3; ++r) {
+            for (int c = 0; c < 4; ++c) {
+                cells[r][c] = new Wall(new Coordinate(r, c));
+            }
+        }
+        cells[1][0] = new TerminationCell(new Coordinate(1, 0), Direction.RIGHT, TerminationCell.Type.SOURCE);
+        cells[1][1] = new FillableCell(new Coordinate(1, 1));
+        cells[1][2] = new FillableCell(new Coordinate(1, 2));
+        cells[1][3] = new TerminationCell(new Coordinate(1, 3), Direction.RIGHT, TerminationCell.Type.SINK);
+        return cells;
+    }
+}
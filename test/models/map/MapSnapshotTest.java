@@ -0,0 +1,125 @@
+package models.map;
+
+import models.pipes.Pipe;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapSnapshotTest {
+
+    private static void assertMatches(MapSnapshot expected, MapSnapshot actual) {
+        for (int r = 0; r < expected.rows; ++r) {
+            for (int c = 0; c < expected.cols; ++c) {
+                assertEquals(expected.get(r, c), actual.get(r, c), "Cell (" + r + ", " + c + ")");
+            }
+        }
+        assertEquals(expected.getDynamicCellCount(), actual.getDynamicCellCount());
+        for (int i = expected.nextDynamicCell(0), j = actual.nextDynamicCell(0); i >= 0 || j >= 0;
+             i = expected.nextDynamicCell(i + 1), j = actual.nextDynamicCell(j + 1)) {
+            assertEquals(i, j);
+        }
+    }
+
+    @Test
+    void olderSnapshotsAreUnaffectedByLaterMutations() {
+        final int size = 70;
+        final var cells = Boards.walled(size);
+        final var map = new Map(size, size, cells);
+        final var rng = new Random(3021);
+
+        for (int round = 0; round < 50; ++round) {
+            final var before = map.snapshot();
+            final var expected = MapSnapshot.of(cells);
+            assertMatches(expected, before);
+
+            for (int i = 0; i < 20; ++i) {
+                final var coord = new Coordinate(2 + rng.nextInt(size - 3), 1 + rng.nextInt(size - 2));
+                if (rng.nextBoolean()) {
+                    map.tryPlacePipe(coord, new Pipe(Pipe.Shape.values()[rng.nextInt(Pipe.Shape.values().length)]));
+                } else {
+                    map.undo(coord);
+                }
+            }
+
+            assertMatches(expected, before);
+            assertMatches(MapSnapshot.of(cells), map.snapshot());
+        }
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheMapChanges() {
+        final var map = new Map(8, 8, Boards.walled(8));
+        final var first = map.snapshot();
+
+        assertSame(first, map.snapshot());
+
+        map.undo(new Coordinate(3, 3));
+        assertSame(first, map.snapshot(), "Undoing an empty cell does not change the map");
+
+        map.tryPlacePipe(new Coordinate(3, 3), new Pipe(Pipe.Shape.CROSS));
+        final var second = map.snapshot();
+        assertNotEquals(first.version, second.version);
+        assertEquals(first.version, second.baseVersion);
+        assertEquals(1, second.getChangedCellCount());
+        assertEquals(3 * 8 + 3, second.getChangedCell(0));
+    }
+
+    @Test
+    void fillStepsWhichChangeNothingKeepTheVersion() {
+        final var map = new Map(8, 8, Boards.walled(8));
+
+        map.fillTiles(0);
+        final var sourceFilled = map.snapshot();
+        assertEquals(1, sourceFilled.getFrontierSize());
+
+        // No pipe next to the source: the frontier is cleared once, then nothing changes
+        map.fillTiles(1);
+        final var cleared = map.snapshot();
+        assertNotEquals(sourceFilled.version, cleared.version);
+        assertEquals(0, cleared.getFrontierSize());
+
+        for (int i = 0; i < 10; ++i) {
+            map.fillTiles(1);
+            assertSame(cleared, map.snapshot());
+        }
+    }
+
+    @Test
+    void dynamicCellsAreFoundAcrossChunks() {
+        final int size = 100;
+        final var cells = Boards.walled(size);
+        final var map = new Map(size, size, cells);
+        final var rng = new Random(42);
+
+        for (int i = 0; i < 500; ++i) {
+            final var coord = new Coordinate(2 + rng.nextInt(size - 3), 1 + rng.nextInt(size - 2));
+            map.tryPlacePipe(coord, new Pipe(Pipe.Shape.HORIZONTAL));
+        }
+        final var snapshot = map.snapshot();
+
+        int expected = -1;
+        for (int i = 0; i < size * size; ++i) {
+            final boolean dynamic = MapSnapshot.isDynamic(snapshot.get(i / size, i % size));
+            if (dynamic) {
+                expected = i;
+                break;
+            }
+        }
+        int count = 0;
+        for (int i = snapshot.nextDynamicCell(0); i >= 0; i = snapshot.nextDynamicCell(i + 1)) {
+            if (count == 0) {
+                assertEquals(expected, i);
+            }
+            assertTrue(MapSnapshot.isDynamic(snapshot.get(i / size, i % size)));
+            ++count;
+        }
+        assertEquals(snapshot.getDynamicCellCount(), count);
+        assertEquals(-1, snapshot.nextDynamicCell(size * size));
+    }
+}
@@ -0,0 +1,163 @@
+package server;
+
+import models.GameEvent;
+import models.GameEvents;
+import models.map.MapSnapshot;
+import models.map.cells.Cell;
+import models.map.cells.Wall;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Feeds a broadcast which is not attached to a game, standing in for both the game loop and the subscriber.
+ */
+class GameBroadcastTest {
+
+    private static final MapSnapshot MAP = MapSnapshot.of(new Cell[][]{{new Wall(new Coordinate(0, 0))}});
+
+    /**
+     * Records what a viewer reads.
+     */
+    private static final class Recorder implements GameBroadcast.Handler {
+
+        private final List<GameBroadcast.Bootstrap> bootstraps = new ArrayList<>();
+        private final List<Long> events = new ArrayList<>();
+
+        @Override
+        public void onBootstrap(@NotNull GameBroadcast.Bootstrap bootstrap) {
+            bootstraps.add(bootstrap);
+            events.clear();
+        }
+
+        @Override
+        public void onEvent(@NotNull GameEvent event) {
+            events.add(event.sequence);
+        }
+
+        private long lastBootstrap() {
+            return bootstraps.get(bootstraps.size() - 1).sequence;
+        }
+    }
+
+    private static GameBroadcast.Bootstrap bootstrap(long sequence) {
+        return new GameBroadcast.Bootstrap(MAP, List.of(), sequence);
+    }
+
+    private static void receive(GameBroadcast broadcast, long from, long to) {
+        for (long i = from; i < to; ++i) {
+            broadcast.receive(GameEvents.tick(i));
+        }
+    }
+
+    @Test
+    void viewerReadsEventsInOrder() {
+        final var broadcast = new GameBroadcast(bootstrap(0), 8);
+        final var viewer = broadcast.join();
+        final var recorder = new Recorder();
+
+        assertEquals(0, viewer.drain(recorder, 100));
+        assertEquals(1, viewer.getBootstrapCount());
+
+        receive(broadcast, 0, 5);
+        assertEquals(3, viewer.drain(recorder, 3));
+        assertEquals(2, viewer.drain(recorder, 100));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), recorder.events);
+        assertEquals(1, viewer.getBootstrapCount());
+    }
+
+    @Test
+    void lappedViewerRestartsFromLatestBootstrap() {
+        final var broadcast = new GameBroadcast(bootstrap(0), 4);
+        final var viewer = broadcast.join();
+        final var recorder = new Recorder();
+
+        receive(broadcast, 0, 2);
+        viewer.drain(recorder, 100);
+
+        // Events 2 to 5 are overwritten before the viewer reads them
+        receive(broadcast, 2, 10);
+        assertEquals(0, viewer.drain(recorder, 100), "No bootstrap past the overwritten events yet");
+        assertEquals(1, viewer.getBootstrapCount());
+
+        broadcast.publish(bootstrap(8));
+        assertEquals(2, viewer.drain(recorder, 100));
+        assertEquals(2, viewer.getBootstrapCount());
+        assertEquals(8, recorder.lastBootstrap());
+        assertEquals(List.of(8L, 9L), recorder.events);
+    }
+
+    @Test
+    void eventsMissedByTheBroadcastRestartViewers() {
+        final var broadcast = new GameBroadcast(bootstrap(0), 16);
+        final var viewer = broadcast.join();
+        final var recorder = new Recorder();
+
+        receive(broadcast, 0, 3);
+        viewer.drain(recorder, 100);
+
+        // The publisher dropped events 3 and 4 for the broadcast
+        receive(broadcast, 5, 7);
+        assertEquals(0, viewer.drain(recorder, 100), "No bootstrap past the missing events yet");
+
+        broadcast.publish(bootstrap(6));
+        assertEquals(1, viewer.drain(recorder, 100));
+        assertEquals(2, viewer.getBootstrapCount());
+        assertEquals(6, recorder.lastBootstrap());
+        assertEquals(List.of(6L), recorder.events);
+
+        // Events after the bootstrap follow on as usual
+        receive(broadcast, 7, 9);
+        assertEquals(2, viewer.drain(recorder, 100));
+        assertEquals(2, viewer.getBootstrapCount());
+    }
+
+    @Test
+    void lateJoinerStartsFromLatestBootstrap() {
+        final var broadcast = new GameBroadcast(bootstrap(0), 16);
+        receive(broadcast, 0, 10);
+        broadcast.publish(bootstrap(7));
+
+        final var viewer = broadcast.join();
+        final var recorder = new Recorder();
+        assertEquals(3, viewer.drain(recorder, 100));
+        assertEquals(1, viewer.getBootstrapCount());
+        assertSame(broadcast.getLatest(), recorder.bootstraps.get(0));
+        assertEquals(List.of(7L, 8L, 9L), recorder.events);
+
+        receive(broadcast, 10, 11);
+        assertEquals(1, viewer.drain(recorder, 100));
+        assertEquals(List.of(7L, 8L, 9L, 10L), recorder.events);
+    }
+
+    @Test
+    void viewerFinishesAfterCloseOnceDrained() {
+        final var broadcast = new GameBroadcast(bootstrap(0), 8);
+        final var viewer = broadcast.join();
+        final var recorder = new Recorder();
+
+        receive(broadcast, 0, 3);
+        viewer.drain(recorder, 1);
+        assertFalse(viewer.isFinished());
+
+        broadcast.close();
+        assertFalse(viewer.isFinished(), "Events received before closing are still to be read");
+        assertEquals(2, viewer.drain(recorder, 100));
+        assertTrue(viewer.isFinished());
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameBroadcast(bootstrap(0), 12));
+    }
+}
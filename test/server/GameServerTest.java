@@ -0,0 +1,81 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Records the lines sent to it.
+     */
+    private static final class RecordingClient implements Client {
+
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(@NotNull String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        private String next() throws InterruptedException {
+            final var line = lines.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(line, "No reply");
+            return line;
+        }
+    }
+
+    private GameServer server;
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void oversizedLevelIsRejected() throws InterruptedException {
+        server = new GameServer(1, 10, TimeUnit.MINUTES.toMillis(1));
+        final var client = new RecordingClient();
+
+        server.handle("new 100000 100000", client);
+        assertEquals("err levels must be at most 100x100", client.next());
+        server.handle("new 6 101", client);
+        assertTrue(client.next().startsWith("err "));
+        assertEquals(0, server.getSessionCount());
+    }
+
+    @Test
+    void idleSessionIsUnregistered() throws InterruptedException {
+        // The idle timeout is shorter than it takes to generate the level and register the session
+        server = new GameServer(2, 1, 1);
+        final var client = new RecordingClient();
+
+        server.handle("new 6 6 1", client);
+        String line;
+        do {
+            line = client.next();
+        } while (line.startsWith("event "));
+        assertTrue(line.startsWith("ok "), line);
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (server.getSessionCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.getSessionCount());
+    }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import io.SyncEncoder;
+import io.SyncProtocol;
+import models.map.Boards;
+import models.map.Map;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.Test;
+import util.Coordinate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a {@link SyncClient} from a server played by the test, which drops a delta on purpose.
+ */
+class SyncClientTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static void send(OutputStream out, byte[] payload) throws IOException {
+        SyncProtocol.writeFrame(out, payload);
+        out.flush();
+    }
+
+    @Test
+    void resyncsAfterDroppedDelta() throws Exception {
+        final var map = new Map(4, 4, Boards.walled(4));
+        final var queue = List.of(new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.VERTICAL));
+        final var encoder = new SyncEncoder(map.snapshot(), queue);
+
+        try (var server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final var client = new SyncClient(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    server.getLocalPort()));
+            try (var socket = server.accept()) {
+                socket.setSoTimeout((int) TIMEOUT_MILLIS);
+                final OutputStream out = socket.getOutputStream();
+                final InputStream in = new BufferedInputStream(socket.getInputStream());
+
+                send(out, encoder.encodeSnapshot());
+                assertTrue(client.awaitSequence(0, TIMEOUT_MILLIS));
+
+                map.tryPlacePipe(new Coordinate(2, 1), new Pipe(Pipe.Shape.HORIZONTAL));
+                assertNotNull(encoder.encodeDelta(map.snapshot(), queue), "Dropped");
+                map.tryPlacePipe(new Coordinate(1, 2), new Pipe(Pipe.Shape.HORIZONTAL));
+                send(out, encoder.encodeDelta(map.snapshot(), queue));
+
+                final var request = new SyncProtocol.Reader(SyncProtocol.readFrame(in));
+                assertEquals(SyncProtocol.RESYNC, request.getByte());
+                assertEquals(0, request.getVarint(), "Latest sequence applied by the client");
+                assertEquals(0, client.getSequence());
+
+                send(out, encoder.encodeSnapshot());
+                assertTrue(client.awaitSequence(2, TIMEOUT_MILLIS));
+                assertTrue(client.matches(map.snapshot(), queue));
+                assertEquals(1, client.getResyncCount());
+
+                // Deltas after the snapshot apply again
+                map.tryPlacePipe(new Coordinate(2, 2), new Pipe(Pipe.Shape.VERTICAL));
+                send(out, encoder.encodeDelta(map.snapshot(), queue));
+                assertTrue(client.awaitSequence(3, TIMEOUT_MILLIS));
+                assertTrue(client.matches(map.snapshot(), queue));
+                assertEquals(1, client.getResyncCount());
+            } finally {
+                client.close();
+            }
+        }
+    }
+}
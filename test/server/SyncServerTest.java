@@ -0,0 +1,84 @@
+package server;
+
+import io.BoardReplica;
+import io.SyncProtocol;
+import models.FXGame;
+import models.map.Boards;
+import models.pipes.Pipe;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Talks to a {@link SyncServer} over the loopback interface as a bare client, to check which messages it sends.
+ */
+class SyncServerTest {
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private FXGame game;
+    private SyncServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        game = new FXGame(3, 4, 10, Boards.corridor(), List.of(
+                new Pipe(Pipe.Shape.HORIZONTAL), new Pipe(Pipe.Shape.VERTICAL), new Pipe(Pipe.Shape.CROSS)));
+        server = new SyncServer(game, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        game.dispose();
+    }
+
+    /**
+     * Reads messages, skipping heartbeats, until one of the given type arrives.
+     */
+    private static byte[] readUntil(InputStream in, byte type) throws IOException {
+        while (true) {
+            final var payload = SyncProtocol.readFrame(in);
+            if (payload[0] == type) {
+                return payload;
+            }
+        }
+    }
+
+    @Test
+    void joiningAndResyncingClientsReceiveSnapshots() throws Exception {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final var replica = new BoardReplica();
+
+            assertEquals(BoardReplica.Result.APPLIED, replica.apply(readUntil(in, SyncProtocol.SNAPSHOT)));
+            assertEquals(0, replica.getSequence());
+
+            game.placePipe(1, 1);
+            assertEquals(BoardReplica.Result.APPLIED, replica.apply(readUntil(in, SyncProtocol.DELTA)));
+            assertEquals(1, replica.getSequence());
+
+            final var out = socket.getOutputStream();
+            SyncProtocol.writeFrame(out, new SyncProtocol.Writer()
+                    .putByte(SyncProtocol.RESYNC)
+                    .putVarint(replica.getSequence())
+                    .toByteArray());
+            out.flush();
+            final var snapshot = readUntil(in, SyncProtocol.SNAPSHOT);
+            assertEquals(BoardReplica.Result.APPLIED, new BoardReplica().apply(snapshot));
+            assertEquals(BoardReplica.Result.APPLIED, replica.apply(snapshot));
+            assertEquals(server.getSequence(), replica.getSequence());
+            assertEquals(2, server.getSnapshotCount());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package util;
+
+import javafx.application.Platform;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the JavaFX toolkit once per test JVM and runs work on the FX thread.
+ *
+ * <p>
+ * Tests run on the headless Monocle platform (see the surefire configuration in {@code pom.xml}), so no display is
+ * needed.
+ * </p>
+ */
+public final class FxToolkit {
+
+    private static boolean started = false;
+
+    private FxToolkit() {
+    }
+
+    /**
+     * Starts the toolkit if it is not running yet.
+     */
+    public static synchronized void ensureStarted() {
+        if (started) {
+            return;
+        }
+
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            // Toolkit already initialized by someone else
+        }
+        Platform.setImplicitExit(false);
+        started = true;
+    }
+
+    /**
+     * Runs {@code action} on the FX thread and waits for its result.
+     *
+     * @param action Action to run.
+     * @param <T> Type of the result.
+     * @return Result of {@code action}.
+     * @throws Exception If {@code action} threw, or did not complete within 10 seconds.
+     */
+    public static <T> T call(@NotNull Callable<T> action) throws Exception {
+        ensureStarted();
+
+        final var future = new CompletableFuture<T>();
+        Platform.runLater(() -> {
+            try {
+                future.complete(action.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            throw new AssertionError("FX thread did not run the action in time", e);
+        }
+    }
+}
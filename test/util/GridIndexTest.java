@@ -0,0 +1,26 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GridIndexTest {
+
+    @Test
+    void neighboursWithinTheGrid() {
+        // 3 rows of 4 columns; index 5 is (1, 1)
+        assertEquals(1, GridIndex.neighbour(5, Direction.UP, 3, 4));
+        assertEquals(9, GridIndex.neighbour(5, Direction.DOWN, 3, 4));
+        assertEquals(4, GridIndex.neighbour(5, Direction.LEFT, 3, 4));
+        assertEquals(6, GridIndex.neighbour(5, Direction.RIGHT, 3, 4));
+    }
+
+    @Test
+    void noNeighbourPastTheEdges() {
+        assertEquals(-1, GridIndex.neighbour(2, Direction.UP, 3, 4));
+        assertEquals(-1, GridIndex.neighbour(9, Direction.DOWN, 3, 4));
+        assertEquals(-1, GridIndex.neighbour(4, Direction.LEFT, 3, 4));
+        // The last column does not wrap round to the next row
+        assertEquals(-1, GridIndex.neighbour(7, Direction.RIGHT, 3, 4));
+    }
+}
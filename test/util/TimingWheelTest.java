@@ -0,0 +1,156 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Steps a wheel without a thread through its ticks.
+ *
+ * <p>
+ * Ticks are one minute long, so a test takes a negligible fraction of a tick, and a timeout scheduled {@code n} ticks
+ * ahead expires on tick {@code n} or {@code n + 1}, depending on where in the current tick it was scheduled. Deadlines
+ * are taken from the clock, which stays in the first tick however far the wheel is advanced.
+ * </p>
+ */
+class TimingWheelTest {
+
+    private static final long TICK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TimingWheel wheel = new TimingWheel(TICK_MILLIS);
+
+    /**
+     * Tick each timeout expired on, in the order they were scheduled; -1 if it has not expired.
+     */
+    private final List<Long> expiredAt = new ArrayList<>();
+
+    private TimingWheel.Timeout schedule(long ticks) {
+        final int i = expiredAt.size();
+        expiredAt.add(-1L);
+        return wheel.schedule(ticks, TimeUnit.MINUTES, () -> expiredAt.set(i, wheel.getNextTick()));
+    }
+
+    private void advanceTo(long tick) {
+        while (wheel.getNextTick() <= tick) {
+            wheel.advance();
+        }
+    }
+
+    private void assertExpiresAfter(long delay, long scheduledAt, long expired) {
+        final long due = scheduledAt + delay;
+        assertTrue(expired >= due && expired <= due + 1,
+                () -> "Timeout of " + delay + " ticks scheduled at tick " + scheduledAt + " expired at " + expired);
+    }
+
+    @Test
+    void expiresOnItsTick() {
+        final var timeout = schedule(5);
+
+        advanceTo(4);
+        assertFalse(timeout.isExpired());
+        assertEquals(1, wheel.getPendingCount());
+
+        advanceTo(6);
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.getPendingCount());
+        assertExpiresAfter(5, 0, expiredAt.get(0));
+    }
+
+    @Test
+    void cascadesAcrossLevelBoundaries() {
+        // Delays on either side of the span of each wheel: 64, 64^2 and 64^3 ticks
+        final long[] delays = {0, 1, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262_143, 262_144, 262_145, 300_000};
+
+        for (long delay : delays) {
+            schedule(delay);
+        }
+        // Scheduling part-way through a turn of every wheel moves the boundaries relative to the deadlines
+        advanceTo(4096 + 64 * 3 + 37);
+        final long offset = wheel.getNextTick();
+        for (long delay : delays) {
+            schedule(offset + delay);
+        }
+
+        advanceTo(offset + 300_001);
+        for (int i = 0; i < delays.length; ++i) {
+            assertExpiresAfter(delays[i], 0, expiredAt.get(i));
+            assertExpiresAfter(delays[i], offset, expiredAt.get(delays.length + i));
+        }
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void cancelBeforeInsert() {
+        final var timeout = schedule(3);
+
+        // The timeout is still queued for the wheel, which has not run a tick since
+        assertTrue(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, wheel.getPendingCount());
+
+        advanceTo(10);
+        assertFalse(timeout.isExpired());
+        assertEquals(-1L, expiredAt.get(0));
+    }
+
+    @Test
+    void cancelAfterInsert() {
+        final var near = schedule(3);
+        final var far = schedule(5000);
+        final var kept = schedule(4);
+
+        // Both are linked into a bucket by the first tick
+        advanceTo(1);
+        assertTrue(near.cancel());
+        assertTrue(far.cancel());
+        assertEquals(1, wheel.getPendingCount());
+
+        advanceTo(5001);
+        assertEquals(-1L, expiredAt.get(0));
+        assertEquals(-1L, expiredAt.get(1));
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel(), "An expired timeout cannot be cancelled");
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void timeoutsPastAllWheelsWaitInTheOverflowBucket() {
+        final long delay = TimingWheel.MAX_TICKS + 100;
+        final var timeout = schedule(delay);
+        final var limit = schedule(TimingWheel.MAX_TICKS - 1);
+
+        advanceTo(TimingWheel.MAX_TICKS + 1);
+        assertTrue(limit.isExpired());
+        assertFalse(timeout.isExpired(), "Expired when the wheels came round, before its deadline");
+
+        advanceTo(delay - 1);
+        assertFalse(timeout.isExpired());
+        advanceTo(delay + 1);
+        assertTrue(timeout.isExpired());
+        assertExpiresAfter(delay, 0, expiredAt.get(0));
+    }
+
+    @Test
+    void wheelThreadRunsDueTimeouts() throws InterruptedException {
+        final var threaded = new TimingWheel(1, "timing-wheel-test");
+        try {
+            final var done = new CountDownLatch(3);
+            final long start = System.nanoTime();
+            threaded.schedule(0, TimeUnit.MILLISECONDS, done::countDown);
+            threaded.schedule(20, TimeUnit.MILLISECONDS, done::countDown);
+            threaded.schedule(100, TimeUnit.MILLISECONDS, done::countDown);
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        } finally {
+            threaded.close();
+        }
+    }
+}